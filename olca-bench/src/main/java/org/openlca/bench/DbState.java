@@ -0,0 +1,40 @@
+package org.openlca.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openlca.core.matrix.MatrixData;
+
+/**
+ * Holds a synthetic database of the given size for the benchmarks. The
+ * database is created once per trial; the number of processes can be set
+ * via `-p processes=1000,10000,50000`.
+ */
+@State(Scope.Benchmark)
+public class DbState {
+
+	@Param({"1000"})
+	public int processes;
+
+	@Param({"42"})
+	public long seed;
+
+	public SyntheticDb synth;
+
+	/** The matrix data of the product system of the database. */
+	public MatrixData data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		synth = SyntheticDb.create(processes, seed);
+		data = MatrixData.of(synth.db, synth.setup());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		synth.close();
+	}
+}
@@ -0,0 +1,78 @@
+package org.openlca.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.matrix.ParameterTable;
+import org.openlca.expressions.FormulaInterpreter;
+
+/**
+ * Benchmarks the creation of the formula interpreter with the parameters of
+ * the synthetic database and the evaluation of the exchange formulas in the
+ * scopes of their processes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormulaBench {
+
+	@State(Scope.Benchmark)
+	public static class Formulas {
+
+		final HashSet<Long> contexts = new HashSet<>();
+		final List<Long> owners = new ArrayList<>();
+		final List<String> formulas = new ArrayList<>();
+		FormulaInterpreter interpreter;
+
+		@Setup(Level.Trial)
+		public void setup(DbState state) {
+			var db = state.synth.db;
+			contexts.addAll(state.synth.system.processes);
+			var sql = "select f_owner, resulting_amount_formula "
+				+ "from tbl_exchanges where resulting_amount_formula is not null";
+			NativeSql.on(db).query(sql, r -> {
+				owners.add(r.getLong(1));
+				formulas.add(r.getString(2));
+				return true;
+			});
+			interpreter = interpreter(state);
+		}
+
+		FormulaInterpreter interpreter(DbState state) {
+			return ParameterTable.interpreter(
+				state.synth.db, contexts, Collections.emptyList());
+		}
+	}
+
+	@Benchmark
+	public FormulaInterpreter interpreter(Formulas f, DbState state) {
+		return f.interpreter(state);
+	}
+
+	@Benchmark
+	public double evaluate(Formulas f) throws Exception {
+		double sum = 0;
+		for (int i = 0; i < f.formulas.size(); i++) {
+			var scope = f.interpreter.getScopeOrGlobal(f.owners.get(i));
+			sum += scope.eval(f.formulas.get(i));
+		}
+		return sum;
+	}
+}
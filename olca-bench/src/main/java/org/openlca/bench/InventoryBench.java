@@ -0,0 +1,57 @@
+package org.openlca.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.cache.ExchangeTable;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.results.providers.EagerResultProvider;
+import org.openlca.core.results.providers.LazyResultProvider;
+import org.openlca.core.results.providers.SimulationResultProvider;
+
+/**
+ * Benchmarks the steps from the database to a result: reading the exchanges,
+ * building the matrices of a product system, and calculating the results
+ * with the different result providers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InventoryBench {
+
+	@Benchmark
+	public void exchangeTable(DbState state, Blackhole bh) {
+		var techIndex = TechIndex.of(state.synth.system, state.synth.db);
+		new ExchangeTable(state.synth.db).each(techIndex, bh::consume);
+	}
+
+	@Benchmark
+	public MatrixData matrixData(DbState state) {
+		return MatrixData.of(state.synth.db, state.synth.setup());
+	}
+
+	@Benchmark
+	public double[] eagerProvider(DbState state) {
+		return EagerResultProvider.create(state.data).totalImpacts();
+	}
+
+	@Benchmark
+	public double[] lazyProvider(DbState state) {
+		return LazyResultProvider.create(state.data).totalImpacts();
+	}
+
+	@Benchmark
+	public double[] simulationProvider(DbState state) {
+		return SimulationResultProvider.of(state.data).totalImpacts();
+	}
+}
@@ -0,0 +1,105 @@
+package org.openlca.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.Matrix;
+import org.openlca.core.matrix.format.MatrixBuilder;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.SparseJavaSolver;
+import org.openlca.core.matrix.solvers.SymbolicFactorization;
+
+/**
+ * Benchmarks building the technology matrix of the synthetic database, its
+ * conversion into the compressed column format, and the factorization and
+ * solving with the sparse Java solver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatrixBench {
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		int[] rows;
+		int[] cols;
+		double[] values;
+		int size;
+
+		HashPointMatrix hashMatrix;
+		CSCMatrix cscMatrix;
+		SparseJavaSolver solver;
+		SymbolicFactorization symbolic;
+		Factorization factorization;
+
+		@Setup(Level.Trial)
+		public void setup(DbState state) {
+			var techMatrix = state.data.techMatrix;
+			size = techMatrix.rows();
+			cscMatrix = CSCMatrix.of(techMatrix);
+			hashMatrix = new HashPointMatrix(size, size);
+			cscMatrix.iterate(hashMatrix::set);
+
+			int n = cscMatrix.values.length;
+			rows = new int[n];
+			cols = new int[n];
+			values = new double[n];
+			int[] i = {0};
+			cscMatrix.iterate((row, col, val) -> {
+				rows[i[0]] = row;
+				cols[i[0]] = col;
+				values[i[0]] = val;
+				i[0]++;
+			});
+
+			solver = new SparseJavaSolver();
+			symbolic = solver.analyze(cscMatrix);
+			factorization = solver.factorize(cscMatrix);
+		}
+	}
+
+	@Benchmark
+	public Matrix build(Data data) {
+		var builder = new MatrixBuilder();
+		builder.minSize(data.size, data.size);
+		for (int i = 0; i < data.values.length; i++) {
+			builder.add(data.rows[i], data.cols[i], data.values[i]);
+		}
+		return builder.finish();
+	}
+
+	@Benchmark
+	public CSCMatrix compress(Data data) {
+		return data.hashMatrix.compress();
+	}
+
+	@Benchmark
+	public Factorization factorize(Data data) {
+		return data.solver.factorize(data.cscMatrix);
+	}
+
+	@Benchmark
+	public Factorization numericFactorize(Data data) {
+		return data.symbolic.factorize(data.cscMatrix);
+	}
+
+	@Benchmark
+	public double[] solve(Data data) {
+		return data.factorization.solve(0, 1.0);
+	}
+}
@@ -0,0 +1,114 @@
+package org.openlca.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.io.npy.Npy;
+import org.openlca.core.matrix.io.npy.Npz;
+import org.openlca.util.Dirs;
+
+/**
+ * Benchmarks writing and reading matrices in the NPY (dense) and NPZ (sparse)
+ * formats that are used in libraries: the technology matrix of the synthetic
+ * database in NPZ format and a dense matrix of the given size in NPY format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NpyBench {
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		/** The number of rows and columns of the dense matrix. */
+		@Param({"1000"})
+		public int denseSize;
+
+		File dir;
+		File npy;
+		File npz;
+		DenseMatrix dense;
+		CSCMatrix sparse;
+
+		@Setup(Level.Trial)
+		public void setup(DbState state) throws Exception {
+			dir = Files.createTempDirectory("olca_bench_").toFile();
+			npy = new File(dir, "dense.npy");
+			npz = new File(dir, "sparse.npz");
+			var rand = new Random(state.seed);
+			dense = new DenseMatrix(denseSize, denseSize);
+			for (int i = 0; i < dense.data.length; i++) {
+				dense.data[i] = rand.nextDouble();
+			}
+			sparse = CSCMatrix.of(state.data.techMatrix);
+			Npy.save(npy, dense);
+			Npz.save(npz, sparse);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			Dirs.delete(dir);
+		}
+	}
+
+	@Benchmark
+	public File saveNpy(Data f) {
+		var file = new File(f.dir, "out.npy");
+		Npy.save(file, f.dense);
+		return file;
+	}
+
+	@Benchmark
+	public DenseMatrix loadNpy(Data f) {
+		return Npy.load(f.npy);
+	}
+
+	@Benchmark
+	public double[] loadNpyColumn(Data f) {
+		return Npy.loadColumn(f.npy, f.denseSize / 2);
+	}
+
+	@Benchmark
+	public double[] mapNpyColumn(Data f) {
+		try (var m = Npy.map(f.npy)) {
+			return m.getColumn(f.denseSize / 2);
+		}
+	}
+
+	@Benchmark
+	public File saveNpz(Data f) {
+		var file = new File(f.dir, "out.npz");
+		Npz.save(file, f.sparse);
+		return file;
+	}
+
+	@Benchmark
+	public MatrixReader loadNpz(Data f) {
+		return Npz.load(f.npz);
+	}
+
+	@Benchmark
+	public double[] loadNpzColumn(Data f) {
+		return Npz.loadColumn(f.npz, f.sparse.columns / 2);
+	}
+}
@@ -0,0 +1,110 @@
+package org.openlca.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.Matrix;
+import org.openlca.core.matrix.format.MatrixConverter;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.solvers.MatrixSolver;
+import org.openlca.core.matrix.solvers.SparseJavaSolver;
+import org.openlca.julia.Julia;
+import org.openlca.julia.JuliaSolver;
+
+/**
+ * Compares the sparse product kernels (`SparseProducts`) with the products of
+ * the native solver on the matrices of the synthetic database: $B s$,
+ * $C B$ (sparse x sparse), $B X$ (sparse x dense, like a block of columns of
+ * $A^{-1}$), and $X^T C^T$-like dense x sparse products. For the native
+ * solver, the matrices are passed in dense format so that the products are
+ * calculated with BLAS. The native libraries need to be available for the
+ * `julia` parameter; use `-p solver=java` otherwise.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductBench {
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		@Param({"java", "julia"})
+		public String solver;
+
+		/** The number of dense columns of X. */
+		@Param({"64"})
+		public int columns;
+
+		MatrixSolver matrixSolver;
+		MatrixReader enviMatrix;
+		MatrixReader impactMatrix;
+		MatrixReader denseImpacts;
+		DenseMatrix x;
+		double[] s;
+
+		@Setup(Level.Trial)
+		public void setup(DbState state) {
+			var data = state.data;
+			int n = data.techMatrix.columns();
+			var rand = new Random(state.seed);
+			s = new double[n];
+			for (int i = 0; i < n; i++) {
+				s[i] = rand.nextDouble();
+			}
+			x = new DenseMatrix(n, columns);
+			for (int i = 0; i < x.data.length; i++) {
+				x.data[i] = rand.nextDouble();
+			}
+			denseImpacts = MatrixConverter.dense(data.impactMatrix);
+
+			if ("julia".equals(solver)) {
+				if (!Julia.isLoaded() && !Julia.load())
+					throw new IllegalStateException(
+						"native libraries not available; run with -p solver=java");
+				matrixSolver = new JuliaSolver();
+				enviMatrix = MatrixConverter.dense(data.enviMatrix);
+				impactMatrix = denseImpacts;
+			} else {
+				matrixSolver = new SparseJavaSolver();
+				enviMatrix = CSCMatrix.of(data.enviMatrix);
+				impactMatrix = CSCMatrix.of(data.impactMatrix);
+			}
+		}
+	}
+
+	@Benchmark
+	public double[] sparseVector(Data data) {
+		return data.matrixSolver.multiply(data.enviMatrix, data.s);
+	}
+
+	@Benchmark
+	public Matrix sparseSparse(Data data) {
+		return data.matrixSolver.multiply(data.impactMatrix, data.enviMatrix);
+	}
+
+	@Benchmark
+	public Matrix sparseDense(Data data) {
+		return data.matrixSolver.multiply(data.enviMatrix, data.x);
+	}
+
+	@Benchmark
+	public Matrix denseSparse(Data data) {
+		return data.matrixSolver.multiply(data.denseImpacts, data.enviMatrix);
+	}
+}
@@ -0,0 +1,51 @@
+package org.openlca.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlca.core.math.Simulator;
+import org.openlca.core.matrix.solvers.MatrixSolver;
+import org.openlca.core.results.SimpleResult;
+
+/**
+ * Benchmarks a single run of a Monte-Carlo simulation of the product system
+ * of the synthetic database: the generation of the random numbers, the
+ * evaluation of the parameters, and the calculation of the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulationBench {
+
+	@State(Scope.Benchmark)
+	public static class Sim {
+
+		Simulator simulator;
+
+		@Setup(Level.Trial)
+		public void setup(DbState state) {
+			var setup = state.synth.setup();
+			setup.withUncertainties = true;
+			setup.seed = state.seed;
+			simulator = Simulator.create(
+				setup, state.synth.db, MatrixSolver.Instance.getNew());
+		}
+	}
+
+	@Benchmark
+	public SimpleResult nextRun(Sim sim) {
+		return sim.simulator.nextRun();
+	}
+}
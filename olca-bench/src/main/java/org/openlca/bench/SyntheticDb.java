@@ -0,0 +1,184 @@
+package org.openlca.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.model.AbstractEntity;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.ImpactCategory;
+import org.openlca.core.model.ImpactMethod;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProcessLink;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.Uncertainty;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.core.model.descriptors.Descriptor;
+
+/**
+ * Creates an in-memory database with a synthetic, fully linked product system
+ * of a given number of processes. The data only depend on the size and the
+ * seed, so that benchmark runs of different commits work on the same data.
+ * The structure follows typical background databases: each process has one
+ * product output, a few product inputs (some of them from hub processes),
+ * several elementary flows, and uncertain amounts. Each process has a
+ * parameter that is used in a formula of an elementary flow, and there is an
+ * LCIA method with factors for all elementary flows.
+ */
+public final class SyntheticDb implements AutoCloseable {
+
+	public final IDatabase db;
+	public final ProductSystem system;
+	public final ImpactMethod method;
+	public final int processes;
+
+	private SyntheticDb(IDatabase db, ProductSystem system,
+		ImpactMethod method, int processes) {
+		this.db = db;
+		this.system = system;
+		this.method = method;
+		this.processes = processes;
+	}
+
+	public static SyntheticDb create(int processes, long seed) {
+		var rand = new Random(seed);
+		var db = Derby.createInMemory();
+
+		var units = db.insert(UnitGroup.of("Mass units", Unit.of("kg")));
+		var mass = db.insert(FlowProperty.of("Mass", units));
+
+		// flows
+		int elemCount = Math.min(2000, Math.max(10, processes / 10));
+		var elemFlows = new ArrayList<Flow>(elemCount);
+		for (int i = 0; i < elemCount; i++) {
+			elemFlows.add(Flow.elementary("e" + i, mass));
+		}
+		insertAll(db, elemFlows);
+		var products = new ArrayList<Flow>(processes);
+		for (int i = 0; i < processes; i++) {
+			products.add(Flow.product("p" + i, mass));
+		}
+		insertAll(db, products);
+
+		// processes; the sum of the inputs of a column is always smaller
+		// than its output so that the technology matrix is not singular
+		int hubs = Math.max(1, processes / 50);
+		var procs = new ArrayList<Process>(processes);
+		for (int i = 0; i < processes; i++) {
+			var process = Process.of("p" + i, products.get(i));
+			int inputs = processes > 1 ? rand.nextInt(6) : 0;
+			for (int k = 0; k < inputs; k++) {
+				int provider = rand.nextDouble() < 0.3
+					? rand.nextInt(hubs)
+					: rand.nextInt(processes);
+				if (provider == i)
+					continue;
+				double amount = 0.01 + 0.14 * rand.nextDouble();
+				var e = process.input(products.get(provider), amount);
+				e.uncertainty = Uncertainty.uniform(0.5 * amount, 1.5 * amount);
+			}
+
+			process.parameter("f", 1.0).uncertainty = Uncertainty.normal(1, 0.1);
+			int elems = 3 + rand.nextInt(6);
+			for (int k = 0; k < elems; k++) {
+				var flow = elemFlows.get(rand.nextInt(elemCount));
+				double amount = rand.nextDouble();
+				var e = process.output(flow, amount);
+				if (k == 0) {
+					e.formula = String.format(Locale.US, "%.6f * f", amount);
+				} else {
+					e.uncertainty = Uncertainty.logNormal(amount, 1.2);
+				}
+			}
+			procs.add(process);
+		}
+		insertAll(db, procs);
+
+		// the linked product system
+		var system = ProductSystem.of(procs.get(0));
+		for (var process : procs) {
+			system.processes.add(process.id);
+			for (var e : process.exchanges) {
+				if (!e.isInput || e.flow.flowType != FlowType.PRODUCT_FLOW)
+					continue;
+				var provider = procs.get(indexOf(e.flow));
+				var link = new ProcessLink();
+				link.providerId = provider.id;
+				link.flowId = e.flow.id;
+				link.processId = process.id;
+				link.exchangeId = e.id;
+				system.processLinks.add(link);
+			}
+		}
+		system = db.insert(system);
+
+		// LCIA method
+		var method = ImpactMethod.of("method");
+		for (int i = 0; i < 3; i++) {
+			var impact = ImpactCategory.of("i" + i);
+			for (var flow : elemFlows) {
+				if (rand.nextDouble() < 0.5) {
+					impact.factor(flow, rand.nextDouble());
+				}
+			}
+			method.add(db.insert(impact));
+		}
+		method = db.insert(method);
+
+		return new SyntheticDb(db, system, method, processes);
+	}
+
+	/**
+	 * Creates a calculation setup with the LCIA method of the database.
+	 */
+	public CalculationSetup setup() {
+		var setup = new CalculationSetup(system);
+		setup.impactMethod = Descriptor.of(method);
+		return setup;
+	}
+
+	/**
+	 * The product flows are named `p{i}` where i is the index of the process.
+	 */
+	private static int indexOf(Flow product) {
+		return Integer.parseInt(product.name.substring(1));
+	}
+
+	/**
+	 * Inserts the given entities in transactions of 1000 entities which is
+	 * much faster than a transaction for each entity.
+	 */
+	private static void insertAll(
+		IDatabase db, List<? extends AbstractEntity> entities) {
+		int batch = 1000;
+		for (int start = 0; start < entities.size(); start += batch) {
+			int end = Math.min(entities.size(), start + batch);
+			var em = db.newEntityManager();
+			try {
+				em.getTransaction().begin();
+				for (int i = start; i < end; i++) {
+					em.persist(entities.get(i));
+				}
+				em.getTransaction().commit();
+			} finally {
+				em.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			db.close();
+		} catch (Exception e) {
+			throw new RuntimeException("failed to close database", e);
+		}
+	}
+}
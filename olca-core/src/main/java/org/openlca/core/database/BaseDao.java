@@ -157,6 +157,25 @@ public class BaseDao<T extends AbstractEntity> implements IDao<T> {
 		}
 	}
 
+	@Override
+	public void insertAll(Collection<T> entities) {
+		if (entities == null || entities.isEmpty())
+			return;
+		var em = db.newEntityManager();
+		try {
+			em.getTransaction().begin();
+			for (T entity : entities) {
+				em.persist(entity);
+			}
+			em.getTransaction().commit();
+		} catch (Exception e) {
+			DatabaseException.logAndThrow(log, "Error while inserting "
+					+ entityType.getSimpleName(), e);
+		} finally {
+			em.close();
+		}
+	}
+
 	@Override
 	public T getForId(long id) {
 		log.trace("get {} for id={}", entityType, id);
@@ -248,6 +267,32 @@ public class BaseDao<T extends AbstractEntity> implements IDao<T> {
 		}
 	}
 
+	/**
+	 * Returns the next entities with an ID that is greater than the given ID,
+	 * ordered by their IDs. At most `count` entities are returned. This can be
+	 * used to page through all entities of a type with a stable order: the
+	 * next page starts after the ID of the last entity of the current page.
+	 */
+	public List<T> getNext(long afterId, int count) {
+		if (count <= 0)
+			return Collections.emptyList();
+		var em = db.newEntityManager();
+		try {
+			String jpql = "SELECT o FROM " + entityType.getSimpleName()
+					+ " o WHERE o.id > :id ORDER BY o.id";
+			TypedQuery<T> query = em.createQuery(jpql, entityType);
+			query.setParameter("id", afterId);
+			query.setMaxResults(count);
+			return query.getResultList();
+		} catch (Exception e) {
+			DatabaseException.logAndThrow(log, "Error while loading next "
+					+ entityType.getSimpleName(), e);
+			return Collections.emptyList();
+		} finally {
+			em.close();
+		}
+	}
+
 	@Override
 	public List<T> getAll(String jpql, Map<String, ?> parameters) {
 		var em = db.newEntityManager();
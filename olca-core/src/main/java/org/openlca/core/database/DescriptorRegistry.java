@@ -0,0 +1,263 @@
+package org.openlca.core.database;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.LocationDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.model.descriptors.ProductSystemDescriptor;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * A shared registry of the descriptors of a database that are needed to set
+ * up a calculation: flows, processes, product systems, and locations. There
+ * is one registry per database instance. The descriptor maps are loaded
+ * lazily on first access and are then kept up to date with the changes that
+ * are reported to the database listeners. Changes that are made via native
+ * SQL are not reported to these listeners, but the registry is dropped when
+ * the cache of the database is cleared (which `NativeSql` does after each
+ * update).
+ * <p>
+ * The maps that are returned from a registry are shared between all callers
+ * and must not be modified. A change of the database never modifies a map
+ * that was already returned; it creates an updated copy on the next access
+ * instead. Thus, the maps can be read from multiple threads.
+ */
+public final class DescriptorRegistry implements IDatabaseListener {
+
+	/**
+	 * The maximum number of changes that are collected for a loaded map. When
+	 * there are more changes, the map is dropped and loaded again on the next
+	 * access.
+	 */
+	private static final int MAX_PENDING = 10_000;
+
+	private static final Map<IDatabase, DescriptorRegistry> registries =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The database is only weakly referenced because the registry is also
+	 * the value in the weak map of the registries.
+	 */
+	private final WeakReference<IDatabase> db;
+
+	private final Table<FlowDescriptor> flows = new Table<>(
+			ModelType.FLOW, FlowDescriptor.class,
+			db -> new FlowDao(db).descriptorMap());
+	private final Table<ProcessDescriptor> processes = new Table<>(
+			ModelType.PROCESS, ProcessDescriptor.class,
+			db -> new ProcessDao(db).descriptorMap());
+	private final Table<ProductSystemDescriptor> systems = new Table<>(
+			ModelType.PRODUCT_SYSTEM, ProductSystemDescriptor.class,
+			db -> new ProductSystemDao(db).descriptorMap());
+	private final Table<LocationDescriptor> locations = new Table<>(
+			ModelType.LOCATION, LocationDescriptor.class,
+			db -> new LocationDao(db).descriptorMap());
+
+	private DescriptorRegistry(IDatabase db) {
+		this.db = new WeakReference<>(db);
+	}
+
+	/**
+	 * Returns the descriptor registry of the given database.
+	 */
+	public static DescriptorRegistry of(IDatabase db) {
+		synchronized (registries) {
+			var registry = registries.get(db);
+			if (registry != null)
+				return registry;
+			registry = new DescriptorRegistry(db);
+			db.addListener(registry);
+			registries.put(db, registry);
+			return registry;
+		}
+	}
+
+	/**
+	 * Drops the loaded descriptors of the given database (if there are any) so
+	 * that they are reloaded on the next access.
+	 */
+	public static void invalidate(IDatabase db) {
+		var registry = registries.get(db);
+		if (registry != null) {
+			registry.invalidate();
+		}
+	}
+
+	public TLongObjectHashMap<FlowDescriptor> flows() {
+		return flows.get(database());
+	}
+
+	public TLongObjectHashMap<ProcessDescriptor> processes() {
+		return processes.get(database());
+	}
+
+	public TLongObjectHashMap<ProductSystemDescriptor> productSystems() {
+		return systems.get(database());
+	}
+
+	public TLongObjectHashMap<LocationDescriptor> locations() {
+		return locations.get(database());
+	}
+
+	public void invalidate() {
+		flows.invalidate();
+		processes.invalidate();
+		systems.invalidate();
+		locations.invalidate();
+	}
+
+	private IDatabase database() {
+		var d = db.get();
+		if (d == null)
+			throw new IllegalStateException("the database is not available");
+		return d;
+	}
+
+	@Override
+	public void modelInserted(Descriptor d) {
+		onChange(d, false);
+	}
+
+	@Override
+	public void modelUpdated(Descriptor d) {
+		onChange(d, false);
+	}
+
+	@Override
+	public void modelDeleted(Descriptor d) {
+		onChange(d, true);
+	}
+
+	private void onChange(Descriptor d, boolean deleted) {
+		if (d == null || d.type == null)
+			return;
+		switch (d.type) {
+			case FLOW:
+				flows.onChange(d, deleted);
+				break;
+			case PROCESS:
+				processes.onChange(d, deleted);
+				break;
+			case PRODUCT_SYSTEM:
+				systems.onChange(d, deleted);
+				break;
+			case LOCATION:
+				locations.onChange(d, deleted);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * The descriptors of a single model type.
+	 */
+	private static class Table<V extends Descriptor> {
+
+		private final ModelType type;
+		private final Class<V> descriptorType;
+		private final Function<IDatabase, TLongObjectHashMap<V>> loader;
+
+		/** The current map; it is never modified after it was published. */
+		private TLongObjectHashMap<V> map;
+
+		/** The changes that are not yet applied on the current map. */
+		private final List<Change<V>> pending = new ArrayList<>();
+
+		/** Incremented with every change when no map is loaded. */
+		private long version;
+
+		Table(ModelType type, Class<V> descriptorType,
+				Function<IDatabase, TLongObjectHashMap<V>> loader) {
+			this.type = type;
+			this.descriptorType = descriptorType;
+			this.loader = loader;
+		}
+
+		TLongObjectHashMap<V> get(IDatabase db) {
+			long v;
+			synchronized (this) {
+				if (map != null) {
+					applyPending();
+					return map;
+				}
+				v = version;
+			}
+			var log = LoggerFactory.getLogger(DescriptorRegistry.class);
+			log.trace("load {} descriptors of {}", type, db);
+			var next = loader.apply(db);
+			synchronized (this) {
+				// only keep the map when the database was not changed in the
+				// meantime; changes during the loading could be missing in it
+				if (map == null && version == v) {
+					map = next;
+					pending.clear();
+				}
+				if (map == null)
+					return next;
+				applyPending();
+				return map;
+			}
+		}
+
+		private void applyPending() {
+			if (pending.isEmpty())
+				return;
+			var next = new TLongObjectHashMap<>(map);
+			for (var change : pending) {
+				if (change.deleted) {
+					next.remove(change.descriptor.id);
+				} else {
+					next.put(change.descriptor.id, change.descriptor);
+				}
+			}
+			pending.clear();
+			map = next;
+		}
+
+		synchronized void onChange(Descriptor d, boolean deleted) {
+			if (map == null) {
+				version++;
+				return;
+			}
+			if (!descriptorType.isInstance(d)) {
+				// we cannot update the map with an unexpected descriptor
+				invalidate();
+				return;
+			}
+			pending.add(new Change<>(descriptorType.cast(d), deleted));
+			if (pending.size() > MAX_PENDING) {
+				// e.g. in large imports, it is cheaper to reload the map
+				invalidate();
+			}
+		}
+
+		synchronized void invalidate() {
+			map = null;
+			pending.clear();
+			version++;
+		}
+	}
+
+	private static class Change<V extends Descriptor> {
+
+		final V descriptor;
+		final boolean deleted;
+
+		Change(V descriptor, boolean deleted) {
+			this.descriptor = descriptor;
+			this.deleted = deleted;
+		}
+	}
+}
@@ -19,6 +19,11 @@ public interface IDao<T> {
 
 	T insert(T entity);
 
+	/**
+	 * Inserts the given entities in a single transaction.
+	 */
+	void insertAll(Collection<T> entities);
+
 	T getForId(long id);
 
 	List<T> getForIds(Set<Long> ids);
@@ -12,6 +12,8 @@ import java.util.Set;
 import gnu.trove.set.TLongSet;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.openlca.core.database.search.SearchIndex;
+import org.openlca.core.matrix.cache.ExchangeSnapshot;
 import org.openlca.core.model.AbstractEntity;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.RootEntity;
@@ -62,11 +64,15 @@ public interface IDatabase extends Closeable, INotifiable {
 	File getFileStorageLocation();
 
 	/**
-	 * Clears the cache of the entity manager of this database. You should always
-	 * call this method when you modified the database (via native SQL queries)
-	 * outside of the entity manager.
+	 * Clears the cache of the entity manager, the descriptor registry, the
+	 * search index, and the exchange snapshot of this database. You should
+	 * always call this method when you modified the database (via native SQL
+	 * queries) outside of the entity manager.
 	 */
 	default void clearCache() {
+		DescriptorRegistry.invalidate(this);
+		SearchIndex.invalidate(this);
+		ExchangeSnapshot.invalidate(this);
 		var emf = getEntityFactory();
 		if (emf == null)
 			return;
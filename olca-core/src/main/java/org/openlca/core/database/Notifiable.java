@@ -1,13 +1,20 @@
 package org.openlca.core.database;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.openlca.core.model.descriptors.Descriptor;
 
 public class Notifiable implements INotifiable {
 
-	private List<IDatabaseListener> listeners = new ArrayList<>();
+	/**
+	 * Listeners can be registered from other threads (e.g. the caches of a
+	 * database that are created lazily in calculations) while the DAOs
+	 * notify them. Thus, we use a copy-on-write list here; registrations are
+	 * rare compared to notifications.
+	 */
+	private final List<IDatabaseListener> listeners =
+			new CopyOnWriteArrayList<>();
 
 	@Override
 	public void addListener(IDatabaseListener listener) {
@@ -0,0 +1,254 @@
+package org.openlca.core.database.search;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.database.ParameterDao;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.descriptors.CategorizedDescriptor;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.util.Categories;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * An in-memory full-text index of the descriptors of a database. The names,
+ * reference IDs, category paths, and (for flows) synonyms of the descriptors
+ * are indexed. A search query is split into terms and a descriptor matches
+ * when at least one of the terms is contained in it. The results are ranked
+ * by the number and quality of the matches: matches of whole words and
+ * matches in the names are ranked higher than partial matches and matches in
+ * the synonyms or category paths.
+ * <p>
+ * There is one index per database instance. The index of a model type is
+ * built on the first search for that type and is then kept up to date with
+ * the changes that are reported to the database listeners. Like the
+ * `DescriptorRegistry`, the index is dropped when the cache of the database is
+ * cleared, which is done after updates via native SQL.
+ */
+public final class SearchIndex implements IDatabaseListener {
+
+	/**
+	 * The model types that are searched when no type is given in a search.
+	 */
+	private static final ModelType[] TYPES = {
+			ModelType.CATEGORY,
+			ModelType.PROJECT,
+			ModelType.PRODUCT_SYSTEM,
+			ModelType.IMPACT_METHOD,
+			ModelType.IMPACT_CATEGORY,
+			ModelType.PROCESS,
+			ModelType.FLOW,
+			ModelType.SOCIAL_INDICATOR,
+			ModelType.PARAMETER,
+			ModelType.FLOW_PROPERTY,
+			ModelType.UNIT_GROUP,
+			ModelType.CURRENCY,
+			ModelType.ACTOR,
+			ModelType.SOURCE,
+			ModelType.LOCATION,
+			ModelType.DQ_SYSTEM,
+	};
+
+	private static final Map<IDatabase, SearchIndex> indices =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final WeakReference<IDatabase> db;
+	private final Map<ModelType, Segment> segments =
+			new EnumMap<>(ModelType.class);
+	private Categories.PathBuilder categories;
+
+	private SearchIndex(IDatabase db) {
+		this.db = new WeakReference<>(db);
+	}
+
+	/**
+	 * Returns the search index of the given database.
+	 */
+	public static SearchIndex of(IDatabase db) {
+		synchronized (indices) {
+			var index = indices.get(db);
+			if (index != null)
+				return index;
+			index = new SearchIndex(db);
+			db.addListener(index);
+			indices.put(db, index);
+			return index;
+		}
+	}
+
+	/**
+	 * Drops the index of the given database (if there is one) so that it is
+	 * rebuilt on the next search.
+	 */
+	public static void invalidate(IDatabase db) {
+		var index = indices.get(db);
+		if (index != null) {
+			index.invalidate();
+		}
+	}
+
+	/**
+	 * Searches for descriptors of all types that match the given query.
+	 */
+	public List<Descriptor> search(String query) {
+		return search(query, null);
+	}
+
+	/**
+	 * Searches for descriptors of the given type that match the given query.
+	 * If the type is `null`, all types are searched. The results are sorted
+	 * by their rank, the best match comes first.
+	 */
+	public List<Descriptor> search(String query, ModelType type) {
+		var terms = Tokens.termsOf(query);
+		if (terms.length == 0)
+			return Collections.emptyList();
+		var types = type != null
+				? new ModelType[]{type}
+				: TYPES;
+		var hits = new ArrayList<Segment.Hit>();
+		synchronized (this) {
+			for (var t : types) {
+				var segment = segmentOf(t);
+				if (segment != null) {
+					segment.search(terms, hits);
+				}
+			}
+		}
+		return hits.stream()
+				.sorted(Comparator.<Segment.Hit>comparingInt(h -> -h.score)
+						.thenComparingInt(h -> h.position < 0
+								? Integer.MAX_VALUE
+								: h.position)
+						.thenComparingInt(h -> h.doc.name.length())
+						.thenComparing(h -> h.doc.name))
+				.map(h -> h.doc.descriptor)
+				.collect(Collectors.toList());
+	}
+
+	public synchronized void invalidate() {
+		segments.clear();
+		categories = null;
+	}
+
+	private Segment segmentOf(ModelType type) {
+		var segment = segments.get(type);
+		if (segment != null && !segment.isFragmented())
+			return segment;
+		var database = db.get();
+		if (database == null || type == null || type.getModelClass() == null)
+			return null;
+
+		var log = LoggerFactory.getLogger(getClass());
+		log.trace("build search index for {}", type);
+		segment = new Segment();
+		var synonyms = type == ModelType.FLOW
+				? synonymsOf(database)
+				: null;
+		for (var d : descriptorsOf(database, type)) {
+			var syns = synonyms != null
+					? synonyms.get(d.id)
+					: null;
+			segment.add(d, syns, categoryPathOf(database, d));
+		}
+		segments.put(type, segment);
+		return segment;
+	}
+
+	private List<? extends Descriptor> descriptorsOf(
+			IDatabase database, ModelType type) {
+		if (type == ModelType.PARAMETER)
+			return new ParameterDao(database).getGlobalDescriptors();
+		return Daos.root(database, type).getDescriptors();
+	}
+
+	private TLongObjectHashMap<String> synonymsOf(IDatabase database) {
+		var map = new TLongObjectHashMap<String>();
+		var sql = "select id, synonyms from tbl_flows"
+				+ " where synonyms is not null";
+		NativeSql.on(database).query(sql, r -> {
+			map.put(r.getLong(1), r.getString(2));
+			return true;
+		});
+		return map;
+	}
+
+	private String categoryPathOf(IDatabase database, Descriptor d) {
+		if (!(d instanceof CategorizedDescriptor))
+			return null;
+		var category = ((CategorizedDescriptor) d).category;
+		if (category == null)
+			return null;
+		if (categories == null) {
+			categories = Categories.pathsOf(database);
+		}
+		return categories.pathOf(category);
+	}
+
+	@Override
+	public void modelInserted(Descriptor d) {
+		onChange(d, false);
+	}
+
+	@Override
+	public void modelUpdated(Descriptor d) {
+		onChange(d, false);
+	}
+
+	@Override
+	public void modelDeleted(Descriptor d) {
+		onChange(d, true);
+	}
+
+	private synchronized void onChange(Descriptor d, boolean deleted) {
+		if (d == null || d.type == null)
+			return;
+		if (d.type == ModelType.CATEGORY) {
+			// the category paths of the other types may have changed
+			invalidate();
+			return;
+		}
+		var segment = segments.get(d.type);
+		if (segment == null)
+			return;
+		if (d.type == ModelType.PARAMETER) {
+			// we cannot see from the descriptor if this is a global parameter
+			segments.remove(d.type);
+			return;
+		}
+		if (deleted) {
+			segment.remove(d.id);
+			return;
+		}
+		var database = db.get();
+		if (database == null)
+			return;
+		var synonyms = d.type == ModelType.FLOW
+				? synonymsOf(database, d.id)
+				: null;
+		segment.add(d, synonyms, categoryPathOf(database, d));
+	}
+
+	private String synonymsOf(IDatabase database, long flowId) {
+		var synonyms = new String[1];
+		var sql = "select synonyms from tbl_flows where id = " + flowId;
+		NativeSql.on(database).query(sql, r -> {
+			synonyms[0] = r.getString(1);
+			return false;
+		});
+		return synonyms[0];
+	}
+}
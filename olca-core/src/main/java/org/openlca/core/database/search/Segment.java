@@ -0,0 +1,232 @@
+package org.openlca.core.database.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openlca.core.model.descriptors.Descriptor;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * The search index of the descriptors of a single model type. The documents
+ * of a segment are only appended; when a descriptor is updated or deleted, its
+ * old document is just marked as removed. Thus, the document lists of the
+ * inverted indices are always sorted.
+ */
+class Segment {
+
+	private final List<Doc> docs = new ArrayList<>();
+
+	/** Maps the IDs of the descriptors to the positions of their documents. */
+	private final TLongIntHashMap ids = new TLongIntHashMap(
+			16, 0.5f, -1L, -1);
+	private final Map<String, Integer> refIds = new HashMap<>();
+
+	/** The trigrams of the names, synonyms, and category paths. */
+	private final TLongObjectHashMap<TIntArrayList> trigrams =
+			new TLongObjectHashMap<>();
+
+	private int removed;
+
+	void add(Descriptor d, String synonyms, String categoryPath) {
+		if (d == null)
+			return;
+		remove(d.id);
+		int pos = docs.size();
+		var doc = new Doc(d, synonyms, categoryPath);
+		docs.add(doc);
+		ids.put(d.id, pos);
+		if (d.refId != null) {
+			refIds.put(d.refId.toLowerCase(), pos);
+		}
+
+		var docTrigrams = new TLongHashSet();
+		Tokens.trigramsOf(doc.name, docTrigrams);
+		Tokens.trigramsOf(doc.text, docTrigrams);
+		docTrigrams.forEach(trigram -> {
+			var list = trigrams.get(trigram);
+			if (list == null) {
+				list = new TIntArrayList();
+				trigrams.put(trigram, list);
+			}
+			list.add(pos);
+			return true;
+		});
+	}
+
+	void remove(long id) {
+		int pos = ids.remove(id);
+		if (pos < 0)
+			return;
+		var doc = docs.get(pos);
+		doc.removed = true;
+		if (doc.descriptor.refId != null) {
+			refIds.remove(doc.descriptor.refId.toLowerCase(), pos);
+		}
+		removed++;
+	}
+
+	/**
+	 * Returns true when more than the half of the documents of this segment
+	 * were removed. It is then cheaper to build a new segment than searching
+	 * through the removed documents.
+	 */
+	boolean isFragmented() {
+		return removed > 1000 && removed > docs.size() / 2;
+	}
+
+	/**
+	 * Adds the documents of this segment that match at least one of the given
+	 * (lower-case) terms to the given list of hits. When there is a single
+	 * term that is equal to a reference ID, only the document with that ID is
+	 * added.
+	 */
+	void search(String[] terms, List<Hit> hits) {
+		if (terms.length == 1) {
+			Integer pos = refIds.get(terms[0]);
+			if (pos != null) {
+				var hit = new Hit(docs.get(pos));
+				hit.score = Integer.MAX_VALUE;
+				hits.add(hit);
+				return;
+			}
+		}
+
+		var matches = new TIntObjectHashMap<Hit>();
+		for (var term : terms) {
+			var candidates = candidatesOf(term);
+			var seen = new TIntHashSet();
+			for (int i = 0; i < candidates.size(); i++) {
+				var doc = docs.get(candidates.get(i));
+				if (doc.removed || !seen.add(candidates.get(i)))
+					continue;
+				int score = doc.score(term);
+				if (score == 0)
+					continue;
+				var hit = matches.get(candidates.get(i));
+				if (hit == null) {
+					hit = new Hit(doc);
+					matches.put(candidates.get(i), hit);
+				}
+				hit.score += score;
+				if (hit.position < 0) {
+					hit.position = doc.name.indexOf(term);
+				}
+			}
+		}
+		hits.addAll(matches.valueCollection());
+	}
+
+	/**
+	 * Returns the positions of the documents that may contain the given term.
+	 * For terms with at least 3 characters, these are the documents that
+	 * contain all trigrams of the term. Shorter terms have no trigrams but
+	 * can still match any part of a name (e.g. `o2` in `co2`); thus, all
+	 * documents are candidates then and are checked in the scoring.
+	 */
+	private TIntArrayList candidatesOf(String term) {
+		if (term.length() < 3) {
+			var candidates = new TIntArrayList(docs.size());
+			for (int pos = 0; pos < docs.size(); pos++) {
+				candidates.add(pos);
+			}
+			return candidates;
+		}
+
+		var keys = new TLongHashSet();
+		Tokens.trigramsOf(term, keys);
+		TIntArrayList smallest = null;
+		var lists = new ArrayList<TIntArrayList>();
+		for (long key : keys.toArray()) {
+			var list = trigrams.get(key);
+			if (list == null)
+				return new TIntArrayList(0);
+			lists.add(list);
+			if (smallest == null || list.size() < smallest.size()) {
+				smallest = list;
+			}
+		}
+		if (smallest == null)
+			return new TIntArrayList(0);
+		var candidates = new TIntArrayList();
+		outer:
+		for (int i = 0; i < smallest.size(); i++) {
+			int pos = smallest.get(i);
+			for (var list : lists) {
+				if (list != smallest && list.binarySearch(pos) < 0)
+					continue outer;
+			}
+			candidates.add(pos);
+		}
+		return candidates;
+	}
+
+	static class Doc {
+
+		final Descriptor descriptor;
+
+		/** The lower-case name. */
+		final String name;
+
+		/** The lower-case synonyms and category path. */
+		final String text;
+
+		boolean removed;
+
+		Doc(Descriptor d, String synonyms, String categoryPath) {
+			this.descriptor = d;
+			this.name = d.name != null
+					? d.name.toLowerCase()
+					: "";
+			var buffer = new StringBuilder();
+			if (synonyms != null) {
+				buffer.append(synonyms.toLowerCase());
+			}
+			if (categoryPath != null) {
+				buffer.append('\n').append(categoryPath.toLowerCase());
+			}
+			this.text = buffer.toString();
+		}
+
+		/**
+		 * Calculates the score of the given term for this document. Matches
+		 * in the name are ranked higher than matches in the synonyms or
+		 * category path and whole tokens higher than parts of tokens.
+		 */
+		int score(String term) {
+			int pos = name.indexOf(term);
+			if (pos < 0)
+				return text.contains(term) ? 1 : 0;
+			while (pos >= 0) {
+				boolean start = pos == 0
+						|| !Character.isLetterOrDigit(name.charAt(pos - 1));
+				if (start) {
+					int end = pos + term.length();
+					boolean whole = end == name.length()
+							|| !Character.isLetterOrDigit(name.charAt(end));
+					return whole ? 4 : 3;
+				}
+				pos = name.indexOf(term, pos + 1);
+			}
+			return 2;
+		}
+	}
+
+	static class Hit {
+
+		final Doc doc;
+		int score;
+		int position = -1;
+
+		Hit(Doc doc) {
+			this.doc = doc;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package org.openlca.core.database.search;
+
+import java.util.Arrays;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Splits (lower-case) texts into the trigrams of the search index and queries
+ * into their terms.
+ */
+final class Tokens {
+
+	private Tokens() {
+	}
+
+	/**
+	 * Adds the trigrams of the given text to the given set. A trigram is
+	 * encoded as a single number from the three characters.
+	 */
+	static void trigramsOf(String text, TLongHashSet trigrams) {
+		if (text == null)
+			return;
+		for (int i = 0; i + 2 < text.length(); i++) {
+			long key = ((long) text.charAt(i) << 32)
+					| ((long) text.charAt(i + 1) << 16)
+					| text.charAt(i + 2);
+			trigrams.add(key);
+		}
+	}
+
+	/**
+	 * Splits the given query into its distinct, lower-case terms.
+	 */
+	static String[] termsOf(String query) {
+		if (query == null)
+			return new String[0];
+		return Arrays.stream(query.toLowerCase().trim().split("\\s+"))
+				.filter(s -> !s.isBlank())
+				.distinct()
+				.toArray(String[]::new);
+	}
+}
@@ -4,13 +4,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.util.ArrayDeque;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.openlca.core.database.CategorizedEntityDao;
@@ -36,7 +36,7 @@ import org.openlca.core.model.descriptors.ImpactDescriptor;
 import org.openlca.jsonld.Json;
 import org.slf4j.LoggerFactory;
 
-public class Library {
+public class Library implements AutoCloseable {
 
 	/**
 	 * The folder where the library files are stored.
@@ -44,7 +44,17 @@ public class Library {
 	public final File folder;
 	private LibraryInfo _info;
 
-	private final Map<LibraryMatrix, MatrixReader> matrixCache = new HashMap<>();
+	/**
+	 * The matrices of a library are requested concurrently by the result
+	 * providers. Thus, the caches are concurrent maps and a matrix is loaded
+	 * or mapped only once in `computeIfAbsent`. As concurrent maps cannot
+	 * contain `null` values, matrices that cannot be mapped are stored as
+	 * empty options in the mapped cache.
+	 */
+	private final Map<LibraryMatrix, MatrixReader> matrixCache =
+		new ConcurrentHashMap<>();
+	private final Map<LibraryMatrix, Optional<MatrixReader>> mappedCache =
+		new ConcurrentHashMap<>();
 
 	public Library(File folder) {
 		this.folder = folder;
@@ -310,24 +320,8 @@ public class Library {
 		var matrix = matrixCache.get(m);
 		if (matrix != null)
 			return Optional.of(matrix);
-
 		try {
-			var npy = new File(folder, m.name() + ".npy");
-			if (npy.exists()) {
-				matrix = Npy.load(npy);
-				matrixCache.put(m, matrix);
-				return Optional.of(matrix);
-			}
-
-			var npz = new File(folder, m.name() + ".npz");
-			if (npz.exists()) {
-				matrix = Npz.load(npz);
-				matrixCache.put(m, matrix);
-				return Optional.of(matrix);
-			}
-
-			return Optional.empty();
-
+			return Optional.ofNullable(matrixCache.computeIfAbsent(m, this::load));
 		} catch (Exception e) {
 			var log = LoggerFactory.getLogger(getClass());
 			log.error("failed to read matrix from " + folder, e);
@@ -335,6 +329,16 @@ public class Library {
 		}
 	}
 
+	private MatrixReader load(LibraryMatrix m) {
+		var npy = new File(folder, m.name() + ".npy");
+		if (npy.exists())
+			return Npy.load(npy);
+		var npz = new File(folder, m.name() + ".npz");
+		if (npz.exists())
+			return Npz.load(npz);
+		return null;
+	}
+
 	public Optional<double[]> getColumn(LibraryMatrix m, int column) {
 		var matrix = matrixCache.get(m);
 		if (matrix != null)
@@ -342,13 +346,12 @@ public class Library {
 
 		try {
 
-			// do not cache dense matrices
-			var npy = new File(folder, m.name() + ".npy");
-			if (npy.exists())
-				return Optional.of(Npy.loadColumn(npy, column));
-
-			// force caching of sparse matrices
-			matrix = getMatrix(m).orElse(null);
+			// read the column from the mapped file if possible;
+			// otherwise force caching of the matrix
+			matrix = mapped(m);
+			if (matrix == null) {
+				matrix = getMatrix(m).orElse(null);
+			}
 			return matrix == null
 				? Optional.empty()
 				: Optional.of(matrix.getColumn(column));
@@ -361,6 +364,56 @@ public class Library {
 		}
 	}
 
+	/**
+	 * Returns the library matrix mapped into memory or `null` if there is no
+	 * such matrix or if it is stored in a format that cannot be mapped (e.g.
+	 * sparse matrices in libraries that were written with compressed entries).
+	 * The files are mapped only once per library; the values are then read
+	 * from the mapping without loading the matrix into the heap.
+	 */
+	private MatrixReader mapped(LibraryMatrix m) {
+		return mappedCache.computeIfAbsent(m, this::map).orElse(null);
+	}
+
+	private Optional<MatrixReader> map(LibraryMatrix m) {
+		var npy = new File(folder, m.name() + ".npy");
+		if (npy.exists())
+			return Optional.ofNullable(Npy.map(npy));
+		var npz = new File(folder, m.name() + ".npz");
+		if (npz.exists())
+			return Optional.ofNullable(Npz.map(npz));
+		return Optional.empty();
+	}
+
+	/**
+	 * Releases the cached and mapped matrices of this library. They are loaded
+	 * or mapped again when they are requested the next time.
+	 */
+	public void dispose() {
+		for (var matrix : mappedCache.values()) {
+			if (matrix.orElse(null) instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) matrix.get()).close();
+				} catch (Exception e) {
+					var log = LoggerFactory.getLogger(getClass());
+					log.error("failed to close mapped matrix in " + folder, e);
+				}
+			}
+		}
+		mappedCache.clear();
+		matrixCache.clear();
+	}
+
+	/**
+	 * Same as `dispose`: closes the mapped matrices of this library, so that
+	 * the library files are not locked anymore when the mappings are
+	 * garbage collected.
+	 */
+	@Override
+	public void close() {
+		dispose();
+	}
+
 	/**
 	 * Get the diagonal of the given library matrix.
 	 */
@@ -370,13 +423,11 @@ public class Library {
 			return Optional.of(matrix.diag());
 
 		try {
-			// do not cache dense matrices
-			var npy = new File(folder, m.name() + ".npy");
-			if (npy.exists())
-				return Optional.of(Npy.loadDiagonal(npy));
-
-			// force caching of sparse matrices
-			matrix = getMatrix(m).orElse(null);
+			// same as for columns
+			matrix = mapped(m);
+			if (matrix == null) {
+				matrix = getMatrix(m).orElse(null);
+			}
 			return matrix == null
 				? Optional.empty()
 				: Optional.of(matrix.diag());
@@ -11,12 +11,14 @@ import org.openlca.core.matrix.ImpactBuilder;
 import org.openlca.core.matrix.index.ImpactIndex;
 import org.openlca.core.matrix.MatrixConfig;
 import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.MatrixReader;
 import org.openlca.core.matrix.index.TechIndex;
 import org.openlca.core.matrix.io.MatrixExport;
+import org.openlca.core.matrix.solvers.MatrixSolver;
 import org.openlca.core.model.AllocationMethod;
 import org.openlca.jsonld.Json;
 import org.openlca.julia.Julia;
-import org.openlca.julia.JuliaSolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -174,60 +176,56 @@ public class LibraryExport implements Runnable {
 
 	/**
 	 * Normalize the columns of the technology matrix A and intervention matrix B to one
-	 * unit of output or input for each product or waste flow.
+	 * unit of output or input for each product or waste flow. This is done by
+	 * scaling the columns of the matrices, which only touches the non-zero
+	 * values of sparse matrices.
 	 */
 	private void normalizeInventory(MatrixData data) {
 		if (data.techMatrix == null)
 			return;
 		log.info("normalize matrices to 1 | -1");
-		var matrixA = data.techMatrix.asMutable();
-		data.techMatrix = matrixA;
-		var matrixB = data.enviMatrix.asMutable();
-		data.enviMatrix = matrixB;
-		int n = matrixA.columns();
-		for (int j = 0; j < n; j++) {
-			double f = Math.abs(matrixA.get(j, j));
-			if (f == 1)
+		var diag = data.techMatrix.diag();
+		var factors = new double[diag.length];
+		boolean scale = false;
+		for (int j = 0; j < diag.length; j++) {
+			double f = Math.abs(diag[j]);
+			if (f == 0 || f == 1) {
+				factors[j] = 1;
 				continue;
-
-			// normalize column j in matrix A
-			for (int i = 0; i < n; i++) {
-				double val = matrixA.get(i, j);
-				if (val == 0)
-					continue;
-				matrixA.set(i, j, val / f);
 			}
+			factors[j] = 1 / f;
+			scale = true;
+		}
+		if (!scale)
+			return;
+		data.techMatrix = scaleColumns(data.techMatrix, factors);
+		if (data.enviMatrix != null) {
+			data.enviMatrix = scaleColumns(data.enviMatrix, factors);
+		}
+	}
 
-			// normalize column j in matrix B
-			if (matrixB == null)
-				continue;
-			int m = matrixB.rows();
-			for (int i = 0; i < m; i++) {
-				double val = matrixB.get(i, j);
-				if (val == 0)
-					continue;
-				matrixB.set(i, j, val / f);
-			}
+	private MatrixReader scaleColumns(MatrixReader matrix, double[] factors) {
+		if (matrix instanceof CSCMatrix) {
+			((CSCMatrix) matrix).scaleColumns(factors);
+			return matrix;
 		}
+		var m = matrix.asMutable();
+		m.scaleColumns(factors);
+		return m;
 	}
 
+	/**
+	 * Pre-calculates the matrices INV and M of the library. We try to load the
+	 * native libraries for this first but also fall back to the sparse Java
+	 * solver when this is not possible.
+	 */
 	private void preCalculate() {
 		if (!withInventory || data.techMatrix == null)
 			return;
-		// we only pre-calculate the inverse etc. if the
-		// native can be loaded
 		if (!Julia.isLoaded()) {
-			if (!Julia.load())
-				return;
+			Julia.load();
 		}
-		log.info("create matrix INV");
-		var solver = new JuliaSolver();
-		var inv = solver.invert(data.techMatrix);
-		MatrixExport.toNpy(folder, inv, "INV");
-		if (data.enviMatrix == null)
-			return;
-		log.info("create matrix M");
-		var m = solver.multiply(data.enviMatrix, inv);
-		MatrixExport.toNpy(folder, m, "M");
+		new PreCalculation(folder, data.techMatrix, data.enviMatrix,
+			MatrixSolver.Instance.getNew()).run();
 	}
 }
@@ -0,0 +1,143 @@
+package org.openlca.core.library;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.io.npy.ColumnWriter;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.MatrixSolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pre-calculates the inverse of the technology matrix $A^{-1}$ (INV) and the
+ * intensity matrix $M = B A^{-1}$ (M) of a library. The technology matrix is
+ * factorized once and the columns of INV and M are then calculated in blocks
+ * and written directly to the NPY files. Thus, only the factorization and a
+ * block of columns need to be in memory. Writing a block (including the
+ * multiplication with $B$) runs in a separate thread while the next block is
+ * solved.
+ */
+class PreCalculation implements Runnable {
+
+	/**
+	 * The maximum size of a block of dense columns in bytes.
+	 */
+	private static final long MAX_BLOCK_BYTES = 64L * 1024L * 1024L;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final File folder;
+	private final MatrixReader techMatrix;
+	private final MatrixReader enviMatrix;
+	private final MatrixSolver solver;
+	private int blockSize;
+
+	PreCalculation(File folder, MatrixReader techMatrix,
+		MatrixReader enviMatrix, MatrixSolver solver) {
+		this.folder = folder;
+		this.techMatrix = techMatrix;
+		this.enviMatrix = enviMatrix == null || enviMatrix.rows() == 0
+			? null
+			: enviMatrix.isSparse() && !(enviMatrix instanceof CSCMatrix)
+			? CSCMatrix.of(enviMatrix)
+			: enviMatrix;
+		this.solver = solver;
+	}
+
+	/**
+	 * Sets the number of columns that are solved and written in one block.
+	 * By default, the block size is calculated from the number of rows so that
+	 * a block has a size of at most 64 MB.
+	 */
+	PreCalculation withBlockSize(int blockSize) {
+		this.blockSize = blockSize;
+		return this;
+	}
+
+	@Override
+	public void run() {
+		int n = techMatrix.rows();
+		if (n == 0)
+			return;
+		int block = blockSize > 0
+			? Math.min(blockSize, n)
+			: defaultBlockSize(n);
+
+		log.info("factorize matrix A; n = {}", n);
+		var factorization = solver.factorize(techMatrix);
+		var writer = Executors.newSingleThreadExecutor();
+		log.info("create matrices INV and M in blocks of {} columns", block);
+		try (var inv = ColumnWriter.of(new File(folder, "INV.npy"), n, n);
+				 var m = enviMatrix != null
+					 ? ColumnWriter.of(new File(folder, "M.npy"), enviMatrix.rows(), n)
+					 : null) {
+			Future<?> pending = null;
+			for (int start = 0; start < n; start += block) {
+				int end = Math.min(n, start + block);
+				var x = solve(factorization, start, end);
+				await(pending);
+				pending = writer.submit(() -> write(x, inv, m));
+			}
+			await(pending);
+		} finally {
+			writer.shutdown();
+			factorization.dispose();
+		}
+	}
+
+	private int defaultBlockSize(int n) {
+		int rows = enviMatrix != null
+			? Math.max(n, enviMatrix.rows())
+			: n;
+		long size = MAX_BLOCK_BYTES / (8L * rows);
+		return (int) Math.max(1, Math.min(n, size));
+	}
+
+	/**
+	 * Solves the columns `start` (inclusive) to `end` (exclusive) of the
+	 * inverse of the technology matrix.
+	 */
+	private DenseMatrix solve(Factorization factorization, int start, int end) {
+		int n = factorization.size();
+		var x = new DenseMatrix(n, end - start);
+		for (int j = start; j < end; j++) {
+			var col = factorization.solve(j, 1.0);
+			System.arraycopy(col, 0, x.data, (j - start) * n, n);
+		}
+		return x;
+	}
+
+	private void write(DenseMatrix x, ColumnWriter inv, ColumnWriter m) {
+		for (int j = 0; j < x.columns(); j++) {
+			inv.put(x.getColumn(j));
+		}
+		if (m == null)
+			return;
+		var mx = solver.multiply(enviMatrix, x);
+		for (int j = 0; j < mx.columns(); j++) {
+			m.put(mx.getColumn(j));
+		}
+	}
+
+	private void await(Future<?> future) {
+		if (future == null)
+			return;
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("pre-calculation was interrupted", e);
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RuntimeException("failed to write matrix block", cause);
+		}
+	}
+}
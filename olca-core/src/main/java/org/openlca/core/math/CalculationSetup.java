@@ -49,6 +49,14 @@ public class CalculationSetup {
 	 */
 	public int numberOfRuns = -1;
 
+	/**
+	 * An optional seed for the random numbers of a Monte Carlo simulation. With
+	 * a seed, the generated values of each iteration are reproducible, also when
+	 * the iterations are calculated in parallel. If no seed is set, a random
+	 * seed is used.
+	 */
+	public Long seed;
+
 	// properties with default values from the product system
 	private Unit unit;
 	private FlowPropertyFactor flowPropertyFactor;
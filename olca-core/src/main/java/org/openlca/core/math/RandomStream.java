@@ -0,0 +1,82 @@
+package org.openlca.core.math;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A reproducible stream of random numbers for an iteration of a Monte-Carlo
+ * simulation. The stream of an iteration $i$ is derived from a seed and $i$
+ * only, and not from the streams of previous iterations. Thus, the values
+ * that are generated in iteration $i$ are the same no matter in which order
+ * or on which thread (or machine) the iterations are calculated.
+ * <p>
+ * The numbers are generated by a `SplittableRandom` that is initialized with
+ * a hash of the seed and the iteration. It is wrapped in a `java.util.Random`
+ * so that it can be passed to the formula interpreter and the number
+ * generators of the uncertainty distributions. A stream is not thread-safe
+ * and should be only used in a single thread.
+ */
+public final class RandomStream extends Random {
+
+	private final SplittableRandom random;
+
+	private RandomStream(long seed) {
+		super(seed);
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Creates the stream of the given iteration for the given seed.
+	 */
+	public static RandomStream of(long seed, long iteration) {
+		return new RandomStream(mix(mix(seed) + iteration));
+	}
+
+	/**
+	 * Generates a random seed, e.g. when no seed was provided for a
+	 * simulation.
+	 */
+	public static long newSeed() {
+		return new SplittableRandom().nextLong();
+	}
+
+	/**
+	 * Stafford's variant 13 of the 64-bit finalizer of MurmurHash3 that
+	 * maps successive seeds and iterations to uncorrelated initial states.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	protected int next(int bits) {
+		return random.nextInt() >>> (32 - bits);
+	}
+
+	@Override
+	public int nextInt() {
+		return random.nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return random.nextBoolean();
+	}
+}
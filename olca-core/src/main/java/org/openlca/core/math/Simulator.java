@@ -1,5 +1,6 @@
 package org.openlca.core.math;
 
+import java.io.File;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -8,7 +9,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
@@ -21,14 +26,18 @@ import org.openlca.core.matrix.index.ImpactIndex;
 import org.openlca.core.matrix.index.LongPair;
 import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.MatrixSolver;
+import org.openlca.core.matrix.solvers.SymbolicFactorization;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.core.results.SimulationResult;
+import org.openlca.core.results.providers.ResultProvider;
 import org.openlca.core.results.providers.ResultProviders;
 import org.openlca.core.results.providers.SimpleResultProvider;
+import org.openlca.core.results.providers.SimulationResultProvider;
 import org.openlca.expressions.FormulaInterpreter;
 import org.openlca.util.TopoSort;
 import org.slf4j.Logger;
@@ -63,6 +72,13 @@ import org.slf4j.LoggerFactory;
  */
 public class Simulator {
 
+	/**
+	 * The maximum number of runs that are calculated in parallel before their
+	 * results are committed to the simulation result. This bounds the number
+	 * of result vectors that are held in memory at the same time.
+	 */
+	private static final int BATCH_SIZE = 256;
+
 	/**
 	 * A set of products for which upstream and direct contributions should be
 	 * tracked during the simulation. These products must be part of the
@@ -72,6 +88,12 @@ public class Simulator {
 
 	private final IDatabase db;
 
+	/**
+	 * The solver that is used for the factorizations and results of the
+	 * simulation runs. It is shared between the nodes and their copies.
+	 */
+	private final MatrixSolver solver;
+
 	/**
 	 * The node of the host-system. This is the node that provides the final
 	 * data of the Monte-Carlo simulation.
@@ -98,29 +120,85 @@ public class Simulator {
 
 	private SimulationResult result;
 
-	private Simulator(IDatabase db) {
+	/**
+	 * An optional directory in which the result vectors of the runs are
+	 * stored.
+	 */
+	private File storageDir;
+
+	/**
+	 * The seed of the random numbers. The values of an iteration $i$ are
+	 * generated from a stream that only depends on this seed and $i$.
+	 */
+	private final long seed;
+
+	/** The number of the next iteration. */
+	private long iteration;
+
+	private Simulator(IDatabase db, MatrixSolver solver, long seed) {
 		this.db = db;
+		this.solver = solver != null
+			? solver
+			: MatrixSolver.Instance.getNew();
+		this.seed = seed;
 	}
 
+	/**
+	 * Creates a new simulator for the given setup. The given solver is used
+	 * for the factorizations and results of the simulation runs; if it is
+	 * `null`, the default solver is used (see `MatrixSolver.Instance`).
+	 * Systems with library links are calculated with the solver of the
+	 * library result provider.
+	 */
 	public static Simulator create(
 		CalculationSetup setup,
 		IDatabase db,
 		MatrixSolver solver) {
-		Simulator g = new Simulator(db);
+		long seed = setup.seed != null
+			? setup.seed
+			: RandomStream.newSeed();
+		Simulator g = new Simulator(db, solver, seed);
 		g.init(db, setup);
 		return g;
 	}
 
+	/**
+	 * Sets a directory in which the result vectors of the simulation runs are
+	 * stored instead of keeping them in memory (see `SimulationResult.of`).
+	 * This needs to be set before the first run.
+	 */
+	public Simulator withStorageDir(File dir) {
+		this.storageDir = dir;
+		return this;
+	}
+
 	/**
 	 * Get the result of the simulation.
 	 */
 	public SimulationResult getResult() {
 		if (result != null)
 			return result;
-		result = new SimulationResult(root.data);
+		result = SimulationResult.of(root.data, storageDir);
 		return result;
 	}
 
+	/**
+	 * Returns the seed of the random numbers of this simulation. Running a
+	 * simulation with the same setup and this seed again generates the same
+	 * values for the same iterations.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the symbolic analysis of the technology matrix of the host
+	 * system or `null` if it was not done yet.
+	 */
+	SymbolicFactorization getSymbolic() {
+		return root.symbolic;
+	}
+
 	public TechIndex getTechIndex() {
 		return root.data.techIndex;
 	}
@@ -141,18 +219,130 @@ public class Simulator {
 	 * (which you get via `getResult()`, so it does not need to be cached.
 	 */
 	public SimpleResult nextRun() {
+		var result = getResult();
+		int run = result.reserve(1, pins());
+		var next = next(result, run, iteration++);
+		result.trim(run);
+		return next;
+	}
+
+	/**
+	 * Runs the given number of iterations in parallel using the given number
+	 * of threads and appends the results to the simulation result. Each thread
+	 * works on its own copy of the simulation graph, i.e. the matrix data,
+	 * parameter tables, and uncertainty distributions of the host system and
+	 * its sub-systems. The results are stored in the order of the iterations
+	 * and, as in `nextRun`, failed iterations are not added to the result.
+	 * The random numbers of an iteration do not depend on the number of
+	 * threads, so the result is the same as when calling `nextRun` for each
+	 * iteration. The iterations are calculated in batches and the results of
+	 * a batch are committed to the simulation result before the next batch
+	 * starts.
+	 */
+	public SimulationResult run(int iterations, int threads) {
+		var result = getResult();
+		if (iterations <= 0)
+			return result;
+		int workers = Math.max(1, Math.min(threads, iterations));
+		var copies = new Simulator[workers];
+		var pins = pins();
+		var pool = Executors.newFixedThreadPool(workers);
+		try {
+			for (int done = 0; done < iterations; done += BATCH_SIZE) {
+				int batch = Math.min(BATCH_SIZE, iterations - done);
+				int offset = result.reserve(batch, pins);
+				long first = iteration;
+				iteration += batch;
+				var counter = new AtomicInteger(0);
+				var futures = new ArrayList<Future<?>>(workers);
+				for (int w = 0; w < workers; w++) {
+					int id = w;
+					futures.add(pool.submit(() -> {
+						if (copies[id] == null) {
+							copies[id] = copy();
+						}
+						var worker = copies[id];
+						int i;
+						while ((i = counter.getAndIncrement()) < batch) {
+							worker.next(result, offset + i, first + i);
+						}
+					}));
+				}
+				try {
+					for (var future : futures) {
+						future.get();
+					}
+				} finally {
+					result.trim(offset);
+				}
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("parallel simulation failed", e);
+		} finally {
+			pool.shutdownNow();
+		}
+		return result;
+	}
+
+	/**
+	 * The pinned products that are part of the tech-index of the root system.
+	 */
+	private List<TechFlow> pins() {
+		if (pinnedProducts.isEmpty())
+			return Collections.emptyList();
+		var pins = new ArrayList<TechFlow>(pinnedProducts.size());
+		for (var product : pinnedProducts) {
+			if (root.data.techIndex.of(product) >= 0) {
+				pins.add(product);
+			}
+		}
+		return pins;
+	}
+
+	/**
+	 * Creates a copy of this simulator with copies of the simulation nodes.
+	 * The symbolic analysis of the technology matrices is done before the
+	 * nodes are copied, so that the copies share it.
+	 */
+	Simulator copy() {
+		root.analyze();
+		for (var sub : subNodes) {
+			sub.analyze();
+		}
+		var copy = new Simulator(db, solver, seed);
+		copy.pinnedProducts.addAll(pinnedProducts);
+		copy.root = new Node(root);
+		copy.nodeIndex.put(copy.root.systemID, copy.root);
+		for (var sub : subNodes) {
+			var subCopy = new Node(sub);
+			copy.subNodes.add(subCopy);
+			copy.nodeIndex.put(subCopy.systemID, subCopy);
+		}
+		return copy;
+	}
+
+	/**
+	 * Calculates the next simulation run and sets its result vectors into the
+	 * given slot of the simulation result, which must have been reserved
+	 * before. The random numbers are taken from the stream of the given
+	 * iteration. Returns `null` if the calculation failed.
+	 */
+	private SimpleResult next(
+		SimulationResult result, int run, long iteration) {
 		try {
 
 			// generate the numbers and calculate the overall result
+			// the matrices change in every iteration, so we do not use
+			// a factorization cache here; the simulation providers only
+			// solve the scaling vector and the columns of pinned products
+			var random = RandomStream.of(seed, iteration);
 			for (var sub : subNodes) {
-				generateData(sub);
-				sub.lastResult = SimpleResult.of(db, sub.data);
+				generateData(sub, random);
+				sub.lastResult = new SimpleResult(sub.nextProvider(db, true));
 			}
-			generateData(root);
-			var provider = ResultProviders.lazyOf(db, root.data);
+			generateData(root, random);
+			var provider = root.nextProvider(db, false);
 			var next = new SimpleResult(provider);
-			var result = getResult();
-			result.append(next);
 
 			// calculate results of possible pinned products
 			for (var product : pinnedProducts) {
@@ -168,8 +358,9 @@ public class Simulator {
 					pin.withDirectImpacts(provider.directImpactsOf(idx));
 					pin.withUpstreamImpacts(provider.totalImpactsOf(idx));
 				}
-				pin.add();
+				pin.set(run);
 			}
+			result.set(run, next);
 			return next;
 		} catch (Throwable e) {
 			Logger log = LoggerFactory.getLogger(this.getClass());
@@ -178,8 +369,8 @@ public class Simulator {
 		}
 	}
 
-	private void generateData(Node node) {
-		FormulaInterpreter fi = node.parameters.simulate();
+	private void generateData(Node node, Random random) {
+		FormulaInterpreter fi = node.parameters.simulate(random);
 		node.data.simulate(fi);
 
 		if (node.subSystems != null) {
@@ -221,7 +412,7 @@ public class Simulator {
 			}
 		}
 		if (!hasSubSystems) {
-			root = new Node(setup, db, Collections.emptyMap());
+			root = new Node(setup, db, solver, Collections.emptyMap());
 			nodeIndex.put(root.systemID, root);
 			return;
 		}
@@ -308,7 +499,7 @@ public class Simulator {
 				_setup.allocationMethod = setup.allocationMethod;
 			}
 
-			Node node = new Node(_setup, db, subResults);
+			Node node = new Node(_setup, db, solver, subResults);
 			nodeIndex.put(system, node);
 			if (system == rootID) {
 				root = node;
@@ -358,8 +549,33 @@ public class Simulator {
 		Set<TechFlow> subSystems;
 		SimpleResult lastResult;
 
-		Node(CalculationSetup setup, IDatabase db,
+		private final MatrixSolver solver;
+
+		/**
+		 * The symbolic factorization of the technology matrix. Only the values
+		 * of the matrix change in the simulation, so its structure is analyzed
+		 * once and shared with the copies of the node.
+		 */
+		private volatile SymbolicFactorization symbolic;
+		private Factorization factorization;
+
+		/**
+		 * Creates a copy of the given node that can be used in another thread.
+		 */
+		Node(Node other) {
+			systemID = other.systemID;
+			product = other.product;
+			data = other.data.copy();
+			parameters = other.parameters.copy();
+			subSystems = other.subSystems;
+			lastResult = other.lastResult;
+			solver = other.solver;
+			symbolic = other.symbolic;
+		}
+
+		Node(CalculationSetup setup, IDatabase db, MatrixSolver solver,
 				 Map<TechFlow, SimpleResult> subResults) {
+			this.solver = solver;
 
 			systemID = setup.productSystem.id;
 			product = TechFlow.of(setup.productSystem);
@@ -381,6 +597,38 @@ public class Simulator {
 			parameters = ParameterTable.forSimulation(
 				db, paramContexts, setup.parameterRedefs);
 		}
+
+		/**
+		 * Runs the symbolic analysis of the technology matrix if this was not
+		 * done yet. This is called before the node is copied for the worker
+		 * threads of a parallel simulation.
+		 */
+		synchronized SymbolicFactorization analyze() {
+			if (symbolic == null && !data.hasLibraryLinks()) {
+				symbolic = solver.analyze(data.techMatrix);
+			}
+			return symbolic;
+		}
+
+		/**
+		 * Creates the result provider for the current data of the node. When
+		 * `inPlace` is true, the factorization of the last run is overwritten
+		 * with the new values. This is only possible when the provider of the
+		 * last run is not used anymore, which is the case for sub-systems of
+		 * which only the total results are integrated into the host systems.
+		 */
+		ResultProvider nextProvider(IDatabase db, boolean inPlace) {
+			if (data.hasLibraryLinks())
+				return ResultProviders.simulationOf(db, data);
+			var s = symbolic;
+			if (s == null) {
+				s = analyze();
+			}
+			factorization = inPlace && factorization != null
+				? s.refactorize(factorization, data.techMatrix)
+				: s.factorize(data.techMatrix);
+			return SimulationResultProvider.of(data, solver, factorization);
+		}
 	}
 
 }
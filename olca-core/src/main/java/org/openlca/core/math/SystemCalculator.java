@@ -1,18 +1,25 @@
 package org.openlca.core.math;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorRegistry;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.index.LongPair;
 import org.openlca.core.matrix.index.TechFlow;
+import org.openlca.core.model.ProductSystem;
 import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.util.TopoSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +34,13 @@ public class SystemCalculator {
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final IDatabase db;
 
+	/**
+	 * The matrix data of sub-systems are built one after another as the
+	 * database access is not safe for concurrent reads; only the matrices
+	 * are solved in parallel.
+	 */
+	private final Object dataLock = new Object();
+
 	public SystemCalculator(IDatabase db) {
 		this.db = db;
 	}
@@ -50,8 +64,16 @@ public class SystemCalculator {
 	}
 
 	/**
-	 * Calculates (recursively) the sub-systems of the product system of the
-	 * given setup. It returns an empty map when there are no subsystems.
+	 * Calculates the sub-systems of the product system of the given setup. It
+	 * returns an empty map when there are no sub-systems.
+	 * <p>
+	 * The sub-system relations are first collected into a dependency graph
+	 * which is then sorted topologically. Sub-systems that do not depend on
+	 * each other are calculated in parallel and each distinct sub-system is
+	 * calculated only once, also when it is used in different branches of the
+	 * graph (the matrix data are still built sequentially, see `dataLock`).
+	 * A sub-system is distinct by its product system and the parameter
+	 * redefinitions it inherits from its host systems.
 	 */
 	private Map<TechFlow, SimpleResult> calculateSubSystems(
 			CalculationSetup setup) {
@@ -60,40 +82,172 @@ public class SystemCalculator {
 				|| setup.productSystem.withoutNetwork)
 			return Collections.emptyMap();
 
-		// collect the sub-systems
-		var subSystems = new HashSet<TechFlow>();
+		// collect the sub-system graph
+		var root = new SubSystem(0, setup);
+		var nodes = new ArrayList<SubSystem>();
+		nodes.add(root);
+		var index = new HashMap<String, SubSystem>();
+		var rels = new ArrayList<LongPair>();
+		var systems = new HashMap<Long, ProductSystem>();
 		var sysDao = new ProductSystemDao(db);
-		var flowDao = new FlowDao(db);
-		for (var link : setup.productSystem.processLinks) {
-			if (!link.isSystemLink)
-				continue;
-			var sys = sysDao.getDescriptor(link.providerId);
-			var flow = flowDao.getDescriptor(link.flowId);
-			if (sys == null || flow == null) {
-				log.error("could not load descriptors of system link {}", link);
+		var descriptors = DescriptorRegistry.of(db);
+		var sysDescriptors = descriptors.productSystems();
+		var flows = descriptors.flows();
+		var queue = new ArrayDeque<SubSystem>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			var host = queue.poll();
+			var hostSystem = host.setup.productSystem;
+			if (hostSystem.withoutNetwork)
 				continue;
+			for (var link : hostSystem.processLinks) {
+				if (!link.isSystemLink)
+					continue;
+				var sys = sysDescriptors.get(link.providerId);
+				var flow = flows.get(link.flowId);
+				if (sys == null || flow == null) {
+					log.error("could not load descriptors of system link {}", link);
+					continue;
+				}
+				var product = TechFlow.of(sys, flow);
+				if (host.subs.containsKey(product))
+					continue;
+				var subSystem = systems.computeIfAbsent(
+						sys.id, sysDao::getForId);
+				if (subSystem == null)
+					continue;
+				var subSetup = subSetupOf(host.setup, subSystem);
+				var key = keyOf(subSetup);
+				var sub = index.get(key);
+				if (sub == null) {
+					sub = new SubSystem(nodes.size(), subSetup);
+					nodes.add(sub);
+					index.put(key, sub);
+					queue.add(sub);
+				}
+				host.subs.put(product, sub);
+				rels.add(LongPair.of(sub.id, host.id));
 			}
-			subSystems.add(TechFlow.of(sys, flow));
 		}
-		if (subSystems.isEmpty())
+		if (root.subs.isEmpty())
 			return Collections.emptyMap();
 
-		// calculate the LCI results of the sub-systems
-		var subResults = new HashMap<TechFlow, SimpleResult>();
-		for (var pp : subSystems) {
-			var subSystem = sysDao.getForId(pp.processId());
-			if (subSystem == null)
-				continue;
-			var subSetup = new CalculationSetup(subSystem);
-			subSetup.parameterRedefs.addAll(setup.parameterRedefs);
-			ParameterRedefs.addTo(subSetup, subSystem);
-			subSetup.withCosts = setup.withCosts;
-			subSetup.withUncertainties = setup.withUncertainties;
-			subSetup.withRegionalization = setup.withRegionalization;
-			subSetup.allocationMethod = setup.allocationMethod;
-			var subResult = calculateSimple(subSetup);
-			subResults.put(pp, subResult);
+		var order = TopoSort.of(rels);
+		if (order == null)
+			throw new RuntimeException(
+					"there are sub-system cycles in the product system");
+
+		// calculate the sub-systems in topological order; a sub-system is
+		// calculated when the results of its sub-systems are available
+		int threads = Math.max(1, Math.min(
+				nodes.size() - 1, Runtime.getRuntime().availableProcessors()));
+		var pool = Executors.newFixedThreadPool(threads);
+		try {
+			// the futures are only accessed from this thread; the tasks get
+			// the futures of their dependencies in their own maps
+			var futures = new HashMap<Long, CompletableFuture<SimpleResult>>();
+			for (long id : order) {
+				if (id == root.id)
+					continue;
+				var node = nodes.get((int) id);
+				var deps = dependenciesOf(node, futures);
+				var future = CompletableFuture
+						.allOf(deps.values().toArray(CompletableFuture[]::new))
+						.thenApplyAsync(v -> {
+							var subResults = resultsOf(deps);
+							MatrixData data;
+							synchronized (dataLock) {
+								data = MatrixData.of(db, node.setup, subResults);
+							}
+							return SimpleResult.of(db, data);
+						}, pool);
+				futures.put(id, future);
+			}
+			return resultsOf(dependenciesOf(root, futures));
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException("failed to calculate sub-systems", e);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the futures of the sub-system results of the given node.
+	 */
+	private Map<TechFlow, CompletableFuture<SimpleResult>> dependenciesOf(
+			SubSystem node, Map<Long, CompletableFuture<SimpleResult>> futures) {
+		var deps = new HashMap<TechFlow, CompletableFuture<SimpleResult>>();
+		for (var e : node.subs.entrySet()) {
+			var future = futures.get(e.getValue().id);
+			if (future == null)
+				throw new IllegalStateException(
+						"sub-system " + e.getKey() + " was not scheduled");
+			deps.put(e.getKey(), future);
+		}
+		return deps;
+	}
+
+	private Map<TechFlow, SimpleResult> resultsOf(
+			Map<TechFlow, CompletableFuture<SimpleResult>> deps) {
+		var results = new HashMap<TechFlow, SimpleResult>();
+		for (var e : deps.entrySet()) {
+			results.put(e.getKey(), e.getValue().join());
+		}
+		return results;
+	}
+
+	/**
+	 * Creates the setup of a sub-system. The sub-system inherits the
+	 * calculation properties and parameter redefinitions of its host system.
+	 */
+	private CalculationSetup subSetupOf(
+			CalculationSetup hostSetup, ProductSystem subSystem) {
+		var subSetup = new CalculationSetup(subSystem);
+		subSetup.parameterRedefs.addAll(hostSetup.parameterRedefs);
+		ParameterRedefs.addTo(subSetup, subSystem);
+		subSetup.withCosts = hostSetup.withCosts;
+		subSetup.withUncertainties = hostSetup.withUncertainties;
+		subSetup.withRegionalization = hostSetup.withRegionalization;
+		subSetup.allocationMethod = hostSetup.allocationMethod;
+		return subSetup;
+	}
+
+	/**
+	 * Returns a key of the product system and parameter redefinitions of the
+	 * given setup. Sub-systems with the same key have the same result.
+	 */
+	private String keyOf(CalculationSetup setup) {
+		var key = new StringBuilder();
+		key.append(setup.productSystem.id);
+		for (var redef : setup.parameterRedefs) {
+			key.append(';')
+					.append(redef.contextType)
+					.append(':')
+					.append(redef.contextId)
+					.append(':')
+					.append(redef.name != null
+							? redef.name.trim().toLowerCase()
+							: null)
+					.append('=')
+					.append(redef.value);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * A node in the sub-system graph.
+	 */
+	private static class SubSystem {
+
+		final long id;
+		final CalculationSetup setup;
+		final Map<TechFlow, SubSystem> subs = new HashMap<>();
+
+		SubSystem(long id, CalculationSetup setup) {
+			this.id = id;
+			this.setup = setup;
 		}
-		return subResults;
 	}
 }
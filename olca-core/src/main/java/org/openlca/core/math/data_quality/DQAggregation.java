@@ -0,0 +1,395 @@
+package org.openlca.core.math.data_quality;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import org.openlca.core.matrix.format.DenseByteMatrix;
+import org.openlca.core.results.providers.ResultProvider;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Aggregates the exchange data quality scores with the direct flow
+ * contributions (and impact factors) of a result. Instead of looping over all
+ * flow * product cells, only the non-zero direct contributions
+ * $G = B \text{diag}(s)$ and the non-zero impact factors are visited. For the
+ * maximum aggregation, the weights are not relevant and the results are
+ * calculated from the maximum scores of the rows and columns of the sparse
+ * exchange data. The results are the same as adding all cells to an
+ * `Accumulator`: cells with a weight of zero do not change a weighted
+ * average, and the non-zero cells are added in the same order.
+ */
+class DQAggregation {
+
+	private final DQCalculationSetup setup;
+	private final ResultProvider provider;
+	private final SparseDQMatrix data;
+	private final byte max;
+	private final int k;
+	private final int m;
+	private final int n;
+
+	/**
+	 * The non-zero direct contributions in compressed row format: the
+	 * contributions of flow i are stored at the positions
+	 * `flowPointers[i] .. flowPointers[i + 1]` in product order. The scores
+	 * of each indicator are stored in the same layout.
+	 */
+	private int[] flowPointers;
+	private int[] products;
+	private double[] contributions;
+	private byte[][] scores;
+
+	/** For the maximum aggregation: the scores of the rows and columns. */
+	private byte[][] rowScores;
+	private byte[][] columnScores;
+	private byte[] totalScores;
+
+	DenseByteMatrix flowResult;
+	DenseByteMatrix impactResult;
+	DenseByteMatrix[] flowImpactResult;
+	DenseByteMatrix[] processImpactResult;
+
+	private DQAggregation(DQCalculationSetup setup, ResultProvider provider,
+		SparseDQMatrix data, byte max) {
+		this.setup = setup;
+		this.provider = provider;
+		this.data = data;
+		this.max = max;
+		this.k = data.indicators;
+		this.m = data.rows;
+		this.n = data.columns;
+	}
+
+	static DQAggregation of(DQCalculationSetup setup,
+		ResultProvider provider, SparseDQMatrix data, byte max) {
+		var agg = new DQAggregation(setup, provider, data, max);
+		if (setup.aggregationType == AggregationType.MAXIMUM) {
+			agg.collectMaxima();
+		} else {
+			agg.collectContributions();
+		}
+		return agg;
+	}
+
+	private boolean isMaximum() {
+		return setup.aggregationType == AggregationType.MAXIMUM;
+	}
+
+	/**
+	 * Collects the non-zero direct contributions with the respective data
+	 * quality scores.
+	 */
+	private void collectContributions() {
+
+		// collect the entries of each flow in product order; the columns
+		// are only visited once, so that only one column is held in memory
+		var rowProducts = new TIntArrayList[m];
+		var rowValues = new TDoubleArrayList[m];
+		for (int product = 0; product < n; product++) {
+			var column = provider.directFlowsOf(product);
+			int len = Math.min(m, column.length);
+			for (int flow = 0; flow < len; flow++) {
+				double val = column[flow];
+				if (val == 0)
+					continue;
+				if (rowProducts[flow] == null) {
+					rowProducts[flow] = new TIntArrayList();
+					rowValues[flow] = new TDoubleArrayList();
+				}
+				rowProducts[flow].add(product);
+				rowValues[flow].add(val);
+			}
+		}
+
+		flowPointers = new int[m + 1];
+		for (int flow = 0; flow < m; flow++) {
+			int count = rowProducts[flow] != null
+				? rowProducts[flow].size()
+				: 0;
+			flowPointers[flow + 1] = flowPointers[flow] + count;
+		}
+
+		// copy the entries into the compressed row format
+		int nnz = flowPointers[m];
+		products = new int[nnz];
+		contributions = new double[nnz];
+		scores = new byte[k][nnz];
+		for (int flow = 0; flow < m; flow++) {
+			var flowProducts = rowProducts[flow];
+			if (flowProducts == null)
+				continue;
+			var flowValues = rowValues[flow];
+			rowProducts[flow] = null;
+			rowValues[flow] = null;
+			int offset = flowPointers[flow];
+			flowProducts.toArray(products, 0, offset, flowProducts.size());
+			flowValues.toArray(contributions, 0, offset, flowValues.size());
+			for (int i = 0; i < flowProducts.size(); i++) {
+				var cell = data.get(flow, flowProducts.get(i));
+				if (cell == null)
+					continue;
+				for (int indicator = 0; indicator < k; indicator++) {
+					scores[indicator][offset + i] = cell[indicator];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates the maximum scores of the rows and columns and of the
+	 * complete exchange data for each indicator. A row, column, or matrix
+	 * has an n.a. score when it contains a cell with a score of 0.
+	 */
+	private void collectMaxima() {
+		var rowMax = new byte[k][m];
+		var rowCount = new int[k][m];
+		var colMax = new byte[k][n];
+		var colCount = new int[k][n];
+		data.iterate((row, col, cell) -> {
+			for (int i = 0; i < k; i++) {
+				byte dq = cell[i];
+				if (dq == 0)
+					continue;
+				rowCount[i][row]++;
+				colCount[i][col]++;
+				if (dq > rowMax[i][row]) {
+					rowMax[i][row] = dq;
+				}
+				if (dq > colMax[i][col]) {
+					colMax[i][col] = dq;
+				}
+			}
+		});
+
+		rowScores = new byte[k][m];
+		columnScores = new byte[k][n];
+		totalScores = new byte[k];
+		var acc = new Accumulator(setup, max);
+		for (int i = 0; i < k; i++) {
+			long total = 0;
+			acc.reset();
+			for (int row = 0; row < m; row++) {
+				rowScores[i][row] = maximum(rowMax[i][row], rowCount[i][row] < n);
+				if (rowMax[i][row] > 0) {
+					acc.add(rowMax[i][row], 0);
+				}
+				total += rowCount[i][row];
+			}
+			for (int col = 0; col < n; col++) {
+				columnScores[i][col] = maximum(colMax[i][col], colCount[i][col] < m);
+			}
+			if (total < (long) m * n) {
+				acc.add((byte) 0, 0);
+			}
+			totalScores[i] = acc.get();
+		}
+	}
+
+	/**
+	 * Returns the aggregated score of a row or column with the given maximum
+	 * value that may contain n.a. values.
+	 */
+	private byte maximum(byte value, boolean withNA) {
+		var acc = new Accumulator(setup, max);
+		if (value > 0) {
+			acc.add(value, 0);
+		}
+		if (withNA) {
+			acc.add((byte) 0, 0);
+		}
+		return acc.get();
+	}
+
+	/**
+	 * Calculates the aggregated scores of the flows.
+	 */
+	void calculateFlowResults() {
+		flowResult = new DenseByteMatrix(k, m);
+		if (setup.aggregationType == null)
+			return;
+		if (isMaximum()) {
+			for (int i = 0; i < k; i++) {
+				for (int flow = 0; flow < m; flow++) {
+					flowResult.set(i, flow, rowScores[i][flow]);
+				}
+			}
+			return;
+		}
+		parallel(k, () -> {
+			var acc = new Accumulator(setup, max);
+			return indicator -> {
+				var dqs = scores[indicator];
+				for (int flow = 0; flow < m; flow++) {
+					acc.reset();
+					for (int idx = flowPointers[flow];
+						 idx < flowPointers[flow + 1]; idx++) {
+						acc.add(dqs[idx], contributions[idx]);
+					}
+					flowResult.set(indicator, flow, acc.get());
+				}
+			};
+		});
+	}
+
+	/**
+	 * Calculates the aggregated scores of the impact categories and the
+	 * contributions of the flows and processes to these scores.
+	 */
+	void calculateImpactResults() {
+		int q = provider.impactIndex().size();
+		impactResult = new DenseByteMatrix(k, q);
+		flowImpactResult = new DenseByteMatrix[k];
+		processImpactResult = new DenseByteMatrix[k];
+		for (int i = 0; i < k; i++) {
+			flowImpactResult[i] = new DenseByteMatrix(q, m);
+			processImpactResult[i] = new DenseByteMatrix(q, n);
+		}
+
+		if (isMaximum()) {
+			for (int i = 0; i < k; i++) {
+				for (int impact = 0; impact < q; impact++) {
+					impactResult.set(i, impact, totalScores[i]);
+					for (int flow = 0; flow < m; flow++) {
+						flowImpactResult[i].set(impact, flow, rowScores[i][flow]);
+					}
+					for (int product = 0; product < n; product++) {
+						processImpactResult[i].set(
+							impact, product, columnScores[i][product]);
+					}
+				}
+			}
+			return;
+		}
+
+		// collect the non-zero impact factors per impact category
+		var impactFlows = new TIntArrayList[q];
+		var impactFactors = new TDoubleArrayList[q];
+		for (int impact = 0; impact < q; impact++) {
+			impactFlows[impact] = new TIntArrayList();
+			impactFactors[impact] = new TDoubleArrayList();
+		}
+		for (int flow = 0; flow < m; flow++) {
+			var column = provider.impactFactorsOf(flow);
+			int len = Math.min(q, column.length);
+			for (int impact = 0; impact < len; impact++) {
+				double factor = column[impact];
+				if (factor == 0)
+					continue;
+				impactFlows[impact].add(flow);
+				impactFactors[impact].add(factor);
+			}
+		}
+		var factorFlows = new int[q][];
+		var factors = new double[q][];
+		for (int impact = 0; impact < q; impact++) {
+			factorFlows[impact] = impactFlows[impact].toArray();
+			factors[impact] = impactFactors[impact].toArray();
+		}
+
+		// aggregate each pair of indicator and impact category
+		parallel(k * q, () -> {
+			var total = new Accumulator(setup, max);
+			var flowAcc = new Accumulator(setup, max);
+			var processAccs = new Accumulator[n];
+			var isTouched = new boolean[n];
+			var touched = new int[n];
+			return pair -> {
+				int indicator = pair / q;
+				int impact = pair % q;
+				var dqs = scores[indicator];
+				var flowImpacts = flowImpactResult[indicator];
+				var processImpacts = processImpactResult[indicator];
+				total.reset();
+				int touchedCount = 0;
+
+				for (int f = 0; f < factorFlows[impact].length; f++) {
+					int flow = factorFlows[impact][f];
+					double factor = factors[impact][f];
+					flowAcc.reset();
+					for (int idx = flowPointers[flow];
+						 idx < flowPointers[flow + 1]; idx++) {
+						byte dq = dqs[idx];
+						double weight = factor * contributions[idx];
+						total.add(dq, weight);
+						flowAcc.add(dq, weight);
+						int product = products[idx];
+						var processAcc = processAccs[product];
+						if (processAcc == null) {
+							processAcc = new Accumulator(setup, max);
+							processAccs[product] = processAcc;
+						}
+						if (!isTouched[product]) {
+							isTouched[product] = true;
+							touched[touchedCount++] = product;
+						}
+						processAcc.add(dq, weight);
+					}
+					if (setup.aggregationType != null) {
+						flowImpacts.set(impact, flow, flowAcc.get());
+					}
+				}
+
+				impactResult.set(indicator, impact, total.get());
+				for (int t = 0; t < touchedCount; t++) {
+					int product = touched[t];
+					processImpacts.set(
+						impact, product, processAccs[product].get());
+					processAccs[product].reset();
+					isTouched[product] = false;
+				}
+			};
+		});
+	}
+
+	/**
+	 * Runs the given number of tasks in parallel in the common fork-join
+	 * pool. Each worker gets its own task function (with its own
+	 * accumulators) from the given factory.
+	 */
+	private void parallel(int tasks, TaskFactory factory) {
+		if (tasks <= 0)
+			return;
+		int threads = Math.min(tasks, ForkJoinPool.getCommonPoolParallelism());
+		if (threads <= 1) {
+			var task = factory.create();
+			for (int i = 0; i < tasks; i++) {
+				task.accept(i);
+			}
+			return;
+		}
+		var pool = ForkJoinPool.commonPool();
+		try {
+			var futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				int offset = t;
+				futures.add(pool.submit(() -> {
+					var task = factory.create();
+					for (int i = offset; i < tasks; i += threads) {
+						task.accept(i);
+					}
+				}));
+			}
+			for (var future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("data quality aggregation interrupted", e);
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RuntimeException("data quality aggregation failed", cause);
+		}
+	}
+
+	@FunctionalInterface
+	private interface TaskFactory {
+		IntConsumer create();
+	}
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
+import org.openlca.core.matrix.cache.ExchangeSnapshot;
 import org.openlca.core.matrix.index.EnviFlow;
 import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.format.DenseByteMatrix;
@@ -37,11 +38,11 @@ public class DQResult {
 	private DenseByteMatrix processData;
 
 	/**
-	 * For the exchange data we store a flow*product matrix for each
-	 * indicator that holds the respective data quality scores of that
-	 * indicator.
+	 * For the exchange data we store a sparse flow*product matrix that holds
+	 * the data quality scores of the indicators for each exchange with a
+	 * data quality entry.
 	 */
-	private DenseByteMatrix[] exchangeData;
+	private SparseDQMatrix exchangeData;
 
 	/**
 	 * A k*m matrix that holds the aggregated flow results for the k
@@ -83,8 +84,7 @@ public class DQResult {
 		var r = new DQResult(setup, result);
 		r.loadProcessData(db);
 		r.loadExchangeData(db);
-		r.calculateFlowResults();
-		r.calculateImpactResults();
+		r.aggregate();
 		return r;
 	}
 
@@ -137,9 +137,12 @@ public class DQResult {
 		int col = result.techIndex().of(product);
 		if (row < 0 || col < 0)
 			return null;
-		int[] values = new int[exchangeData.length];
-		for (int k = 0; k < exchangeData.length; k++) {
-			values[k] = exchangeData[k].get(row, col);
+		int[] values = new int[exchangeData.indicators];
+		byte[] scores = exchangeData.get(row, col);
+		if (scores == null)
+			return values;
+		for (int k = 0; k < values.length; k++) {
+			values[k] = scores[k];
 		}
 		return values;
 	}
@@ -258,14 +261,9 @@ public class DQResult {
 				|| flowIndex == null)
 			return;
 
-		// allocate a BMatrix for each indicator
 		var n = system.indicators.size();
-		exchangeData = new DenseByteMatrix[n];
-
-		for (int i = 0; i < n; i++) {
-			exchangeData[i] = new DenseByteMatrix(
-				flowIndex.size(), techIndex.size());
-		}
+		exchangeData = new SparseDQMatrix(
+			n, flowIndex.size(), techIndex.size());
 
 		// collect the processes (providers) of the result with a
 		// matching data quality system
@@ -283,142 +281,72 @@ public class DQResult {
 			return true;
 		});
 
+		// take the data quality entries from the exchange
+		// snapshot if it is enabled
+		var snapshot = ExchangeSnapshot.get(db);
+		if (snapshot != null) {
+			providers.forEachEntry((processID, products) -> {
+				int end = snapshot.end(processID);
+				for (int i = snapshot.start(processID); i < end; i++) {
+					putExchangeData(products, snapshot.flowId(i),
+						snapshot.locationId(i), snapshot.dqEntry(i));
+				}
+				return true;
+			});
+			return;
+		}
+
 		// now, scan the exchanges table and collect all
 		// matching data quality entries
 		sql = "select f_owner, f_flow, f_location, dq_entry from tbl_exchanges";
 		NativeSql.on(db).query(sql, r -> {
-
-			// check that we have a valid entry
 			var products = providers.get(r.getLong(1));
 			if (products == null)
 				return true;
-			long flowID = r.getLong(2);
-			long locationID = r.getLong(3);
-			var dqEntry = r.getString(4);
-			if (dqEntry == null)
-				return true;
-			int row = flowIndex.of(flowID, locationID);
-			if (row < 0)
-				return true;
-
-			// store the values
-			int[] values = system.toValues(dqEntry);
-			int _n = Math.min(n, values.length);
-			for (int i = 0; i < _n; i++) {
-				var data = exchangeData[i];
-				byte value = (byte) values[i];
-				for (var product : products) {
-					int col = techIndex.of(product);
-					data.set(row, col, value);
-				}
-			}
+			putExchangeData(products, r.getLong(2), r.getLong(3), r.getString(4));
 			return true;
 		});
 	}
 
-	/**
-	 * Aggregate the raw exchange DQ values with the direct flow contribution
-	 * results if applicable.
-	 */
-	private void calculateFlowResults() {
-		if (setup.aggregationType == AggregationType.NONE
-			|| exchangeData == null)
+	private void putExchangeData(List<TechFlow> products, long flowID,
+		long locationID, String dqEntry) {
+
+		// check that we have a valid entry
+		if (dqEntry == null)
+			return;
+		int row = result.enviIndex().of(flowID, locationID);
+		if (row < 0)
 			return;
 
-		var system = setup.exchangeSystem;
-		int n = result.techIndex().size();
-		int k = system.indicators.size();
-		int m = result.enviIndex().size();
-		flowResult = new DenseByteMatrix(k, m);
-		byte max = (byte) system.getScoreCount();
-
-		var acc = new Accumulator(setup, max);
-		var flowContributions = new double[n];
-		for (int indicator = 0; indicator < k; indicator++) {
-			var b = exchangeData[indicator];
-			for (int flow = 0; flow < m; flow++) {
-				byte[] dqs = b.getRow(flow);
-				for (int product = 0; product < n; product++) {
-					flowContributions[product] = result.provider
-						.directFlowOf(flow, product);
-				}
-				flowResult.set(indicator, flow, acc.get(dqs, flowContributions));
-			}
+		// store the values
+		int[] values = setup.exchangeSystem.toValues(dqEntry);
+		var techIndex = result.techIndex();
+		for (var product : products) {
+			int col = techIndex.of(product);
+			exchangeData.put(row, col, values);
 		}
 	}
 
-	private void calculateImpactResults() {
+	/**
+	 * Aggregate the raw exchange DQ values with the direct flow contribution
+	 * results and impact factors if applicable.
+	 */
+	private void aggregate() {
 		if (setup.aggregationType == AggregationType.NONE
-			|| exchangeData == null
-			|| !result.hasImpacts())
+			|| exchangeData == null)
 			return;
 		var provider = result.provider;
-		if (!provider.hasImpacts())
-			return;
-
-		// initialize the results
-		var system = setup.exchangeSystem;
-		int k = system.indicators.size();
-		int m = result.enviIndex().size();
-		int n = result.techIndex().size();
-		int q = result.impactIndex().size();
-		byte max = (byte) system.getScoreCount();
-		impactResult = new DenseByteMatrix(k, q);
-		flowImpactResult = new DenseByteMatrix[k];
-		processImpactResult = new DenseByteMatrix[k];
-		for (int i = 0; i < k; i++) {
-			flowImpactResult[i] = new DenseByteMatrix(q, m);
-			processImpactResult[i] = new DenseByteMatrix(q, n);
-		}
+		byte max = (byte) setup.exchangeSystem.getScoreCount();
+		var aggregation = DQAggregation.of(setup, provider, exchangeData, max);
+		aggregation.calculateFlowResults();
+		flowResult = aggregation.flowResult;
 
-		// initialize the accumulators
-		var totalImpactAcc = new Accumulator(setup, max);
-		var flowImpactAcc = new Accumulator(setup, max);
-		var processAccs = new Accumulator[n];
-		for (int j = 0; j < n; j++) {
-			processAccs[j] = new Accumulator(setup, max);
-		}
-
-		for (int indicator = 0; indicator < k; indicator++) {
-			var b = exchangeData[indicator];
-
-			for (int impact = 0; impact < q; impact++) {
-
-				// reset the accumulators
-				totalImpactAcc.reset();
-				for (var acc : processAccs) {
-					acc.reset();
-				}
-
-				for (int flow = 0; flow < m; flow++) {
-
-					// get DQ data and calculate weights
-					byte[] dqs = b.getRow(flow);
-					double factor = provider.impactFactorOf(impact, flow);
-
-					double[] weights = new double[provider.techIndex().size()];
-					for (int product = 0; product < weights.length; product++) {
-						weights[product] = factor * provider.directFlowOf(
-							flow, product);
-					}
-
-					// add data
-					totalImpactAcc.addAll(dqs, weights);
-					flowImpactResult[indicator].set(
-						impact, flow, flowImpactAcc.get(dqs, weights));
-					for (int process = 0; process < n; process++) {
-						processAccs[process].add(dqs[process], weights[process]);
-					}
-
-				} // each flow
-
-				impactResult.set(indicator, impact, totalImpactAcc.get());
-				for (int process = 0; process < n; process++) {
-					processImpactResult[indicator].set(
-						impact, process, processAccs[process].get());
-				}
-			} // each impact
-		} // each indicator
+		if (!result.hasImpacts() || !provider.hasImpacts())
+			return;
+		aggregation.calculateImpactResults();
+		impactResult = aggregation.impactResult;
+		flowImpactResult = aggregation.flowImpactResult;
+		processImpactResult = aggregation.processImpactResult;
 	}
 
 	private static int[] toInt(byte[] bytes) {
@@ -0,0 +1,70 @@
+package org.openlca.core.math.data_quality;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * A sparse flow * product matrix that holds the data quality scores of the k
+ * indicators of a data quality system for each exchange. Only the cells with
+ * a data quality entry are stored; the scores of all other cells are 0 (n.a.).
+ */
+class SparseDQMatrix {
+
+	final int indicators;
+	final int rows;
+	final int columns;
+
+	private final TLongObjectHashMap<byte[]> cells = new TLongObjectHashMap<>();
+
+	SparseDQMatrix(int indicators, int rows, int columns) {
+		this.indicators = indicators;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * Sets the scores of the given cell. Missing scores are set to 0 and
+	 * additional scores are ignored.
+	 */
+	void put(int row, int col, int[] values) {
+		var scores = new byte[indicators];
+		int n = Math.min(indicators, values.length);
+		for (int i = 0; i < n; i++) {
+			scores[i] = (byte) values[i];
+		}
+		cells.put(key(row, col), scores);
+	}
+
+	/**
+	 * Returns the scores of the given cell or `null` if the cell is empty.
+	 * The returned array must not be modified.
+	 */
+	byte[] get(int row, int col) {
+		return cells.get(key(row, col));
+	}
+
+	byte get(int indicator, int row, int col) {
+		var scores = cells.get(key(row, col));
+		return scores == null
+			? 0
+			: scores[indicator];
+	}
+
+	/**
+	 * Iterates over the non-empty cells of the matrix in no specific order.
+	 */
+	void iterate(CellFunction fn) {
+		cells.forEachEntry((key, scores) -> {
+			fn.accept((int) (key >>> 32), (int) key, scores);
+			return true;
+		});
+	}
+
+	private static long key(int row, int col) {
+		return ((long) row << 32) | (col & 0xffffffffL);
+	}
+
+	@FunctionalInterface
+	interface CellFunction {
+		void accept(int row, int col, byte[] scores);
+	}
+}
@@ -33,6 +33,23 @@ public class CalcAllocationFactor {
 		return factor;
 	}
 
+	public CalcAllocationFactor copy() {
+		var copy = new CalcAllocationFactor(processID);
+		copy.amount = amount;
+		copy.evaluated = evaluated;
+		copy.formula = formula;
+		return copy;
+	}
+
+	/**
+	 * Returns true when the value of the factor is calculated from a formula.
+	 * The evaluation of such a factor changes its state and is bound to the
+	 * formula interpreter, which is not thread-safe.
+	 */
+	boolean hasFormula() {
+		return formula != null;
+	}
+
 	/**
 	 * Get the value of the allocation factor. If no formula is bound to the factor,
 	 * simply the value of the factor is returned. Otherwise, the value of the
@@ -90,6 +90,34 @@ public class CalcExchange {
 			|| (!isInput && flowType == FlowType.WASTE_FLOW);
 	}
 
+	/**
+	 * Creates a copy of this exchange. Note that the uncertainty cells of a
+	 * Monte Carlo simulation write generated values into their exchanges, so
+	 * every simulation thread needs its own copies.
+	 */
+	public CalcExchange copy() {
+		var copy = new CalcExchange();
+		copy.processId = processId;
+		copy.flowId = flowId;
+		copy.exchangeId = exchangeId;
+		copy.isInput = isInput;
+		copy.conversionFactor = conversionFactor;
+		copy.amount = amount;
+		copy.formula = formula;
+		copy.uncertaintyType = uncertaintyType;
+		copy.parameter1 = parameter1;
+		copy.parameter2 = parameter2;
+		copy.parameter3 = parameter3;
+		copy.flowType = flowType;
+		copy.defaultProviderId = defaultProviderId;
+		copy.locationId = locationId;
+		copy.isAvoided = isAvoided;
+		copy.costValue = costValue;
+		copy.currencyFactor = currencyFactor;
+		copy.costFormula = costFormula;
+		return copy;
+	}
+
 	public double matrixValue(FormulaInterpreter interpreter,
 														double allocationFactor) {
 
@@ -1,23 +1,49 @@
 package org.openlca.core.matrix;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashSet;
-
-import org.openlca.core.database.LocationDao;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openlca.core.database.DescriptorRegistry;
+import org.openlca.core.matrix.cache.ExchangeSnapshot;
 import org.openlca.core.matrix.cache.ExchangeTable;
 import org.openlca.core.matrix.cache.FlowTable;
-import org.openlca.core.matrix.format.MatrixBuilder;
+import org.openlca.core.matrix.format.CSCBuilder;
 import org.openlca.core.matrix.index.EnviIndex;
 import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.index.TechIndex;
 import org.openlca.core.matrix.uncertainties.UMatrix;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.descriptors.LocationDescriptor;
+import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.util.Strings;
 
 import gnu.trove.map.hash.TLongObjectHashMap;
 
+/**
+ * Builds the technology and intervention matrices of a matrix configuration.
+ * The exchanges are read in batches from the database. The batches are
+ * mapped to matrix entries in parallel: linking, allocation, and the
+ * calculation of values that do not depend on formulas. The mapped batches
+ * are then merged in the order in which they were read. In this sequential
+ * step, the elementary flows are registered in the flow index and formulas
+ * are evaluated, as the formula interpreter is not thread-safe. Thus, the
+ * result is the same as when the exchanges are processed one by one. The
+ * entries are collected in `CSCBuilder`s which assemble the matrices directly
+ * in the compressed column format.
+ */
 public class InventoryBuilder {
 
+	private static final int BATCH_SIZE = 10_000;
+
 	private final MatrixConfig conf;
+	private final int threads;
+	private final int batchSize;
 	private final TechIndex techIndex;
 	private final FlowTable flows;
 	private final EnviIndex flowIndex;
@@ -25,20 +51,29 @@ public class InventoryBuilder {
 	private final TLongObjectHashMap<LocationDescriptor> locations;
 	private final AllocationIndex allocationIndex;
 
-	private final MatrixBuilder techBuilder;
-	private final MatrixBuilder enviBuilder;
+	private final CSCBuilder techBuilder;
+	private final CSCBuilder enviBuilder;
 	private UMatrix techUncerts;
 	private UMatrix enviUncerts;
 	private double[] costs;
 
 	public InventoryBuilder(MatrixConfig conf) {
+		this(conf, Runtime.getRuntime().availableProcessors(), BATCH_SIZE);
+	}
+
+	InventoryBuilder(MatrixConfig conf, int threads, int batchSize) {
 		this.conf = conf;
+		this.threads = threads;
+		this.batchSize = Math.max(1, batchSize);
 
 		// setup the indices
 		this.techIndex = conf.techIndex;
-		this.flows = FlowTable.create(conf.db);
+		var snapshot = ExchangeSnapshot.get(conf.db);
+		this.flows = snapshot != null
+			? snapshot.flows()
+			: FlowTable.create(conf.db);
 		locations = conf.withRegionalization
-			? new LocationDao(conf.db).descriptorMap()
+			? DescriptorRegistry.of(conf.db).locations()
 			: null;
 		allocationIndex = conf.hasAllocation()
 			? AllocationIndex.create(conf)
@@ -57,8 +92,8 @@ public class InventoryBuilder {
 		}
 
 		// create the matrix structures
-		techBuilder = new MatrixBuilder();
-		enviBuilder = new MatrixBuilder();
+		techBuilder = new CSCBuilder();
+		enviBuilder = new CSCBuilder();
 		if (conf.withUncertainties) {
 			techUncerts = new UMatrix();
 			enviUncerts = new UMatrix();
@@ -100,12 +135,13 @@ public class InventoryBuilder {
 	private void fillMatrices() {
 			// fill the matrices with process data
 			var exchanges = new ExchangeTable(conf.db);
-			exchanges.each(techIndex, exchange -> {
-				var products = techIndex.getProviders(exchange.processId);
-				for (TechFlow product : products) {
-					putExchangeValue(product, exchange);
-				}
-			});
+			var pipeline = new Pipeline();
+			try {
+				exchanges.each(techIndex, pipeline::next);
+				pipeline.finish();
+			} finally {
+				pipeline.close();
+			}
 
 			// now put the entries of the sub-system into the matrices
 			var subSystems = new HashSet<TechFlow>();
@@ -119,7 +155,7 @@ public class InventoryBuilder {
 			if (subSystems.isEmpty())
 				return;
 
-			// use the MatrixBuilder.set method here because there may are stored LCI
+			// use the CSCBuilder.set method here because there may are stored LCI
 			// results in the database (!) that were mapped to the same columns above
 			for (TechFlow sub : subSystems) {
 
@@ -152,11 +188,15 @@ public class InventoryBuilder {
 			}
 	}
 
-	private void putExchangeValue(TechFlow provider, CalcExchange e) {
+	/**
+	 * Maps the given exchange of the given provider to a matrix entry. This is
+	 * called from the worker threads, thus it must not modify shared state.
+	 * Returns null when the exchange is not part of the matrices.
+	 */
+	private Entry map(TechFlow provider, CalcExchange e) {
 		if (e.isElementary()) {
 			// elementary flows
-			addIntervention(provider, e);
-			return;
+			return intervention(provider, e);
 		}
 
 		if (e.isLinkable()) {
@@ -164,59 +204,214 @@ public class InventoryBuilder {
 			if (linkedProvider != null) {
 				// linked product input or waste output
 				int row = techIndex.of(linkedProvider);
-				add(row, provider, techBuilder, e);
+				return entry(true, row, provider, e);
 			} else {
 				// unlinked product input or waste output
-				addIntervention(provider, e);
+				return intervention(provider, e);
 			}
-			return;
 		}
 
 		if (provider.matches(e.processId, e.flowId)) {
 			// the reference product or waste flow
 			int idx = techIndex.of(provider);
-			add(idx, provider, techBuilder, e);
-			return;
+			return entry(true, idx, provider, e);
 		}
 
 		if (!conf.hasAllocation()) {
 			// non allocated output products or waste inputs
-			addIntervention(provider, e);
+			return intervention(provider, e);
 		}
+		return null;
 	}
 
-	private void addIntervention(TechFlow provider, CalcExchange e) {
-		int row = flowIndex.register(provider, e, flows, locations);
-		add(row, provider, enviBuilder, e);
+	/**
+	 * Creates an entry of the intervention matrix; the row of the entry is
+	 * registered in the flow index when the entry is merged.
+	 */
+	private Entry intervention(TechFlow provider, CalcExchange e) {
+		return entry(false, -1, provider, e);
 	}
 
-	private void add(int row, TechFlow provider, MatrixBuilder matrix,
+	private Entry entry(boolean isTech, int row, TechFlow provider,
 			CalcExchange exchange) {
-
 		int col = techIndex.of(provider);
-		if (row < 0 || col < 0)
-			return;
-
+		if (col < 0 || (isTech && row < 0))
+			return null;
 		var allocationFactor = allocationIndex != null && exchange.isAllocatable()
 				? allocationIndex.getFactor(provider, exchange.exchangeId)
 				: null;
-		var af = allocationFactor != null
-				? allocationFactor.get(conf.interpreter)
-				: 1;
+		var entry = new Entry(
+				isTech, row, col, provider, exchange, allocationFactor);
+
+		// values that depend on formulas are calculated in the merge step
+		if (conf.interpreter != null) {
+			if (Strings.notEmpty(exchange.formula))
+				return entry;
+			if (conf.withCosts && Strings.notEmpty(exchange.costFormula))
+				return entry;
+			if (allocationFactor != null && allocationFactor.hasFormula())
+				return entry;
+		}
+		entry.eval(null);
+		return entry;
+	}
 
-		double value = exchange.matrixValue(conf.interpreter, af);
-		matrix.add(row, col, value);
+	/**
+	 * Adds the given entry to the matrices; this is called in the order in
+	 * which the exchanges were read from the database.
+	 */
+	private void merge(Entry entry) {
+		boolean isTech = entry.isTech;
+		int row = isTech
+				? entry.row
+				: flowIndex.register(entry.provider, entry.exchange, flows, locations);
+		int col = entry.col;
+		if (row < 0)
+			return;
+
+		if (!entry.evaluated) {
+			entry.eval(conf.interpreter);
+		}
+		var matrix = isTech ? techBuilder : enviBuilder;
+		matrix.add(row, col, entry.value);
 
 		if (conf.withCosts) {
-			costs[col] += exchange.costValue(conf.interpreter, af);
+			costs[col] += entry.cost;
 		}
 
 		if (conf.withUncertainties) {
-			if (matrix == techBuilder) {
-				techUncerts.add(row, col, exchange, allocationFactor);
+			var uncertainties = isTech ? techUncerts : enviUncerts;
+			uncertainties.add(row, col, entry.exchange, entry.allocationFactor);
+		}
+	}
+
+	/**
+	 * A matrix entry of an exchange and its provider.
+	 */
+	private class Entry {
+
+		final boolean isTech;
+
+		/**
+		 * The row in the technology matrix; the rows of interventions are
+		 * registered in the merge step.
+		 */
+		final int row;
+		final int col;
+		final TechFlow provider;
+		final CalcExchange exchange;
+		final CalcAllocationFactor allocationFactor;
+
+		boolean evaluated;
+		double value;
+		double cost;
+
+		Entry(boolean isTech, int row, int col, TechFlow provider,
+				CalcExchange exchange, CalcAllocationFactor allocationFactor) {
+			this.isTech = isTech;
+			this.row = row;
+			this.col = col;
+			this.provider = provider;
+			this.exchange = exchange;
+			this.allocationFactor = allocationFactor;
+		}
+
+		void eval(FormulaInterpreter interpreter) {
+			var af = allocationFactor != null
+					? allocationFactor.get(interpreter)
+					: 1;
+			value = exchange.matrixValue(interpreter, af);
+			if (conf.withCosts) {
+				cost = exchange.costValue(interpreter, af);
 			}
-			if (matrix == enviBuilder) {
-				enviUncerts.add(row, col, exchange, allocationFactor);
+			evaluated = true;
+		}
+	}
+
+	/**
+	 * A batch of exchanges and the matrix entries they are mapped to.
+	 */
+	private class Batch {
+
+		final List<CalcExchange> exchanges = new ArrayList<>(batchSize);
+		final List<Entry> entries = new ArrayList<>(batchSize);
+
+		Batch map() {
+			for (var exchange : exchanges) {
+				var providers = techIndex.getProviders(exchange.processId);
+				for (TechFlow provider : providers) {
+					var entry = InventoryBuilder.this.map(provider, exchange);
+					if (entry != null) {
+						entries.add(entry);
+					}
+				}
+			}
+			return this;
+		}
+
+		void merge() {
+			for (var entry : entries) {
+				InventoryBuilder.this.merge(entry);
+			}
+		}
+	}
+
+	/**
+	 * Collects the exchanges in batches and maps them in parallel. The thread
+	 * pool is only created when there is more than one batch so that small
+	 * systems are built on the calling thread. At most two batches per thread
+	 * are in the queue; the oldest batch is merged when this limit is reached.
+	 */
+	private class Pipeline {
+
+		private final ArrayDeque<Future<Batch>> queue = new ArrayDeque<>();
+		private ExecutorService pool;
+		private Batch batch = new Batch();
+
+		void next(CalcExchange exchange) {
+			batch.exchanges.add(exchange);
+			if (batch.exchanges.size() < batchSize)
+				return;
+			var full = batch;
+			batch = new Batch();
+			if (threads <= 1) {
+				full.map().merge();
+				return;
+			}
+			if (pool == null) {
+				pool = Executors.newFixedThreadPool(threads);
+			}
+			queue.add(pool.submit(full::map));
+			while (!queue.isEmpty()
+					&& (queue.size() > 2 * threads || queue.peek().isDone())) {
+				await(queue.poll()).merge();
+			}
+		}
+
+		void finish() {
+			while (!queue.isEmpty()) {
+				await(queue.poll()).merge();
+			}
+			batch.map().merge();
+		}
+
+		void close() {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		private Batch await(Future<Batch> future) {
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("building the matrices interrupted", e);
+			} catch (ExecutionException e) {
+				var cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw new RuntimeException("failed to build the matrices", cause);
 			}
 		}
 	}
@@ -162,8 +162,15 @@ public class MatrixConfig {
 			return this;
 		}
 
+		/**
+		 * Creates the configuration without building the matrices.
+		 */
+		MatrixConfig create() {
+			return new MatrixConfig(this);
+		}
+
 		public MatrixData build() {
-			var conf = new MatrixConfig(this);
+			var conf = create();
 			var data = new InventoryBuilder(conf).build();
 			// add the LCIA matrix structures; note that in case
 			// of a library system we may not have elementary
@@ -4,6 +4,7 @@ import java.sql.ResultSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.openlca.core.database.IDatabase;
@@ -31,9 +32,14 @@ public class ParameterTable {
 	 */
 	private TLongObjectHashMap<Map<String, NumberGenerator>> numberGens;
 
-	private final FormulaInterpreter interpreter = new FormulaInterpreter();
+	private final FormulaInterpreter interpreter;
 
 	private ParameterTable() {
+		this(new FormulaInterpreter());
+	}
+
+	private ParameterTable(FormulaInterpreter interpreter) {
+		this.interpreter = interpreter;
 	}
 
 	/**
@@ -78,7 +84,8 @@ public class ParameterTable {
 	/**
 	 * Calculates new random values for the parameters in this table that have an
 	 * uncertainty distribution assigned. It re-binds the values of theses
-	 * parameters in the underlying interpreter with the generated values.
+	 * parameters in the underlying interpreter with the generated values and
+	 * evaluates the dependent parameters in a single pass.
 	 */
 	public FormulaInterpreter simulate() {
 		if (numberGens == null)
@@ -95,13 +102,37 @@ public class ParameterTable {
 				continue;
 			generators.forEach((name, gen) -> {
 				if (gen != null) {
-					scope.bind(name, gen.next());
+					scope.bind(name, gen.next(interpreter.getRandom()));
 				}
 			});
 		}
+		interpreter.evaluateVariables();
 		return interpreter;
 	}
 
+	/**
+	 * Same as `simulate()` but the values of the uncertainty distributions are
+	 * drawn from the given source of random numbers which is also bound to the
+	 * returned interpreter.
+	 */
+	public FormulaInterpreter simulate(Random random) {
+		interpreter.setRandom(random);
+		return simulate();
+	}
+
+	/**
+	 * Creates a copy of this table with an own formula interpreter so that the
+	 * copy can be used in another simulation thread. The number generators are
+	 * not modified after the table is created and are shared with the copy. This
+	 * also means that the parameter values are generated in the same order in
+	 * the copy as in this table.
+	 */
+	public ParameterTable copy() {
+		var copy = new ParameterTable(interpreter.copy());
+		copy.numberGens = numberGens;
+		return copy;
+	}
+
 	private void bindRedefs(Collection<ParameterRedef> redefs) {
 		if (redefs == null)
 			return;
@@ -31,7 +31,7 @@ public interface TechLinker {
 		 * matrix builder only works correctly when each product (waste) is only
 		 * produced (treated) by a single process in the database.
 		 */
-		private TLongObjectHashMap<TechFlow> providers;
+		private volatile TLongObjectHashMap<TechFlow> providers;
 
 		private Default(TechIndex techIndex) {
 			this.techIndex = techIndex;
@@ -48,12 +48,24 @@ public interface TechLinker {
 				if (p != null)
 					return p;
 			}
-			if (providers == null) {
-				providers = new TLongObjectHashMap<>();
-				techIndex.each(
-					(i, pp) -> providers.put(pp.flowId(), pp));
+			var map = providers;
+			if (map == null) {
+				map = initProviders();
 			}
-			return providers.get(e.flowId);
+			return map.get(e.flowId);
+		}
+
+		/**
+		 * Initializes the provider map; this is synchronized as the linker may
+		 * be called from multiple threads when the matrices are built.
+		 */
+		private synchronized TLongObjectHashMap<TechFlow> initProviders() {
+			if (providers != null)
+				return providers;
+			var map = new TLongObjectHashMap<TechFlow>();
+			techIndex.each((i, pp) -> map.put(pp.flowId(), pp));
+			providers = map;
+			return map;
 		}
 	}
 }
@@ -0,0 +1,493 @@
+package org.openlca.core.matrix.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.UncertaintyType;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * An immutable, columnar in-memory copy of the exchange table of a database.
+ * The exchanges are stored in primitive arrays that are sorted by their
+ * owners (the processes) with an offset index so that the exchanges of a
+ * process are a contiguous range of rows. The conversion factors of the
+ * units, flow properties, and currencies are already applied.
+ * <p>
+ * Snapshots are optional. When a snapshot is enabled for a database, the
+ * calculations use it instead of reading the exchange table again. It is
+ * created lazily and dropped when a process, flow, flow property, unit
+ * group, or currency of the database is inserted, updated, or deleted (via
+ * an `IDatabaseListener`). Changes via native SQL are not reported to the
+ * listeners: you need to call `invalidate` or `IDatabase.clearCache` in this
+ * case.
+ */
+public final class ExchangeSnapshot {
+
+	private static final Map<IDatabase, Holder> holders
+			= new ConcurrentHashMap<>();
+
+	private static final byte INPUT = 1;
+	private static final byte AVOIDED = 2;
+	private static final byte COSTS = 4;
+
+	private final FlowTable flows;
+	private final TLongObjectHashMap<FlowType> flowTypes;
+
+	/** The IDs of the processes in ascending order. */
+	private final long[] processes;
+
+	/** The rows of process i are in [offsets[i], offsets[i + 1]). */
+	private final int[] offsets;
+	private final TLongIntHashMap positions;
+
+	private final long[] ids;
+	private final long[] owners;
+	private final long[] flowIds;
+	private final double[] factors;
+	private final double[] amounts;
+	private final String[] formulas;
+	private final byte[] flags;
+	private final long[] providers;
+	private final long[] locations;
+	private final double[] costValues;
+	private final String[] costFormulas;
+	private final double[] currencyFactors;
+	private final byte[] uncertaintyTypes;
+	private final double[] parameters1;
+	private final double[] parameters2;
+	private final double[] parameters3;
+	private final String[] dqEntries;
+
+	private ExchangeSnapshot(IDatabase db) {
+		flows = FlowTable.create(db);
+		flowTypes = FlowTable.getTypes(db);
+		var conversions = ConversionTable.create(db);
+		var columns = new Columns();
+		var sql = "SELECT"
+				+ /* 1 */ " id,"
+				+ /* 2 */ " f_owner,"
+				+ /* 3 */ " f_flow,"
+				+ /* 4 */ " f_flow_property_factor,"
+				+ /* 5 */ " f_unit,"
+				+ /* 6 */ " resulting_amount_value,"
+				+ /* 7 */ " resulting_amount_formula,"
+				+ /* 8 */ " is_input,"
+				+ /* 9 */ " avoided_product,"
+				+ /* 10 */ " f_default_provider,"
+				+ /* 11 */ " cost_value,"
+				+ /* 12 */ " cost_formula,"
+				+ /* 13 */ " f_currency,"
+				+ /* 14 */ " distribution_type,"
+				+ /* 15 */ " parameter1_value,"
+				+ /* 16 */ " parameter2_value,"
+				+ /* 17 */ " parameter3_value,"
+				+ /* 18 */ " f_location,"
+				+ /* 19 */ " dq_entry"
+				+ " FROM tbl_exchanges";
+		NativeSql.on(db).query(sql, r -> {
+			columns.ids.add(r.getLong(1));
+			columns.owners.add(r.getLong(2));
+			columns.flowIds.add(r.getLong(3));
+			double propertyFactor = conversions.getPropertyFactor(r.getLong(4));
+			double unitFactor = conversions.getUnitFactor(r.getLong(5));
+			columns.factors.add(propertyFactor == 0
+					? 0
+					: unitFactor / propertyFactor);
+			columns.amounts.add(r.getDouble(6));
+			columns.formulas.add(r.getString(7));
+			byte flags = 0;
+			if (r.getBoolean(8)) {
+				flags |= INPUT;
+			}
+			if (r.getBoolean(9)) {
+				flags |= AVOIDED;
+			}
+			columns.providers.add(r.getLong(10));
+
+			// costs
+			double costValue = r.getDouble(11);
+			String costFormula = r.getString(12);
+			long currency = r.getLong(13);
+			if (!r.wasNull()) {
+				flags |= COSTS;
+				columns.costValues.add(costValue);
+				columns.costFormulas.add(costFormula);
+				columns.currencyFactors.add(
+						conversions.getCurrencyFactor(currency));
+			} else {
+				columns.costValues.add(0);
+				columns.costFormulas.add(null);
+				columns.currencyFactors.add(0);
+			}
+			columns.flags.add(flags);
+
+			// uncertainties
+			int uncertaintyType = r.getInt(14);
+			columns.uncertaintyTypes.add(r.wasNull()
+					? -1
+					: (byte) uncertaintyType);
+			columns.parameters1.add(r.getDouble(15));
+			columns.parameters2.add(r.getDouble(16));
+			columns.parameters3.add(r.getDouble(17));
+
+			columns.locations.add(r.getLong(18));
+			columns.dqEntries.add(r.getString(19));
+			return true;
+		});
+
+		// sort the rows by owner; the sort is stable so that the exchanges of
+		// a process keep the order of the table
+		int n = columns.ids.size();
+		var counts = new TLongIntHashMap();
+		for (int i = 0; i < n; i++) {
+			counts.adjustOrPutValue(columns.owners.getQuick(i), 1, 1);
+		}
+		processes = counts.keys();
+		Arrays.sort(processes);
+		offsets = new int[processes.length + 1];
+		positions = new TLongIntHashMap(processes.length);
+		for (int k = 0; k < processes.length; k++) {
+			positions.put(processes[k], k);
+			offsets[k + 1] = offsets[k] + counts.get(processes[k]);
+		}
+		int[] order = new int[n];
+		int[] next = Arrays.copyOf(offsets, processes.length);
+		for (int i = 0; i < n; i++) {
+			int k = positions.get(columns.owners.getQuick(i));
+			order[next[k]++] = i;
+		}
+
+		ids = permute(columns.ids, order);
+		owners = permute(columns.owners, order);
+		flowIds = permute(columns.flowIds, order);
+		factors = permute(columns.factors, order);
+		amounts = permute(columns.amounts, order);
+		formulas = permute(columns.formulas, order);
+		flags = permute(columns.flags, order);
+		providers = permute(columns.providers, order);
+		locations = permute(columns.locations, order);
+		costValues = permute(columns.costValues, order);
+		costFormulas = permute(columns.costFormulas, order);
+		currencyFactors = permute(columns.currencyFactors, order);
+		uncertaintyTypes = permute(columns.uncertaintyTypes, order);
+		parameters1 = permute(columns.parameters1, order);
+		parameters2 = permute(columns.parameters2, order);
+		parameters3 = permute(columns.parameters3, order);
+		dqEntries = permute(columns.dqEntries, order);
+	}
+
+	/**
+	 * Enables the exchange snapshot for the given database. The snapshot is
+	 * created when it is requested the first time.
+	 */
+	public static void enable(IDatabase db) {
+		if (db == null)
+			return;
+		holders.computeIfAbsent(db, _db -> {
+			var holder = new Holder(_db);
+			_db.addListener(holder);
+			return holder;
+		});
+	}
+
+	/**
+	 * Disables the exchange snapshot for the given database and releases its
+	 * memory. This should be called before the database is closed.
+	 */
+	public static void disable(IDatabase db) {
+		if (db == null)
+			return;
+		var holder = holders.remove(db);
+		if (holder != null) {
+			db.removeListener(holder);
+		}
+	}
+
+	public static boolean isEnabled(IDatabase db) {
+		return db != null && holders.containsKey(db);
+	}
+
+	/**
+	 * Drops the current snapshot of the given database, if it is enabled. A
+	 * new snapshot is created when it is requested the next time.
+	 */
+	public static void invalidate(IDatabase db) {
+		if (db == null)
+			return;
+		var holder = holders.get(db);
+		if (holder != null) {
+			holder.invalidate();
+		}
+	}
+
+	/**
+	 * Returns the current snapshot of the given database or null if the
+	 * snapshot is not enabled for that database.
+	 */
+	public static ExchangeSnapshot get(IDatabase db) {
+		if (db == null)
+			return null;
+		var holder = holders.get(db);
+		return holder != null
+				? holder.get()
+				: null;
+	}
+
+	/**
+	 * Returns the flow table that was loaded with this snapshot.
+	 */
+	public FlowTable flows() {
+		return flows;
+	}
+
+	/**
+	 * Returns the number of exchanges in this snapshot.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	public boolean contains(long processId) {
+		return positions.containsKey(processId);
+	}
+
+	/**
+	 * Returns the first row of the exchanges of the given process.
+	 */
+	public int start(long processId) {
+		int k = position(processId);
+		return k < 0 ? 0 : offsets[k];
+	}
+
+	/**
+	 * Returns the end (exclusive) of the rows of the exchanges of the given
+	 * process; `start == end` when the process has no exchanges.
+	 */
+	public int end(long processId) {
+		int k = position(processId);
+		return k < 0 ? 0 : offsets[k + 1];
+	}
+
+	private int position(long processId) {
+		return positions.containsKey(processId)
+				? positions.get(processId)
+				: -1;
+	}
+
+	public long flowId(int row) {
+		return flowIds[row];
+	}
+
+	public long locationId(int row) {
+		return locations[row];
+	}
+
+	public String dqEntry(int row) {
+		return dqEntries[row];
+	}
+
+	/**
+	 * Creates a new exchange object from the given row.
+	 */
+	public CalcExchange exchange(int row) {
+		var e = new CalcExchange();
+		e.exchangeId = ids[row];
+		e.processId = owners[row];
+		e.flowId = flowIds[row];
+		e.flowType = flowTypes.get(e.flowId);
+		e.conversionFactor = factors[row];
+		e.amount = amounts[row];
+		e.formula = formulas[row];
+		byte f = flags[row];
+		e.isInput = (f & INPUT) != 0;
+		e.isAvoided = (f & AVOIDED) != 0;
+		e.defaultProviderId = providers[row];
+		e.locationId = locations[row];
+
+		if ((f & COSTS) != 0) {
+			e.costValue = costValues[row];
+			e.costFormula = costFormulas[row];
+			e.currencyFactor = currencyFactors[row];
+		}
+
+		byte u = uncertaintyTypes[row];
+		if (u >= 0) {
+			e.uncertaintyType = UncertaintyType.values()[u];
+			e.parameter1 = parameters1[row];
+			e.parameter2 = parameters2[row];
+			e.parameter3 = parameters3[row];
+		}
+		return e;
+	}
+
+	/**
+	 * Calls the given function with the exchanges of the given process.
+	 */
+	public void each(long processId, Consumer<CalcExchange> fn) {
+		int end = end(processId);
+		for (int row = start(processId); row < end; row++) {
+			fn.accept(exchange(row));
+		}
+	}
+
+	/**
+	 * Returns the exchanges of the given process.
+	 */
+	public List<CalcExchange> exchangesOf(long processId) {
+		int start = start(processId);
+		int end = end(processId);
+		if (start == end)
+			return Collections.emptyList();
+		var list = new ArrayList<CalcExchange>(end - start);
+		for (int row = start; row < end; row++) {
+			list.add(exchange(row));
+		}
+		return list;
+	}
+
+	private static long[] permute(TLongArrayList list, int[] order) {
+		var array = new long[order.length];
+		for (int i = 0; i < order.length; i++) {
+			array[i] = list.getQuick(order[i]);
+		}
+		return array;
+	}
+
+	private static double[] permute(TDoubleArrayList list, int[] order) {
+		var array = new double[order.length];
+		for (int i = 0; i < order.length; i++) {
+			array[i] = list.getQuick(order[i]);
+		}
+		return array;
+	}
+
+	private static byte[] permute(TByteArrayList list, int[] order) {
+		var array = new byte[order.length];
+		for (int i = 0; i < order.length; i++) {
+			array[i] = list.getQuick(order[i]);
+		}
+		return array;
+	}
+
+	private static String[] permute(List<String> list, int[] order) {
+		var array = new String[order.length];
+		for (int i = 0; i < order.length; i++) {
+			array[i] = list.get(order[i]);
+		}
+		return array;
+	}
+
+	/**
+	 * The growing columns of the exchange table when it is read.
+	 */
+	private static class Columns {
+		final TLongArrayList ids = new TLongArrayList();
+		final TLongArrayList owners = new TLongArrayList();
+		final TLongArrayList flowIds = new TLongArrayList();
+		final TDoubleArrayList factors = new TDoubleArrayList();
+		final TDoubleArrayList amounts = new TDoubleArrayList();
+		final List<String> formulas = new ArrayList<>();
+		final TByteArrayList flags = new TByteArrayList();
+		final TLongArrayList providers = new TLongArrayList();
+		final TLongArrayList locations = new TLongArrayList();
+		final TDoubleArrayList costValues = new TDoubleArrayList();
+		final List<String> costFormulas = new ArrayList<>();
+		final TDoubleArrayList currencyFactors = new TDoubleArrayList();
+		final TByteArrayList uncertaintyTypes = new TByteArrayList();
+		final TDoubleArrayList parameters1 = new TDoubleArrayList();
+		final TDoubleArrayList parameters2 = new TDoubleArrayList();
+		final TDoubleArrayList parameters3 = new TDoubleArrayList();
+		final List<String> dqEntries = new ArrayList<>();
+	}
+
+	/**
+	 * Holds the current snapshot of a database and drops it when relevant
+	 * data of the database are changed.
+	 */
+	private static class Holder implements IDatabaseListener {
+
+		private final IDatabase db;
+		private ExchangeSnapshot snapshot;
+
+		/** Incremented with every invalidation. */
+		private long version;
+
+		Holder(IDatabase db) {
+			this.db = db;
+		}
+
+		ExchangeSnapshot get() {
+			long v;
+			synchronized (this) {
+				if (snapshot != null)
+					return snapshot;
+				v = version;
+			}
+			var log = LoggerFactory.getLogger(ExchangeSnapshot.class);
+			log.trace("create exchange snapshot of {}", db);
+			var next = new ExchangeSnapshot(db);
+			synchronized (this) {
+				// only keep the snapshot when the database was not changed
+				// in the meantime
+				if (version == v && snapshot == null) {
+					snapshot = next;
+				}
+				return snapshot != null ? snapshot : next;
+			}
+		}
+
+		synchronized void invalidate() {
+			snapshot = null;
+			version++;
+		}
+
+		private void onChange(Descriptor d) {
+			if (d == null || d.type == null)
+				return;
+			switch (d.type) {
+				case PROCESS:
+				case FLOW:
+				case FLOW_PROPERTY:
+				case UNIT:
+				case UNIT_GROUP:
+				case CURRENCY:
+					invalidate();
+					break;
+				default:
+					break;
+			}
+		}
+
+		@Override
+		public void modelInserted(Descriptor d) {
+			onChange(d);
+		}
+
+		@Override
+		public void modelUpdated(Descriptor d) {
+			onChange(d);
+		}
+
+		@Override
+		public void modelDeleted(Descriptor d) {
+			onChange(d);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package org.openlca.core.matrix.cache;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 import org.openlca.core.database.IDatabase;
@@ -15,20 +16,30 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 public class ExchangeTable {
 
 	private final IDatabase db;
-	private final ConversionTable conversions;
-	private final TLongObjectHashMap<FlowType> flowTypes;
+	private final ExchangeSnapshot snapshot;
+	private ConversionTable conversions;
+	private TLongObjectHashMap<FlowType> flowTypes;
 
 	public ExchangeTable(IDatabase db) {
 		this.db = db;
-		conversions = ConversionTable.create(db);
-		flowTypes = FlowTable.getTypes(db);
+		this.snapshot = ExchangeSnapshot.get(db);
 	}
 
 	/**
 	 * Calls the given function for each exchange of the processes in the given
-	 * index.
+	 * index. When an exchange snapshot is enabled for the database, the
+	 * exchanges are taken from that snapshot in ascending order of the process
+	 * IDs.
 	 */
 	public void each(TechIndex techIndex, Consumer<CalcExchange> fn) {
+		if (snapshot != null) {
+			eachOfSnapshot(techIndex, fn);
+			return;
+		}
+		if (conversions == null) {
+			conversions = ConversionTable.create(db);
+			flowTypes = FlowTable.getTypes(db);
+		}
 		String sql = query();
 		if (techIndex.size() < 1000) {
 			// avoid full table scans in LCI databases
@@ -55,6 +66,19 @@ public class ExchangeTable {
 		}
 	}
 
+	private void eachOfSnapshot(TechIndex techIndex, Consumer<CalcExchange> fn) {
+		var ids = techIndex.getProcessIds();
+		long[] processes = new long[ids.size()];
+		int i = 0;
+		for (long id : ids) {
+			processes[i++] = id;
+		}
+		Arrays.sort(processes);
+		for (long process : processes) {
+			snapshot.each(process, fn);
+		}
+	}
+
 	private static String query() {
 		return "SELECT"
 				+ /* 1 */ " id,"
@@ -2,7 +2,7 @@ package org.openlca.core.matrix.cache;
 
 import gnu.trove.map.hash.TLongIntHashMap;
 import gnu.trove.set.hash.TLongHashSet;
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorRegistry;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
 import org.openlca.core.model.FlowType;
@@ -13,10 +13,12 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 
 /**
  * A simple data structure that holds the flow types of the flows in a database.
+ * The flow descriptors are taken from the shared descriptor registry of the
+ * database.
  */
 public class FlowTable {
 
-	private final TLongObjectHashMap<FlowDescriptor> map = new TLongObjectHashMap<>();
+	private TLongObjectHashMap<FlowDescriptor> map;
 
 	public static FlowTable create(IDatabase database) {
 		return new FlowTable(database);
@@ -27,15 +29,11 @@ public class FlowTable {
 	}
 
 	public void reload(IDatabase db) {
-		map.clear();
 		init(db);
 	}
 
 	private void init(IDatabase db) {
-		var dao = new FlowDao(db);
-		for (FlowDescriptor d : dao.getDescriptors()) {
-			map.put(d.id, d);
-		}
+		map = DescriptorRegistry.of(db).flows();
 	}
 
 	public FlowDescriptor get(long flowID) {
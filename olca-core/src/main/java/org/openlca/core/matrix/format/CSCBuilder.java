@@ -0,0 +1,177 @@
+package org.openlca.core.matrix.format;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Collects the entries of a matrix as (row, column, value) triples and
+ * assembles them directly into the compressed sparse column format when
+ * `finish` is called. Adding an entry just appends it to the buffers, thus
+ * it is much cheaper than filling a `HashPointMatrix`. Like the
+ * `MatrixBuilder`, it returns a dense matrix when the fill rate of the result
+ * exceeds the given maximum fill rate of sparse matrices.
+ */
+public class CSCBuilder {
+
+	private final double maxSparseFillRate;
+
+	private int rows;
+	private int cols;
+
+	private final TIntArrayList addRows = new TIntArrayList();
+	private final TIntArrayList addCols = new TIntArrayList();
+	private final TDoubleArrayList addValues = new TDoubleArrayList();
+
+	private final TIntArrayList setRows = new TIntArrayList();
+	private final TIntArrayList setCols = new TIntArrayList();
+	private final TDoubleArrayList setValues = new TDoubleArrayList();
+
+	public CSCBuilder() {
+		this(0.4);
+	}
+
+	public CSCBuilder(double maxSparseFillRate) {
+		this.maxSparseFillRate = maxSparseFillRate;
+	}
+
+	public void minSize(int rows, int cols) {
+		if (this.rows < rows) {
+			this.rows = rows;
+		}
+		if (this.cols < cols) {
+			this.cols = cols;
+		}
+	}
+
+	public boolean isEmpty() {
+		return addValues.isEmpty() && setValues.isEmpty();
+	}
+
+	/**
+	 * Adds the given value to the cell (row, col). Multiple values of the same
+	 * cell are summed up when the matrix is assembled.
+	 */
+	public void add(int row, int col, double val) {
+		if (val == 0 || row < 0 || col < 0)
+			return;
+		minSize(row + 1, col + 1);
+		addRows.add(row);
+		addCols.add(col);
+		addValues.add(val);
+	}
+
+	/**
+	 * Sets the cell (row, col) to the given value. This replaces the sum of
+	 * the values that are added to that cell, independent of the order of the
+	 * calls. When the same cell is set multiple times, the last value wins.
+	 */
+	public void set(int row, int col, double val) {
+		if (row < 0 || col < 0)
+			return;
+		minSize(row + 1, col + 1);
+		setRows.add(row);
+		setCols.add(col);
+		setValues.add(val);
+	}
+
+	public MatrixReader finish() {
+		var csc = compress();
+		double n = (double) rows * (double) cols;
+		double fr = n > 0
+				? (double) csc.values.length / n
+				: 0;
+		if (fr <= maxSparseFillRate)
+			return csc;
+		var dense = new DenseMatrix(rows, cols);
+		csc.iterate(dense::set);
+		return dense;
+	}
+
+	private CSCMatrix compress() {
+
+		// sort the added and set entries by column (counting sort)
+		int[] addPointers = pointers(addCols);
+		int[] addIdx = sortedByColumn(addCols, addPointers);
+		int[] setPointers = pointers(setCols);
+		int[] setIdx = sortedByColumn(setCols, setPointers);
+
+		// the work array collects the values of a column; `marks[row]` is the
+		// column + 1 in which the row was last seen
+		double[] work = new double[rows];
+		int[] marks = new int[rows];
+		int[] pattern = new int[rows];
+
+		int[] columnPointers = new int[cols + 1];
+		var rowIndices = new TIntArrayList(addValues.size());
+		var values = new TDoubleArrayList(addValues.size());
+
+		for (int col = 0; col < cols; col++) {
+			columnPointers[col] = values.size();
+			int stamp = col + 1;
+			int nz = 0;
+			for (int k = addPointers[col]; k < addPointers[col + 1]; k++) {
+				int i = addIdx[k];
+				int row = addRows.getQuick(i);
+				if (marks[row] != stamp) {
+					marks[row] = stamp;
+					work[row] = addValues.getQuick(i);
+					pattern[nz++] = row;
+				} else {
+					work[row] += addValues.getQuick(i);
+				}
+			}
+			for (int k = setPointers[col]; k < setPointers[col + 1]; k++) {
+				int i = setIdx[k];
+				int row = setRows.getQuick(i);
+				if (marks[row] != stamp) {
+					marks[row] = stamp;
+					pattern[nz++] = row;
+				}
+				work[row] = setValues.getQuick(i);
+			}
+			Arrays.sort(pattern, 0, nz);
+			for (int k = 0; k < nz; k++) {
+				int row = pattern[k];
+				double val = work[row];
+				if (val == 0)
+					continue;
+				rowIndices.add(row);
+				values.add(val);
+			}
+		}
+		columnPointers[cols] = values.size();
+
+		return new CSCMatrix(rows, cols,
+				values.toArray(), columnPointers, rowIndices.toArray());
+	}
+
+	/**
+	 * Returns the start positions of the columns in the column-sorted order
+	 * of the given column indices.
+	 */
+	private int[] pointers(TIntArrayList colIndices) {
+		int[] pointers = new int[cols + 1];
+		for (int k = 0; k < colIndices.size(); k++) {
+			pointers[colIndices.getQuick(k) + 1]++;
+		}
+		for (int col = 0; col < cols; col++) {
+			pointers[col + 1] += pointers[col];
+		}
+		return pointers;
+	}
+
+	/**
+	 * Returns the positions of the entries sorted by column. The sort is
+	 * stable so that the order of the entries within a column is kept.
+	 */
+	private int[] sortedByColumn(TIntArrayList colIndices, int[] pointers) {
+		int[] next = Arrays.copyOf(pointers, cols);
+		int[] idx = new int[colIndices.size()];
+		for (int k = 0; k < colIndices.size(); k++) {
+			idx[next[colIndices.getQuick(k)]++] = k;
+		}
+		return idx;
+	}
+}
@@ -183,6 +183,43 @@ public class CSCMatrix implements MatrixReader {
 		}
 	}
 
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		if (fn == null)
+			return;
+		int end = col < (columns - 1)
+				? columnPointers[col + 1]
+				: values.length;
+		for (int i = columnPointers[col]; i < end; i++) {
+			double val = values[i];
+			if (val != 0) {
+				fn.value(rowIndices[i], col, val);
+			}
+		}
+	}
+
+	/**
+	 * Calculates $A v$ as a linear combination of the columns of this matrix
+	 * without the overhead of the generic `iterate` function.
+	 */
+	@Override
+	public double[] multiply(double[] v) {
+		double[] x = new double[rows];
+		int cols = Math.min(columns, v.length);
+		for (int col = 0; col < cols; col++) {
+			double vj = v[col];
+			if (vj == 0)
+				continue;
+			int end = col < (columns - 1)
+					? columnPointers[col + 1]
+					: values.length;
+			for (int i = columnPointers[col]; i < end; i++) {
+				x[rowIndices[i]] += values[i] * vj;
+			}
+		}
+		return x;
+	}
+
 	/**
 	 * Note that this method changes the data of this matrix in place. This is
 	 * a fast operation of CSC matrices.
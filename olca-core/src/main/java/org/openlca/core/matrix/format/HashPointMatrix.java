@@ -124,6 +124,22 @@ public class HashPointMatrix implements Matrix {
 		return column;
 	}
 
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		if (fn == null)
+			return;
+		var m = data.get(col);
+		if (m == null)
+			return;
+		var iter = m.iterator();
+		while (iter.hasNext()) {
+			iter.advance();
+			if (iter.value() != 0) {
+				fn.value(iter.key(), col, iter.value());
+			}
+		}
+	}
+
 	@Override
 	public double[] getRow(int i) {
 		double[] row = new double[cols];
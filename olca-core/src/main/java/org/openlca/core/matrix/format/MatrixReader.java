@@ -56,6 +56,23 @@ public interface MatrixReader extends Copyable<MatrixReader> {
 		}
 	}
 
+	/**
+	 * Iterates over the non-zero values in the given column of this matrix.
+	 * The default implementation scans the full column; sparse matrix layouts
+	 * should overwrite this function and only visit the stored entries.
+	 */
+	default void iterateColumn(int col, EntryFunction fn) {
+		if (fn == null)
+			return;
+		double[] column = getColumn(col);
+		for (int row = 0; row < column.length; row++) {
+			double val = column[row];
+			if (val != 0) {
+				fn.value(row, col, val);
+			}
+		}
+	}
+
 	/**
 	 * Performs a matrix-vector multiplication with the given vector v. It uses
 	 * the iterate function which can be fast for sparse matrices. For dense
@@ -0,0 +1,251 @@
+package org.openlca.core.matrix.format;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Matrix-vector and matrix-matrix products with sparse matrices. The
+ * matrices are dispatched on their concrete type: sparse matrices are
+ * converted into the compressed column format (CSC) and the products are
+ * calculated column by column as linear combinations of the columns of the
+ * left matrix, so that the work is proportional to the number of non-zero
+ * entries and the dense data are read in their column-major order. Matrix
+ * products are written into a dense matrix and larger products are
+ * calculated in parallel blocks of columns in the common fork-join pool.
+ */
+public final class SparseProducts {
+
+	/**
+	 * The estimated number of multiplications of a product from which it is
+	 * calculated in parallel.
+	 */
+	private static final long PARALLEL_THRESHOLD = 1 << 18;
+
+	private SparseProducts() {
+	}
+
+	/**
+	 * Calculates the matrix-vector product $m v$.
+	 */
+	public static double[] multiply(MatrixReader m, double[] v) {
+		if (m instanceof CSCMatrix)
+			return ((CSCMatrix) m).multiply(v);
+		if (m instanceof DenseMatrix)
+			return multiply((DenseMatrix) m, v);
+		if (m.isSparse())
+			return m.multiply(v);
+		int rows = m.rows();
+		int cols = Math.min(m.columns(), v.length);
+		var r = new double[rows];
+		for (int col = 0; col < cols; col++) {
+			double vj = v[col];
+			if (vj == 0)
+				continue;
+			for (int row = 0; row < rows; row++) {
+				r[row] += m.get(row, col) * vj;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Calculates the matrix product $a b$ where at least one of the matrices
+	 * should be sparse; two dense matrices are better multiplied with an
+	 * optimized BLAS routine.
+	 */
+	public static DenseMatrix multiply(MatrixReader a, MatrixReader b) {
+		if (a.columns() != b.rows())
+			throw new IllegalArgumentException("a.columns != b.rows");
+		if (a.isSparse() && b.isSparse())
+			return multiply(csc(a), csc(b));
+		if (a.isSparse())
+			return multiply(csc(a), MatrixConverter.dense(b));
+		if (b.isSparse())
+			return multiply(MatrixConverter.dense(a), csc(b));
+		return multiply(MatrixConverter.dense(a), CSCMatrix.of(b));
+	}
+
+	/**
+	 * $r = m v$ as a linear combination of the contiguous columns of $m$.
+	 */
+	static double[] multiply(DenseMatrix m, double[] v) {
+		int rows = m.rows;
+		int cols = Math.min(m.columns, v.length);
+		var r = new double[rows];
+		for (int col = 0; col < cols; col++) {
+			double vj = v[col];
+			if (vj == 0)
+				continue;
+			int offset = col * rows;
+			for (int row = 0; row < rows; row++) {
+				r[row] += m.data[offset + row] * vj;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * $R[:, j] = \sum_k A[:, k] B[k, j]$ where only the non-zero entries of
+	 * the columns of the sparse $A$ are visited.
+	 */
+	static DenseMatrix multiply(CSCMatrix a, DenseMatrix b) {
+		int rows = a.rows;
+		int inner = a.columns;
+		var r = new DenseMatrix(rows, b.columns);
+		long flops = (long) nnz(a) * b.columns;
+		forColumns(b.columns, flops, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				int rOffset = j * rows;
+				int bOffset = j * inner;
+				for (int k = 0; k < inner; k++) {
+					double bkj = b.data[bOffset + k];
+					if (bkj == 0)
+						continue;
+					int end = end(a, k);
+					for (int p = a.columnPointers[k]; p < end; p++) {
+						r.data[rOffset + a.rowIndices[p]] += a.values[p] * bkj;
+					}
+				}
+			}
+		});
+		return r;
+	}
+
+	/**
+	 * $R[:, j] = \sum_k A[:, k] B[k, j]$ where only the non-zero entries of
+	 * the columns of the sparse $B$ are visited and the columns of the dense
+	 * $A$ are read in one pass each.
+	 */
+	static DenseMatrix multiply(DenseMatrix a, CSCMatrix b) {
+		int rows = a.rows;
+		var r = new DenseMatrix(rows, b.columns);
+		long flops = (long) nnz(b) * rows;
+		forColumns(b.columns, flops, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				int rOffset = j * rows;
+				int end = end(b, j);
+				for (int p = b.columnPointers[j]; p < end; p++) {
+					double bkj = b.values[p];
+					if (bkj == 0)
+						continue;
+					int aOffset = b.rowIndices[p] * rows;
+					for (int i = 0; i < rows; i++) {
+						r.data[rOffset + i] += a.data[aOffset + i] * bkj;
+					}
+				}
+			}
+		});
+		return r;
+	}
+
+	/**
+	 * The column-wise (Gustavson) product of two sparse matrices: for each
+	 * non-zero $B[k, j]$ the non-zero entries of $A[:, k]$ are accumulated
+	 * into the column $R[:, j]$.
+	 */
+	static DenseMatrix multiply(CSCMatrix a, CSCMatrix b) {
+		int rows = a.rows;
+		var r = new DenseMatrix(rows, b.columns);
+		long perColumn = a.columns == 0
+			? 0
+			: Math.max(1, nnz(a) / a.columns);
+		long flops = (long) nnz(b) * perColumn;
+		forColumns(b.columns, flops, (from, to) -> {
+			for (int j = from; j < to; j++) {
+				int rOffset = j * rows;
+				int endB = end(b, j);
+				for (int pb = b.columnPointers[j]; pb < endB; pb++) {
+					double bkj = b.values[pb];
+					if (bkj == 0)
+						continue;
+					int k = b.rowIndices[pb];
+					int endA = end(a, k);
+					for (int pa = a.columnPointers[k]; pa < endA; pa++) {
+						r.data[rOffset + a.rowIndices[pa]] += a.values[pa] * bkj;
+					}
+				}
+			}
+		});
+		return r;
+	}
+
+	/**
+	 * Returns the given sparse matrix in CSC format without copying it when
+	 * it is already a CSC matrix. Other formats are converted via their
+	 * non-zero entries and not via random access.
+	 */
+	private static CSCMatrix csc(MatrixReader m) {
+		if (m instanceof CSCMatrix)
+			return (CSCMatrix) m;
+		if (m instanceof HashPointMatrix)
+			return ((HashPointMatrix) m).compress();
+		var h = new HashPointMatrix(m.rows(), m.columns());
+		m.iterate(h::set);
+		return h.compress();
+	}
+
+	private static int nnz(CSCMatrix m) {
+		return m.values.length;
+	}
+
+	/**
+	 * The end of the entries of the given column; the column pointers may or
+	 * may not contain the number of values as last element.
+	 */
+	private static int end(CSCMatrix m, int col) {
+		return col < m.columns - 1
+			? m.columnPointers[col + 1]
+			: m.values.length;
+	}
+
+	/**
+	 * Runs the given kernel over the columns of a product. The product is
+	 * calculated in parallel blocks of columns when its estimated number of
+	 * multiplications is large enough; the blocks write into disjoint
+	 * columns of the result.
+	 */
+	private static void forColumns(int columns, long flops, Kernel kernel) {
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+		if (flops < PARALLEL_THRESHOLD || columns < 2 || threads < 2) {
+			kernel.apply(0, columns);
+			return;
+		}
+		int blocks = (int) Math.min(
+			Math.min(columns, 4L * threads), flops / (PARALLEL_THRESHOLD / 4));
+		int grain = Math.max(1, (columns + blocks - 1) / blocks);
+		ForkJoinPool.commonPool().invoke(
+			new ColumnBlock(kernel, 0, columns, grain));
+	}
+
+	@FunctionalInterface
+	private interface Kernel {
+		void apply(int fromColumn, int toColumn);
+	}
+
+	private static class ColumnBlock extends RecursiveAction {
+
+		private final Kernel kernel;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		ColumnBlock(Kernel kernel, int from, int to, int grain) {
+			this.kernel = kernel;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				kernel.apply(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(
+				new ColumnBlock(kernel, from, mid, grain),
+				new ColumnBlock(kernel, mid, to, grain));
+		}
+	}
+}
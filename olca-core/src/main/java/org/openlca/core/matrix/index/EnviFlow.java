@@ -63,9 +63,8 @@ public class EnviFlow {
 		return flow.id;
 	}
 
-	LongPair regionalizedId() {
-		var locID = location == null ? 0L : location.id;
-		return LongPair.of(flow.id, locID);
+	long locationId() {
+		return location == null ? 0L : location.id;
 	}
 
 
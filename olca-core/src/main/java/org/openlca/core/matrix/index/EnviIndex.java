@@ -2,14 +2,12 @@ package org.openlca.core.matrix.index;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorRegistry;
 import org.openlca.core.database.IDatabase;
-import org.openlca.core.database.LocationDao;
 import org.openlca.core.database.NativeSql;
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.cache.FlowTable;
@@ -52,7 +50,7 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 			return index;
 
 		// collect flows and IDs
-		var flows = new FlowDao(db).descriptorMap();
+		var flows = DescriptorRegistry.of(db).flows();
 		var directions = FlowTable.directionsOf(
 			db, flows.valueCollection());
 
@@ -95,10 +93,11 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 			return index;
 
 		// collect flows, locations and IDs
-		var flows = new FlowDao(db).descriptorMap();
+		var descriptors = DescriptorRegistry.of(db);
+		var flows = descriptors.flows();
 		var directions = FlowTable.directionsOf(
 			db, flows.valueCollection());
-		var locations = new LocationDao(db).descriptorMap();
+		var locations = descriptors.locations();
 
 		// scan the factor table
 		var sql = "select f_impact_category, f_flow, f_location " +
@@ -324,7 +323,7 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 
 	private static class RegionalizedFlowIndex extends EnviIndex {
 
-		private final HashMap<LongPair, Integer> index = new HashMap<>();
+		private LongPairIntMap index = new LongPairIntMap();
 
 		@Override
 		public boolean isRegionalized() {
@@ -354,9 +353,7 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 
 		@Override
 		public int of(long flowID, long locationID) {
-			var pair = LongPair.of(flowID, locationID);
-			var idx = index.get(pair);
-			return idx == null ? -1 : idx;
+			return index.get(flowID, locationID);
 		}
 
 		@Override
@@ -368,7 +365,7 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 				return pos;
 			var idx = flows.size();
 			flows.add(f);
-			index.put(f.regionalizedId(), idx);
+			index.put(f.flowId(), f.locationId(), idx);
 			return idx;
 		}
 
@@ -379,15 +376,15 @@ public abstract class EnviIndex implements MatrixIndex<EnviFlow> {
 
 		@Override
 		public boolean isInput(long flowID, long locationID) {
-			var idx = index.get(LongPair.of(flowID, locationID));
-			return idx != null && flows.get(idx).isInput();
+			int idx = index.get(flowID, locationID);
+			return idx >= 0 && flows.get(idx).isInput();
 		}
 
 		@Override
 		public RegionalizedFlowIndex copy() {
 			var copy = new RegionalizedFlowIndex();
 			copy.flows.addAll(this.flows);
-			copy.index.putAll(this.index);
+			copy.index = this.index.copy();
 			return copy;
 		}
 	}
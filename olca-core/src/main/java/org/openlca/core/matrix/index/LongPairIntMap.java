@@ -0,0 +1,146 @@
+package org.openlca.core.matrix.index;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map with pairs of longs as keys and non-negative
+ * integers as values. Keys and values are stored in primitive arrays (with
+ * linear probing) so that lookups do not allocate objects like `LongPair`
+ * keys and boxed integers. Entries cannot be removed. Reading from multiple
+ * threads is safe as long as the map is not modified.
+ */
+final class LongPairIntMap {
+
+	private static final int NO_ENTRY = -1;
+
+	private long[] firsts;
+	private long[] seconds;
+
+	/** The values; `NO_ENTRY` marks an empty slot. */
+	private int[] values;
+	private int mask;
+	private int size;
+
+	LongPairIntMap() {
+		this(16);
+	}
+
+	LongPairIntMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		firsts = new long[capacity];
+		seconds = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, NO_ENTRY);
+		mask = capacity - 1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of the given key or -1 if there is no such key.
+	 */
+	int get(long first, long second) {
+		int i = slot(first, second);
+		while (values[i] != NO_ENTRY) {
+			if (firsts[i] == first && seconds[i] == second)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return NO_ENTRY;
+	}
+
+	boolean containsKey(long first, long second) {
+		return get(first, second) != NO_ENTRY;
+	}
+
+	/**
+	 * Puts the given non-negative value under the given key. An existing value
+	 * of that key is replaced.
+	 */
+	void put(long first, long second, int value) {
+		if (value < 0)
+			throw new IllegalArgumentException("values must be >= 0: " + value);
+		int i = slot(first, second);
+		while (values[i] != NO_ENTRY) {
+			if (firsts[i] == first && seconds[i] == second) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		firsts[i] = first;
+		seconds[i] = second;
+		values[i] = value;
+		size++;
+		// keep the load factor <= 0.5
+		if (size * 2 > values.length) {
+			rehash(values.length << 1);
+		}
+	}
+
+	/**
+	 * Calls the given function for each entry of this map in some arbitrary
+	 * order.
+	 */
+	void forEach(EntryConsumer fn) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != NO_ENTRY) {
+				fn.accept(firsts[i], seconds[i], values[i]);
+			}
+		}
+	}
+
+	LongPairIntMap copy() {
+		var copy = new LongPairIntMap();
+		copy.firsts = Arrays.copyOf(firsts, firsts.length);
+		copy.seconds = Arrays.copyOf(seconds, seconds.length);
+		copy.values = Arrays.copyOf(values, values.length);
+		copy.mask = mask;
+		copy.size = size;
+		return copy;
+	}
+
+	private void rehash(int capacity) {
+		var oldFirsts = firsts;
+		var oldSeconds = seconds;
+		var oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldValues.length; j++) {
+			int value = oldValues[j];
+			if (value == NO_ENTRY)
+				continue;
+			int i = slot(oldFirsts[j], oldSeconds[j]);
+			while (values[i] != NO_ENTRY) {
+				i = (i + 1) & mask;
+			}
+			firsts[i] = oldFirsts[j];
+			seconds[i] = oldSeconds[j];
+			values[i] = value;
+		}
+	}
+
+	private int slot(long first, long second) {
+		// mix the bits of the pair (the finalizer of MurmurHash3)
+		long h = first * 0x9E3779B97F4A7C15L + second;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	@FunctionalInterface
+	interface EntryConsumer {
+		void accept(long first, long second, int value);
+	}
+}
@@ -2,18 +2,15 @@ package org.openlca.core.matrix.index;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorRegistry;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
-import org.openlca.core.database.ProcessDao;
-import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.math.ReferenceAmount;
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.TechLinker;
@@ -40,7 +37,7 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 * Maps the product-outputs and waste-inputs as (processId, flowId) pairs to an
 	 * ordinal index.
 	 */
-	private final HashMap<TechFlow, Integer> index = new HashMap<>();
+	private final LongPairIntMap index = new LongPairIntMap();
 
 	/**
 	 * Contains the product-outputs and waste-inputs in an ordinal list.
@@ -49,9 +46,9 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 
 	/**
 	 * Maps linked exchanges (keys) as (processId, exchangeId) pairs to the
-	 * respective provider.
+	 * ordinal index of the respective provider.
 	 */
-	private final HashMap<LongPair, TechFlow> links = new HashMap<>();
+	private LongPairIntMap links = new LongPairIntMap();
 
 	/**
 	 * Maps the IDs of the processes and product systems to the list of
@@ -89,10 +86,11 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 			return index;
 		}
 
-		// initialize the fast descriptor maps
-		var systems = new ProductSystemDao(db).descriptorMap();
-		var processes = new ProcessDao(db).descriptorMap();
-		var flows = new FlowDao(db).descriptorMap();
+		// the shared descriptor maps of the database
+		var descriptors = DescriptorRegistry.of(db);
+		var systems = descriptors.productSystems();
+		var processes = descriptors.processes();
+		var flows = descriptors.flows();
 
 		for (var link : system.processLinks) {
 			CategorizedDescriptor p = processes.get(link.providerId);
@@ -151,8 +149,9 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	}
 
 	private static void eachProviderOf(IDatabase db, Consumer<TechFlow> fn) {
-		var processes = new ProcessDao(db).descriptorMap();
-		var flows = new FlowDao(db).descriptorMap();
+		var descriptors = DescriptorRegistry.of(db);
+		var processes = descriptors.processes();
+		var flows = descriptors.flows();
 		String sql = "select f_owner, f_flow, is_input from tbl_exchanges";
 		NativeSql.on(db).query(sql, r -> {
 			long flowID = r.getLong(2);
@@ -219,8 +218,18 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 */
 	@Override
 	public int of(TechFlow provider) {
-		var idx = index.get(provider);
-		return idx == null ? -1 : idx;
+		return provider == null
+				? -1
+				: index.get(provider.processId(), provider.flowId());
+	}
+
+	/**
+	 * Returns the ordinal index of the product (product-output or waste input)
+	 * with the given process and flow IDs. If there is no such product in this
+	 * index, -1 is returned.
+	 */
+	public int of(long processID, long flowID) {
+		return index.get(processID, flowID);
 	}
 
 	/**
@@ -228,7 +237,7 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 * the given IDs.
 	 */
 	public boolean contains(long processID, long flowID) {
-		return getProvider(processID, flowID) != null;
+		return index.containsKey(processID, flowID);
 	}
 
 	@Override
@@ -239,14 +248,8 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	}
 
 	public TechFlow getProvider(long processID, long flowID) {
-		List<TechFlow> list = processProviders.get(processID);
-		if (list == null)
-			return null;
-		for (TechFlow p : list) {
-			if (p.flowId() == flowID)
-				return p;
-		}
-		return null;
+		int idx = index.get(processID, flowID);
+		return idx < 0 ? null : providers.get(idx);
 	}
 
 	/**
@@ -256,11 +259,11 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 */
 	@Override
 	public int add(TechFlow provider) {
-		var existing = index.get(provider);
-		if (existing != null)
+		int existing = of(provider);
+		if (existing >= 0)
 			return existing;
 		int pos = index.size();
-		index.put(provider, pos);
+		index.put(provider.processId(), provider.flowId(), pos);
 		var list = processProviders.get(provider.processId());
 		if (list == null) {
 			list = new ArrayList<>();
@@ -317,15 +320,15 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 *                 flowId) pair.
 	 */
 	public void putLink(LongPair exchange, TechFlow provider) {
-		if (links.containsKey(exchange))
+		if (links.containsKey(exchange.first, exchange.second))
 			return;
-		add(provider);
-		links.put(exchange, provider);
+		int pos = add(provider);
+		links.put(exchange.first, exchange.second, pos);
 	}
 
 	@Override
 	public TechFlow providerOf(CalcExchange e) {
-		return getLinkedProvider(LongPair.of(e.processId, e.exchangeId));
+		return getLinkedProvider(e.processId, e.exchangeId);
 	}
 
 	/**
@@ -340,15 +343,31 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 	 * exchange (product-input or waste-output)
 	 */
 	public TechFlow getLinkedProvider(LongPair exchange) {
-		return links.get(exchange);
+		return exchange == null
+				? null
+				: getLinkedProvider(exchange.first, exchange.second);
+	}
+
+	/**
+	 * Returns the linked provider (product-output or waste-input) for the
+	 * exchange (product-input or waste-output) with the given process and
+	 * exchange IDs.
+	 */
+	public TechFlow getLinkedProvider(long processID, long exchangeID) {
+		int idx = links.get(processID, exchangeID);
+		return idx < 0 ? null : providers.get(idx);
 	}
 
 	/**
 	 * Returns all exchanges (product-inputs and waste-outputs) that are linked to
-	 * provider of this index.
+	 * provider of this index. The returned set is a new set with the exchanges
+	 * as (processId, exchangeId) pairs.
 	 */
 	public Set<LongPair> getLinkedExchanges() {
-		return links.keySet();
+		var set = new HashSet<LongPair>(links.size() * 2);
+		links.forEach((process, exchange, _idx) ->
+				set.add(LongPair.of(process, exchange)));
+		return set;
 	}
 
 	/**
@@ -378,8 +397,8 @@ public final class TechIndex implements TechLinker, MatrixIndex<TechFlow> {
 		for (var p : providers) {
 			copy.add(p);
 		}
-		if (!links.isEmpty()) {
-			copy.links.putAll(links);
+		if (links.size() > 0) {
+			copy.links = links.copy();
 		}
 		return copy;
 	}
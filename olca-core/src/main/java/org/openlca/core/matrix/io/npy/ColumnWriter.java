@@ -0,0 +1,95 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a dense matrix column by column into an NPY file (in column-major
+ * order, like `Npy.save`). Thus, large matrices can be written without
+ * holding them in memory. The columns must be written in order and the file
+ * is only complete when all columns were written.
+ */
+public final class ColumnWriter implements Closeable {
+
+	private final File file;
+	private final FileOutputStream stream;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int rows;
+	private final int columns;
+	private int written;
+
+	private ColumnWriter(File file, int rows, int columns) throws IOException {
+		this.file = file;
+		this.rows = rows;
+		this.columns = columns;
+		this.stream = new FileOutputStream(file);
+		this.channel = stream.getChannel();
+		var head = new Header();
+		head.dtype = "<f8";
+		head.shape = new int[]{rows, columns};
+		head.fortranOrder = true;
+		channel.write(head.toByteBuffer());
+		buffer = ByteBuffer.allocate(rows * 8);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Creates a new writer for a matrix with the given shape. An existing
+	 * file is overwritten.
+	 */
+	public static ColumnWriter of(File file, int rows, int columns) {
+		try {
+			return new ColumnWriter(file, rows, columns);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to create file " + file, e);
+		}
+	}
+
+	/**
+	 * Appends the next column to the file.
+	 */
+	public void put(double[] column) {
+		if (column.length != rows)
+			throw new IllegalArgumentException(
+					"column has " + column.length + " rows; expected " + rows);
+		if (written >= columns)
+			throw new IllegalStateException(
+					"all " + columns + " columns were already written");
+		try {
+			buffer.clear();
+			for (double val : column) {
+				buffer.putDouble(val);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			written++;
+		} catch (IOException e) {
+			throw new RuntimeException("failed to write column to " + file, e);
+		}
+	}
+
+	/**
+	 * Returns the number of columns that were written so far.
+	 */
+	public int written() {
+		return written;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+			stream.close();
+		} catch (IOException e) {
+			throw new RuntimeException("failed to close file " + file, e);
+		}
+	}
+}
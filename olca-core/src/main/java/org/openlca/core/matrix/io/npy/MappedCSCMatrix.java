@@ -0,0 +1,379 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.EntryFunction;
+import org.openlca.core.matrix.format.MatrixReader;
+
+/**
+ * A read-only CSC matrix of which the arrays are mapped from a NPZ file into
+ * memory. Columns are sliced from the mapped arrays via the column pointers,
+ * so that reading a column only touches the pages of this column. Instances
+ * are created via `Npz.map` and can be shared between threads. After a matrix
+ * was closed, it cannot be used anymore.
+ */
+public final class MappedCSCMatrix implements MatrixReader, AutoCloseable {
+
+	private static final int ZIP_END = 0x06054b50;
+	private static final int ZIP_CENTRAL = 0x02014b50;
+	private static final int ZIP_LOCAL = 0x04034b50;
+
+	private final int rows;
+	private final int columns;
+	private volatile Arrays arrays;
+
+	private MappedCSCMatrix(int rows, int columns, Arrays arrays) {
+		this.rows = rows;
+		this.columns = columns;
+		this.arrays = arrays;
+	}
+
+	static MappedCSCMatrix of(File file) {
+		try (var f = new RandomAccessFile(file, "r");
+			 var channel = f.getChannel()) {
+			var entries = entriesOf(channel);
+			if (entries == null)
+				return null;
+			var format = entries.get("format.npy");
+			if (format == null || !"csc".equals(format.readFormat(channel)))
+				return null;
+			var shape = entries.get("shape.npy");
+			var data = entries.get("data.npy");
+			var indptr = entries.get("indptr.npy");
+			var indices = entries.get("indices.npy");
+			if (shape == null || data == null
+				|| indptr == null || indices == null)
+				return null;
+
+			var dims = shape.map(channel);
+			var values = data.map(channel);
+			var pointers = indptr.map(channel);
+			var rows = indices.map(channel);
+			if (dims == null || values == null
+				|| pointers == null || rows == null
+				|| dims.header.getDType() == DType.Float64
+				|| values.header.getDType() != DType.Float64)
+				return null;
+			var shapeIdx = Indices.of(dims);
+			if (shapeIdx == null || shapeIdx.size() < 2)
+				return null;
+			var columnPointers = Indices.of(pointers);
+			var rowIndices = Indices.of(rows);
+			if (columnPointers == null || rowIndices == null)
+				return null;
+			int columns = (int) shapeIdx.get(1);
+			return new MappedCSCMatrix(
+				(int) shapeIdx.get(0),
+				columns,
+				new Arrays(columns, values.buffer.asDoubleBuffer(),
+					columnPointers, rowIndices));
+		} catch (IOException e) {
+			throw new RuntimeException("failed to map NPZ file " + file, e);
+		}
+	}
+
+	@Override
+	public int rows() {
+		return rows;
+	}
+
+	@Override
+	public int columns() {
+		return columns;
+	}
+
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
+	/**
+	 * Returns a copy of this matrix in memory.
+	 */
+	@Override
+	public MatrixReader copy() {
+		return CSCMatrix.of(this);
+	}
+
+	@Override
+	public double get(int row, int col) {
+		return get(arrays(), row, col);
+	}
+
+	private double get(Arrays a, int row, int col) {
+		int end = a.end(col);
+		for (int idx = a.start(col); idx < end; idx++) {
+			if (a.rowIndices.get(idx) == row)
+				return a.values.get(idx);
+		}
+		return 0;
+	}
+
+	@Override
+	public double[] getColumn(int col) {
+		var a = arrays();
+		var column = new double[rows];
+		int end = a.end(col);
+		for (int idx = a.start(col); idx < end; idx++) {
+			column[(int) a.rowIndices.get(idx)] = a.values.get(idx);
+		}
+		return column;
+	}
+
+	@Override
+	public double[] getRow(int row) {
+		var a = arrays();
+		var r = new double[columns];
+		for (int col = 0; col < columns; col++) {
+			r[col] = get(a, row, col);
+		}
+		return r;
+	}
+
+	@Override
+	public double[] diag() {
+		var a = arrays();
+		var diag = new double[Math.min(rows, columns)];
+		for (int i = 0; i < diag.length; i++) {
+			diag[i] = get(a, i, i);
+		}
+		return diag;
+	}
+
+	@Override
+	public void iterate(EntryFunction fn) {
+		if (fn == null)
+			return;
+		var a = arrays();
+		for (int col = 0; col < columns; col++) {
+			int end = a.end(col);
+			for (int idx = a.start(col); idx < end; idx++) {
+				double val = a.values.get(idx);
+				if (val != 0) {
+					fn.value((int) a.rowIndices.get(idx), col, val);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the mapped arrays of this matrix. The memory of the mappings
+	 * is freed and the file is unlocked when the buffers are garbage
+	 * collected.
+	 */
+	@Override
+	public void close() {
+		arrays = null;
+	}
+
+	private Arrays arrays() {
+		var a = arrays;
+		if (a == null)
+			throw new IllegalStateException("the matrix was closed");
+		return a;
+	}
+
+	/**
+	 * Reads the stored (uncompressed) entries of the zip file in the given
+	 * channel from the central directory. Returns `null` if this is not
+	 * possible because the file has an unexpected layout, e.g. when it uses
+	 * Zip64 extensions.
+	 */
+	private static Map<String, Entry> entriesOf(FileChannel channel)
+		throws IOException {
+
+		// find the end of the central directory; it is at the end of the
+		// file followed by a comment of at most 65535 bytes
+		long size = channel.size();
+		int tail = (int) Math.min(size, 22 + 0xffff);
+		var buffer = ByteBuffer.allocate(tail).order(ByteOrder.LITTLE_ENDIAN);
+		channel.read(buffer, size - tail);
+		int end = -1;
+		for (int pos = tail - 22; pos >= 0; pos--) {
+			if (buffer.getInt(pos) == ZIP_END) {
+				end = pos;
+				break;
+			}
+		}
+		if (end < 0)
+			return null;
+		long dirSize = buffer.getInt(end + 12) & 0xffffffffL;
+		long dirOffset = buffer.getInt(end + 16) & 0xffffffffL;
+		if (dirOffset + dirSize > size || dirSize > Integer.MAX_VALUE)
+			return null;
+
+		// read the entries of the central directory
+		var dir = ByteBuffer.allocate((int) dirSize)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		channel.read(dir, dirOffset);
+		var entries = new HashMap<String, Entry>();
+		int pos = 0;
+		while (pos + 46 <= dirSize && dir.getInt(pos) == ZIP_CENTRAL) {
+			int method = dir.getShort(pos + 10) & 0xffff;
+			long length = dir.getInt(pos + 20) & 0xffffffffL;
+			int nameLength = dir.getShort(pos + 28) & 0xffff;
+			int extraLength = dir.getShort(pos + 30) & 0xffff;
+			int commentLength = dir.getShort(pos + 32) & 0xffff;
+			long localOffset = dir.getInt(pos + 42) & 0xffffffffL;
+			var name = new String(dir.array(), pos + 46, nameLength,
+				StandardCharsets.UTF_8);
+			pos += 46 + nameLength + extraLength + commentLength;
+			if (length == 0xffffffffL || localOffset == 0xffffffffL)
+				return null;
+			if (method != 0)
+				continue;
+
+			// the data start after the local header which can have
+			// another extra field than the central header
+			var local = ByteBuffer.allocate(30)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(local, localOffset);
+			if (local.getInt(0) != ZIP_LOCAL)
+				return null;
+			long offset = localOffset + 30
+				+ (local.getShort(26) & 0xffff)
+				+ (local.getShort(28) & 0xffff);
+			entries.put(name, new Entry(offset, length));
+		}
+		return entries;
+	}
+
+	/** The position and length of a stored entry in a zip file. */
+	private static class Entry {
+
+		final long offset;
+		final long length;
+
+		Entry(long offset, long length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * Maps the data section of the NPY file in this entry into memory.
+		 * Returns `null` if this is not a valid one-dimensional array.
+		 */
+		MappedArray map(FileChannel channel) throws IOException {
+			channel.position(offset);
+			var header = HeaderReader.read(channel);
+			if (header.shape == null || header.shape.length != 1)
+				return null;
+			var dtype = header.getDType();
+			if (dtype.size() <= 0)
+				return null;
+			long bytes = (long) header.shape[0] * dtype.size();
+			if (header.dataOffset + bytes > length)
+				return null;
+			var buffer = channel.map(
+				MapMode.READ_ONLY, offset + header.dataOffset, bytes)
+				.order(header.getByteOrder());
+			return new MappedArray(header, buffer);
+		}
+
+		String readFormat(FileChannel channel) throws IOException {
+			channel.position(offset);
+			var header = HeaderReader.read(channel);
+			int n = (int) (length - header.dataOffset);
+			if (n <= 0)
+				return null;
+			var buffer = ByteBuffer.allocate(n);
+			channel.read(buffer, offset + header.dataOffset);
+			var bytes = buffer.array();
+			int len = 0;
+			while (len < n && bytes[len] != 0) {
+				len++;
+			}
+			return new String(bytes, 0, len, StandardCharsets.US_ASCII);
+		}
+	}
+
+	private static class MappedArray {
+
+		final Header header;
+		final ByteBuffer buffer;
+
+		MappedArray(Header header, ByteBuffer buffer) {
+			this.header = header;
+			this.buffer = buffer;
+		}
+	}
+
+	/** The mapped arrays of the matrix. */
+	private static class Arrays {
+
+		final int columns;
+		final DoubleBuffer values;
+		final Indices columnPointers;
+		final Indices rowIndices;
+
+		Arrays(int columns, DoubleBuffer values,
+			Indices columnPointers, Indices rowIndices) {
+			this.columns = columns;
+			this.values = values;
+			this.columnPointers = columnPointers;
+			this.rowIndices = rowIndices;
+		}
+
+		int start(int col) {
+			return (int) columnPointers.get(col);
+		}
+
+		/**
+		 * The column pointers may or may not contain the number of values as
+		 * last element (see also `CSCMatrix`).
+		 */
+		int end(int col) {
+			return col < columns - 1 || columnPointers.size() > columns
+				? (int) columnPointers.get(col + 1)
+				: values.limit();
+		}
+	}
+
+	/**
+	 * A mapped array of 32 or 64 bit integers.
+	 */
+	private static class Indices {
+
+		private final IntBuffer ints;
+		private final LongBuffer longs;
+
+		private Indices(IntBuffer ints, LongBuffer longs) {
+			this.ints = ints;
+			this.longs = longs;
+		}
+
+		static Indices of(MappedArray array) {
+			var dtype = array.header.getDType();
+			if (dtype == DType.Int32)
+				return new Indices(array.buffer.asIntBuffer(), null);
+			if (dtype == DType.Int64)
+				return new Indices(null, array.buffer.asLongBuffer());
+			return null;
+		}
+
+		int size() {
+			return ints != null
+				? ints.limit()
+				: longs.limit();
+		}
+
+		long get(int i) {
+			return ints != null
+				? ints.get(i)
+				: longs.get(i);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.MatrixReader;
+
+/**
+ * A read-only dense matrix of which the data are mapped from a NPY file into
+ * memory. The values are read directly from the mapping without copying the
+ * matrix into the heap, so that also matrices that are larger than the
+ * available heap (e.g. large inverse matrices of libraries) can be used.
+ * <p>
+ * A single mapping is limited to 2 GB. Thus, the data are mapped in segments
+ * of complete columns (or rows, for matrices in row-major order) so that a
+ * column can be read from a single segment. Instances can be shared between
+ * threads. After a matrix was closed, it cannot be used anymore.
+ */
+public final class MappedDenseMatrix implements MatrixReader, AutoCloseable {
+
+	/** The maximum number of values of a segment. */
+	private static final long SEGMENT_VALUES = Integer.MAX_VALUE / 8;
+
+	private final int rows;
+	private final int columns;
+	private final boolean columnMajor;
+
+	/**
+	 * The length of a line (a column in column-major order or a row in
+	 * row-major order) and the number of lines per segment.
+	 */
+	private final int lineLength;
+	private final int linesPerSegment;
+
+	private volatile DoubleBuffer[] segments;
+
+	private MappedDenseMatrix(Header header, DoubleBuffer[] segments,
+		int linesPerSegment) {
+		this.rows = header.shape[0];
+		this.columns = header.shape[1];
+		this.columnMajor = header.fortranOrder;
+		this.lineLength = columnMajor ? rows : columns;
+		this.linesPerSegment = linesPerSegment;
+		this.segments = segments;
+	}
+
+	static MappedDenseMatrix of(File file) {
+		return of(file, SEGMENT_VALUES);
+	}
+
+	/**
+	 * Maps the matrix of the given file into segments with at most the given
+	 * number of values (but at least one line).
+	 */
+	static MappedDenseMatrix of(File file, long segmentValues) {
+		try (var f = new RandomAccessFile(file, "r");
+			 var channel = f.getChannel()) {
+			var header = HeaderReader.read(channel);
+			DenseReader.checkMatrix(file, header);
+
+			int rows = header.shape[0];
+			int cols = header.shape[1];
+			int lineLength = header.fortranOrder ? rows : cols;
+			int lines = header.fortranOrder ? cols : rows;
+			if (lineLength > SEGMENT_VALUES)
+				throw new IllegalArgumentException(
+					"matrix dimension too large for mapping: " + file);
+			int linesPerSegment = (int) Math.max(1, Math.min(
+				lines, segmentValues / lineLength));
+
+			int count = (lines + linesPerSegment - 1) / linesPerSegment;
+			var segments = new DoubleBuffer[count];
+			long segmentBytes = (long) linesPerSegment * lineLength * 8L;
+			for (int i = 0; i < count; i++) {
+				long offset = header.dataOffset + i * segmentBytes;
+				long size = Math.min(
+					segmentBytes,
+					(long) lines * lineLength * 8L - i * segmentBytes);
+				segments[i] = channel.map(MapMode.READ_ONLY, offset, size)
+					.order(header.getByteOrder())
+					.asDoubleBuffer();
+			}
+			return new MappedDenseMatrix(header, segments, linesPerSegment);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to map NPY file " + file, e);
+		}
+	}
+
+	@Override
+	public int rows() {
+		return rows;
+	}
+
+	@Override
+	public int columns() {
+		return columns;
+	}
+
+	@Override
+	public boolean isSparse() {
+		return false;
+	}
+
+	@Override
+	public double get(int row, int col) {
+		return columnMajor
+			? value(col, row)
+			: value(row, col);
+	}
+
+	@Override
+	public double[] getColumn(int col) {
+		return columnMajor
+			? line(col)
+			: cross(col, rows);
+	}
+
+	@Override
+	public double[] getRow(int row) {
+		return columnMajor
+			? cross(row, columns)
+			: line(row);
+	}
+
+	@Override
+	public double[] diag() {
+		var diag = new double[Math.min(rows, columns)];
+		for (int i = 0; i < diag.length; i++) {
+			diag[i] = value(i, i);
+		}
+		return diag;
+	}
+
+	/**
+	 * Returns a copy of this matrix in memory.
+	 */
+	@Override
+	public MatrixReader copy() {
+		var copy = new DenseMatrix(rows, columns);
+		for (int col = 0; col < columns; col++) {
+			System.arraycopy(getColumn(col), 0, copy.data, col * rows, rows);
+		}
+		return copy;
+	}
+
+	/**
+	 * Releases the mapped segments of this matrix. The memory of the mappings
+	 * is freed when the segments are garbage collected.
+	 */
+	@Override
+	public void close() {
+		segments = null;
+	}
+
+	/**
+	 * Returns the value at the given position of the given line.
+	 */
+	private double value(int line, int pos) {
+		return segment(line).get(offset(line) + pos);
+	}
+
+	/**
+	 * Copies the given line in one bulk operation from its segment.
+	 */
+	private double[] line(int line) {
+		var values = new double[lineLength];
+		segment(line).get(offset(line), values, 0, lineLength);
+		return values;
+	}
+
+	/**
+	 * Returns the values at the given position of all lines.
+	 */
+	private double[] cross(int pos, int lines) {
+		var values = new double[lines];
+		for (int line = 0; line < lines; line++) {
+			values[line] = value(line, pos);
+		}
+		return values;
+	}
+
+	private DoubleBuffer segment(int line) {
+		var s = segments;
+		if (s == null)
+			throw new IllegalStateException("the matrix was closed");
+		return s[line / linesPerSegment];
+	}
+
+	private int offset(int line) {
+		return (line % linesPerSegment) * lineLength;
+	}
+}
@@ -22,6 +22,12 @@ import java.nio.ByteOrder;
  */
 public final class Npy {
 
+	/**
+	 * The size of the buffer (in bytes) that is used for writing vectors, so
+	 * that large vectors are not copied into a single byte array.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
 	private Npy() {
 	}
 
@@ -34,6 +40,15 @@ public final class Npy {
 		return DenseReader.read(file);
 	}
 
+	/**
+	 * Maps the dense matrix of the given file into memory. Contrary to
+	 * `load`, the matrix is not copied into the heap but the values are read
+	 * from the mapping. The same restrictions as for `load` apply.
+	 */
+	public static MappedDenseMatrix map(File file) {
+		return MappedDenseMatrix.of(file);
+	}
+
 	/**
 	 * Loads a dense matrix of signed bytes from the given file. Only 2d
 	 * matrices in column-major (Fortran) or row-major (C) order of 8 bit signed
@@ -203,10 +218,15 @@ public final class Npy {
 		h.dtype = "<i4";
 		h.fortranOrder = false;
 		h.write(out);
-		ByteBuffer buff = ByteBuffer.allocate(v.length * 4);
-		buff.order(ByteOrder.LITTLE_ENDIAN);
-		buff.asIntBuffer().put(v);
-		out.write(buff.array());
+		var buff = ByteBuffer.allocate(WRITE_BUFFER_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		var ints = buff.asIntBuffer();
+		for (int offset = 0; offset < v.length; offset += ints.capacity()) {
+			int n = Math.min(ints.capacity(), v.length - offset);
+			ints.clear();
+			ints.put(v, offset, n);
+			out.write(buff.array(), 0, n * 4);
+		}
 	}
 
 	/**
@@ -218,10 +238,15 @@ public final class Npy {
 		h.dtype = "<f8";
 		h.fortranOrder = false;
 		h.write(out);
-		var buff = ByteBuffer.allocate(v.length * 8);
-		buff.order(ByteOrder.LITTLE_ENDIAN);
-		buff.asDoubleBuffer().put(v);
-		out.write(buff.array());
+		var buff = ByteBuffer.allocate(WRITE_BUFFER_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		var doubles = buff.asDoubleBuffer();
+		for (int offset = 0; offset < v.length; offset += doubles.capacity()) {
+			int n = Math.min(doubles.capacity(), v.length - offset);
+			doubles.clear();
+			doubles.put(v, offset, n);
+			out.write(buff.array(), 0, n * 8);
+		}
 	}
 
 	static void write(OutputStream out, byte[] v) throws IOException {
@@ -9,10 +9,15 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -27,10 +32,22 @@ import java.util.zip.ZipOutputStream;
  *     <li>TODO other ...</li>
  * </ul>
  * <p>
+ * The matrices are written with uncompressed and aligned zip entries. Thus,
+ * they can be mapped into memory and single columns can be read without
+ * loading the complete matrix (see `map`), and they can be still read with
+ * SciPy (`scipy.sparse.load_npz`).
+ * <p>
  * see https://docs.scipy.org/doc/scipy/reference/sparse.html
  */
 public final class Npz {
 
+	/** The ID of the extra field that is used for aligning zip entries. */
+	private static final short ALIGNMENT_FIELD = (short) 0xd935;
+	private static final int ALIGNMENT = 8;
+
+	/** Entries of this size or larger need a Zip64 extra field. */
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
 	private Npz() {
 	}
 
@@ -93,6 +110,11 @@ public final class Npz {
 		}
 	}
 
+	/**
+	 * Loads a single column of the matrix from the given file. Note that this
+	 * loads the complete matrix; to read multiple columns from a large matrix,
+	 * map the file once via `map` and read the columns from that mapping.
+	 */
 	public static double[] loadColumn(File file, int column) {
 		var matrix = load(file);
 		return matrix.getColumn(column);
@@ -159,79 +181,98 @@ public final class Npz {
 	public static void save(File file, CSCMatrix m) {
 		if (file == null || m == null)
 			return;
-		try (var out = new FileOutputStream(file);
-			 var buffer = new BufferedOutputStream(out);
-			 var zip = new ZipOutputStream(buffer)) {
-			zip.setLevel(ZipOutputStream.STORED);
-
-			// row indices
-			zip.putNextEntry(new ZipEntry("indices.npy"));
-			Npy.write(zip, m.rowIndices);
-			zip.closeEntry();
-
-			// column pointers
-			zip.putNextEntry(new ZipEntry("indptr.npy"));
-			Npy.write(zip, m.columnPointers);
-			zip.closeEntry();
-
-			// format
-			zip.putNextEntry(new ZipEntry("format.npy"));
-			writeFormat(zip, "csc");
-			zip.closeEntry();
-
-			// shape
-			zip.putNextEntry(new ZipEntry("shape.npy"));
-			Npy.write(zip, new int[]{m.rows, m.columns});
-			zip.closeEntry();
-
-			// values
-			zip.putNextEntry(new ZipEntry("data.npy"));
-			Npy.write(zip, m.values);
-			zip.closeEntry();
-
-		} catch (IOException e) {
-			throw new RuntimeException("failed to create zip: " + file, e);
-		}
+		save(file, m.rows, m.columns, m.rowIndices, m.columnPointers,
+			out -> Npy.write(out, m.values));
 	}
 
 	public static void save(File file, CSCByteMatrix m) {
 		if (file == null || m == null)
 			return;
+		save(file, m.rows, m.columns, m.rowIndices, m.columnPointers,
+			out -> Npy.write(out, m.values));
+	}
+
+	/**
+	 * Writes the entries of a CSC matrix into a zip file. The entries are
+	 * stored without compression and the data of each entry starts at a
+	 * position that is a multiple of 8 bytes. Thus, the arrays of the matrix
+	 * can be mapped directly into memory (see `map`).
+	 */
+	private static void save(File file, int rows, int columns,
+		int[] rowIndices, int[] columnPointers, NpyWriter values) {
 		try (var out = new FileOutputStream(file);
 			 var buffer = new BufferedOutputStream(out);
-			 var zip = new ZipOutputStream(buffer)) {
-			zip.setLevel(ZipOutputStream.STORED);
-
-			// row indices
-			zip.putNextEntry(new ZipEntry("indices.npy"));
-			Npy.write(zip, m.rowIndices);
-			zip.closeEntry();
-
-			// column pointers
-			zip.putNextEntry(new ZipEntry("indptr.npy"));
-			Npy.write(zip, m.columnPointers);
-			zip.closeEntry();
-
-			// format
-			zip.putNextEntry(new ZipEntry("format.npy"));
-			writeFormat(zip, "csc");
-			zip.closeEntry();
-
-			// shape
-			zip.putNextEntry(new ZipEntry("shape.npy"));
-			Npy.write(zip, new int[]{m.rows, m.columns});
-			zip.closeEntry();
-
-			// values
-			zip.putNextEntry(new ZipEntry("data.npy"));
-			Npy.write(zip, m.values);
-			zip.closeEntry();
-
+			 var counter = new CountingStream(buffer);
+			 var zip = new ZipOutputStream(counter)) {
+			putStored(zip, counter, "indices.npy",
+				o -> Npy.write(o, rowIndices));
+			putStored(zip, counter, "indptr.npy",
+				o -> Npy.write(o, columnPointers));
+			putStored(zip, counter, "format.npy",
+				o -> writeFormat(o, "csc"));
+			putStored(zip, counter, "shape.npy",
+				o -> Npy.write(o, new int[]{rows, columns}));
+			putStored(zip, counter, "data.npy", values);
 		} catch (IOException e) {
 			throw new RuntimeException("failed to create zip: " + file, e);
 		}
 	}
 
+	/**
+	 * Writes a stored (uncompressed) entry into the zip file. For stored
+	 * entries, the size and CRC need to be known before the data are written.
+	 * Instead of buffering the data of an entry in memory, the writer is
+	 * called twice: the first pass only calculates the size and CRC of the
+	 * data and the second pass writes them directly into the zip stream.
+	 */
+	private static void putStored(ZipOutputStream zip, CountingStream counter,
+		String name, NpyWriter writer) throws IOException {
+		var crc = new CRC32();
+		var check = new CountingStream(new CheckedOutputStream(
+			OutputStream.nullOutputStream(), crc));
+		writer.write(check);
+		long size = check.count;
+
+		var entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(size);
+		entry.setCompressedSize(size);
+		entry.setCrc(crc.getValue());
+
+		// the local file header has a fixed size of 30 bytes plus the name
+		// and extra field; we add an alignment field (as used by the
+		// `zipalign` tool) with padding so that the data are 8-byte aligned;
+		// for entries >= 4 GB, the zip stream adds a Zip64 field of 20 bytes
+		long start = counter.count + 30
+			+ name.getBytes(StandardCharsets.UTF_8).length + 6;
+		if (size >= ZIP64_LIMIT) {
+			start += 20;
+		}
+		int padding = (int) ((ALIGNMENT - start % ALIGNMENT) % ALIGNMENT);
+		var extra = ByteBuffer.allocate(6 + padding)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.putShort(ALIGNMENT_FIELD)
+			.putShort((short) (2 + padding))
+			.putShort((short) ALIGNMENT);
+		entry.setExtra(extra.array());
+
+		zip.putNextEntry(entry);
+		writer.write(zip);
+		zip.closeEntry();
+	}
+
+	/**
+	 * Maps the CSC matrix of the given file into memory. Contrary to `load`,
+	 * the arrays of the matrix are not read into the heap, so that single
+	 * columns can be read from large matrices without loading them completely.
+	 * This only works for files with uncompressed entries (as written by the
+	 * `save` methods) that contain a CSC matrix of 64 bit floating point
+	 * numbers. For other files, `null` is returned.
+	 */
+	public static MappedCSCMatrix map(File file) {
+		return MappedCSCMatrix.of(file);
+	}
+
 	private static void writeFormat(OutputStream out, String format)
 		throws IOException {
 		byte[] formatBytes = format.getBytes(StandardCharsets.US_ASCII);
@@ -241,4 +282,34 @@ public final class Npz {
 		out.write(formatBytes);
 		out.write((byte) 0);
 	}
+
+	@FunctionalInterface
+	private interface NpyWriter {
+		void write(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Counts the bytes that are written to the underlying stream so that we
+	 * know the offsets of the zip entries.
+	 */
+	private static class CountingStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
 }
@@ -2,6 +2,7 @@ package org.openlca.core.matrix.linking;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,7 @@ import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.index.LongPair;
 import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.cache.ExchangeSnapshot;
 import org.openlca.core.matrix.cache.MatrixCache;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
@@ -91,6 +93,14 @@ public class TechIndexBuilder implements ITechIndexBuilder {
 		for (TechFlow provider : block) {
 			processIds.add(provider.processId());
 		}
+		var snapshot = ExchangeSnapshot.get(cache.getDatabase());
+		if (snapshot != null) {
+			Map<Long, List<CalcExchange>> map = new HashMap<>();
+			for (Long processId : processIds) {
+				map.put(processId, snapshot.exchangesOf(processId));
+			}
+			return map;
+		}
 		try {
 			return cache.getExchangeCache().getAll(processIds);
 		} catch (Exception e) {
@@ -0,0 +1,333 @@
+package org.openlca.core.matrix.solvers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openlca.core.DataDir;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.Matrix;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.io.SimpleBin;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of factorizations and inverses of technology matrices. When the
+ * same product system is calculated again, e.g. with another LCIA method or
+ * demand, the technology matrix is typically the same and its factorization
+ * can be taken from this cache. The entries are identified by a fingerprint
+ * of the technology index and the values of the technology matrix (see
+ * `fingerprint`).
+ * <p>
+ * The cache has an in-memory tier that holds the most recently used entries
+ * up to a fixed number of entries. Optionally, entries can be also stored in
+ * a directory (see `withDiskTier`); this is currently supported for the
+ * factorizations of the pure Java solver (`SparseLU`) and for inverses. The
+ * disk tier is limited to a maximum number of bytes; when this limit is
+ * exceeded, the least recently used files are deleted.
+ * Cached factorizations and inverses are shared between the calculations and
+ * must not be disposed or modified.
+ */
+public final class FactorizationCache {
+
+	/** The suffix of the files that are currently written. */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static FactorizationCache defaultCache;
+
+	private final LinkedHashMap<String, Object> memory;
+	private File dir;
+	private long maxDiskBytes;
+
+	private FactorizationCache(int capacity) {
+		int max = Math.max(1, capacity);
+		memory = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Object> e) {
+				return size() > max;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new cache that holds at most the given number of entries in
+	 * memory.
+	 */
+	public static FactorizationCache create(int capacity) {
+		return new FactorizationCache(capacity);
+	}
+
+	/**
+	 * Returns the default cache that is used in the result calculations, or
+	 * `null` if no default cache was set; the results are then calculated
+	 * without caching.
+	 */
+	public static FactorizationCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * Sets the default cache that is used in the result calculations. Passing
+	 * `null` disables the caching.
+	 */
+	public static void setDefault(FactorizationCache cache) {
+		defaultCache = cache;
+	}
+
+	/**
+	 * Additionally stores the entries of this cache in the given directory.
+	 * The files in this directory are limited to the given number of bytes;
+	 * if the limit is exceeded, the least recently used files are deleted.
+	 */
+	public FactorizationCache withDiskTier(File dir, long maxBytes) {
+		this.dir = maxBytes > 0 ? dir : null;
+		this.maxDiskBytes = maxBytes;
+		return this;
+	}
+
+	/**
+	 * Additionally stores the entries of this cache in the default folder of
+	 * the openLCA data directory, up to the given number of bytes.
+	 */
+	public FactorizationCache withDiskTier(long maxBytes) {
+		return withDiskTier(
+				new File(DataDir.root(), "caches/factorizations"), maxBytes);
+	}
+
+	/**
+	 * Returns the factorization of the given technology matrix from the
+	 * cache. If it is not cached yet, it is calculated with the given solver
+	 * and added to the cache.
+	 */
+	public Factorization factorize(
+			MatrixSolver solver, TechIndex techIndex, MatrixReader techMatrix) {
+		var key = fingerprint(techIndex, techMatrix) + ".lu";
+		var cached = fromMemory(key);
+		if (cached instanceof Factorization
+				&& !((Factorization) cached).isDisposed())
+			return (Factorization) cached;
+
+		var file = fileOf(key);
+		if (file != null && file.exists()) {
+			try {
+				var lu = SparseLU.read(file, techMatrix.rows());
+				touch(file);
+				toMemory(key, lu);
+				return lu;
+			} catch (Exception e) {
+				log("failed to read cached factorization " + file, e);
+				file.delete();
+			}
+		}
+
+		var f = solver.factorize(techMatrix);
+		toMemory(key, f);
+		if (file != null && f instanceof SparseLU) {
+			store(file, ((SparseLU) f)::write);
+		}
+		return f;
+	}
+
+	/**
+	 * Returns the inverse of the given technology matrix from the cache. If it
+	 * is not cached yet, it is calculated with the given solver and added to
+	 * the cache.
+	 */
+	public Matrix invert(
+			MatrixSolver solver, TechIndex techIndex, MatrixReader techMatrix) {
+		var key = fingerprint(techIndex, techMatrix) + ".inv";
+		var cached = fromMemory(key);
+		if (cached instanceof Matrix)
+			return (Matrix) cached;
+
+		var file = fileOf(key);
+		if (file != null && file.exists()) {
+			try {
+				if (!isInverse(file, techMatrix.rows()))
+					throw new IOException("invalid size of cached inverse");
+				var inverse = SimpleBin.read(file);
+				touch(file);
+				toMemory(key, inverse);
+				return inverse;
+			} catch (Exception e) {
+				log("failed to read cached inverse " + file, e);
+				file.delete();
+			}
+		}
+
+		var inverse = solver.invert(techMatrix);
+		toMemory(key, inverse);
+		long bytes = 8L + 8L * inverse.rows() * inverse.columns();
+		if (file != null
+				&& inverse instanceof DenseMatrix
+				&& bytes < Integer.MAX_VALUE
+				&& bytes <= maxDiskBytes) {
+			store(file, tmp -> SimpleBin.write(inverse, tmp));
+		}
+		return inverse;
+	}
+
+	/**
+	 * Removes all entries from the memory tier of this cache. The entries
+	 * in the disk tier are not deleted.
+	 */
+	public synchronized void clear() {
+		memory.clear();
+	}
+
+	private synchronized Object fromMemory(String key) {
+		return memory.get(key);
+	}
+
+	private synchronized void toMemory(String key, Object value) {
+		memory.put(key, value);
+	}
+
+	private File fileOf(String key) {
+		return dir != null
+			? new File(dir, key)
+			: null;
+	}
+
+	private void ensureDir() {
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+	}
+
+	/**
+	 * Writes an entry of the disk tier. The entry is first written to a
+	 * temporary file in the cache folder that is then moved to the given
+	 * file. Thus, readers in other threads or processes never see a partly
+	 * written file.
+	 */
+	private void store(File file, EntryWriter writer) {
+		File tmp = null;
+		try {
+			ensureDir();
+			tmp = File.createTempFile(file.getName(), TEMP_SUFFIX, dir);
+			writer.write(tmp);
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			evict(file);
+		} catch (Exception e) {
+			log("failed to write cache entry " + file, e);
+			if (tmp != null) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given file has the header and size of the inverse
+	 * of a matrix with the given size, as written by `SimpleBin`.
+	 */
+	private static boolean isInverse(File file, int n) throws IOException {
+		if (file.length() != 8L + 8L * n * n)
+			return false;
+		try (var raf = new RandomAccessFile(file, "r")) {
+			var header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			raf.getChannel().read(header, 0);
+			return header.getInt(0) == n && header.getInt(4) == n;
+		}
+	}
+
+	/**
+	 * Marks the given file as recently used; the modification times of the
+	 * files are used to find the least recently used files in `evict`.
+	 */
+	private void touch(File file) {
+		if (!file.setLastModified(System.currentTimeMillis())) {
+			log("failed to update time stamp of " + file, null);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used files of the disk tier until the total
+	 * size of the files is within the limit of the disk tier. The given file
+	 * was just written; it is only deleted when it alone exceeds the limit.
+	 */
+	private synchronized void evict(File written) {
+		var files = dir.listFiles(
+				f -> f.isFile() && !f.getName().endsWith(TEMP_SUFFIX));
+		if (files == null)
+			return;
+		long total = 0;
+		for (var file : files) {
+			total += file.length();
+		}
+		if (total <= maxDiskBytes)
+			return;
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (var file : files) {
+			if (total <= maxDiskBytes)
+				break;
+			if (file.equals(written) && written.length() <= maxDiskBytes)
+				continue;
+			long size = file.length();
+			if (file.delete()) {
+				total -= size;
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface EntryWriter {
+		void write(File file) throws IOException;
+	}
+
+	private void log(String message, Exception e) {
+		var log = LoggerFactory.getLogger(getClass());
+		log.warn(message, e);
+	}
+
+	/**
+	 * Calculates a 128 bit fingerprint of the given technology index and
+	 * matrix as hex string. The fingerprint depends on the order of the
+	 * products in the index but not on the order in which the matrix entries
+	 * are iterated, as this order is not defined for some matrix formats.
+	 */
+	public static String fingerprint(TechIndex index, MatrixReader matrix) {
+		long h1 = 0x243f6a8885a308d3L;
+		long h2 = 0x13198a2e03707344L;
+		if (index != null) {
+			for (int i = 0; i < index.size(); i++) {
+				var product = index.at(i);
+				h1 = mix(h1 ^ product.processId());
+				h1 = mix(h1 ^ product.flowId());
+				h2 = mix(h2 + product.processId() * 0x9e3779b97f4a7c15L);
+				h2 = mix(h2 + product.flowId() * 0x9e3779b97f4a7c15L);
+			}
+		}
+		var entries = new long[3];
+		if (matrix != null) {
+			entries[2] = ((long) matrix.rows() << 32) | matrix.columns();
+			matrix.iterate((row, col, val) -> {
+				long pos = ((long) row << 32) | col;
+				long bits = Double.doubleToLongBits(val);
+				entries[0] += mix(mix(pos) ^ bits);
+				entries[1] += mix(mix(pos + 0x3c6ef372fe94f82bL)
+					+ bits * 0xa54ff53a5f1d36f1L);
+			});
+		}
+		h1 = mix(h1 ^ entries[0] ^ mix(entries[2]));
+		h2 = mix(h2 + entries[1] + entries[2]);
+		return String.format("%016x%016x", h1, h2);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
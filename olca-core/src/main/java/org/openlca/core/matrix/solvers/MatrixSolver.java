@@ -1,7 +1,9 @@
 package org.openlca.core.matrix.solvers;
 
+import org.apache.commons.math3.linear.NonSquareMatrixException;
 import org.openlca.core.matrix.format.Matrix;
 import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.format.SparseProducts;
 import org.openlca.julia.Julia;
 import org.openlca.julia.JuliaSolver;
 
@@ -48,13 +50,17 @@ public interface MatrixSolver {
 	Matrix invert(MatrixReader a);
 
 	/**
-	 * Returns the matrix product of the given matrices.
+	 * Returns the matrix product of the given matrices. When one of the
+	 * matrices is sparse, the product is calculated with the sparse kernels
+	 * of `SparseProducts`.
 	 */
 	default Matrix multiply(MatrixReader a, MatrixReader b) {
 		if (a == null || b == null)
 			return null;
 		if (a.columns() != b.rows())
 			throw new IllegalArgumentException("a.columns != b.rows");
+		if (a.isSparse() || b.isSparse())
+			return SparseProducts.multiply(a, b);
 		Matrix r = matrix(a.rows(), b.columns());
 		for (int row = 0; row < a.rows(); row++) {
 			for (int col = 0; col < b.columns(); col++) {
@@ -75,28 +81,49 @@ public interface MatrixSolver {
 	default double[] multiply(MatrixReader m, double[] v) {
 		if (m == null || v == null)
 			return null;
-		int cols = Math.min(m.columns(), v.length);
-		int rows = m.rows();
-		double[] r = new double[rows];
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-				r[row] += (m.get(row, col) * v[col]);
-			}
-		}
-		return r;
+		return SparseProducts.multiply(m, v);
 	}
 
 	Factorization factorize(MatrixReader matrix);
 
+	/**
+	 * Analyzes the structure of the given matrix for the factorization of
+	 * matrices with the same structure (see `SymbolicFactorization`). Solvers
+	 * that can separate the symbolic from the numeric factorization should
+	 * override this method. By default, there is no symbolic phase and each
+	 * matrix is factorized from scratch via `factorize`.
+	 */
+	default SymbolicFactorization analyze(MatrixReader matrix) {
+		if (!matrix.isSquare())
+			throw new NonSquareMatrixException(
+				matrix.rows(), matrix.columns());
+		int n = matrix.rows();
+		return new SymbolicFactorization() {
+			@Override
+			public int size() {
+				return n;
+			}
+
+			@Override
+			public Factorization factorize(MatrixReader m) {
+				return MatrixSolver.this.factorize(m);
+			}
+		};
+	}
+
 	final class Instance {
 
 		private Instance () {
 		}
 
+		/**
+		 * Returns the native solver if the Julia libraries are loaded and the
+		 * sparse Java solver otherwise.
+		 */
 		public static MatrixSolver getNew() {
 			return Julia.isLoaded()
 				? new JuliaSolver()
-				: new JavaSolver();
+				: new SparseJavaSolver();
 		}
 	}
 }
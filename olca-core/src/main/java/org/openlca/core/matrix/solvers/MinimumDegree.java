@@ -0,0 +1,260 @@
+package org.openlca.core.matrix.solvers;
+
+import java.util.Arrays;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Calculates a fill-reducing ordering of a square sparse matrix $A$ via an
+ * approximate minimum degree heuristic on the graph of $A + A^T$.
+ * <p>
+ * In each step, the node with the smallest (approximate) degree is eliminated.
+ * Instead of connecting the neighbours of that node to an explicit clique, the
+ * eliminated node becomes an element of a quotient graph that represents this
+ * clique implicitly. Elements that are contained in a new element are
+ * absorbed, so that the quotient graph never gets larger than the graph of
+ * $A + A^T$. The degrees of the nodes are approximated with an upper bound
+ * like in the AMD algorithm of Amestoy, Davis, and Duff.
+ * <p>
+ * Nodes with a very large degree (e.g. markets that are linked to most
+ * processes of a database) are removed from the graph and appended to the end
+ * of the ordering.
+ */
+final class MinimumDegree {
+
+	private final int n;
+
+	/** The adjacent (not eliminated) nodes of each node. */
+	private final TIntArrayList[] nodes;
+
+	/** The adjacent elements of each node. */
+	private final TIntArrayList[] elements;
+
+	/** The nodes of each element; null when the element was absorbed. */
+	private final int[][] members;
+
+	// degree lists: head[d] is the first node with degree d
+	private final int[] head;
+	private final int[] next;
+	private final int[] prev;
+	private final int[] degree;
+
+	private MinimumDegree(int n) {
+		this.n = n;
+		this.nodes = new TIntArrayList[n];
+		this.elements = new TIntArrayList[n];
+		this.members = new int[n][];
+		this.head = new int[n];
+		this.next = new int[n];
+		this.prev = new int[n];
+		this.degree = new int[n];
+	}
+
+	/**
+	 * Returns the permutation vector $p$ of the columns (and rows) of the given
+	 * matrix where $p_k$ is the index of the column that should be eliminated
+	 * in step $k$.
+	 */
+	static int[] of(CSCMatrix a) {
+		int n = a.columns;
+		if (n == 0)
+			return new int[0];
+		return new MinimumDegree(n).order(a);
+	}
+
+	private int[] order(CSCMatrix a) {
+
+		// build the graph of A + A'
+		var sets = new TIntHashSet[n];
+		for (int j = 0; j < n; j++) {
+			sets[j] = new TIntHashSet();
+		}
+		for (int col = 0; col < n; col++) {
+			for (int p = a.columnPointers[col];
+					 p < a.columnPointers[col + 1]; p++) {
+				int row = a.rowIndices[p];
+				if (row == col || row >= n)
+					continue;
+				sets[row].add(col);
+				sets[col].add(row);
+			}
+		}
+
+		// dense nodes are ordered last
+		int[] order = new int[n];
+		int denseLimit = Math.max(16, (int) (10 * Math.sqrt(n)));
+		boolean[] eliminated = new boolean[n];
+		int last = n;
+		for (int j = n - 1; j >= 0; j--) {
+			if (sets[j].size() > denseLimit) {
+				order[--last] = j;
+				eliminated[j] = true;
+			}
+		}
+		for (int j = 0; j < n; j++) {
+			if (eliminated[j])
+				continue;
+			var list = new TIntArrayList(sets[j].size());
+			var iter = sets[j].iterator();
+			while (iter.hasNext()) {
+				int i = iter.next();
+				if (!eliminated[i]) {
+					list.add(i);
+				}
+			}
+			sets[j] = null;
+			nodes[j] = list;
+			elements[j] = new TIntArrayList(4);
+		}
+
+		// initialize the degree lists
+		Arrays.fill(head, -1);
+		for (int j = 0; j < n; j++) {
+			if (!eliminated[j]) {
+				insert(j, nodes[j].size());
+			}
+		}
+
+		var marks = new int[n];
+		int stamp = 0;
+		var weights = new int[n];
+		var weightMarks = new int[n];
+		var pivotNodes = new TIntArrayList();
+
+		int minDegree = 0;
+		for (int k = 0; k < last; k++) {
+
+			// select the pivot
+			while (head[minDegree] < 0) {
+				minDegree++;
+			}
+			int pivot = head[minDegree];
+			remove(pivot);
+			order[k] = pivot;
+			eliminated[pivot] = true;
+
+			// collect the nodes of the new element; absorb the elements
+			// of the pivot which are all contained in the new element
+			stamp++;
+			marks[pivot] = stamp;
+			pivotNodes.resetQuick();
+			var pnodes = nodes[pivot];
+			for (int q = 0; q < pnodes.size(); q++) {
+				int i = pnodes.getQuick(q);
+				if (!eliminated[i] && marks[i] != stamp) {
+					marks[i] = stamp;
+					pivotNodes.add(i);
+				}
+			}
+			var pelems = elements[pivot];
+			for (int q = 0; q < pelems.size(); q++) {
+				int e = pelems.getQuick(q);
+				var es = members[e];
+				if (es == null)
+					continue;
+				for (int i : es) {
+					if (!eliminated[i] && marks[i] != stamp) {
+						marks[i] = stamp;
+						pivotNodes.add(i);
+					}
+				}
+				members[e] = null;
+			}
+			var element = pivotNodes.toArray();
+			members[pivot] = element;
+			nodes[pivot] = null;
+			elements[pivot] = null;
+
+			// calculate |Le \ Lp| for the elements e that are
+			// adjacent to the nodes of the new element
+			for (int i : element) {
+				var ielems = elements[i];
+				for (int q = 0; q < ielems.size(); q++) {
+					int e = ielems.getQuick(q);
+					if (members[e] == null)
+						continue;
+					if (weightMarks[e] != stamp) {
+						weightMarks[e] = stamp;
+						weights[e] = members[e].length;
+					}
+					weights[e]--;
+				}
+			}
+
+			// update the adjacency lists and degrees
+			int remaining = last - k - 1;
+			int size = element.length;
+			for (int i : element) {
+
+				// remove absorbed elements and add the new element
+				var ielems = elements[i];
+				int external = 0;
+				int pos = 0;
+				for (int q = 0; q < ielems.size(); q++) {
+					int e = ielems.getQuick(q);
+					if (members[e] == null)
+						continue;
+					if (weights[e] == 0) {
+						// aggressive absorption: Le is a subset of Lp
+						members[e] = null;
+						continue;
+					}
+					external += weights[e];
+					ielems.setQuick(pos++, e);
+				}
+				ielems.remove(pos, ielems.size() - pos);
+				ielems.add(pivot);
+
+				// remove nodes that are now connected via the new element
+				var inodes = nodes[i];
+				pos = 0;
+				for (int q = 0; q < inodes.size(); q++) {
+					int j = inodes.getQuick(q);
+					if (marks[j] == stamp || eliminated[j])
+						continue;
+					inodes.setQuick(pos++, j);
+				}
+				inodes.remove(pos, inodes.size() - pos);
+
+				int d = Math.min(remaining - 1, degree[i] + size - 1);
+				d = Math.min(d, pos + size - 1 + external);
+				d = Math.max(d, 0);
+				if (d == degree[i])
+					continue;
+				remove(i);
+				insert(i, d);
+				if (d < minDegree) {
+					minDegree = d;
+				}
+			}
+		}
+		return order;
+	}
+
+	private void insert(int node, int d) {
+		degree[node] = d;
+		int first = head[d];
+		next[node] = first;
+		prev[node] = -1;
+		if (first >= 0) {
+			prev[first] = node;
+		}
+		head[d] = node;
+	}
+
+	private void remove(int node) {
+		int p = prev[node];
+		int nx = next[node];
+		if (p >= 0) {
+			next[p] = nx;
+		} else {
+			head[degree[node]] = nx;
+		}
+		if (nx >= 0) {
+			prev[nx] = p;
+		}
+	}
+}
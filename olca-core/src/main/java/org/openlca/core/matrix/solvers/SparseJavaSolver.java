@@ -0,0 +1,152 @@
+package org.openlca.core.matrix.solvers;
+
+import org.apache.commons.math3.linear.NonSquareMatrixException;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.Matrix;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.format.SparseProducts;
+
+/**
+ * A matrix solver in plain Java that can be used when the native libraries
+ * are not available. Sparse matrices are solved with a sparse LU
+ * factorization (see {@link SparseLU}); dense matrices are passed to the
+ * dense {@link JavaSolver}.
+ */
+public class SparseJavaSolver implements MatrixSolver {
+
+	private final JavaSolver dense = new JavaSolver();
+
+	@Override
+	public boolean hasSparseSupport() {
+		return true;
+	}
+
+	@Override
+	public Matrix matrix(int rows, int columns) {
+		return new DenseMatrix(rows, columns);
+	}
+
+	@Override
+	public double[] solve(MatrixReader a, int idx, double d) {
+		if (!a.isSquare())
+			throw new NonSquareMatrixException(a.rows(), a.columns());
+		if (a.isDense())
+			return dense.solve(a, idx, d);
+		return SparseLU.of(csc(a)).solve(idx, d);
+	}
+
+	@Override
+	public Matrix invert(MatrixReader a) {
+		if (!a.isSquare())
+			throw new NonSquareMatrixException(a.rows(), a.columns());
+		if (a.isDense())
+			return dense.invert(a);
+		var lu = SparseLU.of(csc(a));
+		int n = a.rows();
+		var inverse = new DenseMatrix(n, n);
+		for (int j = 0; j < n; j++) {
+			var col = lu.solve(j, 1.0);
+			System.arraycopy(col, 0, inverse.data, j * n, n);
+		}
+		return inverse;
+	}
+
+	@Override
+	public double[] multiply(MatrixReader m, double[] v) {
+		return SparseProducts.multiply(m, v);
+	}
+
+	@Override
+	public Matrix multiply(MatrixReader a, MatrixReader b) {
+		if (a.columns() != b.rows())
+			throw new IllegalArgumentException("a.columns != b.rows");
+		if (a.isDense() && b.isDense())
+			return dense.multiply(a, b);
+		return SparseProducts.multiply(a, b);
+	}
+
+	@Override
+	public Factorization factorize(MatrixReader matrix) {
+		if (!matrix.isSquare())
+			throw new NonSquareMatrixException(
+					matrix.rows(), matrix.columns());
+		if (matrix.isDense())
+			return dense.factorize(matrix);
+		return SparseLU.of(csc(matrix));
+	}
+
+	/**
+	 * For sparse matrices, the symbolic analysis is the fill-reducing column
+	 * ordering of the sparse LU factorization which is then reused for the
+	 * numeric factorizations. Dense matrices have no symbolic phase.
+	 */
+	@Override
+	public SymbolicFactorization analyze(MatrixReader matrix) {
+		if (!matrix.isSquare())
+			throw new NonSquareMatrixException(
+					matrix.rows(), matrix.columns());
+		if (matrix.isDense())
+			return MatrixSolver.super.analyze(matrix);
+		return new SparseSymbolic(matrix.rows(), MinimumDegree.of(csc(matrix)));
+	}
+
+	/**
+	 * Returns the given sparse matrix in CSC format without copying it when it
+	 * is already a CSC matrix.
+	 */
+	private static CSCMatrix csc(MatrixReader m) {
+		if (m instanceof CSCMatrix)
+			return (CSCMatrix) m;
+		if (m instanceof HashPointMatrix)
+			return ((HashPointMatrix) m).compress();
+		return CSCMatrix.of(m);
+	}
+
+	/**
+	 * The column ordering of a sparse matrix together with the storage
+	 * capacity of the factors of the last numeric factorization.
+	 */
+	private class SparseSymbolic implements SymbolicFactorization {
+
+		private final int n;
+		private final int[] q;
+		private volatile int capacity;
+
+		SparseSymbolic(int n, int[] q) {
+			this.n = n;
+			this.q = q;
+		}
+
+		@Override
+		public int size() {
+			return n;
+		}
+
+		@Override
+		public Factorization factorize(MatrixReader matrix) {
+			if (matrix.isDense())
+				return SparseJavaSolver.this.factorize(matrix);
+			var a = csc(matrix);
+			int c = capacity > 0
+					? capacity
+					: 4 * a.columnPointers[a.columns] + n;
+			var lu = SparseLU.of(a, q, c);
+			capacity = lu.capacity();
+			return lu;
+		}
+
+		@Override
+		public Factorization refactorize(
+				Factorization factorization, MatrixReader matrix) {
+			if (!(factorization instanceof SparseLU) || matrix.isDense())
+				return factorize(matrix);
+			var lu = (SparseLU) factorization;
+			if (lu.isDisposed() || !lu.hasOrdering(q))
+				return factorize(matrix);
+			lu.refactorize(csc(matrix));
+			return lu;
+		}
+	}
+}
@@ -0,0 +1,501 @@
+package org.openlca.core.matrix.solvers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.math3.linear.NonSquareMatrixException;
+import org.apache.commons.math3.linear.SingularMatrixException;
+import org.openlca.core.matrix.format.CSCMatrix;
+
+/**
+ * A sparse LU factorization $P A Q = L U$ of a square matrix $A$ in
+ * compressed sparse column format, implemented in plain Java. The column
+ * permutation $Q$ is a fill-reducing ordering of $A + A^T$ (see
+ * {@link MinimumDegree}) and the row permutation $P$ is calculated during the
+ * factorization via threshold partial pivoting that prefers the diagonal
+ * entries of $A$.
+ * <p>
+ * The numeric factorization is a left-looking (Gilbert-Peierls) algorithm:
+ * each column $k$ is calculated via a sparse triangular solve with the
+ * already calculated columns of $L$ where the non-zero pattern of the
+ * solution is determined via a depth-first search in the graph of $L$. Thus,
+ * the work is proportional to the number of floating point operations and not
+ * to the dimension of the matrix.
+ */
+public final class SparseLU implements Factorization {
+
+	/**
+	 * A diagonal entry is selected as pivot if its absolute value is at least
+	 * `DIAGONAL_PREFERENCE` times the largest absolute value in the candidate
+	 * rows of the respective column.
+	 */
+	private static final double DIAGONAL_PREFERENCE = 0.001;
+
+	private final int n;
+
+	/**
+	 * The column permutation $Q$; q[k] is the column of A in step k.
+	 */
+	private final int[] q;
+
+	/**
+	 * The inverse row permutation: pinv[i] is the pivot step of row i of A.
+	 */
+	private final int[] pinv;
+
+	// L is unit lower triangular; the diagonal is stored first in each column
+	private int[] lp;
+	private int[] li;
+	private double[] lx;
+
+	// U is upper triangular; the diagonal is stored last in each column
+	private int[] up;
+	private int[] ui;
+	private double[] ux;
+
+	private boolean disposed;
+
+	private SparseLU(int n, int[] q) {
+		this.n = n;
+		this.q = q;
+		this.pinv = new int[n];
+	}
+
+	/**
+	 * Calculates the factorization of the given matrix. Throws a
+	 * `SingularMatrixException` when the matrix is (numerically) singular.
+	 */
+	public static SparseLU of(CSCMatrix a) {
+		if (a.rows != a.columns)
+			throw new NonSquareMatrixException(a.rows, a.columns);
+		var q = MinimumDegree.of(a);
+		var lu = new SparseLU(a.rows, q);
+		lu.factorize(a, 4 * a.columnPointers[a.columns] + a.rows, true);
+		return lu;
+	}
+
+	/**
+	 * Calculates the factorization of the given matrix with the given column
+	 * ordering, e.g. from a symbolic analysis of a matrix with the same
+	 * structure. The storage of the factors is initialized with the given
+	 * capacity.
+	 */
+	static SparseLU of(CSCMatrix a, int[] q, int capacity) {
+		if (a.rows != a.columns)
+			throw new NonSquareMatrixException(a.rows, a.columns);
+		if (a.rows != q.length)
+			throw new IllegalArgumentException(
+				"the ordering does not match the matrix size");
+		var lu = new SparseLU(a.rows, q);
+		lu.factorize(a, capacity, true);
+		return lu;
+	}
+
+	/**
+	 * Calculates the numeric factorization of the given matrix in place of
+	 * this factorization. The column ordering is kept and the storage of the
+	 * factors is reused (and not trimmed), so that the next refactorization
+	 * of a matrix with the same structure does not allocate new memory. When
+	 * the matrix is singular, this factorization is disposed.
+	 */
+	void refactorize(CSCMatrix a) {
+		if (a.rows != n || a.columns != n)
+			throw new IllegalArgumentException(
+				"the matrix does not match the factorization size");
+		try {
+			factorize(a, 0, false);
+		} catch (RuntimeException e) {
+			disposed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns true if this factorization uses the given column ordering.
+	 */
+	boolean hasOrdering(int[] q) {
+		return this.q == q;
+	}
+
+	/**
+	 * Returns the storage capacity for the factors that is needed to
+	 * factorize a matrix with the structure of this factorization without
+	 * growing the storage.
+	 */
+	int capacity() {
+		return Math.max(lp[n], up[n]) + n;
+	}
+
+	private void factorize(CSCMatrix a, int capacity, boolean trim) {
+
+		int lnz = 0;
+		int unz = 0;
+		if (lp == null) {
+			lp = new int[n + 1];
+			up = new int[n + 1];
+		}
+		if (li == null || li.length < capacity) {
+			li = new int[capacity];
+			lx = new double[capacity];
+		}
+		if (ui == null || ui.length < capacity) {
+			ui = new int[capacity];
+			ux = new double[capacity];
+		}
+
+		Arrays.fill(pinv, -1);
+		var x = new double[n];
+		var pattern = new int[n];
+		var reach = new Reach(n);
+
+		for (int k = 0; k < n; k++) {
+
+			// make sure that there is enough space for column k
+			if (lnz + n > li.length) {
+				int size = 2 * li.length + n;
+				li = Arrays.copyOf(li, size);
+				lx = Arrays.copyOf(lx, size);
+			}
+			if (unz + n > ui.length) {
+				int size = 2 * ui.length + n;
+				ui = Arrays.copyOf(ui, size);
+				ux = Arrays.copyOf(ux, size);
+			}
+			lp[k] = lnz;
+			up[k] = unz;
+
+			// x = L \ A(:, col)
+			int col = q[k];
+			int top = solveColumn(a, col, reach, pattern, x);
+
+			// find the pivot row and store the entries of U
+			int pivotRow = -1;
+			double max = -1;
+			for (int p = top; p < n; p++) {
+				int i = pattern[p];
+				if (pinv[i] < 0) {
+					double t = Math.abs(x[i]);
+					if (t > max) {
+						max = t;
+						pivotRow = i;
+					}
+				} else {
+					ui[unz] = pinv[i];
+					ux[unz] = x[i];
+					unz++;
+				}
+			}
+			if (pivotRow == -1 || max <= 0)
+				throw new SingularMatrixException();
+			if (pinv[col] < 0
+					&& Math.abs(x[col]) >= max * DIAGONAL_PREFERENCE) {
+				pivotRow = col;
+			}
+
+			// store the diagonal of U and the column of L
+			double pivot = x[pivotRow];
+			ui[unz] = k;
+			ux[unz] = pivot;
+			unz++;
+			pinv[pivotRow] = k;
+			li[lnz] = pivotRow;
+			lx[lnz] = 1;
+			lnz++;
+			for (int p = top; p < n; p++) {
+				int i = pattern[p];
+				if (pinv[i] < 0) {
+					li[lnz] = i;
+					lx[lnz] = x[i] / pivot;
+					lnz++;
+				}
+				x[i] = 0;
+			}
+		}
+		lp[n] = lnz;
+		up[n] = unz;
+
+		// map the row indices of L to the pivot order and trim the storage
+		for (int p = 0; p < lnz; p++) {
+			li[p] = pinv[li[p]];
+		}
+		if (!trim)
+			return;
+		li = Arrays.copyOf(li, lnz);
+		lx = Arrays.copyOf(lx, lnz);
+		ui = Arrays.copyOf(ui, unz);
+		ux = Arrays.copyOf(ux, unz);
+	}
+
+	/**
+	 * Solves the sparse triangular system $L x = A(:, col)$ with the already
+	 * calculated columns of $L$. The non-zero pattern of the solution is
+	 * written to pattern[top...n-1] in topological order, where `top` is
+	 * returned by this method. The row indices in the pattern are row indices
+	 * of $A$ (not pivot positions).
+	 */
+	private int solveColumn(
+			CSCMatrix a, int col, Reach reach, int[] pattern, double[] x) {
+		int top = reach.of(a, col, pattern);
+		for (int p = a.columnPointers[col]; p < a.columnPointers[col + 1]; p++) {
+			x[a.rowIndices[p]] = a.values[p];
+		}
+		for (int px = top; px < n; px++) {
+			int j = pattern[px];
+			int jl = pinv[j];
+			if (jl < 0)
+				continue;
+			double xj = x[j];
+			if (xj == 0)
+				continue;
+			for (int p = lp[jl] + 1; p < lp[jl + 1]; p++) {
+				x[li[p]] -= lx[p] * xj;
+			}
+		}
+		return top;
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	@Override
+	public double[] solve(double[] b) {
+		var y = new double[n];
+		for (int i = 0; i < n; i++) {
+			y[pinv[i]] = b[i];
+		}
+		solveLU(y);
+		var x = new double[n];
+		for (int k = 0; k < n; k++) {
+			x[q[k]] = y[k];
+		}
+		return x;
+	}
+
+	@Override
+	public double[] solve(int i, double val) {
+		var y = new double[n];
+		y[pinv[i]] = val;
+		solveLU(y);
+		var x = new double[n];
+		for (int k = 0; k < n; k++) {
+			x[q[k]] = y[k];
+		}
+		return x;
+	}
+
+	/**
+	 * Solves $L U y = b$ in place where $b$ is already permuted into the pivot
+	 * order.
+	 */
+	private void solveLU(double[] y) {
+		// forward substitution with the unit lower triangular L
+		for (int j = 0; j < n; j++) {
+			double yj = y[j];
+			if (yj == 0)
+				continue;
+			for (int p = lp[j] + 1; p < lp[j + 1]; p++) {
+				y[li[p]] -= lx[p] * yj;
+			}
+		}
+		// back substitution with U
+		for (int j = n - 1; j >= 0; j--) {
+			int diag = up[j + 1] - 1;
+			double yj = y[j] / ux[diag];
+			y[j] = yj;
+			if (yj == 0)
+				continue;
+			for (int p = up[j]; p < diag; p++) {
+				y[ui[p]] -= ux[p] * yj;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of non-zero entries in the factors $L$ and $U$.
+	 */
+	public long nonZeros() {
+		return (long) lp[n] + (long) up[n];
+	}
+
+	/**
+	 * Writes this factorization to the given file from which it can be read
+	 * again via `read`, e.g. to keep it in a cache on disk.
+	 */
+	void write(File file) throws IOException {
+		try (var out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(n);
+			write(out, q, n);
+			write(out, pinv, n);
+			write(out, lp, n + 1);
+			write(out, up, n + 1);
+			write(out, li, lp[n]);
+			write(out, lx, lp[n]);
+			write(out, ui, up[n]);
+			write(out, ux, up[n]);
+		}
+	}
+
+	/**
+	 * Reads a factorization of a matrix with the given size from the given
+	 * file that was written via `write`. The sizes in the file are checked
+	 * against the given matrix size and the file length before the arrays
+	 * are allocated; an `IOException` is thrown for invalid files.
+	 */
+	static SparseLU read(File file, int size) throws IOException {
+		long length = file.length();
+		try (var in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file), 1 << 16))) {
+			int n = in.readInt();
+			if (n != size || length < 4 + 16L * n + 8L * (n + 1))
+				throw new IOException("invalid factorization header: " + file);
+			var lu = new SparseLU(n, readIndices(in, n, n));
+			System.arraycopy(readIndices(in, n, n), 0, lu.pinv, 0, n);
+			lu.lp = readPointers(in, n);
+			lu.up = readPointers(in, n);
+			long lnz = lu.lp[n];
+			long unz = lu.up[n];
+			if (length != 4 + 16L * n + 8L * (n + 1) + 12 * lnz + 12 * unz)
+				throw new IOException("invalid factorization size: " + file);
+			lu.li = readIndices(in, lu.lp[n], n);
+			lu.lx = readDoubles(in, lu.lp[n]);
+			lu.ui = readIndices(in, lu.up[n], n);
+			lu.ux = readDoubles(in, lu.up[n]);
+			return lu;
+		}
+	}
+
+	private static void write(
+			DataOutputStream out, int[] values, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	private static void write(
+			DataOutputStream out, double[] values, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			out.writeDouble(values[i]);
+		}
+	}
+
+	/**
+	 * Reads the given number of indices which must be in `[0, n)`.
+	 */
+	private static int[] readIndices(
+			DataInputStream in, int count, int n) throws IOException {
+		var values = new int[count];
+		for (int i = 0; i < count; i++) {
+			int value = in.readInt();
+			if (value < 0 || value >= n)
+				throw new IOException("invalid index in factorization: " + value);
+			values[i] = value;
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the `n + 1` column pointers of a factor which must start with 0
+	 * and must not decrease.
+	 */
+	private static int[] readPointers(
+			DataInputStream in, int n) throws IOException {
+		var values = new int[n + 1];
+		for (int i = 0; i <= n; i++) {
+			int value = in.readInt();
+			if (i == 0 ? value != 0 : value < values[i - 1])
+				throw new IOException("invalid column pointer in factorization");
+			values[i] = value;
+		}
+		return values;
+	}
+
+	private static double[] readDoubles(
+			DataInputStream in, int count) throws IOException {
+		var values = new double[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	@Override
+	public void dispose() {
+		disposed = true;
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return disposed;
+	}
+
+	/**
+	 * Calculates the non-zero pattern of the solution $x$ of $L x = b$ via a
+	 * non-recursive depth-first search in the graph of $L$ starting from the
+	 * non-zero entries of $b$.
+	 */
+	private class Reach {
+
+		private final int[] marks;
+		private final int[] stack;
+		private final int[] positions;
+		private int stamp;
+
+		Reach(int n) {
+			marks = new int[n];
+			stack = new int[n];
+			positions = new int[n];
+		}
+
+		int of(CSCMatrix a, int col, int[] pattern) {
+			stamp++;
+			int top = n;
+			for (int p = a.columnPointers[col];
+					 p < a.columnPointers[col + 1]; p++) {
+				int i = a.rowIndices[p];
+				if (marks[i] != stamp) {
+					top = dfs(i, top, pattern);
+				}
+			}
+			return top;
+		}
+
+		private int dfs(int start, int top, int[] pattern) {
+			int head = 0;
+			stack[0] = start;
+			while (head >= 0) {
+				int j = stack[head];
+				int jl = pinv[j];
+				if (marks[j] != stamp) {
+					marks[j] = stamp;
+					positions[head] = jl < 0 ? 0 : lp[jl] + 1;
+				}
+				boolean done = true;
+				int end = jl < 0 ? 0 : lp[jl + 1];
+				for (int p = positions[head]; p < end; p++) {
+					int i = li[p];
+					if (marks[i] == stamp)
+						continue;
+					positions[head] = p + 1;
+					stack[++head] = i;
+					done = false;
+					break;
+				}
+				if (done) {
+					head--;
+					pattern[--top] = j;
+				}
+			}
+			return top;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package org.openlca.core.matrix.solvers;
+
+import org.openlca.core.matrix.format.MatrixReader;
+
+/**
+ * The symbolic analysis of the structure of a square matrix `A`, e.g. a
+ * fill-reducing ordering of a sparse matrix. It is calculated once via
+ * `MatrixSolver.analyze` and can then be used to calculate the numeric
+ * factorizations of matrices with the same non-zero structure but different
+ * values, like the technology matrices of the iterations of a Monte-Carlo
+ * simulation. A symbolic factorization does not change after it was created
+ * and can be shared between threads.
+ */
+public interface SymbolicFactorization {
+
+	/**
+	 * Returns the number of rows (and columns) of the analyzed matrix.
+	 */
+	int size();
+
+	/**
+	 * Calculates a new numeric factorization of the given matrix which should
+	 * have the same structure as the analyzed matrix. It is not an error when
+	 * the structure is different (e.g. when a value became zero), but the
+	 * analysis may not fit so well to it then.
+	 */
+	Factorization factorize(MatrixReader matrix);
+
+	/**
+	 * Calculates the numeric factorization of the given matrix in place of the
+	 * given factorization, reusing its storage, and returns it. This is only
+	 * possible when the given factorization was created from this symbolic
+	 * factorization and is not disposed; otherwise, a new factorization is
+	 * returned. By default, this just calls `factorize`. Note that all users
+	 * of the given factorization see the new values after this call.
+	 */
+	default Factorization refactorize(
+		Factorization factorization, MatrixReader matrix) {
+		return factorize(matrix);
+	}
+}
@@ -18,11 +18,8 @@ class UExchangeCell implements UCell {
 	// cell.
 	List<UCell> overlay;
 
-	/*
-	 * TODO: we have to think about stateless functions here; also with a shared
-	 * instance of Random; see also this issue:
-	 * https://github.com/GreenDelta/olca-app/issues/62
-	 */
+	// the values are drawn from the random source of the interpreter; see
+	// also this issue: https://github.com/GreenDelta/olca-app/issues/62
 	private final NumberGenerator gen;
 
 	UExchangeCell(CalcExchange e, CalcAllocationFactor f) {
@@ -36,7 +33,7 @@ class UExchangeCell implements UCell {
 	@Override
 	public double next(FormulaInterpreter interpreter) {
 		if (gen != null) {
-			exchange.amount = gen.next();
+			exchange.amount = gen.next(interpreter.getRandom());
 		}
 		double af = allocationFactor != null
 			? allocationFactor.force(interpreter)
@@ -98,7 +95,10 @@ class UExchangeCell implements UCell {
 
 	@Override
 	public UExchangeCell copy() {
-		var copy = new UExchangeCell(exchange, allocationFactor);
+		var af = allocationFactor != null
+			? allocationFactor.copy()
+			: null;
+		var copy = new UExchangeCell(exchange.copy(), af);
 		if (overlay != null) {
 			copy.overlay = new ArrayList<>(overlay.size());
 			for (var o : overlay) {
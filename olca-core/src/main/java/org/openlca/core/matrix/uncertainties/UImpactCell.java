@@ -20,7 +20,7 @@ class UImpactCell implements UCell {
 	@Override
 	public double next(FormulaInterpreter interpreter) {
 		if (gen != null) {
-			factor.amount = gen.next();
+			factor.amount = gen.next(interpreter.getRandom());
 		}
 		return factor.matrixValue(interpreter);
 	}
@@ -73,6 +73,6 @@ class UImpactCell implements UCell {
 
 	@Override
 	public UCell copy() {
-		return new UImpactCell(factor);
+		return new UImpactCell(factor.copy());
 	}
 }
@@ -10,15 +10,22 @@ import org.openlca.core.model.Copyable;
 import org.openlca.expressions.FormulaInterpreter;
 
 import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 /**
- * An UMatrix is a matrix with uncertainty distributions.
+ * An UMatrix is a matrix with uncertainty distributions. The cells are always
+ * iterated in the order in which they were added (also in copies of the
+ * matrix) so that the values of a seeded simulation run are drawn in the same
+ * order.
  */
 public class UMatrix implements Copyable<UMatrix> {
 
 	private final TIntObjectHashMap<TIntObjectHashMap<UCell>> data;
 
+	/** The positions (row, column) of the cells in insertion order. */
+	private final TLongArrayList positions = new TLongArrayList();
+
 	public UMatrix() {
 		data = new TIntObjectHashMap<>(
 				Constants.DEFAULT_CAPACITY,
@@ -36,8 +43,7 @@ public class UMatrix implements Copyable<UMatrix> {
 			i.formula = null;
 		}
 
-		var rowm = getRow(row);
-		rowm.put(col, new UImpactCell(i));
+		put(row, col, new UImpactCell(i));
 	}
 
 	public void add(int row, int col, CalcExchange e) {
@@ -71,8 +77,7 @@ public class UMatrix implements Copyable<UMatrix> {
 
 		// no exchange at the given cell yet
 		if (!(cell instanceof UExchangeCell)) {
-			cell = new UExchangeCell(e, af);
-			rowm.put(col, cell);
+			put(row, col, new UExchangeCell(e, af));
 			return;
 		}
 
@@ -84,6 +89,13 @@ public class UMatrix implements Copyable<UMatrix> {
 		ecell.overlay.add(new UExchangeCell(e, af));
 	}
 
+	private void put(int row, int col, UCell cell) {
+		var previous = getRow(row).put(col, cell);
+		if (previous == null) {
+			positions.add(((long) row << 32) | (col & 0xffffffffL));
+		}
+	}
+
 	private TIntObjectHashMap<UCell> getRow(int row) {
 		var rowm = data.get(row);
 		if (rowm == null) {
@@ -105,45 +117,22 @@ public class UMatrix implements Copyable<UMatrix> {
 	}
 
 	/**
-	 * Iterate over the cells of this matrix.
+	 * Iterate over the cells of this matrix in the order in which they were
+	 * added.
 	 */
 	public void each(EntryFunction fn) {
-		var rows = data.iterator();
-		while (rows.hasNext()) {
-			rows.advance();
-			int row = rows.key();
-			var cols = rows.value().iterator();
-			while (cols.hasNext()) {
-				cols.advance();
-				int col = cols.key();
-				fn.accept(row, col, cols.value());
-			}
+		for (int i = 0; i < positions.size(); i++) {
+			long pos = positions.getQuick(i);
+			int row = (int) (pos >>> 32);
+			int col = (int) pos;
+			fn.accept(row, col, data.get(row).get(col));
 		}
 	}
 
 	@Override
 	public UMatrix copy() {
 		var copy = new UMatrix();
-		for(var rowIt = data.iterator(); rowIt.hasNext();) {
-			rowIt.advance();
-			var row = rowIt.key();
-			var cells = rowIt.value();
-			if (cells == null || cells.isEmpty())
-				continue;
-			var copyCells = new TIntObjectHashMap<UCell>(
-				Constants.DEFAULT_CAPACITY,
-				Constants.DEFAULT_LOAD_FACTOR,
-				-1);
-			copy.data.put(row, copyCells);
-			for (var cellIt = cells.iterator(); cellIt.hasNext();) {
-				cellIt.advance();
-				var col = cellIt.key();
-				var cell = cellIt.value();
-				if (cell == null)
-					continue;
-				copyCells.put(col, cell.copy());
-			}
-		}
+		each((row, col, cell) -> copy.put(row, col, cell.copy()));
 		return copy;
 	}
 }
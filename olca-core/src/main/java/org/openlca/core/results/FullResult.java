@@ -170,8 +170,7 @@ public class FullResult extends ContributionResult {
 	public double getLinkShare(ProcessLink link) {
 
 		var techIndex = techIndex();
-		var provider = techIndex.getProvider(link.providerId, link.flowId);
-		int providerIdx = techIndex.of(provider);
+		int providerIdx = techIndex.of(link.providerId, link.flowId);
 		if (providerIdx < 0)
 			return 0;
 
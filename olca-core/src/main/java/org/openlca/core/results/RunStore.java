@@ -0,0 +1,208 @@
+package org.openlca.core.results;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the result vectors of the runs of a Monte-Carlo simulation. The
+ * vectors are appended one after another and can be read by run or as
+ * columns, i.e. the values of a vector index over all runs. A store is not
+ * thread-safe.
+ */
+abstract class RunStore {
+
+	/**
+	 * Creates a store for vectors of the given length. If a directory is
+	 * given, the vectors are written to a file in this directory. Otherwise,
+	 * they are kept in memory.
+	 */
+	static RunStore of(int length, File dir) {
+		return dir == null || length <= 0
+			? new MemoryStore()
+			: new FileStore(length, dir);
+	}
+
+	/** The number of stored runs. */
+	abstract int size();
+
+	abstract void add(double[] vector);
+
+	/**
+	 * Returns the value at the given index of the vector of the given run, or
+	 * 0 if there is no such value.
+	 */
+	abstract double get(int run, int idx);
+
+	/**
+	 * Returns the values at the given index of all runs.
+	 */
+	abstract double[] column(int idx);
+
+	/**
+	 * Releases the resources of this store.
+	 */
+	void close() {
+	}
+
+	private static class MemoryStore extends RunStore {
+
+		private final List<double[]> vectors = new ArrayList<>();
+
+		@Override
+		int size() {
+			return vectors.size();
+		}
+
+		@Override
+		void add(double[] vector) {
+			vectors.add(vector);
+		}
+
+		@Override
+		double get(int run, int idx) {
+			if (run < 0 || run >= vectors.size() || idx < 0)
+				return 0;
+			double[] v = vectors.get(run);
+			return v == null || v.length <= idx ? 0 : v[idx];
+		}
+
+		@Override
+		double[] column(int idx) {
+			double[] col = new double[vectors.size()];
+			for (int run = 0; run < col.length; run++) {
+				col[run] = get(run, idx);
+			}
+			return col;
+		}
+	}
+
+	/**
+	 * Writes the vectors in blocks of runs to a file. Within a block, the
+	 * values are stored column-wise, so that the values of an index can be
+	 * read in one bulk operation per block. The written blocks are mapped
+	 * into memory and read from there; only the vectors of the current,
+	 * incomplete block are kept on the heap. The file is deleted when the
+	 * store is closed.
+	 */
+	private static class FileStore extends RunStore {
+
+		/** The maximum number of values of a block. */
+		private static final int BLOCK_VALUES = 1 << 20;
+
+		private final int length;
+		private final int blockSize;
+		private final File file;
+		private final RandomAccessFile raf;
+		private final FileChannel channel;
+
+		private final List<DoubleBuffer> blocks = new ArrayList<>();
+		private final double[] buffer;
+		private final ByteBuffer out;
+		private int buffered;
+
+		FileStore(int length, File dir) {
+			this.length = length;
+			this.blockSize = Math.max(1, Math.min(1024, BLOCK_VALUES / length));
+			this.buffer = new double[length * blockSize];
+			this.out = ByteBuffer.allocate(buffer.length * 8)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			try {
+				if (!dir.exists()) {
+					dir.mkdirs();
+				}
+				file = File.createTempFile("olca_simulation_", ".bin", dir);
+				file.deleteOnExit();
+				raf = new RandomAccessFile(file, "rw");
+				channel = raf.getChannel();
+			} catch (IOException e) {
+				throw new RuntimeException(
+					"failed to create simulation store in " + dir, e);
+			}
+		}
+
+		@Override
+		int size() {
+			return blocks.size() * blockSize + buffered;
+		}
+
+		@Override
+		void add(double[] vector) {
+			for (int i = 0; i < length; i++) {
+				buffer[i * blockSize + buffered] =
+					vector != null && i < vector.length ? vector[i] : 0;
+			}
+			buffered++;
+			if (buffered == blockSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			out.clear();
+			out.asDoubleBuffer().put(buffer);
+			long position = (long) blocks.size() * out.capacity();
+			try {
+				while (out.hasRemaining()) {
+					channel.write(out, position + out.position());
+				}
+				var block = channel.map(
+					MapMode.READ_ONLY, position, out.capacity())
+					.order(ByteOrder.LITTLE_ENDIAN)
+					.asDoubleBuffer();
+				blocks.add(block);
+				buffered = 0;
+			} catch (IOException e) {
+				throw new RuntimeException(
+					"failed to write simulation results to " + file, e);
+			}
+		}
+
+		@Override
+		double get(int run, int idx) {
+			if (run < 0 || run >= size() || idx < 0 || idx >= length)
+				return 0;
+			int block = run / blockSize;
+			int pos = idx * blockSize + run % blockSize;
+			return block < blocks.size()
+				? blocks.get(block).get(pos)
+				: buffer[pos];
+		}
+
+		@Override
+		double[] column(int idx) {
+			double[] col = new double[size()];
+			if (idx < 0 || idx >= length)
+				return col;
+			int offset = idx * blockSize;
+			for (int b = 0; b < blocks.size(); b++) {
+				blocks.get(b).get(offset, col, b * blockSize, blockSize);
+			}
+			System.arraycopy(buffer, offset,
+				col, blocks.size() * blockSize, buffered);
+			return col;
+		}
+
+		@Override
+		void close() {
+			blocks.clear();
+			buffered = 0;
+			try {
+				channel.close();
+				raf.close();
+			} catch (IOException ignored) {
+			}
+			// on some platforms, the file can be only deleted when the
+			// mapped buffers were garbage collected; it is then deleted
+			// on exit
+			file.delete();
+		}
+	}
+}
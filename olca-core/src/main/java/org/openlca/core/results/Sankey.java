@@ -12,6 +12,8 @@ import org.openlca.core.model.descriptors.ImpactDescriptor;
 import org.openlca.core.results.providers.ResultProvider;
 
 import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntDoubleHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 
@@ -203,12 +205,21 @@ public class Sankey<T> {
 		// result references
 		private EnviFlow flow;
 		private ImpactDescriptor impact;
+		private int flowIdx = -1;
+		private int impactIdx = -1;
 
 		// cutoff rules
 		private double minShare = 0;
 		private int maxNodes = -1;
 
 		private final TIntObjectHashMap<Node> handled;
+
+		/**
+		 * Caches the total results of the products that were checked as
+		 * candidates; a product can be a provider of many nodes.
+		 */
+		private final TIntDoubleHashMap totals;
+
 		private PriorityQueue<Candidate> candidates;
 
 		private Builder(T ref, FullResult result) {
@@ -218,6 +229,11 @@ public class Sankey<T> {
 					Constants.DEFAULT_CAPACITY,
 					Constants.DEFAULT_LOAD_FACTOR,
 					-1);
+			totals = new TIntDoubleHashMap(
+					Constants.DEFAULT_CAPACITY,
+					Constants.DEFAULT_LOAD_FACTOR,
+					-1,
+					Double.NaN);
 		}
 
 		/**
@@ -239,7 +255,13 @@ public class Sankey<T> {
 		}
 
 		/**
-		 * Builds the underlying graph of a Sankey diagram.
+		 * Builds the underlying graph of a Sankey diagram. Starting from the
+		 * root, the provider with the largest share of all candidates is added
+		 * next until there are no more candidates above the minimum share or
+		 * the maximum number of nodes is reached. Only the non-zero entries of
+		 * the columns of the technology matrix are visited and the total
+		 * results of the candidates are fetched in batches from the result
+		 * provider.
 		 */
 		public Sankey<T> build() {
 
@@ -247,8 +269,15 @@ public class Sankey<T> {
 			// TODO: currently no support for cost-results
 			if (sankey.reference instanceof EnviFlow) {
 				flow = (EnviFlow) sankey.reference;
+				var enviIndex = result.enviIndex();
+				if (enviIndex != null) {
+					flowIdx = enviIndex.of(flow);
+				}
 			} else if (sankey.reference instanceof ImpactDescriptor) {
 				impact = (ImpactDescriptor) sankey.reference;
+				if (result.hasImpacts()) {
+					impactIdx = result.impactIndex().of(impact);
+				}
 			}
 
 			// create the root node of the reference product
@@ -261,15 +290,34 @@ public class Sankey<T> {
 			root.share = root.total == 0 ? 0 : 1;
 			sankey.nodeCount = 1;
 			handled.put(root.index, root);
-
-			// expand the graph recursively
-			if (root.total != 0 && (maxNodes < 0 || maxNodes > 1)) {
-				expand(root);
+			if (root.total == 0 || (maxNodes >= 0 && maxNodes <= 1))
+				return sankey;
+
+			// add the best candidates until the queue is empty; when the
+			// maximum number of nodes is reached, the remaining candidates
+			// are only checked for links between nodes of the graph
+			candidates = new PriorityQueue<>(
+					(c1, c2) -> Double.compare(c2.share, c1.share));
+			expand(root, true);
+			while (!candidates.isEmpty()) {
+				var next = candidates.poll();
+				var provider = handled.get(next.provider);
+				if (provider != null) {
+					next.handled.providers.add(provider);
+					continue;
+				}
+				if (isFull())
+					continue;
+				provider = add(next);
+				expand(provider, !isFull());
 			}
-
 			return sankey;
 		}
 
+		private boolean isFull() {
+			return maxNodes >= 0 && sankey.nodeCount >= maxNodes;
+		}
+
 		private double getTotal(TechFlow product) {
 			if (flow != null)
 				return result.getUpstreamFlowResult(product, flow);
@@ -287,68 +335,79 @@ public class Sankey<T> {
 		}
 
 		/**
-		 * Expands recursively the providers of the given node, that was already
-		 * added to the graph, according to the cutoff rules of this builder.
+		 * Links the given node, that was just added to the graph, with its
+		 * providers that are already in the graph. If `withCandidates` is true,
+		 * the other providers are added to the candidates when they pass the
+		 * cutoff rules.
 		 */
-		private void expand(Node node) {
-			var colA = result.provider.techColumnOf(node.index);
-			for (int i = 0; i < colA.length; i++) {
-				if (i == node.index || colA[i] == 0)
-					continue;
-				var provider = handled.get(i);
+		private void expand(Node node, boolean withCandidates) {
+			var unknown = new TIntArrayList();
+			result.provider.iterateTechColumnOf(node.index, (row, col, val) -> {
+				if (row == node.index)
+					return;
+				var provider = handled.get(row);
 				if (provider != null) {
 					node.providers.add(provider);
-					continue;
+				} else if (withCandidates) {
+					unknown.add(row);
 				}
+			});
+			if (unknown.isEmpty())
+				return;
 
-				// calculate and check the share
-				var product = result.techIndex().at(i);
-				var total = getTotal(product);
+			// fetch the missing totals in a single batch
+			var missing = new TIntArrayList();
+			for (int i = 0; i < unknown.size(); i++) {
+				int product = unknown.getQuick(i);
+				if (!totals.containsKey(product)) {
+					missing.add(product);
+				}
+			}
+			if (!missing.isEmpty()) {
+				var products = missing.toArray();
+				var values = getTotals(products);
+				for (int i = 0; i < products.length; i++) {
+					totals.put(products[i], values[i]);
+				}
+			}
+
+			// check the cutoff rules
+			for (int i = 0; i < unknown.size(); i++) {
+				int product = unknown.getQuick(i);
+				double total = totals.get(product);
 				if (total == 0)
 					continue;
 				var share = Math.abs(total / sankey.root.total);
 				if (share < minShare)
 					continue;
-
-				// construct a candidate node
-				provider = new Node();
-				provider.index = i;
-				provider.direct = getDirect(product);
-				provider.total = total;
-				provider.product = product;
-				provider.share = share;
-
-				// if there is no limit regarding the
-				// node count, add and expand the node
-				if (maxNodes < 0) {
-					add(node, provider);
-					expand(provider);
-					continue;
-				}
-
-				// add is as a candidate
-				if (candidates == null) {
-					candidates = new PriorityQueue<>(
-							(n1, n2) -> Double.compare(n2.share, n1.share));
-				}
-				candidates.add(new Candidate(node, provider));
+				candidates.add(new Candidate(node, product, total, share));
 			}
+		}
 
-			// we add the candidate with the largest share to
-			// the providers.
-			if (candidates == null || candidates.isEmpty())
-				return;
-			var next = candidates.poll();
-			add(next.handled, next.provider);
-			if (sankey.nodeCount < maxNodes) {
-				expand(next.provider);
+		private double[] getTotals(int[] products) {
+			if (flowIdx >= 0) {
+				var values = result.provider.totalFlowValuesOf(flowIdx, products);
+				for (int i = 0; i < values.length; i++) {
+					values[i] = result.adopt(flow, values[i]);
+				}
+				return values;
 			}
+			if (impactIdx >= 0)
+				return result.provider.totalImpactValuesOf(impactIdx, products);
+			return new double[products.length];
 		}
 
-		private void add(Node existing, Node provider) {
-			existing.providers.add(provider);
-			handled.put(provider.index, provider);
+		private Node add(Candidate candidate) {
+			var node = new Node();
+			node.index = candidate.provider;
+			node.product = result.techIndex().at(candidate.provider);
+			node.total = candidate.total;
+			node.direct = getDirect(node.product);
+			node.share = candidate.share;
+			candidate.handled.providers.add(node);
+			handled.put(node.index, node);
 			sankey.nodeCount++;
+			return node;
 		}
 	}
 
@@ -365,19 +424,26 @@ public class Sankey<T> {
 		final Node handled;
 
 		/**
-		 * The provider node that could be added in a next expansion step.
+		 * The matrix index of the provider that could be added in a next
+		 * expansion step.
+		 */
+		final int provider;
+
+		/**
+		 * The total result of the provider candidate.
 		 */
-		final Node provider;
+		final double total;
 
 		/**
 		 * The result share of the provider candidate.
 		 */
 		final double share;
 
-		Candidate(Node handled, Node provider) {
+		Candidate(Node handled, int provider, double total, double share) {
 			this.handled = handled;
 			this.provider = provider;
-			this.share = provider.share;
+			this.total = total;
+			this.share = share;
 		}
 	}
 }
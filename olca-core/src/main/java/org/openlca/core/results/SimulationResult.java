@@ -1,8 +1,9 @@
 package org.openlca.core.results;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Set;
 
 import org.openlca.core.matrix.index.EnviIndex;
@@ -14,25 +15,58 @@ import org.openlca.core.matrix.index.TechIndex;
 import org.openlca.core.model.descriptors.ImpactDescriptor;
 
 /**
- * The results of a Monte-Carlo-Simulation. The single result values of the
- * simulation runs are stored in an array of lists where the flow- and LCIA
- * category indices are mapped to the respective array rows and the result
- * values to the respective list entries.
+ * The results of a Monte-Carlo-Simulation. The result vectors of the
+ * simulation runs are stored in a run store where the flow- and LCIA category
+ * indices are mapped to the respective vector positions. By default, this
+ * store keeps the vectors in memory. When a storage directory is given (see
+ * `of(MatrixData, File)`), the vectors are written to a file in that
+ * directory and are read from a memory mapping of that file.
+ * <p>
+ * Runs can be appended one after another or slots for a number of runs can be
+ * reserved in advance (see `reserve`). The vectors of reserved runs can be set
+ * concurrently from different threads as long as each run is set by exactly
+ * one thread and the results are only read after all threads finished.
  */
 public class SimulationResult extends BaseResult {
 
-	private final List<double[]> flowResults = new ArrayList<>();
-	private final List<double[]> impactResults = new ArrayList<>();
+	private final Series flowResults;
+	private final Series impactResults;
 	private final HashMap<TechFlow, PinnedContributions> pinned = new HashMap<>();
 
 	private final TechIndex techIndex;
 	private final EnviIndex flowIndex;
 	private final ImpactIndex impactIndex;
+	private final File dir;
 
 	public SimulationResult(MatrixData data) {
+		this(data, null);
+	}
+
+	private SimulationResult(MatrixData data, File dir) {
 		this.techIndex = data.techIndex;
 		this.flowIndex = data.enviIndex;
 		this.impactIndex = data.impactIndex;
+		this.dir = dir;
+		flowResults = new Series(flowCount(), dir);
+		impactResults = new Series(impactCount(), dir);
+	}
+
+	/**
+	 * Creates a simulation result that writes the result vectors of the runs
+	 * to a file in the given directory instead of keeping them in memory. If
+	 * the directory is `null`, the vectors are kept in memory. Call `close`
+	 * when the result is not needed anymore to delete that file.
+	 */
+	public static SimulationResult of(MatrixData data, File dir) {
+		return new SimulationResult(data, dir);
+	}
+
+	private int flowCount() {
+		return flowIndex != null ? flowIndex.size() : 0;
+	}
+
+	private int impactCount() {
+		return impactIndex != null ? impactIndex.size() : 0;
 	}
 
 	@Override
@@ -65,6 +99,93 @@ public class SimulationResult extends BaseResult {
 		}
 	}
 
+	/**
+	 * Reserves the slots for the given number of runs and returns the index of
+	 * the first reserved run. The vectors of these runs can then be set via
+	 * `set(run, result)` and `pin(product).set(run)` where the pinned products
+	 * need to be passed into this method. Reserved runs that are not set
+	 * (e.g. because the calculation failed) are removed via `trim`. This
+	 * method is not thread-safe and should be called from the thread that
+	 * coordinates the simulation.
+	 */
+	public int reserve(int runs, Collection<TechFlow> pinnedProducts) {
+		int offset = flowResults.size();
+		flowResults.reserve(offset, runs);
+		impactResults.reserve(offset, runs);
+		if (pinnedProducts != null) {
+			for (var product : pinnedProducts) {
+				pinned.computeIfAbsent(
+					product, p -> new PinnedContributions(this));
+			}
+		}
+		for (var pc : pinned.values()) {
+			pc.directFlows.reserve(offset, runs);
+			pc.upstreamFlows.reserve(offset, runs);
+			pc.directImpacts.reserve(offset, runs);
+			pc.upstreamImpacts.reserve(offset, runs);
+		}
+		return offset;
+	}
+
+	/**
+	 * Sets the total LCI and LCIA result vectors of the given result for the
+	 * given run which must have been reserved before.
+	 */
+	public void set(int run, SimpleResult r) {
+		if (r == null)
+			return;
+		flowResults.set(run, r.totalFlowResults);
+		impactResults.set(run, r.totalImpactResults);
+	}
+
+	/**
+	 * Removes the reserved runs, starting from the given offset, that were not
+	 * set, e.g. because the calculation of the respective run failed. The
+	 * remaining runs are then committed to the store of this result and the
+	 * statistics are updated. Thus, this method needs to be called after the
+	 * reserved runs were calculated.
+	 */
+	public void trim(int offset) {
+		int size = flowResults.size();
+		if (offset < size) {
+			var keep = new boolean[size - offset];
+			for (int i = 0; i < keep.length; i++) {
+				keep[i] = flowResults.isSet(offset + i);
+			}
+			flowResults.retain(offset, keep);
+			impactResults.retain(offset, keep);
+			for (var pc : pinned.values()) {
+				pc.directFlows.retain(offset, keep);
+				pc.upstreamFlows.retain(offset, keep);
+				pc.directImpacts.retain(offset, keep);
+				pc.upstreamImpacts.retain(offset, keep);
+			}
+		}
+		flowResults.commit();
+		impactResults.commit();
+		for (var pc : pinned.values()) {
+			pc.directFlows.commit();
+			pc.upstreamFlows.commit();
+			pc.directImpacts.commit();
+			pc.upstreamImpacts.commit();
+		}
+	}
+
+	/**
+	 * Deletes the stored result vectors of this result. The result should not
+	 * be used after this method was called.
+	 */
+	public void close() {
+		flowResults.close();
+		impactResults.close();
+		for (var pc : pinned.values()) {
+			pc.directFlows.close();
+			pc.upstreamFlows.close();
+			pc.directImpacts.close();
+			pc.upstreamImpacts.close();
+		}
+	}
+
 	/**
 	 * Creates a new pinned contribution for the given product with which direct
 	 * and upstream contributions of this product can be added to this result.
@@ -86,7 +207,7 @@ public class SimulationResult extends BaseResult {
 		if (flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(flowResults, i, arrayIdx));
+		return adopt(flow, flowResults.get(i, arrayIdx));
 	}
 
 	/**
@@ -98,7 +219,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.directFlows, i, arrayIdx));
+		return adopt(flow, pc.directFlows.get(i, arrayIdx));
 	}
 
 	/**
@@ -106,12 +227,10 @@ public class SimulationResult extends BaseResult {
 	 * all iterations.
 	 */
 	public double[] getAllDirect(TechFlow product, EnviFlow flow) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getDirect(product, flow, i);
-		}
-		return vals;
+		var pc = pinned.get(product);
+		if (pc == null || flowIndex == null)
+			return new double[getNumberOfRuns()];
+		return adopt(flow, pc.directFlows.column(flowIndex.of(flow)));
 	}
 
 	/**
@@ -124,7 +243,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.upstreamFlows, i, arrayIdx));
+		return adopt(flow, pc.upstreamFlows.get(i, arrayIdx));
 	}
 
 	/**
@@ -133,23 +252,19 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllUpstream(
 		TechFlow product, EnviFlow flow) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getUpstream(product, flow, i);
-		}
-		return vals;
+		var pc = pinned.get(product);
+		if (pc == null || flowIndex == null)
+			return new double[getNumberOfRuns()];
+		return adopt(flow, pc.upstreamFlows.column(flowIndex.of(flow)));
 	}
 
 	/**
 	 * Get all simulation results of the given flow.
 	 */
 	public double[] getAll(EnviFlow flow) {
-		double[] vals = new double[flowResults.size()];
-		for (int i = 0; i < flowResults.size(); i++) {
-			vals[i] = get(flow, i);
-		}
-		return vals;
+		if (flowIndex == null)
+			return new double[flowResults.size()];
+		return adopt(flow, flowResults.column(flowIndex.of(flow)));
 	}
 
 	/**
@@ -160,7 +275,7 @@ public class SimulationResult extends BaseResult {
 		if (impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(impactResults, i, arrayIdx);
+		return impactResults.get(i, arrayIdx);
 	}
 
 	/**
@@ -173,7 +288,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(pc.directImpacts, i, arrayIdx);
+		return pc.directImpacts.get(i, arrayIdx);
 	}
 
 	/**
@@ -182,12 +297,10 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllDirect(
 		TechFlow product, ImpactDescriptor impact) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getDirect(product, impact, i);
-		}
-		return vals;
+		var pc = pinned.get(product);
+		if (pc == null || impactIndex == null)
+			return new double[getNumberOfRuns()];
+		return pc.directImpacts.column(impactIndex.of(impact));
 	}
 
 	/**
@@ -200,7 +313,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(pc.upstreamImpacts, i, arrayIdx);
+		return pc.upstreamImpacts.get(i, arrayIdx);
 	}
 
 	/**
@@ -209,39 +322,32 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllUpstream(TechFlow product,
 			ImpactDescriptor impact) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getUpstream(product, impact, i);
-		}
-		return vals;
+		var pc = pinned.get(product);
+		if (pc == null || impactIndex == null)
+			return new double[getNumberOfRuns()];
+		return pc.upstreamImpacts.column(impactIndex.of(impact));
 	}
 
 	/**
 	 * Get all simulation results of the given LCIA category.
 	 */
 	public double[] getAll(ImpactDescriptor impact) {
-		double[] vals = new double[impactResults.size()];
-		for (int i = 0; i < impactResults.size(); i++) {
-			vals[i] = get(impact, i);
-		}
-		return vals;
+		if (impactIndex == null)
+			return new double[impactResults.size()];
+		return impactResults.column(impactIndex.of(impact));
 	}
 
 	public int getNumberOfRuns() {
 		return flowResults.size();
 	}
 
-	private static double val(List<double[]> list, int listIdx, int arrayIdx) {
-		if (list == null
-				|| listIdx < 0
-				|| arrayIdx < 0
-				|| list.size() <= listIdx)
-			return 0;
-		double[] vec = list.get(listIdx);
-		if (vec == null || vec.length <= arrayIdx)
-			return 0;
-		return vec[arrayIdx];
+	private double[] adopt(EnviFlow flow, double[] values) {
+		if (flow == null || !flow.isInput())
+			return values;
+		for (int i = 0; i < values.length; i++) {
+			values[i] = adopt(flow, values[i]);
+		}
+		return values;
 	}
 
 	// TODO: no LCC for Monte Carlo simulations ?
@@ -251,10 +357,180 @@ public class SimulationResult extends BaseResult {
 	}
 
 	private static class PinnedContributions {
-		private final List<double[]> directFlows = new ArrayList<>();
-		private final List<double[]> upstreamFlows = new ArrayList<>();
-		private final List<double[]> directImpacts = new ArrayList<>();
-		private final List<double[]> upstreamImpacts = new ArrayList<>();
+		private final Series directFlows;
+		private final Series upstreamFlows;
+		private final Series directImpacts;
+		private final Series upstreamImpacts;
+
+		PinnedContributions(SimulationResult r) {
+			directFlows = new Series(r.flowCount(), r.dir);
+			upstreamFlows = new Series(r.flowCount(), r.dir);
+			directImpacts = new Series(r.impactCount(), r.dir);
+			upstreamImpacts = new Series(r.impactCount(), r.dir);
+		}
+	}
+
+	/**
+	 * The result vectors of the runs for one type of result. The runs that
+	 * are reserved but not committed yet are kept in slots; on commit, they
+	 * are moved to the store.
+	 */
+	private static class Series {
+
+		private final Slots staged = new Slots();
+		private final RunStore store;
+
+		Series(int length, File dir) {
+			store = RunStore.of(length, dir);
+		}
+
+		int size() {
+			return store.size() + staged.size();
+		}
+
+		void add(double[] v) {
+			if (staged.size() > 0) {
+				staged.add(v);
+			} else {
+				store.add(v);
+			}
+		}
+
+		void reserve(int offset, int count) {
+			int committed = store.size();
+			if (offset < committed) {
+				count -= committed - offset;
+				offset = committed;
+			}
+			if (count > 0) {
+				staged.reserve(offset - committed, count);
+			}
+		}
+
+		void set(int run, double[] v) {
+			int i = run - store.size();
+			if (i >= 0 && i < staged.size()) {
+				staged.set(i, v);
+			}
+		}
+
+		boolean isSet(int run) {
+			int i = run - store.size();
+			return i < 0 || staged.get(i) != null;
+		}
+
+		void retain(int offset, boolean[] keep) {
+			int committed = store.size();
+			if (offset < committed)
+				return;
+			staged.retain(offset - committed, keep);
+		}
+
+		void commit() {
+			for (int i = 0; i < staged.size(); i++) {
+				store.add(staged.get(i));
+			}
+			staged.clear();
+		}
+
+		double get(int run, int idx) {
+			if (run < 0 || idx < 0)
+				return 0;
+			int committed = store.size();
+			if (run < committed)
+				return store.get(run, idx);
+			double[] v = staged.get(run - committed);
+			return v == null || v.length <= idx ? 0 : v[idx];
+		}
+
+		double[] column(int idx) {
+			double[] col = store.column(idx);
+			if (staged.size() == 0)
+				return col;
+			int committed = col.length;
+			col = Arrays.copyOf(col, size());
+			for (int i = committed; i < col.length; i++) {
+				col[i] = get(i, idx);
+			}
+			return col;
+		}
+
+		void close() {
+			staged.clear();
+			store.close();
+		}
+	}
+
+	/**
+	 * A growable list of result vectors. The slots of a range of runs can be
+	 * reserved so that their vectors can be set from different threads.
+	 */
+	private static class Slots {
+
+		private double[][] vectors = new double[16][];
+		private int size;
+
+		int size() {
+			return size;
+		}
+
+		double[] get(int i) {
+			return i < size ? vectors[i] : null;
+		}
+
+		void add(double[] v) {
+			ensureCapacity(size + 1);
+			vectors[size++] = v;
+		}
+
+		void set(int i, double[] v) {
+			vectors[i] = v;
+		}
+
+		void clear() {
+			Arrays.fill(vectors, 0, size, null);
+			size = 0;
+		}
+
+		/**
+		 * Reserves the slots [offset, offset + count); if this list is shorter
+		 * than the offset, it is filled up with empty slots.
+		 */
+		void reserve(int offset, int count) {
+			int end = offset + count;
+			ensureCapacity(end);
+			if (end > size) {
+				size = end;
+			}
+		}
+
+		/**
+		 * Keeps the slot offset + i if keep[i] is true and removes it otherwise.
+		 */
+		void retain(int offset, boolean[] keep) {
+			int pos = offset;
+			for (int i = 0; i < keep.length; i++) {
+				int idx = offset + i;
+				if (idx >= size)
+					break;
+				if (keep[i]) {
+					vectors[pos++] = vectors[idx];
+				}
+			}
+			int end = Math.min(size, offset + keep.length);
+			int tail = size - end;
+			System.arraycopy(vectors, end, vectors, pos, tail);
+			int newSize = pos + tail;
+			Arrays.fill(vectors, newSize, size, null);
+			size = newSize;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= vectors.length)
+				return;
+			int next = Math.max(capacity, vectors.length + (vectors.length >> 1));
+			vectors = Arrays.copyOf(vectors, next);
+		}
 	}
 
 	public static class PinnedContribution {
@@ -296,7 +572,7 @@ public class SimulationResult extends BaseResult {
 
 		public void add() {
 			var pinned = result.pinned.computeIfAbsent(
-				product, p -> new PinnedContributions());
+				product, p -> new PinnedContributions(result));
 			if (directFlows != null) {
 				pinned.directFlows.add(directFlows);
 			}
@@ -311,5 +587,19 @@ public class SimulationResult extends BaseResult {
 			}
 		}
 
+		/**
+		 * Sets the vectors of this contribution for the given run. The run and
+		 * the product must have been reserved before (see `reserve`).
+		 */
+		public void set(int run) {
+			var pinned = result.pinned.get(product);
+			if (pinned == null)
+				return;
+			pinned.directFlows.set(run, directFlows);
+			pinned.upstreamFlows.set(run, upstreamFlows);
+			pinned.directImpacts.set(run, directImpacts);
+			pinned.upstreamImpacts.set(run, upstreamImpacts);
+		}
+
 	}
 }
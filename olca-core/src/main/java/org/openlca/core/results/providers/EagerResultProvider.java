@@ -4,7 +4,9 @@ import org.openlca.core.matrix.index.EnviIndex;
 import org.openlca.core.matrix.index.ImpactIndex;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.format.EntryFunction;
 import org.openlca.core.matrix.format.Matrix;
+import org.openlca.core.matrix.solvers.FactorizationCache;
 import org.openlca.core.matrix.solvers.MatrixSolver;
 
 public class EagerResultProvider implements ResultProvider {
@@ -28,13 +30,15 @@ public class EagerResultProvider implements ResultProvider {
 	private double[] directCosts;
 	private double[] totalCostsOfOne;
 
-	private EagerResultProvider(MatrixData data) {
+	private EagerResultProvider(MatrixData data, FactorizationCache cache) {
 		this.data = data;
 
 		// product and waste flows
 		var techIdx = data.techIndex;
 		var solver = MatrixSolver.Instance.getNew();
-		inverse = solver.invert(data.techMatrix);
+		inverse = cache != null
+				? cache.invert(solver, techIdx, data.techMatrix)
+				: solver.invert(data.techMatrix);
 		var refIdx = techIdx.of(techIdx.getRefFlow());
 		scalingVector = inverse.getColumn(refIdx);
 		var demand = techIdx.getDemand();
@@ -99,7 +103,17 @@ public class EagerResultProvider implements ResultProvider {
 	}
 
 	public static EagerResultProvider create(MatrixData data) {
-		return new EagerResultProvider(data);
+		return new EagerResultProvider(data, null);
+	}
+
+	/**
+	 * Creates a provider that takes the inverse of the technology matrix from
+	 * the given cache. If the cache is `null`, the matrix is inverted without
+	 * caching.
+	 */
+	public static EagerResultProvider create(
+			MatrixData data, FactorizationCache cache) {
+		return new EagerResultProvider(data, cache);
 	}
 
 	@Override
@@ -147,6 +161,11 @@ public class EagerResultProvider implements ResultProvider {
 		return data.techMatrix.getColumn(j);
 	}
 
+	@Override
+	public void iterateTechColumnOf(int product, EntryFunction fn) {
+		data.techMatrix.iterateColumn(product, fn);
+	}
+
 	@Override
 	public double techValueOf(int row, int col) {
 		return data.techMatrix.get(row, col);
@@ -212,6 +231,11 @@ public class EagerResultProvider implements ResultProvider {
 		return totals;
 	}
 
+	@Override
+	public double[] totalFlowValuesOf(int flow, int[] products) {
+		return rowValuesOf(totalFlowsOfOne, flow, products);
+	}
+
 	@Override
 	public double[] totalFlows() {
 		return totalFlows == null
@@ -280,6 +304,27 @@ public class EagerResultProvider implements ResultProvider {
 				: totalImpactsOfOne.get(indicator, product);
 	}
 
+	@Override
+	public double[] totalImpactValuesOf(int indicator, int[] products) {
+		return rowValuesOf(totalImpactsOfOne, indicator, products);
+	}
+
+	/**
+	 * Takes the values of the given products directly from the given row of
+	 * the matrix with the totals of one unit of each product and scales them
+	 * to the final demand.
+	 */
+	private double[] rowValuesOf(Matrix totalsOfOne, int row, int[] products) {
+		var values = new double[products.length];
+		if (totalsOfOne == null)
+			return values;
+		for (int i = 0; i < products.length; i++) {
+			int product = products[i];
+			values[i] = totalFactorOf(product) * totalsOfOne.get(row, product);
+		}
+		return values;
+	}
+
 	@Override
 	public double[] totalImpacts() {
 		return totalImpacts == null
@@ -101,6 +101,17 @@ public class LazyLibraryProvider implements ResultProvider {
 		return provider;
 	}
 
+	/**
+	 * Closes the libraries of this provider and releases their mapped matrices
+	 * so that the library files are not locked anymore. The matrices are mapped
+	 * again when the provider is used after it was disposed.
+	 */
+	public void dispose() {
+		for (var lib : libraries.values()) {
+			lib.close();
+		}
+	}
+
 	/**
 	 * Creates the combined tech. index. It recursively loads the tech. indices of
 	 * the linked libraries first (recursively, because a library can link another
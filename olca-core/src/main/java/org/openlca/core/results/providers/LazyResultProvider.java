@@ -4,8 +4,10 @@ import org.openlca.core.matrix.index.EnviIndex;
 import org.openlca.core.matrix.index.ImpactIndex;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.format.EntryFunction;
 import org.openlca.core.matrix.format.Matrix;
 import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.FactorizationCache;
 import org.openlca.core.matrix.solvers.MatrixSolver;
 
 import gnu.trove.map.hash.TIntObjectHashMap;
@@ -15,6 +17,7 @@ public class LazyResultProvider implements ResultProvider {
 	private final MatrixData data;
 	private final MatrixSolver solver;
 	private final Factorization factorization;
+	private Factorization transposedFactorization;
 
 	private final double[] scalingVector;
 	private double[] totalRequirements;
@@ -31,10 +34,12 @@ public class LazyResultProvider implements ResultProvider {
 	private final double[] directCosts;
 	private final double totalCosts;
 
-	private LazyResultProvider(MatrixData data) {
+	private LazyResultProvider(MatrixData data, FactorizationCache cache) {
 		this.data = data;
 		this.solver = MatrixSolver.Instance.getNew();
-		this.factorization = solver.factorize(data.techMatrix);
+		this.factorization = cache != null
+				? cache.factorize(solver, data.techIndex, data.techMatrix)
+				: solver.factorize(data.techMatrix);
 
 		solutions = new TIntObjectHashMap<>();
 		totalFlowsOfOne = data.enviMatrix == null
@@ -79,7 +84,17 @@ public class LazyResultProvider implements ResultProvider {
 	}
 
 	public static LazyResultProvider create(MatrixData data) {
-		return new LazyResultProvider(data);
+		return new LazyResultProvider(data, null);
+	}
+
+	/**
+	 * Creates a provider that takes the factorization of the technology
+	 * matrix from the given cache. If the cache is `null`, the matrix is
+	 * factorized without caching.
+	 */
+	public static LazyResultProvider create(
+			MatrixData data, FactorizationCache cache) {
+		return new LazyResultProvider(data, cache);
 	}
 
 	@Override
@@ -134,6 +149,11 @@ public class LazyResultProvider implements ResultProvider {
 		return data.techMatrix.getColumn(j);
 	}
 
+	@Override
+	public void iterateTechColumnOf(int product, EntryFunction fn) {
+		data.techMatrix.iterateColumn(product, fn);
+	}
+
 	@Override
 	public double techValueOf(int row, int col) {
 		return data.techMatrix.get(row, col);
@@ -209,6 +229,20 @@ public class LazyResultProvider implements ResultProvider {
 		return totals;
 	}
 
+	/**
+	 * Calculates the row of the given flow in the matrix of total flows per
+	 * unit of product $\mathbf{M} = \mathbf{B} \mathbf{A}^{-1}$ with a single
+	 * solve of the transposed system $\mathbf{A}^T \mathbf{x} = \mathbf{B}[k,:]^T$
+	 * instead of one solution per product.
+	 */
+	@Override
+	public double[] totalFlowValuesOf(int flow, int[] products) {
+		if (data.enviMatrix == null)
+			return new double[products.length];
+		var row = data.enviMatrix.getRow(flow);
+		return valuesOf(transposedFactorization().solve(row), products);
+	}
+
 	@Override
 	public double[] totalFlows() {
 		return totalFlows == null
@@ -287,6 +321,41 @@ public class LazyResultProvider implements ResultProvider {
 		return h;
 	}
 
+	/**
+	 * Same as `totalFlowValuesOf` but with the row of the given indicator in
+	 * $\mathbf{C} \mathbf{B}$ as right-hand side of the transposed system.
+	 */
+	@Override
+	public double[] totalImpactValuesOf(int indicator, int[] products) {
+		if (data.enviMatrix == null || data.impactMatrix == null)
+			return new double[products.length];
+		var factors = data.impactMatrix.getRow(indicator);
+		var row = new double[data.enviMatrix.columns()];
+		data.enviMatrix.iterate((flow, product, value) ->
+				row[product] += factors[flow] * value);
+		return valuesOf(transposedFactorization().solve(row), products);
+	}
+
+	private double[] valuesOf(double[] totalsOfOne, int[] products) {
+		var values = new double[products.length];
+		for (int i = 0; i < products.length; i++) {
+			int product = products[i];
+			values[i] = totalFactorOf(product) * totalsOfOne[product];
+		}
+		return values;
+	}
+
+	private Factorization transposedFactorization() {
+		if (transposedFactorization != null)
+			return transposedFactorization;
+		int n = data.techMatrix.rows();
+		var transposed = solver.matrix(n, n);
+		data.techMatrix.iterate((row, col, value) ->
+				transposed.set(col, row, value));
+		transposedFactorization = solver.factorize(transposed);
+		return transposedFactorization;
+	}
+
 	@Override
 	public double[] totalImpacts() {
 		return totalImpacts == null
@@ -2,6 +2,7 @@ package org.openlca.core.results.providers;
 
 import java.util.Arrays;
 
+import org.openlca.core.matrix.format.EntryFunction;
 import org.openlca.core.matrix.index.ImpactIndex;
 import org.openlca.core.matrix.index.EnviIndex;
 import org.openlca.core.matrix.index.TechIndex;
@@ -128,6 +129,20 @@ public interface ResultProvider {
 	 */
 	double[] techColumnOf(int product);
 
+	/**
+	 * Calls the given function for each non-zero value $a_{ij}$ in the column
+	 * $j$ of the technology matrix $A$. Implementations that have access to
+	 * a sparse matrix should overwrite this and only visit the stored values.
+	 */
+	default void iterateTechColumnOf(int product, EntryFunction fn) {
+		var column = techColumnOf(product);
+		for (int row = 0; row < column.length; row++) {
+			if (column[row] != 0) {
+				fn.value(row, product, column[row]);
+			}
+		}
+	}
+
 	/**
 	 * Get the unscaled value $a_{ij}$ from the technology matrix $A$.
 	 */
@@ -243,6 +258,20 @@ public interface ResultProvider {
 		return totalFactorOf(product) * totalFlowOfOne(flow, product);
 	}
 
+	/**
+	 * Returns the total flow results (direct + upstream) of the given flow for
+	 * each of the given products, related to the final demand of the system.
+	 * This is the batch version of `totalFlowOf` for callers that need the
+	 * values of many products, like graph builders.
+	 */
+	default double[] totalFlowValuesOf(int flow, int[] products) {
+		var values = new double[products.length];
+		for (int i = 0; i < products.length; i++) {
+			values[i] = totalFlowOf(flow, products[i]);
+		}
+		return values;
+	}
+
 	/**
 	 * The inventory result $\mathbf{g}$ of the product system:
 	 * <p>
@@ -339,6 +368,19 @@ public interface ResultProvider {
 		return totalFactorOf(product) * totalImpactOfOne(indicator, product);
 	}
 
+	/**
+	 * Returns the total impact results (direct + upstream) of the given
+	 * indicator for each of the given products, related to the final demand of
+	 * the system. This is the batch version of `totalImpactOf`.
+	 */
+	default double[] totalImpactValuesOf(int indicator, int[] products) {
+		var values = new double[products.length];
+		for (int i = 0; i < products.length; i++) {
+			values[i] = totalImpactOf(indicator, products[i]);
+		}
+		return values;
+	}
+
 	double[] totalImpacts();
 
 	/**
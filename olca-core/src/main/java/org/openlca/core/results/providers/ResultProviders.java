@@ -2,39 +2,75 @@ package org.openlca.core.results.providers;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.matrix.MatrixData;
-import org.openlca.core.matrix.solvers.JavaSolver;
-import org.openlca.julia.Julia;
-import org.openlca.julia.JuliaSolver;
+import org.openlca.core.matrix.solvers.FactorizationCache;
+import org.openlca.core.matrix.solvers.MatrixSolver;
 
 public final class ResultProviders {
 
 	private ResultProviders() {
 	}
 
+	/**
+	 * Creates an eager result provider that uses the default factorization
+	 * cache, if one is set (see `FactorizationCache.getDefault`).
+	 */
 	public static ResultProvider eagerOf(IDatabase db, MatrixData data) {
-		var solver = Julia.isLoaded()
-			? new JuliaSolver()
-			: new JavaSolver();
+		return eagerOf(db, data, FactorizationCache.getDefault());
+	}
+
+	/**
+	 * Creates an eager result provider that takes the factorization or
+	 * inverse of the technology matrix from the given cache. If the cache is
+	 * `null`, no caching is done.
+	 */
+	public static ResultProvider eagerOf(
+		IDatabase db, MatrixData data, FactorizationCache cache) {
+		var solver = MatrixSolver.Instance.getNew();
 		if (data.hasLibraryLinks())
 			return LazyLibraryProvider.of(db, data);
 
 		var isSmall = data.techMatrix != null
 									&& data.techMatrix.rows() < 3000;
 		if (isSmall)
-			return EagerResultProvider.create(data);
+			return EagerResultProvider.create(data, cache);
 		return data.isSparse() && solver.hasSparseSupport()
-			? LazyResultProvider.create(data)
-			: EagerResultProvider.create(data);
+			? LazyResultProvider.create(data, cache)
+			: EagerResultProvider.create(data, cache);
 	}
 
+	/**
+	 * Creates a lazy result provider that uses the default factorization
+	 * cache, if one is set (see `FactorizationCache.getDefault`).
+	 */
 	public static ResultProvider lazyOf(IDatabase db, MatrixData data) {
-		var solver = Julia.isLoaded()
-			? new JuliaSolver()
-			: new JavaSolver();
+		return lazyOf(db, data, FactorizationCache.getDefault());
+	}
+
+	/**
+	 * Creates a lazy result provider that takes the factorization or inverse
+	 * of the technology matrix from the given cache. If the cache is `null`,
+	 * no caching is done, e.g. in Monte-Carlo simulations where the matrix
+	 * changes in every iteration.
+	 */
+	public static ResultProvider lazyOf(
+		IDatabase db, MatrixData data, FactorizationCache cache) {
+		var solver = MatrixSolver.Instance.getNew();
 		if (data.hasLibraryLinks())
 			return LazyLibraryProvider.of(db, data);
 		return data.isSparse() && solver.hasSparseSupport()
-			? LazyResultProvider.create(data)
-			: EagerResultProvider.create(data);
+			? LazyResultProvider.create(data, cache)
+			: EagerResultProvider.create(data, cache);
+	}
+
+	/**
+	 * Creates a result provider for a single run of a Monte-Carlo simulation.
+	 * The technology matrix is factorized once and only the vectors that are
+	 * requested are solved; the inverse or full result matrices are never
+	 * calculated (see `SimulationResultProvider`).
+	 */
+	public static ResultProvider simulationOf(IDatabase db, MatrixData data) {
+		if (data.hasLibraryLinks())
+			return LazyLibraryProvider.of(db, data);
+		return SimulationResultProvider.of(data);
 	}
 }
@@ -0,0 +1,267 @@
+package org.openlca.core.results.providers;
+
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.index.EnviIndex;
+import org.openlca.core.matrix.index.ImpactIndex;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.MatrixSolver;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * A result provider for the runs of a Monte-Carlo simulation. In a simulation
+ * run, we typically only need the total results of the product system and
+ * the direct and upstream results of a few pinned products. Thus, this
+ * provider never inverts the technology matrix or calculates full result
+ * matrices (like $\mathbf{B} \mathbf{A}^{-1}$), independent of the solver and
+ * matrix format. The technology matrix is factorized once and only the
+ * scaling vector is solved when the provider is created. Everything that is
+ * related to a single product is calculated on demand from the respective
+ * columns of the matrices and the solution of that product.
+ */
+public class SimulationResultProvider implements ResultProvider {
+
+	private final MatrixData data;
+	private final MatrixSolver solver;
+	private final Factorization factorization;
+	private final TIntObjectHashMap<double[]> solutions;
+
+	private final double[] scalingVector;
+	private final double[] totalFlows;
+	private final double[] totalImpacts;
+	private final double totalCosts;
+	private double[] totalRequirements;
+
+	private SimulationResultProvider(MatrixData data, MatrixSolver solver,
+		Factorization factorization) {
+		this.data = data;
+		this.solver = solver;
+		this.factorization = factorization;
+		this.solutions = new TIntObjectHashMap<>();
+
+		// the scaling vector is the only right-hand side that we solve
+		var techIndex = data.techIndex;
+		int refIdx = techIndex.of(techIndex.getRefFlow());
+		scalingVector = factorization.solve(refIdx, techIndex.getDemand());
+
+		totalFlows = data.enviMatrix != null
+			? solver.multiply(data.enviMatrix, scalingVector)
+			: null;
+		totalImpacts = totalFlows != null && data.impactMatrix != null
+			? solver.multiply(data.impactMatrix, totalFlows)
+			: null;
+
+		if (data.costVector == null) {
+			totalCosts = 0;
+		} else {
+			double c = 0;
+			for (int i = 0; i < scalingVector.length; i++) {
+				c += data.costVector[i] * scalingVector[i];
+			}
+			totalCosts = c;
+		}
+	}
+
+	public static SimulationResultProvider of(MatrixData data) {
+		return of(data, MatrixSolver.Instance.getNew());
+	}
+
+	public static SimulationResultProvider of(
+		MatrixData data, MatrixSolver solver) {
+		return new SimulationResultProvider(
+			data, solver, solver.factorize(data.techMatrix));
+	}
+
+	/**
+	 * Creates a provider with the given factorization of the technology
+	 * matrix of the data, e.g. one that was calculated from a symbolic
+	 * factorization which is reused in the runs of a simulation (see
+	 * `MatrixSolver.analyze`).
+	 */
+	public static SimulationResultProvider of(MatrixData data,
+		MatrixSolver solver, Factorization factorization) {
+		return new SimulationResultProvider(data, solver, factorization);
+	}
+
+	/**
+	 * Releases the factorization of the technology matrix. The provider
+	 * cannot calculate results of single products after it was disposed.
+	 */
+	public void dispose() {
+		if (!factorization.isDisposed()) {
+			factorization.dispose();
+		}
+	}
+
+	@Override
+	public TechIndex techIndex() {
+		return data.techIndex;
+	}
+
+	@Override
+	public EnviIndex flowIndex() {
+		return data.enviIndex;
+	}
+
+	@Override
+	public ImpactIndex impactIndex() {
+		return data.impactIndex;
+	}
+
+	@Override
+	public boolean hasCosts() {
+		return !isEmpty(data.costVector);
+	}
+
+	@Override
+	public double[] scalingVector() {
+		return scalingVector;
+	}
+
+	@Override
+	public double scalingFactorOf(int product) {
+		return scalingVector[product];
+	}
+
+	@Override
+	public double[] totalRequirements() {
+		if (totalRequirements != null)
+			return totalRequirements;
+		var t = data.techMatrix.diag();
+		for (int i = 0; i < t.length; i++) {
+			t[i] *= scalingVector[i];
+		}
+		totalRequirements = t;
+		return t;
+	}
+
+	@Override
+	public double totalRequirementsOf(int product) {
+		return totalRequirements()[product];
+	}
+
+	@Override
+	public double[] techColumnOf(int product) {
+		return data.techMatrix.getColumn(product);
+	}
+
+	@Override
+	public double techValueOf(int row, int col) {
+		return data.techMatrix.get(row, col);
+	}
+
+	@Override
+	public double[] solutionOfOne(int product) {
+		var s = solutions.get(product);
+		if (s != null)
+			return s;
+		s = factorization.solve(product, 1.0);
+		solutions.put(product, s);
+		return s;
+	}
+
+	@Override
+	public double loopFactorOf(int product) {
+		var aii = data.techMatrix.get(product, product);
+		var eii = solutionOfOne(product)[product];
+		var f = aii * eii;
+		return f == 0
+			? 0
+			: 1 / f;
+	}
+
+	@Override
+	public double[] unscaledFlowsOf(int product) {
+		return data.enviMatrix == null
+			? EMPTY_VECTOR
+			: data.enviMatrix.getColumn(product);
+	}
+
+	@Override
+	public double unscaledFlowOf(int flow, int product) {
+		return data.enviMatrix == null
+			? 0
+			: data.enviMatrix.get(flow, product);
+	}
+
+	@Override
+	public double[] directFlowsOf(int product) {
+		var flows = unscaledFlowsOf(product);
+		scaleInPlace(flows, scalingVector[product]);
+		return flows;
+	}
+
+	@Override
+	public double[] totalFlowsOfOne(int product) {
+		if (data.enviMatrix == null)
+			return EMPTY_VECTOR;
+		return solver.multiply(data.enviMatrix, solutionOfOne(product));
+	}
+
+	@Override
+	public double[] totalFlows() {
+		return totalFlows == null
+			? EMPTY_VECTOR
+			: totalFlows;
+	}
+
+	@Override
+	public double[] impactFactorsOf(int flow) {
+		return data.impactMatrix == null
+			? EMPTY_VECTOR
+			: data.impactMatrix.getColumn(flow);
+	}
+
+	@Override
+	public double impactFactorOf(int indicator, int flow) {
+		return data.impactMatrix == null
+			? 0
+			: data.impactMatrix.get(indicator, flow);
+	}
+
+	@Override
+	public double[] directImpactsOf(int product) {
+		if (data.impactMatrix == null || data.enviMatrix == null)
+			return EMPTY_VECTOR;
+		return solver.multiply(data.impactMatrix, directFlowsOf(product));
+	}
+
+	@Override
+	public double[] totalImpactsOfOne(int product) {
+		if (data.impactMatrix == null || data.enviMatrix == null)
+			return EMPTY_VECTOR;
+		return solver.multiply(data.impactMatrix, totalFlowsOfOne(product));
+	}
+
+	@Override
+	public double[] totalImpacts() {
+		return totalImpacts == null
+			? EMPTY_VECTOR
+			: totalImpacts;
+	}
+
+	@Override
+	public double directCostsOf(int product) {
+		return data.costVector == null
+			? 0
+			: data.costVector[product] * scalingVector[product];
+	}
+
+	@Override
+	public double totalCostsOfOne(int product) {
+		if (data.costVector == null)
+			return 0;
+		var s = solutionOfOne(product);
+		double c = 0;
+		for (int j = 0; j < s.length; j++) {
+			c += s[j] * data.costVector[j];
+		}
+		return c;
+	}
+
+	@Override
+	public double totalCosts() {
+		return totalCosts;
+	}
+}
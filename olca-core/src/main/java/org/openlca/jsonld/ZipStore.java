@@ -31,6 +31,10 @@ public class ZipStore implements EntityStore {
 
 	private final static String META_INFO_PATH = "meta.info";
 	private final static String CONTEXT_PATH = "context.json";
+
+	/** Gson instances are thread-safe, so we can share a single instance. */
+	private final static Gson gson = new Gson();
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private FileSystem zip;
 
@@ -92,7 +96,7 @@ public class ZipStore implements EntityStore {
 		if (object == null)
 			return;
 		try {
-			String json = new Gson().toJson(object);
+			String json = gson.toJson(object);
 			byte[] data = json.getBytes("utf-8");
 			put(path, data);
 		} catch (Exception e) {
@@ -168,7 +172,7 @@ public class ZipStore implements EntityStore {
 
 	private JsonObject toJsonObject(byte[] data) throws Exception {
 		String json = new String(data, "utf-8");
-		JsonElement e = new Gson().fromJson(json, JsonElement.class);
+		JsonElement e = gson.fromJson(json, JsonElement.class);
 		return e.isJsonObject() ? e.getAsJsonObject() : null;
 	}
 
@@ -40,7 +40,11 @@ import org.openlca.core.model.Source;
 import org.openlca.core.model.Unit;
 import org.openlca.core.model.UnitGroup;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 class Db {
@@ -65,6 +69,15 @@ class Db {
 	private final Map<String, Long> projectIds = new HashMap<>();
 	public Map<String, String> categoryRefIdMapping = new HashMap<>();
 
+	/**
+	 * New flows and processes that are not yet inserted when batch inserts are
+	 * enabled: type -> refId -> entity. These types are never referenced by
+	 * other data sets of the same type, so that they can be inserted later.
+	 */
+	private final Map<ModelType, Map<String, RootEntity>> pending =
+			new EnumMap<>(ModelType.class);
+	private boolean batchInserts;
+
 	private final IDatabase db;
 
 	public Db(IDatabase db) {
@@ -75,8 +88,48 @@ class Db {
 		return db;
 	}
 
+	/**
+	 * When enabled, new flows and processes are not directly inserted but
+	 * collected until `flush` is called. They get their IDs in that call.
+	 */
+	void setBatchInserts(boolean batchInserts) {
+		this.batchInserts = batchInserts;
+	}
+
+	/**
+	 * Inserts the collected new entities in a single transaction per type.
+	 */
+	void flush() {
+		for (var type : pending.keySet()) {
+			var entities = pending.get(type);
+			if (entities.isEmpty())
+				continue;
+			insertAll(type, new ArrayList<>(entities.values()));
+			var ids = type == ModelType.FLOW ? flowIds : processIds;
+			for (var entity : entities.values()) {
+				ids.put(entity.refId, entity.id);
+			}
+			entities.clear();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void insertAll(ModelType type, List<RootEntity> entities) {
+		if (type == ModelType.FLOW) {
+			new FlowDao(db).insertAll((List<Flow>) (List<?>) entities);
+		} else {
+			new ProcessDao(db).insertAll((List<Process>) (List<?>) entities);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	<T extends RootEntity> T get(ModelType modelType, String refId) {
+		var batch = pending.get(modelType);
+		if (batch != null) {
+			var entity = batch.get(refId);
+			if (entity != null)
+				return (T) entity;
+		}
 		switch (modelType) {
 		case PROJECT:
 			return (T) get(new ProjectDao(db), refId, projectIds);
@@ -126,6 +179,12 @@ class Db {
 		ModelType modelType = ModelType.forModelClass(entity.getClass());
 		if (modelType == null)
 			throw new RuntimeException(entity.getClass().getCanonicalName() + " not supported");
+		if (batchInserts && entity.id == 0L
+				&& (modelType == ModelType.FLOW || modelType == ModelType.PROCESS)) {
+			pending.computeIfAbsent(modelType, k -> new LinkedHashMap<>())
+					.put(entity.refId, entity);
+			return entity;
+		}
 		switch (modelType) {
 		case PROJECT:
 			return (T) put(new ProjectDao(db), (Project) entity, projectIds);
@@ -6,6 +6,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
@@ -26,11 +27,40 @@ import com.google.gson.JsonObject;
 
 public class JsonImport implements Runnable {
 
+	/**
+	 * The types in the order in which they are imported: a data set can only
+	 * reference data sets of types that are imported before its own type
+	 * (except for categories, units, and the default providers of processes,
+	 * which are handled separately).
+	 */
+	private static final ModelType[] TYPES = {
+			ModelType.CATEGORY,
+			ModelType.DQ_SYSTEM,
+			ModelType.LOCATION,
+			ModelType.ACTOR,
+			ModelType.SOURCE,
+			ModelType.PARAMETER,
+			ModelType.UNIT_GROUP,
+			ModelType.FLOW_PROPERTY,
+			ModelType.CURRENCY,
+			ModelType.FLOW,
+			ModelType.IMPACT_CATEGORY,
+			ModelType.IMPACT_METHOD,
+			ModelType.SOCIAL_INDICATOR,
+			ModelType.PROCESS,
+			ModelType.PRODUCT_SYSTEM,
+			ModelType.PROJECT,
+	};
+
+	/** The number of data sets of a batch in the bulk mode. */
+	private static final int BATCH_SIZE = 1000;
+
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final IDatabase database;
 	private final EntityStore store;
 	private UpdateMode updateMode = UpdateMode.NEVER;
 	private Consumer<RootEntity> callback;
+	private boolean bulkMode;
 
 	public JsonImport(EntityStore store, IDatabase db) {
 		this.store = store;
@@ -47,12 +77,80 @@ public class JsonImport implements Runnable {
 		return this;
 	}
 
+	/**
+	 * Sets whether the bulk mode should be used in the import of the complete
+	 * store (via `run()`). In this mode, the data sets of each type are
+	 * imported in batches: the JSON objects of a batch are read and parsed in
+	 * parallel and new flows and processes of a batch are inserted in a single
+	 * transaction (and thus in JDBC batches). Note that a callback is called
+	 * with the new flows and processes before they are inserted in this mode
+	 * and thus before they have an ID.
+	 */
+	public JsonImport setBulkMode(boolean bulkMode) {
+		this.bulkMode = bulkMode;
+		return this;
+	}
+
 	public void run(ModelType type, String id) {
 		checkSchemaSupported();
 		if (type == null || id == null)
 			return;
 		ImportConfig conf = ImportConfig.create(
 				new Db(database), store, updateMode, callback);
+		runImport(type, id, conf);
+		if (type == ModelType.PROCESS) {
+			try {
+				setProviders(conf);
+			} catch (SQLException e) {
+				log.error("Error setting providers", e);
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		checkSchemaSupported();
+		if (bulkMode) {
+			runBulk();
+			return;
+		}
+		ImportConfig conf = ImportConfig.create(new Db(database), store, updateMode, callback);
+		for (ModelType type : TYPES) {
+			for (String refId : store.getRefIds(type))
+				runImport(type, refId, conf);
+		}
+		try {
+			setProviders(conf);
+		} catch (SQLException e) {
+			log.error("Error setting providers", e);
+		}
+	}
+
+	private void runBulk() {
+		var prefetch = new PrefetchStore(store);
+		var db = new Db(database);
+		db.setBatchInserts(true);
+		ImportConfig conf = ImportConfig.create(db, prefetch, updateMode, callback);
+		for (ModelType type : TYPES) {
+			List<String> refIds = store.getRefIds(type);
+			for (int start = 0; start < refIds.size(); start += BATCH_SIZE) {
+				int end = Math.min(refIds.size(), start + BATCH_SIZE);
+				var batch = refIds.subList(start, end);
+				prefetch.prefetch(type, batch);
+				for (String refId : batch)
+					runImport(type, refId, conf);
+				db.flush();
+			}
+		}
+		try {
+			// the default providers are set in a single pass at the end
+			setProviders(conf);
+		} catch (SQLException e) {
+			log.error("Error setting providers", e);
+		}
+	}
+
+	private void runImport(ModelType type, String id, ImportConfig conf) {
 		switch (type) {
 		case CATEGORY:
 			CategoryImport.run(id, conf);
@@ -95,11 +193,6 @@ public class JsonImport implements Runnable {
 			break;
 		case PROCESS:
 			ProcessImport.run(id, conf);
-			try {
-				setProviders(conf);
-			} catch (SQLException e) {
-				log.error("Error setting providers", e);
-			}
 			break;
 		case PRODUCT_SYSTEM:
 			ProductSystemImport.run(id, conf);
@@ -112,49 +205,6 @@ public class JsonImport implements Runnable {
 		}
 	}
 
-	@Override
-	public void run() {
-		checkSchemaSupported();
-		ImportConfig conf = ImportConfig.create(new Db(database), store, updateMode, callback);
-		for (String catId : store.getRefIds(ModelType.CATEGORY))
-			CategoryImport.run(catId, conf);
-		for (String sysId : store.getRefIds(ModelType.DQ_SYSTEM))
-			DQSystemImport.run(sysId, conf);
-		for (String locId : store.getRefIds(ModelType.LOCATION))
-			LocationImport.run(locId, conf);
-		for (String actorId : store.getRefIds(ModelType.ACTOR))
-			ActorImport.run(actorId, conf);
-		for (String sourceId : store.getRefIds(ModelType.SOURCE))
-			SourceImport.run(sourceId, conf);
-		for (String paramId : store.getRefIds(ModelType.PARAMETER))
-			ParameterImport.run(paramId, conf);
-		for (String groupId : store.getRefIds(ModelType.UNIT_GROUP))
-			UnitGroupImport.run(groupId, conf);
-		for (String propId : store.getRefIds(ModelType.FLOW_PROPERTY))
-			FlowPropertyImport.run(propId, conf);
-		for (String currId : store.getRefIds(ModelType.CURRENCY))
-			CurrencyImport.run(currId, conf);
-		for (String flowId : store.getRefIds(ModelType.FLOW))
-			FlowImport.run(flowId, conf);
-		for (String id : store.getRefIds(ModelType.IMPACT_CATEGORY))
-			ImpactCategoryImport.run(id, conf);
-		for (String methodId : store.getRefIds(ModelType.IMPACT_METHOD))
-			ImpactMethodImport.run(methodId, conf);
-		for (String indicatorId : store.getRefIds(ModelType.SOCIAL_INDICATOR))
-			SocialIndicatorImport.run(indicatorId, conf);
-		for (String processId : store.getRefIds(ModelType.PROCESS))
-			ProcessImport.run(processId, conf);
-		for (String systemId : store.getRefIds(ModelType.PRODUCT_SYSTEM))
-			ProductSystemImport.run(systemId, conf);
-		for (String projectId : store.getRefIds(ModelType.PROJECT))
-			ProjectImport.run(projectId, conf);
-		try {
-			setProviders(conf);
-		} catch (SQLException e) {
-			log.error("Error setting providers", e);
-		}
-	}
-
 	private void setProviders(ImportConfig conf) throws SQLException {
 		log.debug("Preparing to set providers");
 		if (conf.providerInfo.isEmpty())
@@ -0,0 +1,112 @@
+package org.openlca.jsonld.input;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.jsonld.EntityStore;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Wraps an entity store and reads and parses the JSON objects of a set of
+ * data sets in parallel before they are imported. A prefetched object is
+ * returned only once from this store and then removed from its cache; all
+ * other calls are directly passed to the wrapped store.
+ */
+class PrefetchStore implements EntityStore {
+
+	private final EntityStore store;
+	private final Map<String, JsonObject> cache = new ConcurrentHashMap<>();
+
+	PrefetchStore(EntityStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Reads the JSON objects of the given data sets in parallel into the
+	 * cache of this store.
+	 */
+	void prefetch(ModelType type, List<String> refIds) {
+		cache.clear();
+		refIds.parallelStream().forEach(refId -> {
+			var obj = store.get(type, refId);
+			if (obj != null) {
+				cache.put(key(type, refId), obj);
+			}
+		});
+	}
+
+	private static String key(ModelType type, String refId) {
+		return type.name() + "/" + refId;
+	}
+
+	@Override
+	public JsonObject get(ModelType type, String refId) {
+		if (type == null || refId == null)
+			return null;
+		var obj = cache.remove(key(type, refId));
+		return obj != null
+				? obj
+				: store.get(type, refId);
+	}
+
+	@Override
+	public void put(ModelType type, JsonObject object) {
+		store.put(type, object);
+	}
+
+	@Override
+	public boolean contains(ModelType type, String refId) {
+		return store.contains(type, refId);
+	}
+
+	@Override
+	public List<String> getRefIds(ModelType type) {
+		return store.getRefIds(type);
+	}
+
+	@Override
+	public void putBin(ModelType type, String refId, String filename,
+			byte[] data) {
+		store.putBin(type, refId, filename, data);
+	}
+
+	@Override
+	public void put(String path, byte[] data) {
+		store.put(path, data);
+	}
+
+	@Override
+	public byte[] get(String path) {
+		return store.get(path);
+	}
+
+	@Override
+	public void putContext() {
+		store.putContext();
+	}
+
+	@Override
+	public void putMetaInfo(JsonObject info) {
+		store.putMetaInfo(info);
+	}
+
+	@Override
+	public JsonObject getContext() {
+		return store.getContext();
+	}
+
+	@Override
+	public List<String> getBinFiles(ModelType type, String refId) {
+		return store.getBinFiles(type, refId);
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the wrapped store is owned by the caller of the import
+		cache.clear();
+	}
+}
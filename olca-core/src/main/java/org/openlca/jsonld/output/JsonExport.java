@@ -121,7 +121,7 @@ public class JsonExport {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static <T extends RootEntity> Writer<T> getWriter(T entity,
+	static <T extends RootEntity> Writer<T> getWriter(T entity,
 			ExportConfig conf) {
 		if (entity == null)
 			return null;
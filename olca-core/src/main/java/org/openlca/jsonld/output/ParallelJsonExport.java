@@ -0,0 +1,303 @@
+package org.openlca.jsonld.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.FileStore;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ParameterDao;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.RootEntity;
+import org.openlca.core.model.descriptors.Descriptor;
+import org.openlca.jsonld.ModelPath;
+import org.openlca.jsonld.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Exports the complete database into a new zip file. The result is the same
+ * as exporting every data set of the database with the `JsonExport` into a
+ * `ZipStore`, but the export is done in a pipeline:
+ * <ol>
+ * <li>the data sets to be exported are collected from the descriptors of the
+ * database up front; as all data sets are exported, this is the closure of
+ * all references and the writers do not need to follow them,</li>
+ * <li>the IDs of each type are sorted and split into batches which are loaded
+ * with a single query each,</li>
+ * <li>the batches are loaded and converted to JSON in parallel worker
+ * threads,</li>
+ * <li>the JSON bytes are written by a single writer thread into a zip
+ * stream.</li>
+ * </ol>
+ * The number of batches that are loaded but not yet written is limited so
+ * that large databases can be exported with a bounded amount of memory.
+ */
+public class ParallelJsonExport implements Runnable {
+
+	/**
+	 * The types that are exported in this order. Units are written within
+	 * their unit groups.
+	 */
+	private static final ModelType[] TYPES = {
+			ModelType.CATEGORY,
+			ModelType.ACTOR,
+			ModelType.SOURCE,
+			ModelType.CURRENCY,
+			ModelType.LOCATION,
+			ModelType.DQ_SYSTEM,
+			ModelType.UNIT_GROUP,
+			ModelType.FLOW_PROPERTY,
+			ModelType.FLOW,
+			ModelType.PARAMETER,
+			ModelType.SOCIAL_INDICATOR,
+			ModelType.PROCESS,
+			ModelType.IMPACT_CATEGORY,
+			ModelType.IMPACT_METHOD,
+			ModelType.PRODUCT_SYSTEM,
+			ModelType.PROJECT,
+	};
+
+	/** Gson instances are thread-safe, so all workers share this instance. */
+	private static final Gson gson = new Gson();
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final IDatabase db;
+	private final File file;
+	private final ThreadLocal<ExportConfig> configs;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int batchSize = 500;
+	private String clientInfo;
+
+	public ParallelJsonExport(IDatabase db, File file) {
+		this.db = db;
+		this.file = file;
+		// each worker has its own configuration and entity cache; the
+		// references are not followed as all data sets are exported anyway
+		this.configs = ThreadLocal.withInitial(() -> {
+			var conf = ExportConfig.create(db);
+			conf.exportReferences = false;
+			return conf;
+		});
+	}
+
+	/**
+	 * Sets the number of worker threads that load and convert the data sets.
+	 * By default, this is the number of available processors.
+	 */
+	public void setThreadCount(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Sets the maximum number of data sets that are loaded in one query.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public void setClientInfo(String clientInfo) {
+		this.clientInfo = clientInfo;
+	}
+
+	@Override
+	public void run() {
+		var batches = batches();
+		log.info("export {} batches of data sets to {}", batches.size(), file);
+		var workers = Executors.newFixedThreadPool(threads);
+		var writer = Executors.newSingleThreadExecutor();
+		var permits = new Semaphore(2 * threads);
+		var zip = ZipStreamWriter.of(file);
+		try {
+			zip.put("context.json", bytes(Context.write(Schema.URI)));
+			if (clientInfo != null) {
+				var conf = ExportConfig.create();
+				conf.clientInfo = clientInfo;
+				zip.put("meta.info", bytes(new MetaInfoWriter(conf).write()));
+			}
+
+			List<Future<Future<?>>> pending = new ArrayList<>();
+			for (var batch : batches) {
+				acquire(permits);
+				pending.add(workers.submit(() -> {
+					List<Entry> entries;
+					try {
+						entries = convert(batch);
+					} catch (RuntimeException e) {
+						permits.release();
+						throw e;
+					}
+					return writer.submit(() -> {
+						try {
+							for (var entry : entries) {
+								zip.put(entry.path, entry.data);
+							}
+						} finally {
+							permits.release();
+						}
+					});
+				}));
+			}
+			for (var future : pending) {
+				await(await(future));
+			}
+		} finally {
+			shutdown(workers);
+			shutdown(writer);
+			zip.close();
+		}
+	}
+
+	private List<Batch> batches() {
+		var batches = new ArrayList<Batch>();
+		for (var type : TYPES) {
+			var descriptors = type == ModelType.PARAMETER
+					? new ParameterDao(db).getGlobalDescriptors()
+					: Daos.root(db, type).getDescriptors();
+			long[] ids = descriptors.stream()
+					.mapToLong(d -> d.id)
+					.sorted()
+					.toArray();
+			for (int start = 0; start < ids.length; start += batchSize) {
+				int end = Math.min(ids.length, start + batchSize);
+				var batch = Arrays.stream(ids, start, end)
+						.boxed()
+						.collect(Collectors.toCollection(HashSet::new));
+				batches.add(new Batch(type, batch));
+			}
+		}
+		return batches;
+	}
+
+	/**
+	 * Loads the data sets of the given batch and converts them into the
+	 * entries of the zip file. This runs in a worker thread.
+	 */
+	private List<Entry> convert(Batch batch) {
+		var conf = configs.get();
+		var entities = Daos.root(db, batch.type).getForIds(batch.ids);
+		var entries = new ArrayList<Entry>(entities.size());
+		for (RootEntity entity : entities) {
+			if (entity.refId == null) {
+				log.warn("{} {} has no reference ID", batch.type, entity.id);
+				continue;
+			}
+			try {
+				var writer = JsonExport.getWriter(entity, conf);
+				if (writer == null)
+					continue;
+				var obj = writer.write(entity);
+				entries.add(new Entry(
+						ModelPath.get(batch.type, entity.refId), bytes(obj)));
+				if (writer.isExportExternalFiles()) {
+					addExternalFiles(batch.type, entity, entries);
+				}
+			} catch (Exception e) {
+				log.error("failed to export " + Descriptor.of(entity), e);
+			}
+		}
+		return entries;
+	}
+
+	private void addExternalFiles(
+			ModelType type, RootEntity entity, List<Entry> entries) {
+		if (db.getFileStorageLocation() == null)
+			return;
+		var dir = new FileStore(db.getFileStorageLocation()).getFolder(entity);
+		if (dir == null || !dir.exists())
+			return;
+		var root = dir.toPath();
+		var prefix = ModelPath.getBin(type, entity.refId) + "/";
+		try (var files = Files.walk(root)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				if (!Files.isRegularFile(file))
+					continue;
+				var path = root.relativize(file).toString().replace('\\', '/');
+				entries.add(new Entry(prefix + path, Files.readAllBytes(file)));
+			}
+		} catch (IOException e) {
+			log.error("failed to copy external files of "
+					+ Descriptor.of(entity), e);
+		}
+	}
+
+	private static byte[] bytes(JsonObject obj) {
+		return gson.toJson(obj).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void acquire(Semaphore permits) {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("export was interrupted", e);
+		}
+	}
+
+	private <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("export was interrupted", e);
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RuntimeException("failed to export data sets", cause);
+		}
+	}
+
+	private void shutdown(ExecutorService pool) {
+		pool.shutdown();
+		try {
+			// the zip file can be only closed when all writes are done
+			if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				pool.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class Batch {
+
+		final ModelType type;
+		final Set<Long> ids;
+
+		Batch(ModelType type, Set<Long> ids) {
+			this.type = type;
+			this.ids = ids;
+		}
+	}
+
+	private static class Entry {
+
+		final String path;
+		final byte[] data;
+
+		Entry(String path, byte[] data) {
+			this.path = path;
+			this.data = data;
+		}
+	}
+}
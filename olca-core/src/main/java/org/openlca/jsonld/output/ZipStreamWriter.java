@@ -0,0 +1,73 @@
+package org.openlca.jsonld.output;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the entries of a new zip file sequentially into a stream. Unlike the
+ * `ZipStore`, it cannot read or replace entries, but it does not need to
+ * maintain the index of a zip file system for each write. The entries are
+ * written in the order in which they are passed into this writer and must be
+ * passed from a single thread.
+ */
+class ZipStreamWriter implements Closeable {
+
+	private final File file;
+	private final ZipOutputStream stream;
+	private final Set<String> paths = new HashSet<>();
+
+	private ZipStreamWriter(File file) throws IOException {
+		this.file = file;
+		this.stream = new ZipOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)));
+	}
+
+	/**
+	 * Creates a new writer for the given file. An existing file is
+	 * overwritten.
+	 */
+	static ZipStreamWriter of(File file) {
+		try {
+			return new ZipStreamWriter(file);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to create zip file " + file, e);
+		}
+	}
+
+	void put(String path, byte[] data) {
+		if (path == null || data == null)
+			return;
+		if (!paths.add(path)) {
+			// e.g. two data sets with the same reference ID in the database
+			LoggerFactory.getLogger(getClass())
+					.warn("duplicate entry {} in zip is ignored", path);
+			return;
+		}
+		try {
+			stream.putNextEntry(new ZipEntry(path));
+			stream.write(data);
+			stream.closeEntry();
+		} catch (IOException e) {
+			throw new RuntimeException("failed to write " + path
+					+ " to zip file " + file, e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			stream.close();
+		} catch (IOException e) {
+			throw new RuntimeException("failed to close zip file " + file, e);
+		}
+	}
+}
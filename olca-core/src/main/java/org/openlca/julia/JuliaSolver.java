@@ -9,6 +9,7 @@ import org.openlca.core.matrix.format.HashPointMatrix;
 import org.openlca.core.matrix.format.Matrix;
 import org.openlca.core.matrix.format.MatrixConverter;
 import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.format.SparseProducts;
 import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.MatrixSolver;
 
@@ -65,10 +66,8 @@ public class JuliaSolver implements MatrixSolver {
 
 	@Override
 	public double[] multiply(MatrixReader m, double[] x) {
-		if (m instanceof HashPointMatrix
-				|| m instanceof CSCMatrix) {
-			return m.multiply(x);
-		}
+		if (m.isSparse())
+			return SparseProducts.multiply(m, x);
 		var a = MatrixConverter.dense(m);
 		double[] y = new double[m.rows()];
 		Julia.mvmult(m.rows(), m.columns(), a.data, x, y);
@@ -91,6 +90,10 @@ public class JuliaSolver implements MatrixSolver {
 
 	@Override
 	public DenseMatrix multiply(MatrixReader a, MatrixReader b) {
+		// a sparse matrix is not converted into a dense matrix here as
+		// the sparse kernels only visit its non-zero entries
+		if (a.isSparse() || b.isSparse())
+			return SparseProducts.multiply(a, b);
 		DenseMatrix _a = MatrixConverter.dense(a);
 		DenseMatrix _b = MatrixConverter.dense(b);
 		int rowsA = _a.rows();
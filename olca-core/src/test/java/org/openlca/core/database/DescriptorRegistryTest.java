@@ -0,0 +1,77 @@
+package org.openlca.core.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.Location;
+import org.openlca.core.model.UnitGroup;
+
+public class DescriptorRegistryTest {
+
+	// a separate database so that the IDs of the shared test database are
+	// not affected by this test
+	private IDatabase db;
+	private FlowProperty mass;
+
+	@Before
+	public void setup() {
+		db = Derby.createInMemory();
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		mass = db.insert(FlowProperty.of("Mass", units));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Test
+	public void testSharedRegistry() {
+		var registry = DescriptorRegistry.of(db);
+		assertSame(registry, DescriptorRegistry.of(db));
+		var flows = registry.flows();
+		assertSame(flows, registry.flows());
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		var registry = DescriptorRegistry.of(db);
+		var before = registry.flows();
+		var flow = db.insert(Flow.product("p", mass));
+
+		// the returned maps are never modified
+		assertFalse(before.containsKey(flow.id));
+		var flows = registry.flows();
+		assertNotSame(before, flows);
+		assertEquals(FlowType.PRODUCT_FLOW, flows.get(flow.id).flowType);
+
+		flow.name = "q";
+		db.update(flow);
+		assertEquals("q", registry.flows().get(flow.id).name);
+
+		db.delete(flow);
+		assertFalse(registry.flows().containsKey(flow.id));
+
+		var location = db.insert(Location.of("Germany", "DE"));
+		assertTrue(registry.locations().containsKey(location.id));
+	}
+
+	@Test
+	public void testNativeUpdates() {
+		var flow = db.insert(Flow.elementary("e", mass));
+		var registry = DescriptorRegistry.of(db);
+		assertEquals("e", registry.flows().get(flow.id).name);
+		NativeSql.on(db).runUpdate(
+				"update tbl_flows set name = 'x' where id = " + flow.id);
+		assertEquals("x", registry.flows().get(flow.id).name);
+	}
+}
@@ -0,0 +1,121 @@
+package org.openlca.core.database.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.model.Category;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.UnitGroup;
+
+public class SearchIndexTest {
+
+	private IDatabase db;
+	private FlowProperty mass;
+
+	@Before
+	public void setup() {
+		db = Derby.createInMemory();
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		mass = db.insert(FlowProperty.of("Mass", units));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Test
+	public void testRanking() {
+		var co2 = db.insert(Flow.elementary("Carbon dioxide", mass));
+		var co2Fossil = db.insert(
+				Flow.elementary("Carbon dioxide, fossil", mass));
+		var carbonate = db.insert(Flow.product("Carbonate", mass));
+		db.insert(Flow.product("Steel", mass));
+
+		var results = names("carbon dioxide", ModelType.FLOW);
+		assertEquals(List.of(
+				co2.name, co2Fossil.name, carbonate.name), results);
+
+		// partial matches are ranked lower than whole words
+		results = names("carbon", ModelType.FLOW);
+		assertEquals(co2.name, results.get(0));
+		assertEquals(carbonate.name, results.get(2));
+
+		// infix matches
+		results = names("arbon", ModelType.FLOW);
+		assertEquals(3, results.size());
+	}
+
+	@Test
+	public void testSynonymsAndCategories() {
+		var category = db.insert(Category.of("Emissions to air", ModelType.FLOW));
+		var flow = Flow.elementary("Carbon dioxide", mass);
+		flow.synonyms = "CO2; carbonic acid gas";
+		flow.category = category;
+		db.insert(flow);
+		var other = db.insert(Flow.elementary("Carbonic acid", mass));
+
+		assertEquals(List.of(flow.name), names("CO2", ModelType.FLOW));
+		assertEquals(List.of(flow.name), names("air", ModelType.FLOW));
+
+		// matches in the name are ranked higher than synonyms
+		assertEquals(List.of(other.name, flow.name),
+				names("carbonic", ModelType.FLOW));
+	}
+
+	@Test
+	public void testRefIdAndShortTerms() {
+		var flow = db.insert(Flow.elementary("Nitrogen oxides", mass));
+		var so2 = db.insert(Flow.elementary("Sulfur dioxide", mass));
+		var co2 = db.insert(Flow.elementary("CO2", mass));
+		var results = SearchIndex.of(db).search(flow.refId.toUpperCase());
+		assertEquals(1, results.size());
+		assertEquals(flow.id, results.get(0).id);
+
+		// short terms match any part of the names; matches at the beginning
+		// of words are ranked higher
+		assertEquals(List.of(flow.name, so2.name), names("ox", ModelType.FLOW));
+		assertEquals(List.of(co2.name), names("o2", ModelType.FLOW));
+		assertTrue(names("zz", ModelType.FLOW).isEmpty());
+	}
+
+	@Test
+	public void testUpdates() {
+		var flow = db.insert(Flow.elementary("Methane", mass));
+		var index = SearchIndex.of(db);
+		assertEquals(List.of(flow.name), names("methane", null));
+
+		var next = db.insert(Flow.elementary("Methane, biogenic", mass));
+		assertEquals(List.of(flow.name, next.name), names("methane", null));
+
+		flow.name = "Ethane";
+		flow = db.update(flow);
+		assertEquals(List.of(next.name), names("methane", null));
+		assertEquals(List.of(flow.name, next.name), names("ethane", null));
+
+		db.delete(next);
+		assertEquals(List.of(flow.name), names("ethane", null));
+
+		NativeSql.on(db).runUpdate(
+				"update tbl_flows set name = 'Propane' where id = " + flow.id);
+		assertEquals("Propane", index.search("propane").get(0).name);
+	}
+
+	private List<String> names(String query, ModelType type) {
+		return SearchIndex.of(db).search(query, type)
+				.stream()
+				.map(d -> d.name)
+				.collect(Collectors.toList());
+	}
+}
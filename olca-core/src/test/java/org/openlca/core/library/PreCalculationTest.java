@@ -0,0 +1,84 @@
+package org.openlca.core.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.io.npy.Npy;
+import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.matrix.solvers.SparseJavaSolver;
+import org.openlca.util.Dirs;
+
+public class PreCalculationTest {
+
+	private File dir;
+
+	@Before
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("_olca_tests").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		Dirs.delete(dir);
+	}
+
+	@Test
+	public void testBlocks() {
+		int n = 10;
+		var a = new HashPointMatrix(n, n);
+		var b = new HashPointMatrix(3, n);
+		for (int j = 0; j < n; j++) {
+			a.set(j, j, 1.0);
+			if (j > 0) {
+				a.set(j - 1, j, -0.5);
+			}
+			if (j < n - 1) {
+				a.set(j + 1, j, -0.1 * j);
+			}
+			b.set(j % 3, j, j + 1.0);
+		}
+		var csc = CSCMatrix.of(a);
+
+		// the block size does not divide the number of columns
+		new PreCalculation(dir, csc, b, new SparseJavaSolver())
+			.withBlockSize(3)
+			.run();
+
+		var expectedInv = new JavaSolver().invert(a);
+		var expectedM = new JavaSolver().multiply(b, expectedInv);
+		var inv = Npy.load(new File(dir, "INV.npy"));
+		var m = Npy.load(new File(dir, "M.npy"));
+		assertEquals(n, inv.rows());
+		assertEquals(n, inv.columns());
+		assertEquals(3, m.rows());
+		assertEquals(n, m.columns());
+		for (int j = 0; j < n; j++) {
+			assertArrayEquals(expectedInv.getColumn(j), inv.getColumn(j), 1e-9);
+			assertArrayEquals(expectedM.getColumn(j), m.getColumn(j), 1e-9);
+		}
+	}
+
+	@Test
+	public void testWithoutEnviMatrix() {
+		var a = CSCMatrix.of(new double[][]{
+			{1.0, -0.5},
+			{-0.2, 1.0},
+		});
+		new PreCalculation(dir, a, null, new SparseJavaSolver()).run();
+		var inv = Npy.load(new File(dir, "INV.npy"));
+		var expected = new JavaSolver().invert(a);
+		for (int j = 0; j < 2; j++) {
+			assertArrayEquals(expected.getColumn(j), inv.getColumn(j), 1e-9);
+		}
+		assertFalse(new File(dir, "M.npy").exists());
+	}
+}
@@ -1,6 +1,7 @@
 package org.openlca.core.math;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -55,6 +56,25 @@ public class NumberGeneratorTest {
 			assertEquals(5.0, genDiscrete.next(), 1e-16);
 	}
 
+	@Test
+	public void testSeededStreams() {
+		var gens = new NumberGenerator[] {
+				NumberGenerator.normal(5, 1),
+				NumberGenerator.logNormal(5, 1.1),
+				NumberGenerator.uniform(1, 5),
+				NumberGenerator.triangular(1, 4, 5) };
+		var r1 = RandomStream.of(42, 7);
+		var r2 = RandomStream.of(42, 7);
+		var r3 = RandomStream.of(42, 8);
+		for (var gen : gens) {
+			for (int i = 0; i < 100; i++) {
+				double next = gen.next(r1);
+				assertEquals(next, gen.next(r2), 0);
+				assertNotEquals(next, gen.next(r3), 0);
+			}
+		}
+	}
+
 	private void assertInInterval(double val, double lower, double upper) {
 		assertTrue(val >= lower);
 		assertTrue(val <= upper);
@@ -9,6 +9,7 @@ import org.openlca.core.TestProcess;
 import org.openlca.core.TestSystem;
 import org.openlca.core.Tests;
 import org.openlca.core.database.IDatabase;
+import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.solvers.JavaSolver;
 import org.openlca.core.model.ImpactMethod;
 import org.openlca.core.model.Process;
@@ -55,4 +56,106 @@ public class SimulatorTest {
 		Arrays.asList(s, m, p).forEach(db::delete);
 	}
 
+	@Test
+	public void testParallelRuns() {
+
+		// p -> 2 kg q -> 2 kg CH4 with an uncertain LCIA factor
+		Process q = TestProcess.refProduct("q", 1.0, "kg")
+				.elemOut("CH4", 1.0, "kg")
+				.get();
+		Process p = TestProcess.refProduct("p", 1.0, "kg")
+				.prodIn("q", 2.0, "kg")
+				.get();
+		ProductSystem s = TestSystem.of(p).link(q).get();
+		var impact = TestData.impact("GWP")
+				.factor("CH4", "1 * param", "kg")
+				.parameter("param", Uncertainty.uniform(22, 26))
+				.get();
+		ImpactMethod m = TestData.method("method", impact);
+
+		CalculationSetup setup = new CalculationSetup(s);
+		setup.withUncertainties = true;
+		setup.impactMethod = Descriptor.of(m);
+		Simulator simulator = Simulator.create(
+				setup, db, new JavaSolver());
+		var pinned = TechFlow.of(q);
+		simulator.pinnedProducts.add(pinned);
+
+		// the worker copies share the symbolic analysis of the host system
+		var copy1 = simulator.copy();
+		var copy2 = simulator.copy();
+		Assert.assertNotNull(simulator.getSymbolic());
+		Assert.assertSame(simulator.getSymbolic(), copy1.getSymbolic());
+		Assert.assertSame(simulator.getSymbolic(), copy2.getSymbolic());
+
+		simulator.nextRun();
+		var result = simulator.run(200, 4);
+		Assert.assertEquals(201, result.getNumberOfRuns());
+		var d = Descriptor.of(impact);
+		var values = result.getAll(d);
+		var upstream = result.getAllUpstream(pinned, d);
+		var direct = result.getAllDirect(pinned, d);
+		for (int i = 0; i < values.length; i++) {
+			double val = values[i];
+			Assert.assertTrue(val >= 44 && val <= 52);
+			Assert.assertEquals(val, upstream[i], 1e-10);
+			Assert.assertEquals(val, direct[i], 1e-10);
+		}
+
+		Arrays.asList(s, m, p, q).forEach(db::delete);
+	}
+
+	@Test
+	public void testSeededRuns() {
+		Process q = TestProcess.refProduct("q", 1.0, "kg")
+				.elemOut("CH4", 1.0, "kg")
+				.with(proc -> TestProcess.findExchange(proc, "CH4")
+						.uncertainty = Uncertainty.normal(1, 0.1))
+				.get();
+		Process p = TestProcess.refProduct("p", 1.0, "kg")
+				.prodIn("q", 2.0, "kg")
+				.with(proc -> TestProcess.findExchange(proc, "q")
+						.uncertainty = Uncertainty.uniform(1.5, 2.5))
+				.get();
+		ProductSystem s = TestSystem.of(p).link(q).get();
+		var impact = TestData.impact("GWP")
+				.factor("CH4", "1 * param", "kg")
+				.parameter("param", Uncertainty.uniform(22, 26))
+				.get();
+		ImpactMethod m = TestData.method("method", impact);
+		var d = Descriptor.of(impact);
+
+		CalculationSetup setup = new CalculationSetup(s);
+		setup.withUncertainties = true;
+		setup.impactMethod = Descriptor.of(m);
+		setup.seed = 42L;
+
+		// serial runs
+		var serial = Simulator.create(setup, db, new JavaSolver());
+		Assert.assertEquals(42L, serial.getSeed());
+		for (int i = 0; i < 50; i++) {
+			serial.nextRun();
+		}
+		var expected = serial.getResult().getAll(d);
+		Assert.assertEquals(50, expected.length);
+
+		// parallel runs with the same seed give the same values
+		var parallel = Simulator.create(setup, db, new JavaSolver());
+		parallel.run(20, 3);
+		parallel.run(30, 4);
+		Assert.assertArrayEquals(
+				expected, parallel.getResult().getAll(d), 0);
+
+		// another seed gives other values
+		setup.seed = 43L;
+		var other = Simulator.create(setup, db, new JavaSolver());
+		other.run(50, 2);
+		var values = other.getResult().getAll(d);
+		for (int i = 0; i < values.length; i++) {
+			Assert.assertNotEquals(expected[i], values[i], 0);
+		}
+
+		Arrays.asList(s, m, p, q).forEach(db::delete);
+	}
+
 }
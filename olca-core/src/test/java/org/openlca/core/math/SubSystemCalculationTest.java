@@ -0,0 +1,97 @@
+package org.openlca.core.math;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProcessLink;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.UnitGroup;
+
+public class SubSystemCalculationTest {
+
+	private IDatabase db;
+	private FlowProperty mass;
+
+	@Before
+	public void setup() {
+		db = Derby.createInMemory();
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		mass = db.insert(FlowProperty.of("Mass", units));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	/**
+	 * Calculates a system t with the sub-systems a and b which both use the
+	 * same sub-system c: t -> (a -> 2 * c, b -> 3 * c) where c emits 1 kg
+	 * CH4.
+	 */
+	@Test
+	public void testSharedSubSystem() {
+		var ch4 = db.insert(Flow.elementary("CH4", mass));
+		var fc = db.insert(Flow.product("c", mass));
+		var fa = db.insert(Flow.product("a", mass));
+		var fb = db.insert(Flow.product("b", mass));
+		var ft = db.insert(Flow.product("t", mass));
+
+		var c = Process.of("c", fc);
+		c.output(ch4, 1.0);
+		c = db.insert(c);
+		var a = Process.of("a", fa);
+		a.input(fc, 2.0);
+		a = db.insert(a);
+		var b = Process.of("b", fb);
+		b.input(fc, 3.0);
+		b = db.insert(b);
+		var t = Process.of("t", ft);
+		t.input(fa, 1.0);
+		t.input(fb, 1.0);
+		t = db.insert(t);
+
+		var sysC = db.insert(ProductSystem.of(c));
+		var sysA = linkSystem(ProductSystem.of(a), a, fc, sysC);
+		var sysB = linkSystem(ProductSystem.of(b), b, fc, sysC);
+		var sysT = ProductSystem.of(t);
+		sysT = linkSystem(sysT, t, fa, sysA);
+		sysT = linkSystem(sysT, t, fb, sysB);
+
+		var result = new SystemCalculator(db)
+				.calculateSimple(new CalculationSetup(sysT));
+		var flows = result.getTotalFlowResults();
+		assertEquals(1, flows.size());
+		assertEquals(5.0, flows.get(0).value, 1e-10);
+	}
+
+	/**
+	 * Links the input of the given flow in the process with the sub-system
+	 * and inserts the host system if it is not yet stored in the database.
+	 */
+	private ProductSystem linkSystem(ProductSystem host, Process process,
+			Flow flow, ProductSystem sub) {
+		var input = process.exchanges.stream()
+				.filter(e -> e.isInput && flow.equals(e.flow))
+				.findFirst()
+				.orElseThrow();
+		var link = new ProcessLink();
+		link.providerId = sub.id;
+		link.flowId = flow.id;
+		link.processId = process.id;
+		link.exchangeId = input.id;
+		link.isSystemLink = true;
+		host.processLinks.add(link);
+		host.processes.add(sub.id);
+		return host.id == 0
+				? db.insert(host)
+				: db.update(host);
+	}
+}
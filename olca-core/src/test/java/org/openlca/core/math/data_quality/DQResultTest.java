@@ -1,6 +1,7 @@
 package org.openlca.core.math.data_quality;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.junit.After;
 import org.junit.Before;
@@ -38,8 +39,10 @@ public class DQResultTest {
 	private Flow pFlow2;
 	private Flow eFlow1;
 	private Flow eFlow2;
+	private Flow eFlow3;
 	private ImpactMethod method;
 	private ImpactCategory impact;
+	private ImpactCategory impact2;
 
 	@Before
 	public void setup() {
@@ -50,6 +53,7 @@ public class DQResultTest {
 		pFlow2 = db.insert(Flow.product("product 2", mass));
 		eFlow1 = db.insert(Flow.elementary("elem 1", mass));
 		eFlow2 = db.insert(Flow.elementary("elem 2", mass));
+		eFlow3 = db.insert(Flow.elementary("elem 3", mass));
 
 		createDQSystem();
 		ProcessDao dao = new ProcessDao(db);
@@ -58,6 +62,7 @@ public class DQResultTest {
 		process1.input(pFlow2, 2);
 		process1.input(eFlow1, 3).dqEntry = "(1;2;3;4;5)";
 		process1.input(eFlow2, 4).dqEntry = "(5;4;3;2;1)";
+		process1.output(eFlow3, 2).dqEntry = "(3;n.a.;1;n.a.;5)";
 		process1.dqEntry = "(1;2;3;4;5)";
 		process1 = dao.insert(process1);
 
@@ -65,6 +70,7 @@ public class DQResultTest {
 		process2.quantitativeReference.dqEntry = "(5;4;3;2;1)";
 		process2.input(eFlow1, 5).dqEntry = "(5;4;3;2;1)";
 		process2.input(eFlow2, 6).dqEntry = "(1;2;3;4;5)";
+		process2.output(eFlow3, 7);
 		process2.dqEntry = "(5;4;3;2;1)";
 		process2 = dao.insert(process2);
 		createProductSystem();
@@ -120,8 +126,13 @@ public class DQResultTest {
 		impact.factor(eFlow1, 2);
 		impact.factor(eFlow2, 8);
 		impact = db.insert(impact);
+		impact2 = new ImpactCategory();
+		impact2.factor(eFlow1, 1);
+		impact2.factor(eFlow3, 4);
+		impact2 = db.insert(impact2);
 		method = new ImpactMethod();
 		method.impactCategories.add(impact);
+		method.impactCategories.add(impact2);
 		method = db.insert(method);
 	}
 
@@ -148,6 +159,103 @@ public class DQResultTest {
 		assertArrayEquals(a(2, 2, 3, 4, 4), r(dqResult, process2, impact));
 	}
 
+	/**
+	 * Compares the aggregated results with the results of adding all cells of
+	 * the exchange data to accumulators.
+	 */
+	@Test
+	public void testAggregationTypes() {
+		var setup = new CalculationSetup(system);
+		setup.setAmount(1);
+		setup.impactMethod = Descriptor.of(method);
+		var result = FullResult.of(db, setup);
+		var types = new AggregationType[]{
+			AggregationType.WEIGHTED_AVERAGE,
+			AggregationType.WEIGHTED_SQUARED_AVERAGE,
+			AggregationType.MAXIMUM};
+		for (var type : types) {
+			for (var na : NAHandling.values()) {
+				for (var ceiling : new boolean[]{false, true}) {
+					var dqSetup = DQCalculationSetup.of(system);
+					dqSetup.aggregationType = type;
+					dqSetup.naHandling = na;
+					dqSetup.ceiling = ceiling;
+					var dqResult = DQResult.of(db, dqSetup, result);
+					checkAgainstAccumulators(dqSetup, dqResult, result);
+				}
+			}
+		}
+	}
+
+	private void checkAgainstAccumulators(
+		DQCalculationSetup dqSetup, DQResult dqResult, FullResult result) {
+		var provider = result.provider;
+		var techIndex = result.techIndex();
+		var flowIndex = result.enviIndex();
+		var impactIndex = result.impactIndex();
+		int k = dqSetup.exchangeSystem.indicators.size();
+		int n = techIndex.size();
+		int m = flowIndex.size();
+		byte max = (byte) dqSetup.exchangeSystem.getScoreCount();
+
+		// the exchange data as dense arrays
+		var data = new byte[k][m][n];
+		for (int flow = 0; flow < m; flow++) {
+			for (int product = 0; product < n; product++) {
+				var values = dqResult.get(
+					techIndex.at(product), flowIndex.at(flow));
+				for (int i = 0; i < k; i++) {
+					data[i][flow][product] = (byte) values[i];
+				}
+			}
+		}
+
+		for (int i = 0; i < k; i++) {
+
+			// flow results
+			for (int flow = 0; flow < m; flow++) {
+				var weights = new double[n];
+				for (int product = 0; product < n; product++) {
+					weights[product] = provider.directFlowOf(flow, product);
+				}
+				var acc = new Accumulator(dqSetup, max);
+				var expected = acc.get(data[i][flow], weights);
+				var actual = dqResult.get(flowIndex.at(flow))[i];
+				assertEquals(expected, actual);
+			}
+
+			// impact results
+			for (int impact = 0; impact < impactIndex.size(); impact++) {
+				var total = new Accumulator(dqSetup, max);
+				var processAccs = new Accumulator[n];
+				for (int product = 0; product < n; product++) {
+					processAccs[product] = new Accumulator(dqSetup, max);
+				}
+				var d = impactIndex.at(impact);
+				for (int flow = 0; flow < m; flow++) {
+					double factor = provider.impactFactorOf(impact, flow);
+					var weights = new double[n];
+					for (int product = 0; product < n; product++) {
+						weights[product] = factor * provider.directFlowOf(flow, product);
+					}
+					total.addAll(data[i][flow], weights);
+					var flowAcc = new Accumulator(dqSetup, max);
+					assertEquals(flowAcc.get(data[i][flow], weights),
+						dqResult.get(d, flowIndex.at(flow))[i]);
+					for (int product = 0; product < n; product++) {
+						processAccs[product].add(
+							data[i][flow][product], weights[product]);
+					}
+				}
+				assertEquals(total.get(), dqResult.get(d)[i]);
+				for (int product = 0; product < n; product++) {
+					assertEquals(processAccs[product].get(),
+						dqResult.get(d, techIndex.at(product))[i]);
+				}
+			}
+		}
+	}
+
 	private int[] r(DQResult dq, Flow flow) {
 		return dq.get(EnviFlow.outputOf(Descriptor.of(flow)));
 	}
@@ -0,0 +1,141 @@
+package org.openlca.core.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.matrix.format.MatrixReader;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.model.AllocationFactor;
+import org.openlca.core.model.AllocationMethod;
+import org.openlca.core.model.Currency;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.UnitGroup;
+
+public class InventoryBuilderTest {
+
+	// a separate database so that the IDs of the shared test database are
+	// not affected by this test
+	private IDatabase db;
+
+	private Process first;
+	private Exchange formulaExchange;
+	private ProductSystem system;
+
+	@Before
+	public void setup() {
+		db = Derby.createInMemory();
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		var mass = db.insert(FlowProperty.of("Mass", units));
+		var currency = Currency.of("EUR");
+		currency.conversionFactor = 1;
+		db.insert(currency);
+		var elems = new ArrayList<Flow>();
+		for (int i = 0; i < 3; i++) {
+			elems.add(db.insert(Flow.elementary("e" + i, mass)));
+		}
+
+		// a chain of processes with formulas, costs, and allocation
+		var processes = new ArrayList<Process>();
+		Flow previous = null;
+		for (int i = 0; i < 8; i++) {
+			var product = db.insert(Flow.product("p" + i, mass));
+			var coProduct = db.insert(Flow.product("co" + i, mass));
+			var resource = db.insert(Flow.elementary("r" + i, mass));
+
+			var p = Process.of("p" + i, product);
+			p.quantitativeReference.costs = 10.0 + i;
+			p.quantitativeReference.currency = currency;
+			p.output(coProduct, 2);
+			p.output(elems.get(i % 3), 0.5 * (i + 1));
+			var r = p.input(resource, 2 + i);
+			r.formula = "2 * f";
+			p.parameter("f", i + 1);
+			if (previous != null) {
+				p.input(previous, 0.5);
+			}
+
+			var f1 = AllocationFactor.physical(product, 0);
+			f1.formula = "f / (f + 1)";
+			p.allocationFactors.add(f1);
+			p.allocationFactors.add(AllocationFactor.physical(coProduct, 0.25));
+			p = db.insert(p);
+			processes.add(p);
+			previous = product;
+			if (i == 0) {
+				first = p;
+				formulaExchange = p.exchanges.stream()
+						.filter(e -> e.flow.id == resource.id)
+						.findFirst()
+						.orElseThrow();
+			}
+		}
+
+		system = ProductSystem.of(processes.get(processes.size() - 1));
+		for (int i = processes.size() - 1; i > 0; i--) {
+			system.link(processes.get(i - 1), processes.get(i));
+		}
+		system = db.insert(system);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Test
+	public void testParallelBatches() {
+
+		// build the matrices sequentially and in parallel with tiny batches
+		var techIndex = TechIndex.of(system, db);
+		var expected = new InventoryBuilder(
+				config(techIndex), 1, 10_000).build();
+		var parallel = new InventoryBuilder(
+				config(techIndex), 4, 3).build();
+
+		assertEquals(expected.enviIndex.size(), parallel.enviIndex.size());
+		for (int i = 0; i < expected.enviIndex.size(); i++) {
+			assertEquals(expected.enviIndex.at(i), parallel.enviIndex.at(i));
+		}
+		assertMatrixEquals(expected.techMatrix, parallel.techMatrix);
+		assertMatrixEquals(expected.enviMatrix, parallel.enviMatrix);
+		assertArrayEquals(expected.costVector, parallel.costVector, 1e-16);
+
+		// check a value that depends on formulas: 2 * f * f / (f + 1) with f = 1
+		int row = -1;
+		for (int i = 0; i < parallel.enviIndex.size(); i++) {
+			if (parallel.enviIndex.at(i).flow().id == formulaExchange.flow.id) {
+				row = i;
+			}
+		}
+		int col = techIndex.of(techIndex.getProvider(
+				first.id, first.quantitativeReference.flow.id));
+		assertEquals(-1.0, parallel.enviMatrix.get(row, col), 1e-16);
+	}
+
+	private MatrixConfig config(TechIndex techIndex) {
+		return MatrixConfig.of(db, techIndex)
+				.withCosts(true)
+				.withUncertainties(true)
+				.withAllocation(AllocationMethod.PHYSICAL)
+				.create();
+	}
+
+	private void assertMatrixEquals(MatrixReader expected, MatrixReader m) {
+		assertEquals(expected.rows(), m.rows());
+		assertEquals(expected.columns(), m.columns());
+		for (int col = 0; col < m.columns(); col++) {
+			assertArrayEquals(expected.getColumn(col), m.getColumn(col), 1e-16);
+		}
+	}
+}
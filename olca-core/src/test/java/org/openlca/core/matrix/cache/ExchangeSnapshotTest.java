@@ -0,0 +1,203 @@
+package org.openlca.core.matrix.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.model.Currency;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.Uncertainty;
+import org.openlca.core.model.UnitGroup;
+
+public class ExchangeSnapshotTest {
+
+	// a separate database so that the IDs of the shared test database are
+	// not affected by this test
+	private IDatabase db;
+	private Process process;
+	private ProductSystem system;
+
+	@Before
+	public void setup() {
+		db = Derby.createInMemory();
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		var mass = db.insert(FlowProperty.of("Mass", units));
+		var currency = Currency.of("EUR");
+		currency.conversionFactor = 1;
+		db.insert(currency);
+		var p = db.insert(Flow.product("p", mass));
+		var q = db.insert(Flow.product("q", mass));
+		var e = db.insert(Flow.elementary("e", mass));
+
+		var provider = Process.of("q", q);
+		provider.output(e, 3);
+		provider = db.insert(provider);
+
+		process = Process.of("p", p);
+		process.quantitativeReference.costs = 42.0;
+		process.quantitativeReference.currency = currency;
+		var input = process.input(q, 2);
+		input.defaultProviderId = provider.id;
+		input.uncertainty = Uncertainty.logNormal(2, 1.5);
+		var output = process.output(e, 1);
+		output.formula = "2 * f";
+		output.dqEntry = "(1;2;3;4;5)";
+		process.parameter("f", 21);
+		process = db.insert(process);
+
+		system = ProductSystem.of(process).link(provider, process);
+		system = db.insert(system);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ExchangeSnapshot.disable(db);
+		db.close();
+	}
+
+	@Test
+	public void testSameExchanges() {
+		var techIndex = TechIndex.of(system, db);
+		var expected = exchanges(techIndex);
+		ExchangeSnapshot.enable(db);
+		var snapshot = ExchangeSnapshot.get(db);
+		assertTrue(snapshot.contains(process.id));
+		var actual = exchanges(techIndex);
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			var e = expected.get(i);
+			var a = actual.get(i);
+			assertEquals(e.exchangeId, a.exchangeId);
+			assertEquals(e.processId, a.processId);
+			assertEquals(e.flowId, a.flowId);
+			assertEquals(e.flowType, a.flowType);
+			assertEquals(e.conversionFactor, a.conversionFactor, 1e-16);
+			assertEquals(e.amount, a.amount, 1e-16);
+			assertEquals(e.formula, a.formula);
+			assertEquals(e.isInput, a.isInput);
+			assertEquals(e.isAvoided, a.isAvoided);
+			assertEquals(e.defaultProviderId, a.defaultProviderId);
+			assertEquals(e.locationId, a.locationId);
+			assertEquals(e.costValue, a.costValue, 1e-16);
+			assertEquals(e.costFormula, a.costFormula);
+			assertEquals(e.currencyFactor, a.currencyFactor, 1e-16);
+			assertEquals(e.uncertaintyType, a.uncertaintyType);
+			assertEquals(e.parameter1, a.parameter1, 1e-16);
+			assertEquals(e.parameter2, a.parameter2, 1e-16);
+			assertEquals(e.parameter3, a.parameter3, 1e-16);
+		}
+
+		// the data quality entries are only stored in the snapshot
+		int dqEntries = 0;
+		for (int i = snapshot.start(process.id); i < snapshot.end(process.id); i++) {
+			if (snapshot.dqEntry(i) != null) {
+				assertEquals("(1;2;3;4;5)", snapshot.dqEntry(i));
+				dqEntries++;
+			}
+		}
+		assertEquals(1, dqEntries);
+	}
+
+	@Test
+	public void testSameMatrices() {
+		var setup = new CalculationSetup(system);
+		setup.withCosts = true;
+		setup.withUncertainties = true;
+		var expected = MatrixData.of(db, setup);
+		ExchangeSnapshot.enable(db);
+		var actual = MatrixData.of(db, setup);
+		for (int col = 0; col < expected.techMatrix.columns(); col++) {
+			assertArrayEquals(expected.techMatrix.getColumn(col),
+				actual.techMatrix.getColumn(col), 1e-16);
+			assertArrayEquals(expected.enviMatrix.getColumn(col),
+				actual.enviMatrix.getColumn(col), 1e-16);
+		}
+		assertArrayEquals(expected.costVector, actual.costVector, 1e-16);
+	}
+
+	@Test
+	public void testInvalidation() {
+		assertNull(ExchangeSnapshot.get(db));
+		ExchangeSnapshot.enable(db);
+		assertTrue(ExchangeSnapshot.isEnabled(db));
+		var first = ExchangeSnapshot.get(db);
+		assertSame(first, ExchangeSnapshot.get(db));
+
+		// updating a process drops the snapshot
+		process.quantitativeReference.amount = 2;
+		process = db.update(process);
+		var second = ExchangeSnapshot.get(db);
+		assertNotSame(first, second);
+		var qRef = second.exchangesOf(process.id)
+			.stream()
+			.filter(e -> e.exchangeId == process.quantitativeReference.id)
+			.findFirst()
+			.orElseThrow();
+		assertEquals(2, qRef.amount, 1e-16);
+
+		// explicit invalidation, e.g. after native SQL updates
+		ExchangeSnapshot.invalidate(db);
+		assertNotSame(second, ExchangeSnapshot.get(db));
+
+		ExchangeSnapshot.disable(db);
+		assertFalse(ExchangeSnapshot.isEnabled(db));
+		assertNull(ExchangeSnapshot.get(db));
+	}
+
+	@Test
+	public void testClearCache() {
+		ExchangeSnapshot.enable(db);
+		var input = process.exchanges.stream()
+			.filter(e -> e.isInput)
+			.findFirst()
+			.orElseThrow();
+		var first = ExchangeSnapshot.get(db);
+		assertEquals(input.defaultProviderId, providerOf(first, input.id));
+
+		// native SQL updates are visible after the cache was cleared
+		NativeSql.on(db).runUpdate("update tbl_exchanges"
+			+ " set f_default_provider = 0 where id = " + input.id);
+		db.clearCache();
+		var second = ExchangeSnapshot.get(db);
+		assertNotSame(first, second);
+		assertEquals(0, providerOf(second, input.id));
+	}
+
+	private long providerOf(ExchangeSnapshot snapshot, long exchangeId) {
+		return snapshot.exchangesOf(process.id)
+			.stream()
+			.filter(e -> e.exchangeId == exchangeId)
+			.findFirst()
+			.orElseThrow()
+			.defaultProviderId;
+	}
+
+	private List<CalcExchange> exchanges(TechIndex techIndex) {
+		var list = new ArrayList<CalcExchange>();
+		new ExchangeTable(db).each(techIndex, list::add);
+		list.sort(Comparator.comparingLong(e -> e.exchangeId));
+		return list;
+	}
+}
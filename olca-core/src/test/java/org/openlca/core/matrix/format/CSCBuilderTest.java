@@ -0,0 +1,85 @@
+package org.openlca.core.matrix.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CSCBuilderTest {
+
+	@Test
+	public void testAddAndSet() {
+		var b = new CSCBuilder();
+		b.minSize(5, 5);
+		b.add(3, 1, 1.0);
+		b.add(0, 1, 2.0);
+		b.add(3, 1, 1.5);
+		b.set(4, 4, 5.0);
+		b.add(4, 4, 1.0);
+		b.add(2, 2, 1.0);
+		b.add(2, 2, -1.0);
+		b.set(1, 0, 3.0);
+		b.set(1, 0, 4.0);
+
+		var m = b.finish();
+		assertTrue(m instanceof CSCMatrix);
+		assertEquals(5, m.rows());
+		assertEquals(5, m.columns());
+		assertEquals(2.5, m.get(3, 1), 1e-16);
+		assertEquals(2.0, m.get(0, 1), 1e-16);
+		assertEquals(5.0, m.get(4, 4), 1e-16);
+		assertEquals(4.0, m.get(1, 0), 1e-16);
+		assertEquals(0.0, m.get(2, 2), 1e-16);
+
+		// zero sums are dropped and rows are sorted within a column
+		var csc = (CSCMatrix) m;
+		assertEquals(4, csc.values.length);
+		assertEquals(0, csc.rowIndices[1]);
+		assertEquals(3, csc.rowIndices[2]);
+	}
+
+	@Test
+	public void testGrowAndDense() {
+		var b = new CSCBuilder();
+		for (int row = 0; row < 10; row++) {
+			for (int col = 0; col < 10; col++) {
+				b.add(row, col, row * 10 + col + 1);
+			}
+		}
+		var m = b.finish();
+		assertTrue(m instanceof DenseMatrix);
+		assertEquals(10, m.rows());
+		assertEquals(10, m.columns());
+		for (int row = 0; row < 10; row++) {
+			for (int col = 0; col < 10; col++) {
+				assertEquals(row * 10 + col + 1, m.get(row, col), 1e-16);
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsMatrixBuilder() {
+		var rand = new Random(42);
+		var csc = new CSCBuilder();
+		var mb = new MatrixBuilder();
+		csc.minSize(200, 200);
+		mb.minSize(200, 200);
+		for (int i = 0; i < 2000; i++) {
+			int row = rand.nextInt(200);
+			int col = rand.nextInt(200);
+			double val = rand.nextDouble();
+			csc.add(row, col, val);
+			mb.add(row, col, val);
+		}
+		var expected = mb.finish();
+		var m = csc.finish();
+		assertTrue(m instanceof CSCMatrix);
+		for (int col = 0; col < 200; col++) {
+			for (int row = 0; row < 200; row++) {
+				assertEquals(expected.get(row, col), m.get(row, col), 1e-12);
+			}
+		}
+	}
+}
@@ -160,6 +160,32 @@ public class CSCMatrixTest {
 		}
 	}
 
+	@Test
+	public void testIterateColumn() {
+		var data = new double[][]{
+				{1.0, 0.0, 0.0},
+				{2.0, 0.0, 4.0},
+				{0.0, 0.0, 5.0},
+		};
+		MatrixReader[] matrices = {
+				CSCMatrix.of(data),
+				HashPointMatrix.of(data),
+				DenseMatrix.of(data),
+		};
+		for (var m : matrices) {
+			for (int col = 0; col < 3; col++) {
+				var column = new double[3];
+				int[] count = {0};
+				m.iterateColumn(col, (row, c, val) -> {
+					column[row] = val;
+					count[0]++;
+				});
+				assertArrayEquals(m.getColumn(col), column, 1e-16);
+				assertEquals(col == 1 ? 0 : 2, count[0]);
+			}
+		}
+	}
+
 	private double[] v(double... vals) {
 		return vals;
 	}
@@ -0,0 +1,118 @@
+package org.openlca.core.matrix.format;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseProductsTest {
+
+	private final Random rand = new Random(42);
+
+	@Test
+	public void testMatrixVector() {
+		var m = sparse(40, 30, 0.1);
+		var v = new double[30];
+		for (int i = 0; i < v.length; i++) {
+			v[i] = rand.nextDouble();
+		}
+		var expected = naive(m, v);
+		assertArrayEquals(expected, SparseProducts.multiply(m, v), 1e-12);
+		assertArrayEquals(expected,
+			SparseProducts.multiply(m.compress(), v), 1e-12);
+		assertArrayEquals(expected,
+			SparseProducts.multiply(MatrixConverter.dense(m), v), 1e-12);
+		assertArrayEquals(expected,
+			SparseProducts.multiply(JavaMatrix.of(toArray(m)), v), 1e-12);
+	}
+
+	@Test
+	public void testSmallProducts() {
+		checkProducts(sparse(20, 15, 0.2), sparse(15, 25, 0.2));
+	}
+
+	@Test
+	public void testParallelProducts() {
+		// large enough to be calculated in parallel blocks
+		checkProducts(sparse(300, 400, 0.05), sparse(400, 350, 0.05));
+	}
+
+	@Test
+	public void testEmptyColumns() {
+		var a = new HashPointMatrix(3, 3);
+		a.set(0, 0, 2);
+		a.set(2, 0, 1);
+		var b = new HashPointMatrix(3, 2);
+		b.set(0, 1, 3);
+		var r = SparseProducts.multiply(a, b);
+		assertEquals(3, r.rows());
+		assertEquals(2, r.columns());
+		assertArrayEquals(new double[]{0, 0, 0}, r.getColumn(0), 1e-16);
+		assertArrayEquals(new double[]{6, 0, 3}, r.getColumn(1), 1e-16);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDimensionMismatch() {
+		SparseProducts.multiply(sparse(3, 4, 0.5), sparse(3, 4, 0.5));
+	}
+
+	private void checkProducts(HashPointMatrix a, HashPointMatrix b) {
+		var expected = naive(a, b);
+		var denseA = MatrixConverter.dense(a);
+		var denseB = MatrixConverter.dense(b);
+		check(expected, SparseProducts.multiply(a, b));
+		check(expected, SparseProducts.multiply(a.compress(), b.compress()));
+		check(expected, SparseProducts.multiply(a, denseB));
+		check(expected, SparseProducts.multiply(denseA, b));
+		check(expected, SparseProducts.multiply(denseA, denseB));
+	}
+
+	private void check(double[][] expected, DenseMatrix r) {
+		assertEquals(expected.length, r.rows());
+		for (int row = 0; row < expected.length; row++) {
+			assertArrayEquals(expected[row], r.getRow(row), 1e-12);
+		}
+	}
+
+	private HashPointMatrix sparse(int rows, int cols, double density) {
+		var m = new HashPointMatrix(rows, cols);
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (rand.nextDouble() < density) {
+					m.set(row, col, rand.nextDouble() - 0.5);
+				}
+			}
+		}
+		return m;
+	}
+
+	private double[] naive(MatrixReader m, double[] v) {
+		var r = new double[m.rows()];
+		for (int row = 0; row < m.rows(); row++) {
+			for (int col = 0; col < m.columns(); col++) {
+				r[row] += m.get(row, col) * v[col];
+			}
+		}
+		return r;
+	}
+
+	private double[][] naive(MatrixReader a, MatrixReader b) {
+		var r = new double[a.rows()][b.columns()];
+		for (int row = 0; row < a.rows(); row++) {
+			for (int col = 0; col < b.columns(); col++) {
+				for (int k = 0; k < a.columns(); k++) {
+					r[row][col] += a.get(row, k) * b.get(k, col);
+				}
+			}
+		}
+		return r;
+	}
+
+	private double[][] toArray(MatrixReader m) {
+		var array = new double[m.rows()][m.columns()];
+		m.iterate((row, col, val) -> array[row][col] = val);
+		return array;
+	}
+}
@@ -0,0 +1,86 @@
+package org.openlca.core.matrix.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+public class LongPairIntMapTest {
+
+	@Test
+	public void testPutGet() {
+		var map = new LongPairIntMap();
+		int n = 10_000;
+		for (int i = 0; i < n; i++) {
+			map.put(i, n - i, i);
+		}
+		assertEquals(n, map.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, map.get(i, n - i));
+			assertTrue(map.containsKey(i, n - i));
+			assertFalse(map.containsKey(n - i, i + 1));
+		}
+		assertEquals(-1, map.get(-1, -1));
+
+		// replace a value
+		map.put(42, n - 42, 4242);
+		assertEquals(n, map.size());
+		assertEquals(4242, map.get(42, n - 42));
+	}
+
+	@Test
+	public void testCopy() {
+		var map = new LongPairIntMap();
+		map.put(1, 2, 3);
+		var copy = map.copy();
+		copy.put(2, 3, 4);
+		assertEquals(3, copy.get(1, 2));
+		assertEquals(4, copy.get(2, 3));
+		assertEquals(-1, map.get(2, 3));
+		assertEquals(1, map.size());
+
+		int[] sum = {0};
+		copy.forEach((first, second, value) -> sum[0] += value);
+		assertEquals(7, sum[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeValue() {
+		new LongPairIntMap().put(1, 2, -1);
+	}
+
+	@Test
+	public void testTechIndexLinks() {
+		var index = new TechIndex(provider(1, 1));
+		var p2 = provider(2, 2);
+		index.putLink(LongPair.of(1, 10), p2);
+		index.putLink(LongPair.of(1, 11), provider(3, 3));
+		index.putLink(LongPair.of(1, 10), provider(3, 3));
+
+		assertEquals(3, index.size());
+		assertEquals(1, index.of(2, 2));
+		assertEquals(-1, index.of(2, 1));
+		assertSame(p2, index.getProvider(2, 2));
+		assertSame(p2, index.getLinkedProvider(1, 10));
+		assertSame(p2, index.getLinkedProvider(LongPair.of(1, 10)));
+		assertNull(index.getLinkedProvider(1, 12));
+		assertEquals(2, index.getLinkedExchanges().size());
+
+		var copy = index.copy();
+		assertSame(p2, copy.getLinkedProvider(1, 10));
+		assertEquals(2, copy.of(3, 3));
+	}
+
+	private TechFlow provider(long id, long flowId) {
+		var process = new ProcessDescriptor();
+		process.id = id;
+		var flow = new FlowDescriptor();
+		flow.id = flowId;
+		return TechFlow.of(process, flow);
+	}
+}
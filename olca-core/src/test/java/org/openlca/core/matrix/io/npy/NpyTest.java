@@ -11,6 +11,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 
 public class NpyTest {
@@ -61,6 +64,49 @@ public class NpyTest {
 
 	}
 
+	@Test
+	public void testMap() {
+		// map with one column per segment
+		try (var mapped = MappedDenseMatrix.of(npy, 2)) {
+			assertEquals(2, mapped.rows());
+			assertEquals(3, mapped.columns());
+			for (int j = 0; j < matrix.columns; j++) {
+				assertArrayEquals(matrix.getColumn(j), mapped.getColumn(j), 1e-10);
+			}
+			for (int i = 0; i < matrix.rows; i++) {
+				assertArrayEquals(matrix.getRow(i), mapped.getRow(i), 1e-10);
+			}
+			assertArrayEquals(new double[]{1, 5}, mapped.diag(), 1e-10);
+			assertEquals(6, mapped.get(1, 2), 1e-10);
+			var copy = (DenseMatrix) mapped.copy();
+			assertArrayEquals(matrix.data, copy.data, 1e-10);
+		}
+	}
+
+	@Test
+	public void testMapRowMajor() throws Exception {
+		var file = Files.createTempFile("__olca_npy_test_", ".npy").toFile();
+		try (var out = new FileOutputStream(file)) {
+			var header = new Header();
+			header.dtype = "<f8";
+			header.shape = new int[]{2, 3};
+			header.fortranOrder = false;
+			header.write(out);
+			var data = ByteBuffer.allocate(6 * 8)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			data.asDoubleBuffer().put(new double[]{1, 2, 3, 4, 5, 6});
+			out.write(data.array());
+		}
+		try (var mapped = MappedDenseMatrix.of(file, 4)) {
+			for (int j = 0; j < matrix.columns; j++) {
+				assertArrayEquals(matrix.getColumn(j), mapped.getColumn(j), 1e-10);
+			}
+			assertArrayEquals(matrix.getRow(1), mapped.getRow(1), 1e-10);
+			assertArrayEquals(new double[]{1, 5}, mapped.diag(), 1e-10);
+		}
+		file.delete();
+	}
+
 	@Test
 	public void testByteMatrix() throws Exception {
 		var m = new DenseByteMatrix(2, 3);
@@ -7,9 +7,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class NpzTest {
 
@@ -46,4 +49,61 @@ public class NpzTest {
 			tempFile.deleteOnExit();
 		}
 	}
+
+	@Test
+	public void testMapCSC() throws IOException {
+		var dense = new double[][]{
+			{1.0, 0.0, 0.0, 2.0},
+			{0.0, 4.0, 0.0, 0.0},
+			{0.0, 0.0, 0.0, 1.0},
+			{3.0, 0.0, 0.0, 5.0},
+		};
+		var file = Files.createTempFile("_npz_test_", ".npz").toFile();
+		Npz.save(file, CSCMatrix.of(dense));
+
+		var mapped = Npz.map(file);
+		Assert.assertNotNull(mapped);
+		Assert.assertEquals(4, mapped.rows());
+		Assert.assertEquals(4, mapped.columns());
+		for (int col = 0; col < 4; col++) {
+			var expected = new double[4];
+			for (int row = 0; row < 4; row++) {
+				expected[row] = dense[row][col];
+				Assert.assertEquals(dense[row][col], mapped.get(row, col), 1e-16);
+			}
+			Assert.assertArrayEquals(expected, mapped.getColumn(col), 1e-16);
+			Assert.assertArrayEquals(
+				expected, Npz.loadColumn(file, col), 1e-16);
+		}
+		Assert.assertArrayEquals(
+			new double[]{1.0, 4.0, 0.0, 5.0}, mapped.diag(), 1e-16);
+		Assert.assertArrayEquals(
+			new double[]{3.0, 0.0, 0.0, 5.0}, mapped.getRow(3), 1e-16);
+
+		// the file can be still loaded completely
+		var loaded = (CSCMatrix) Npz.load(file);
+		Assert.assertArrayEquals(dense[3], loaded.getRow(3), 1e-16);
+
+		// a closed matrix cannot be used anymore
+		mapped.close();
+		try {
+			mapped.getColumn(0);
+			Assert.fail("a closed matrix should not be readable");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		file.delete();
+	}
+
+	@Test
+	public void testNoMappingOfCompressedFiles() throws IOException {
+		var file = Files.createTempFile("_npz_test_", ".npz").toFile();
+		try (var zip = new ZipOutputStream(new FileOutputStream(file))) {
+			zip.putNextEntry(new ZipEntry("data.npy"));
+			Npy.write(zip, new double[]{1.0, 2.0});
+			zip.closeEntry();
+		}
+		Assert.assertNull(Npz.map(file));
+		file.delete();
+	}
 }
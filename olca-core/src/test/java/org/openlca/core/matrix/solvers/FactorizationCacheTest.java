@@ -0,0 +1,189 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.index.TechFlow;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+public class FactorizationCacheTest {
+
+	private final double[][] values = {
+		{1.0, 0.0, -0.5},
+		{-2.0, 1.0, 0.0},
+		{0.0, -0.25, 1.0},
+	};
+
+	@Test
+	public void testFingerprint() {
+		var index = index(3);
+		var fp = FactorizationCache.fingerprint(
+			index, HashPointMatrix.of(values));
+
+		// the fingerprint does not depend on the matrix format
+		assertEquals(fp, FactorizationCache.fingerprint(
+			index, CSCMatrix.of(values)));
+		assertEquals(fp, FactorizationCache.fingerprint(
+			index, DenseMatrix.of(values)));
+
+		// but on the matrix values and the index
+		var other = HashPointMatrix.of(values);
+		other.set(2, 2, 2.0);
+		assertNotEquals(fp, FactorizationCache.fingerprint(index, other));
+		assertNotEquals(fp, FactorizationCache.fingerprint(
+			index(4), HashPointMatrix.of(values)));
+	}
+
+	@Test
+	public void testMemoryTier() {
+		var cache = FactorizationCache.create(1);
+		var solver = new SparseJavaSolver();
+		var index = index(3);
+		var f1 = cache.factorize(solver, index, HashPointMatrix.of(values));
+		var f2 = cache.factorize(solver, index, CSCMatrix.of(values));
+		assertSame(f1, f2);
+		var x = f2.solve(0, 1.0);
+		assertArrayEquals(solver.solve(CSCMatrix.of(values), 0, 1.0), x, 1e-16);
+
+		var i1 = cache.invert(solver, index, HashPointMatrix.of(values));
+		var i2 = cache.invert(solver, index, HashPointMatrix.of(values));
+		assertSame(i1, i2);
+
+		// the factorization was evicted
+		var f3 = cache.factorize(solver, index, HashPointMatrix.of(values));
+		assertNotSame(f1, f3);
+	}
+
+	@Test
+	public void testDiskTier() throws Exception {
+		var dir = Files.createTempDirectory("_olca_test_").toFile();
+		var solver = new SparseJavaSolver();
+		var index = index(3);
+		var a = CSCMatrix.of(values);
+
+		var f1 = FactorizationCache.create(1)
+			.withDiskTier(dir, 1 << 20)
+			.factorize(solver, index, a);
+		var i1 = FactorizationCache.create(1)
+			.withDiskTier(dir, 1 << 20)
+			.invert(solver, index, a);
+
+		// a new cache reads the entries from the disk tier
+		var cache = FactorizationCache.create(1).withDiskTier(dir, 1 << 20);
+		var f2 = cache.factorize(solver, index, a);
+		assertNotSame(f1, f2);
+		assertArrayEquals(
+			f1.solve(new double[]{1, 2, 3}),
+			f2.solve(new double[]{1, 2, 3}), 1e-16);
+		var i2 = cache.invert(solver, index, a);
+		assertArrayEquals(i1.getColumn(1), i2.getColumn(1), 1e-16);
+
+		var files = dir.listFiles();
+		assertNotNull(files);
+		assertEquals(2, files.length);
+		for (var file : files) {
+			assertTrue(file.delete());
+		}
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void testDiskEviction() throws Exception {
+		var dir = Files.createTempDirectory("_olca_test_").toFile();
+		var solver = new SparseJavaSolver();
+		var a = CSCMatrix.of(values);
+
+		// the inverse of a 3x3 matrix has 8 + 9 * 8 = 80 bytes; the disk
+		// tier can hold two of them
+		var cache = FactorizationCache.create(1).withDiskTier(dir, 200);
+		cache.invert(solver, index(3), a);
+		var old = dir.listFiles();
+		assertNotNull(old);
+		assertEquals(1, old.length);
+		assertTrue(old[0].setLastModified(System.currentTimeMillis() - 60_000));
+
+		var other = HashPointMatrix.of(values);
+		other.set(2, 2, 2.0);
+		cache.invert(solver, index(3), other);
+		var files = dir.listFiles();
+		assertNotNull(files);
+		assertEquals(2, files.length);
+
+		// the least recently used file is deleted
+		other.set(2, 2, 3.0);
+		cache.invert(solver, index(3), other);
+		files = dir.listFiles();
+		assertNotNull(files);
+		assertEquals(2, files.length);
+		assertFalse(old[0].exists());
+
+		for (var file : files) {
+			assertTrue(file.delete());
+		}
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void testCorruptEntries() throws Exception {
+		var dir = Files.createTempDirectory("_olca_test_").toFile();
+		var solver = new SparseJavaSolver();
+		var index = index(3);
+		var a = CSCMatrix.of(values);
+		FactorizationCache.create(1)
+			.withDiskTier(dir, 1 << 20)
+			.factorize(solver, index, a);
+		FactorizationCache.create(1)
+			.withDiskTier(dir, 1 << 20)
+			.invert(solver, index, a);
+		var files = dir.listFiles();
+		assertNotNull(files);
+		assertEquals(2, files.length);
+
+		// overwrite the entries with huge sizes in their headers
+		for (var file : files) {
+			Files.write(file.toPath(), new byte[]{
+				0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f});
+		}
+
+		// the corrupt entries are cache misses and are written again
+		var cache = FactorizationCache.create(1).withDiskTier(dir, 1 << 20);
+		var f = cache.factorize(solver, index, a);
+		assertArrayEquals(
+			solver.solve(a, 0, 1.0), f.solve(0, 1.0), 1e-16);
+		var inverse = cache.invert(solver, index, a);
+		assertArrayEquals(
+			solver.invert(a).getColumn(1), inverse.getColumn(1), 1e-16);
+		files = dir.listFiles();
+		assertNotNull(files);
+		assertEquals(2, files.length);
+		for (var file : files) {
+			assertTrue(file.length() > 8);
+			assertTrue(file.delete());
+		}
+		assertTrue(dir.delete());
+	}
+
+	private TechIndex index(int size) {
+		TechIndex index = null;
+		for (int i = 0; i < size; i++) {
+			var process = new ProcessDescriptor();
+			process.id = i + 1;
+			var flow = new FlowDescriptor();
+			flow.id = i + 100;
+			var product = TechFlow.of(process, flow);
+			if (index == null) {
+				index = new TechIndex(product);
+			} else {
+				index.add(product);
+			}
+		}
+		return index;
+	}
+}
@@ -0,0 +1,182 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.SingularMatrixException;
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.JavaMatrix;
+import org.openlca.core.matrix.format.MatrixReader;
+
+public class SparseJavaSolverTest {
+
+	private final SparseJavaSolver solver = new SparseJavaSolver();
+	private final JavaSolver denseSolver = new JavaSolver();
+
+	@Test
+	public void testSimpleSolve() {
+		var a = HashPointMatrix.of(new double[][]{
+				{1.0, 0.0},
+				{-5.0, 4.0},
+		});
+		var x = solver.solve(a, 0, 1.0);
+		assertArrayEquals(new double[]{1, 1.25}, x, 1e-14);
+	}
+
+	@Test
+	public void testPivoting() {
+		// a permutation matrix requires row pivoting
+		var a = CSCMatrix.of(new double[][]{
+				{0.0, 0.0, 2.0},
+				{1.0, 0.0, 0.0},
+				{0.0, -4.0, 0.0},
+		});
+		var lu = SparseLU.of(a);
+		var x = lu.solve(new double[]{2.0, 3.0, 8.0});
+		assertArrayEquals(new double[]{3.0, -2.0, 1.0}, x, 1e-14);
+	}
+
+	@Test(expected = SingularMatrixException.class)
+	public void testSingular() {
+		var a = HashPointMatrix.of(new double[][]{
+				{1.0, -2.0},
+				{-1.0, 2.0},
+		});
+		solver.solve(a, 1, 1.0);
+	}
+
+	@Test
+	public void testTechMatrices() {
+		var rand = new Random(42);
+		for (int n : new int[]{1, 10, 100, 500}) {
+			var a = techMatrix(rand, n);
+			var dense = JavaMatrix.of(toArray(a));
+			for (int i = 0; i < 5; i++) {
+				int idx = rand.nextInt(n);
+				var expected = denseSolver.solve(dense, idx, 1.0);
+				var x = solver.solve(a, idx, 1.0);
+				assertArrayEquals(expected, x, 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testUnstructuredMatrices() {
+		var rand = new Random(13);
+		for (int n : new int[]{5, 50, 250}) {
+			var a = new HashPointMatrix(n, n);
+			for (int j = 0; j < n; j++) {
+				// a random permutation of the diagonal + some noise
+				a.set((j * 7 + 3) % n, j, 1 + rand.nextDouble());
+				for (int k = 0; k < 3; k++) {
+					a.set(rand.nextInt(n), j, rand.nextDouble() - 0.5);
+				}
+			}
+			var dense = JavaMatrix.of(toArray(a));
+			var lu = solver.factorize(a);
+			var expected = denseSolver.factorize(dense);
+			var b = new double[n];
+			for (int i = 0; i < n; i++) {
+				b[i] = rand.nextDouble();
+			}
+			assertArrayEquals(expected.solve(b), lu.solve(b), 1e-8);
+		}
+	}
+
+	@Test
+	public void testInvert() {
+		var a = techMatrix(new Random(7), 50);
+		var inv = solver.invert(a);
+		var expected = denseSolver.invert(JavaMatrix.of(toArray(a)));
+		for (int j = 0; j < 50; j++) {
+			assertArrayEquals(expected.getColumn(j), inv.getColumn(j), 1e-10);
+		}
+	}
+
+	@Test
+	public void testMultiply() {
+		var rand = new Random(3);
+		var a = techMatrix(rand, 30);
+		var b = techMatrix(rand, 30);
+		var expected = denseSolver.multiply(
+				JavaMatrix.of(toArray(a)), JavaMatrix.of(toArray(b)));
+		var r = solver.multiply(a, b);
+		for (int j = 0; j < 30; j++) {
+			assertArrayEquals(expected.getColumn(j), r.getColumn(j), 1e-12);
+		}
+	}
+
+	@Test
+	public void testSymbolicFactorization() {
+		var rand = new Random(11);
+		var a = techMatrix(rand, 200);
+		var symbolic = solver.analyze(a);
+		assertEquals(200, symbolic.size());
+		Factorization inPlace = null;
+		for (int run = 0; run < 5; run++) {
+
+			// new values with the same structure
+			var next = new HashPointMatrix(200, 200);
+			a.iterate((row, col, val) -> next.set(
+					row, col, val * (0.5 + rand.nextDouble())));
+			var expected = denseSolver.factorize(JavaMatrix.of(toArray(next)));
+
+			var lu = symbolic.factorize(next);
+			var previous = inPlace;
+			inPlace = inPlace == null
+					? symbolic.factorize(next)
+					: symbolic.refactorize(inPlace, next);
+			if (previous != null) {
+				assertSame(previous, inPlace);
+			}
+			for (int i = 0; i < 3; i++) {
+				int idx = rand.nextInt(200);
+				var x = expected.solve(idx, 1.0);
+				assertArrayEquals(x, lu.solve(idx, 1.0), 1e-9);
+				assertArrayEquals(x, inPlace.solve(idx, 1.0), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testDefaultSymbolicFactorization() {
+		var a = JavaMatrix.of(toArray(techMatrix(new Random(5), 20)));
+		var symbolic = denseSolver.analyze(a);
+		assertEquals(20, symbolic.size());
+		var f = symbolic.refactorize(null, a);
+		assertArrayEquals(
+				denseSolver.solve(a, 3, 1.0), f.solve(3, 1.0), 1e-12);
+	}
+
+	/**
+	 * Creates a random matrix with a structure that is typical for technology
+	 * matrices: positive outputs on the diagonal and a few negative inputs in
+	 * each column, some of them from hub processes.
+	 */
+	private HashPointMatrix techMatrix(Random rand, int n) {
+		var a = new HashPointMatrix(n, n);
+		int hubs = Math.max(1, n / 50);
+		for (int j = 0; j < n; j++) {
+			a.set(j, j, 1.0);
+			int inputs = rand.nextInt(5);
+			for (int k = 0; k < inputs; k++) {
+				int row = rand.nextDouble() < 0.3
+						? rand.nextInt(hubs)
+						: rand.nextInt(n);
+				if (row != j) {
+					a.set(row, j, -0.1 * rand.nextDouble());
+				}
+			}
+		}
+		return a;
+	}
+
+	private double[][] toArray(MatrixReader m) {
+		var array = new double[m.rows()][m.columns()];
+		m.iterate((row, col, val) -> array[row][col] = val);
+		return array;
+	}
+}
@@ -10,6 +10,7 @@ import org.openlca.core.matrix.index.EnviFlow;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.index.TechFlow;
 import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
 import org.openlca.core.matrix.format.JavaMatrix;
 import org.openlca.core.model.descriptors.FlowDescriptor;
 import org.openlca.core.model.descriptors.ProcessDescriptor;
@@ -68,6 +69,89 @@ public class SankeyTest {
 		Assert.assertEquals(3, visited.get());
 	}
 
+	@Test
+	public void testLongChain() {
+		// a chain of processes where each process needs one unit of the
+		// next process and emits one unit of the flow
+		int n = 500;
+		var data = new MatrixData();
+		data.techIndex = new TechIndex(product(1));
+		data.techIndex.setDemand(1.0);
+		var tech = new double[n][n];
+		var envi = new double[1][n];
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				data.techIndex.add(product(i + 1));
+				tech[i][i - 1] = -1.0;
+			}
+			tech[i][i] = 1.0;
+			envi[0][i] = 1.0;
+		}
+		data.techMatrix = CSCMatrix.of(tech);
+		data.enviIndex = EnviIndex.create();
+		var flow = new FlowDescriptor();
+		flow.id = 42;
+		data.enviIndex.add(EnviFlow.outputOf(flow));
+		data.enviMatrix = JavaMatrix.of(envi);
+		var result = FullResult.of(Tests.getDb(), data);
+
+		// without limits, all nodes are added
+		var sankey = Sankey.of(data.enviIndex.at(0), result).build();
+		Assert.assertEquals(n, sankey.nodeCount);
+		Assert.assertEquals(n, sankey.root.total, 1e-10);
+		var count = new AtomicInteger(0);
+		sankey.traverse(node -> {
+			count.incrementAndGet();
+			Assert.assertEquals(n - node.index, node.total, 1e-10);
+			Assert.assertEquals(
+					node.index == n - 1 ? 0 : 1, node.providers.size());
+		});
+		Assert.assertEquals(n, count.get());
+
+		// with a maximum node count
+		sankey = Sankey.of(data.enviIndex.at(0), result)
+				.withMaximumNodeCount(10)
+				.build();
+		Assert.assertEquals(10, sankey.nodeCount);
+
+		// with a minimum share; the share of node i is (n - i) / n
+		sankey = Sankey.of(data.enviIndex.at(0), result)
+				.withMinimumShare(0.5)
+				.build();
+		Assert.assertEquals(n / 2 + 1, sankey.nodeCount);
+	}
+
+	@Test
+	public void testLinksWithLimit() {
+		// 1 -> 2, 1 -> 3, 2 -> 3: node 3 is a provider of 1 and 2
+		var data = new MatrixData();
+		data.techIndex = new TechIndex(product(1));
+		data.techIndex.setDemand(1.0);
+		data.techIndex.add(product(2));
+		data.techIndex.add(product(3));
+		data.techMatrix = JavaMatrix.of(new double[][]{
+				{1.0, 0.0, 0.0},
+				{-1.0, 1.0, 0.0},
+				{-1.0, -1.0, 1.0},
+		});
+		data.enviIndex = EnviIndex.create();
+		var flow = new FlowDescriptor();
+		flow.id = 42;
+		data.enviIndex.add(EnviFlow.outputOf(flow));
+		data.enviMatrix = JavaMatrix.of(new double[][]{
+				{1.0, 1.0, 1.0},
+		});
+		var result = FullResult.of(Tests.getDb(), data);
+
+		var sankey = Sankey.of(data.enviIndex.at(0), result)
+				.withMaximumNodeCount(3)
+				.build();
+		Assert.assertEquals(3, sankey.nodeCount);
+		var links = new AtomicInteger(0);
+		sankey.traverse(node -> links.addAndGet(node.providers.size()));
+		Assert.assertEquals(3, links.get());
+	}
+
 	private TechFlow product(int i) {
 		var process = new ProcessDescriptor();
 		process.id = i;
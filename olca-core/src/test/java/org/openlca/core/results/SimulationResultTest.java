@@ -0,0 +1,140 @@
+package org.openlca.core.results;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.index.EnviFlow;
+import org.openlca.core.matrix.index.EnviIndex;
+import org.openlca.core.matrix.index.ImpactIndex;
+import org.openlca.core.matrix.index.TechFlow;
+import org.openlca.core.matrix.index.TechIndex;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.results.providers.SimpleResultProvider;
+
+public class SimulationResultTest {
+
+	private MatrixData data;
+	private File dir;
+
+	@Before
+	public void setup() throws Exception {
+		var process = new ProcessDescriptor();
+		process.id = 1;
+		var product = new FlowDescriptor();
+		product.id = 2;
+		product.flowType = FlowType.PRODUCT_FLOW;
+		data = new MatrixData();
+		data.techIndex = new TechIndex(TechFlow.of(process, product));
+
+		data.enviIndex = EnviIndex.create();
+		for (int i = 0; i < 500; i++) {
+			var flow = new FlowDescriptor();
+			flow.id = 10 + i;
+			flow.flowType = FlowType.ELEMENTARY_FLOW;
+			data.enviIndex.add(i % 2 == 0
+				? EnviFlow.inputOf(flow)
+				: EnviFlow.outputOf(flow));
+		}
+
+		data.impactIndex = new ImpactIndex();
+		var impact = new ImpactDescriptor();
+		impact.id = 1000;
+		data.impactIndex.add(impact);
+
+		dir = Files.createTempDirectory("_olca_test_").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		var files = dir.listFiles();
+		if (files != null) {
+			for (var f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testFileStore() {
+		var inMemory = new SimulationResult(data);
+		var inFile = SimulationResult.of(data, dir);
+
+		// more runs than fit into a block of the file
+		var random = new Random(42);
+		for (int run = 0; run < 5000; run++) {
+			var r = nextResult(random);
+			if (run % 2 == 0) {
+				inMemory.append(r);
+				inFile.append(r);
+			} else {
+				int i = inMemory.reserve(1, List.of());
+				int j = inFile.reserve(1, List.of());
+				assertEquals(i, j);
+				inMemory.set(i, r);
+				inFile.set(j, r);
+				inMemory.trim(i);
+				inFile.trim(j);
+			}
+		}
+
+		assertEquals(5000, inFile.getNumberOfRuns());
+		for (var flow : List.of(
+			data.enviIndex.at(0),
+			data.enviIndex.at(1),
+			data.enviIndex.at(499))) {
+			var expected = inMemory.getAll(flow);
+			assertArrayEquals(expected, inFile.getAll(flow), 1e-16);
+			assertEquals(expected[4321], inFile.get(flow, 4321), 1e-16);
+		}
+
+		var impact = data.impactIndex.at(0);
+		assertArrayEquals(
+			inMemory.getAll(impact), inFile.getAll(impact), 1e-16);
+		inFile.close();
+	}
+
+	@Test
+	public void testTrim() {
+		var result = SimulationResult.of(data, dir);
+		var random = new Random(42);
+		int offset = result.reserve(3, List.of());
+		var r1 = nextResult(random);
+		var r3 = nextResult(random);
+		result.set(offset, r1);
+		result.set(offset + 2, r3);
+		result.trim(offset);
+
+		assertEquals(2, result.getNumberOfRuns());
+		var flow = data.enviIndex.at(1);
+		int idx = data.enviIndex.of(flow);
+		assertEquals(r1.totalFlowResults[idx], result.get(flow, 0), 1e-16);
+		assertEquals(r3.totalFlowResults[idx], result.get(flow, 1), 1e-16);
+		result.close();
+	}
+
+	private SimpleResult nextResult(Random random) {
+		var flows = new double[data.enviIndex.size()];
+		for (int i = 0; i < flows.length; i++) {
+			flows[i] = i + random.nextGaussian();
+		}
+		return SimpleResultProvider.of(data.techIndex)
+			.withFlowIndex(data.enviIndex)
+			.withImpactIndex(data.impactIndex)
+			.withTotalFlows(flows)
+			.withTotalImpacts(new double[] { random.nextDouble() })
+			.toResult();
+	}
+}
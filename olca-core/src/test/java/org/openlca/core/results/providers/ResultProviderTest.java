@@ -115,6 +115,7 @@ public class ResultProviderTest {
 		return List.of(
 				EagerResultProvider.create(data),
 				LazyResultProvider.create(data),
+				SimulationResultProvider.of(data),
 				LazyLibraryProvider.of(db, foreground)
 		);
 	}
@@ -314,6 +315,21 @@ public class ResultProviderTest {
 		}
 	}
 
+	@Test
+	public void testTotalFlowValuesOf() {
+		int[] products = {1, 0, 1};
+		for (int flow = 0; flow < 2; flow++) {
+			var values = provider.totalFlowValuesOf(flow, products);
+			assertEquals(products.length, values.length);
+			for (int i = 0; i < products.length; i++) {
+				assertEquals(
+						provider.totalFlowOf(flow, products[i]),
+						values[i],
+						1e-10);
+			}
+		}
+	}
+
 	@Test
 	public void testTotalFlows() {
 		assertArrayEquals(
@@ -463,6 +479,21 @@ public class ResultProviderTest {
 		}
 	}
 
+	@Test
+	public void testTotalImpactValuesOf() {
+		int[] products = {1, 0, 1};
+		for (int impact = 0; impact < 3; impact++) {
+			var values = provider.totalImpactValuesOf(impact, products);
+			assertEquals(products.length, values.length);
+			for (int i = 0; i < products.length; i++) {
+				assertEquals(
+						provider.totalImpactOf(impact, products[i]),
+						values[i],
+						1e-10);
+			}
+		}
+	}
+
 	@Test
 	public void testTotalImpacts() {
 		assertArrayEquals(
@@ -0,0 +1,86 @@
+package org.openlca.jsonld.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.jsonld.MemStore;
+import org.openlca.jsonld.output.JsonExport;
+
+public class BulkImportTest {
+
+	private IDatabase source;
+	private IDatabase target;
+	private final List<Process> processes = new ArrayList<>();
+
+	@Before
+	public void setup() {
+		source = Derby.createInMemory();
+		target = Derby.createInMemory();
+
+		// a chain of processes p[i] -> p[i + 1] with default providers
+		var units = source.insert(UnitGroup.of("Mass units", "kg"));
+		var mass = source.insert(FlowProperty.of("Mass", units));
+		var co2 = source.insert(Flow.elementary("CO2", mass));
+		Process provider = null;
+		for (int i = 0; i < 30; i++) {
+			var product = source.insert(Flow.product("p" + i, mass));
+			var process = Process.of("process " + i, product);
+			process.output(co2, i);
+			if (provider != null) {
+				var input = process.input(provider.quantitativeReference.flow, 1);
+				input.defaultProviderId = provider.id;
+			}
+			provider = source.insert(process);
+			processes.add(provider);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		source.close();
+		target.close();
+	}
+
+	@Test
+	public void testBulkImport() {
+		var store = new MemStore();
+		var export = new JsonExport(source, store);
+		export.setExportDefaultProviders(true);
+		export.write(processes.get(processes.size() - 1));
+
+		new JsonImport(store, target)
+				.setBulkMode(true)
+				.run();
+
+		assertEquals(31, new FlowDao(target).getAll().size());
+		var dao = new ProcessDao(target);
+		assertEquals(30, dao.getAll().size());
+		for (int i = 1; i < processes.size(); i++) {
+			var process = dao.getForRefId(processes.get(i).refId);
+			var provider = dao.getForRefId(processes.get(i - 1).refId);
+			assertNotNull(process);
+			assertNotNull(provider);
+			var input = process.exchanges.stream()
+					.filter(e -> e.isInput)
+					.findFirst()
+					.orElseThrow();
+			assertEquals(provider.id, input.defaultProviderId);
+			assertEquals(provider.quantitativeReference.flow.id,
+					input.flow.id);
+		}
+	}
+}
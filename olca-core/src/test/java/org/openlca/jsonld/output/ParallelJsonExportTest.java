@@ -0,0 +1,112 @@
+package org.openlca.jsonld.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.Derby;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ParameterDao;
+import org.openlca.core.model.Actor;
+import org.openlca.core.model.Category;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.ImpactCategory;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.Parameter;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProcessDocumentation;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.jsonld.ZipStore;
+import org.openlca.util.Dirs;
+
+public class ParallelJsonExportTest {
+
+	private IDatabase db;
+	private File dir;
+
+	@Before
+	public void setup() throws Exception {
+		db = Derby.createInMemory();
+		dir = Files.createTempDirectory("_olca_tests").toFile();
+
+		var units = db.insert(UnitGroup.of("Mass units", "kg"));
+		var mass = db.insert(FlowProperty.of("Mass", units));
+		var category = db.insert(Category.of("products", ModelType.FLOW));
+		var actor = db.insert(Actor.of("actor"));
+		db.insert(Parameter.global("global", 42));
+		var co2 = db.insert(Flow.elementary("CO2", mass));
+		for (int i = 0; i < 25; i++) {
+			var product = Flow.product("p" + i, mass);
+			product.category = category;
+			db.insert(product);
+			var process = Process.of("process " + i, product);
+			process.output(co2, i);
+			process.parameters.add(Parameter.process("local", i));
+			process.documentation = new ProcessDocumentation();
+			process.documentation.dataGenerator = actor;
+			db.insert(process);
+		}
+		var impact = ImpactCategory.of("GWP", "kg CO2 eq");
+		impact.factor(co2, 1.0);
+		db.insert(impact);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+		Dirs.delete(dir);
+	}
+
+	@Test
+	public void testSameAsSequentialExport() throws Exception {
+		var seqFile = new File(dir, "sequential.zip");
+		try (var store = ZipStore.open(seqFile)) {
+			var export = new JsonExport(db, store);
+			for (var type : ModelType.values()) {
+				if (type == ModelType.UNKNOWN
+						|| type == ModelType.UNIT
+						|| type == ModelType.NW_SET)
+					continue;
+				// only global parameters are stand-alone data sets
+				var entities = type == ModelType.PARAMETER
+						? new ParameterDao(db).getGlobalParameters()
+						: Daos.root(db, type).getAll();
+				for (var entity : entities) {
+					export.write(entity);
+				}
+			}
+		}
+
+		var parFile = new File(dir, "parallel.zip");
+		var export = new ParallelJsonExport(db, parFile);
+		export.setThreadCount(4);
+		export.setBatchSize(3);
+		export.run();
+
+		try (var seq = ZipStore.open(seqFile);
+				 var par = ZipStore.open(parFile)) {
+			assertNotNull(par.getContext());
+			int count = 0;
+			for (var type : ModelType.values()) {
+				var seqIds = new HashSet<>(seq.getRefIds(type));
+				var parIds = new HashSet<>(par.getRefIds(type));
+				assertEquals(seqIds, parIds);
+				for (var refId : seqIds) {
+					assertEquals(seq.get(type, refId), par.get(type, refId));
+					count++;
+				}
+			}
+			// 1 unit group, 1 flow property, 1 category, 1 actor,
+			// 1 global parameter, 26 flows, 25 processes, 1 impact category
+			assertEquals(57, count);
+		}
+	}
+}
@@ -31,4 +31,33 @@ abstract class AbstractComparisonExpression extends AbstractExpression {
 	public Class<?> getResultType() {
 		return Boolean.class;
 	}
+
+	@Override
+	public Object evaluate(Scope context) throws ExpressionException {
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		Expression a = arguments.get(0);
+		Expression b = arguments.get(1);
+		if (a.getResultType() == Double.class
+				|| b.getResultType() == Double.class)
+			return test(Double.compare(
+					a.evalDouble(context), b.evalDouble(context)));
+		// the types of variables are only known at runtime
+		return test(a.evaluate(context), b.evaluate(context));
+	}
+
+	/**
+	 * Tests the result of the comparison of the first with the second argument
+	 * which is a negative integer, zero, or a positive integer if the first
+	 * argument is less than, equal to, or greater than the second argument.
+	 */
+	protected abstract boolean test(int comparison);
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected boolean test(Object value1, Object value2) {
+		return test(((Comparable) value1).compareTo(value2));
+	}
 }
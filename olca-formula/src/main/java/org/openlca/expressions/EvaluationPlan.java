@@ -0,0 +1,113 @@
+package org.openlca.expressions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An evaluation plan contains the variables of an interpreter that are bound
+ * to expressions in the order of their dependencies: a variable is always
+ * placed after the variables that occur in its expression. Thus, all
+ * variables can be evaluated in a single pass where each expression only
+ * reads the already calculated values of its dependencies.
+ * <p>
+ * Variables with invalid expressions or cyclic dependencies are not part of
+ * the plan. They are evaluated lazily when they are used, and this then
+ * results in the respective error.
+ */
+class EvaluationPlan {
+
+	/** The layout of the interpreter for which the plan was created. */
+	final long layout;
+
+	private final Scope.Variable[] order;
+
+	private EvaluationPlan(long layout, Scope.Variable[] order) {
+		this.layout = layout;
+		this.order = order;
+	}
+
+	static EvaluationPlan of(Scope global, Iterable<Scope> scopes) {
+		var builder = new Builder();
+		builder.add(global);
+		for (var scope : scopes) {
+			builder.add(scope);
+		}
+		var order = builder.order.toArray(new Scope.Variable[0]);
+		return new EvaluationPlan(global.layout(), order);
+	}
+
+	/**
+	 * Evaluates the variables of the plan. Errors are ignored here; they are
+	 * thrown when the respective variables are evaluated in expressions.
+	 */
+	void run() {
+		for (var v : order) {
+			try {
+				v.eval();
+			} catch (InterpreterException ignored) {
+			}
+		}
+	}
+
+	private static class Builder {
+
+		private static final int VISITING = 1;
+		private static final int DONE = 2;
+
+		private final List<Scope.Variable> order = new ArrayList<>();
+		private final HashMap<Scope.Variable, Integer> states = new HashMap<>();
+
+		void add(Scope scope) {
+			for (var v : scope.variables()) {
+				visit(v);
+			}
+		}
+
+		/**
+		 * Adds the dependencies and then the given variable to the order.
+		 * Returns false if the variable cannot be evaluated (because of a
+		 * syntax error or a cyclic dependency).
+		 */
+		private boolean visit(Scope.Variable v) {
+			if (v.expression == null)
+				return true;
+			var state = states.get(v);
+			if (state != null)
+				return state == DONE;
+			states.put(v, VISITING);
+			if (v.compiled == null) {
+				try {
+					v.compiled = Scope.parse(v.expression);
+				} catch (Exception e) {
+					return false;
+				}
+			}
+			var deps = new ArrayList<Scope.Variable>();
+			collect(v.scope(), v.compiled, deps);
+			for (var dep : deps) {
+				if (!visit(dep))
+					return false;
+			}
+			states.put(v, DONE);
+			order.add(v);
+			return true;
+		}
+
+		private void collect(
+				Scope scope, Expression e, List<Scope.Variable> deps) {
+			if (e instanceof VariableFunction) {
+				var binding = scope.bindingOf((VariableFunction) e);
+				if (binding instanceof Scope.Variable) {
+					deps.add((Scope.Variable) binding);
+				}
+				return;
+			}
+			if (!(e instanceof AbstractExpression))
+				return;
+			for (var arg : ((AbstractExpression) e).arguments) {
+				collect(scope, arg, deps);
+			}
+		}
+	}
+}
@@ -8,6 +8,34 @@ public interface Expression {
 
 	public Object evaluate(Scope context) throws ExpressionException;
 
+	/**
+	 * Evaluates this expression to a number. Numeric expressions override this
+	 * method so that no boxed values are created when evaluating an expression
+	 * tree.
+	 */
+	public default double evalDouble(Scope context) throws ExpressionException {
+		var result = evaluate(context);
+		if (result instanceof Double)
+			return (Double) result;
+		throw new ExpressionException(getName()
+				+ " does not evaluate to a number", getLine(), getColumn());
+	}
+
+	/**
+	 * Evaluates this expression to a boolean value. Logical expressions and
+	 * comparisons override this method so that no boxed values are created
+	 * when evaluating an expression tree.
+	 */
+	public default boolean evalBoolean(Scope context)
+			throws ExpressionException {
+		var result = evaluate(context);
+		if (result instanceof Boolean)
+			return (Boolean) result;
+		throw new ExpressionException(getName()
+				+ " does not evaluate to a boolean value", getLine(),
+				getColumn());
+	}
+
 	public void check() throws ExpressionException;
 
 	public Class<?> getResultType();
@@ -1,12 +1,15 @@
 package org.openlca.expressions;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Optional;
+import java.util.Random;
 
 public class FormulaInterpreter {
 
 	private final Scope globalScope;
 	private final HashMap<Long, Scope> scopes = new HashMap<>();
+	private EvaluationPlan plan;
 
 	public FormulaInterpreter() {
 		globalScope = new Scope();
@@ -21,6 +24,54 @@ public class FormulaInterpreter {
 		scopes.clear();
 	}
 
+	/**
+	 * Creates a copy of this interpreter with copies of all scopes and variable
+	 * bindings. As evaluating formulas modifies the state of an interpreter, a
+	 * copy can be used to evaluate formulas in another thread.
+	 */
+	public FormulaInterpreter copy() {
+		var copy = new FormulaInterpreter();
+		var copies = new IdentityHashMap<Scope, Scope>();
+		globalScope.copyTo(copy.globalScope);
+		copies.put(globalScope, copy.globalScope);
+		for (var e : scopes.entrySet()) {
+			copy.scopes.put(e.getKey(), copyOf(e.getValue(), copies));
+		}
+		return copy;
+	}
+
+	private Scope copyOf(Scope scope, IdentityHashMap<Scope, Scope> copies) {
+		var copy = copies.get(scope);
+		if (copy != null)
+			return copy;
+		var parent = scope.parent() != null
+				? copyOf(scope.parent(), copies)
+				: null;
+		copy = new Scope(parent);
+		scope.copyTo(copy);
+		copies.put(scope, copy);
+		return copy;
+	}
+
+	/**
+	 * Evaluates the expressions of all variables in all scopes of this
+	 * interpreter. The variables are evaluated in the order of their
+	 * dependencies so that each expression is evaluated exactly once. The plan
+	 * for this order is only calculated again when variables are added or
+	 * removed or when their expressions change. Thus, this is the fastest way
+	 * to update the variables after changing the values of some bindings, e.g.
+	 * in a Monte-Carlo simulation. Variables that cannot be evaluated (because
+	 * of an invalid expression or a cyclic dependency) are skipped here; an
+	 * error is then thrown when they are used in an expression.
+	 */
+	public void evaluateVariables() {
+		if (plan == null || plan.layout != globalScope.layout()) {
+			plan = EvaluationPlan.of(globalScope, scopes.values());
+		}
+		globalScope.invalidate();
+		plan.run();
+	}
+
 	/**
 	 * Evaluates the given expression in the global scope of the interpreter.
 	 */
@@ -44,6 +95,24 @@ public class FormulaInterpreter {
 		getGlobalScope().bind(variable, value);
 	}
 
+	/**
+	 * Sets the source of random numbers for this interpreter. It is used by
+	 * functions like `rand` and can be used to draw values of uncertainty
+	 * distributions so that they are reproducible for a seeded source. When
+	 * `null` is passed, the random number generator of the current thread is
+	 * used (which is also the default).
+	 */
+	public void setRandom(Random random) {
+		globalScope.setRandom(random);
+	}
+
+	/**
+	 * Returns the source of random numbers of this interpreter.
+	 */
+	public Random getRandom() {
+		return globalScope.getRandom();
+	}
+
 	/** Returns the global scope of the interpreter. */
 	public Scope getGlobalScope() {
 		return globalScope;
@@ -1,24 +1,20 @@
 // ported from the xReporter project
 package org.openlca.expressions;
 
-import java.util.Iterator;
-
 class OpAnd extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		boolean result = true;
-		Iterator<Expression> argIt = arguments.iterator();
-		while (argIt.hasNext()) {
-			result = result
-					&& ((Boolean) argIt.next().evaluate(context))
-							.booleanValue();
-			if (!result)
-				return Boolean.FALSE;
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		for (int i = 0; i < arguments.size(); i++) {
+			if (!arguments.get(i).evalBoolean(context))
+				return false;
 		}
-		if (result)
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+		return true;
 	}
 
 	@Override
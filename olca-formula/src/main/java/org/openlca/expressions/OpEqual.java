@@ -4,16 +4,17 @@ package org.openlca.expressions;
 class OpEqual extends AbstractComparisonExpression {
 
 	@Override
-	public Object evaluate(Scope context) throws ExpressionException {
-		Object value1 = arguments.get(0).evaluate(context);
-		Object value2 = arguments.get(1).evaluate(context);
-		if (value1.equals(value2))
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+	protected boolean test(int comparison) {
+		return comparison == 0;
+	}
+
+	@Override
+	protected boolean test(Object value1, Object value2) {
+		return value1.equals(value2);
 	}
 
 	@Override
 	public String getName() {
 		return "==";
 	}
-}
\ No newline at end of file
+}
@@ -4,9 +4,14 @@ public class OpExponentiation extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Double result1 = (Double) arguments.get(0).evaluate(context);
-		Double result2 = (Double) arguments.get(1).evaluate(context);
-		return Math.pow(result1, result2);
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double base = arguments.get(0).evalDouble(context);
+		double exponent = arguments.get(1).evalDouble(context);
+		return Math.pow(base, exponent);
 	}
 
 	@Override
@@ -4,10 +4,14 @@ class OpIntegerDivision extends AbstractNumericOperator {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Double result = (Double) arguments.get(0).evaluate(context);
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double result = arguments.get(0).evalDouble(context);
 		for (int i = 1; i < arguments.size(); i++) {
-			Expression function = arguments.get(i);
-			Double value = (Double) function.evaluate(context);
+			double value = arguments.get(i).evalDouble(context);
 			result = (double) (Math.round(result) / Math.round(value));
 		}
 		return result;
@@ -4,17 +4,12 @@ package org.openlca.expressions;
 class OpLessThanOrEqual extends AbstractComparisonExpression {
 
 	@Override
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public Object evaluate(Scope context) throws ExpressionException {
-		Comparable value1 = (Comparable) arguments.get(0).evaluate(context);
-		Comparable value2 = (Comparable) arguments.get(1).evaluate(context);
-		if (value1.compareTo(value2) <= 0)
-			return Boolean.TRUE;
-		return Boolean.FALSE;
+	protected boolean test(int comparison) {
+		return comparison <= 0;
 	}
 
 	@Override
 	public String getName() {
 		return "<=";
 	}
-}
\ No newline at end of file
+}
@@ -4,7 +4,12 @@ class OpUnaryMinus extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		return -((Double) arguments.get(0).evaluate(context));
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return -arguments.get(0).evalDouble(context);
 	}
 
 	@Override
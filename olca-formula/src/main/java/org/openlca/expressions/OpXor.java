@@ -4,9 +4,14 @@ class OpXor extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		Boolean b1 = (Boolean) arguments.get(0).evaluate(context);
-		Boolean b2 = (Boolean) arguments.get(1).evaluate(context);
-		return b1.booleanValue() != b2.booleanValue();
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		boolean b1 = arguments.get(0).evalBoolean(context);
+		boolean b2 = arguments.get(1).evalBoolean(context);
+		return b1 != b2;
 	}
 
 	@Override
@@ -1,19 +1,49 @@
 package org.openlca.expressions;
 
 import java.io.StringReader;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A scope contains bindings of variable names to expressions. Each scope has a
  * reference to a parent scope except of the global scope. An expression can be
  * evaluated in a scope.
- *
+ * <p>
+ * Expressions are parsed only once: the parsed expressions of a scope are
+ * cached and the variables in them are resolved to the respective bindings
+ * when they are evaluated the first time. The values of variables that are
+ * bound to expressions are cached until a binding of the interpreter changes.
  */
 public final class Scope {
 
 	private final Scope parent;
+
+	/** The global scope which holds the versions of the interpreter state. */
+	private final Scope root;
+
 	private final HashMap<String, Variable> variables = new HashMap<>();
-	private final HashMap<String, Integer> evaluationCalls = new HashMap<>();
+
+	/** The parsed expressions that were evaluated in this scope. */
+	private final HashMap<String, Expression> compiled = new HashMap<>();
+
+	private Random random;
+
+	/**
+	 * Only used in the global scope: it is incremented when a binding in any
+	 * scope of the interpreter changes. Cached values of variables that were
+	 * evaluated in a previous version are invalid.
+	 */
+	private long version;
+
+	/**
+	 * Only used in the global scope: it is incremented when a variable is added
+	 * or removed in any scope of the interpreter or when the expression of a
+	 * variable changes. Resolved variables of parsed expressions are invalid
+	 * when they were resolved in a previous layout.
+	 */
+	private long layout;
 
 	Scope() {
 		this(null);
@@ -21,6 +51,7 @@ public final class Scope {
 
 	Scope(Scope parent) {
 		this.parent = parent;
+		this.root = parent == null ? this : parent.root;
 	}
 
 	/**
@@ -30,8 +61,19 @@ public final class Scope {
 		if (variable == null)
 			return;
 		var symbol = variable.toLowerCase().trim();
-		var v = new Variable(symbol, value);
-		variables.put(symbol, v);
+		var v = variables.get(symbol);
+		if (v == null) {
+			variables.put(symbol, new Variable(symbol, value));
+			root.layout++;
+		} else {
+			if (v.expression != null) {
+				v.expression = null;
+				v.compiled = null;
+				root.layout++;
+			}
+			v.value = value;
+		}
+		root.version++;
 	}
 
 	/**
@@ -41,8 +83,66 @@ public final class Scope {
 		if (variable == null || expression == null)
 			return;
 		var symbol = variable.toLowerCase().trim();
-		var v = new Variable(symbol, expression);
-		variables.put(symbol, v);
+		var v = variables.get(symbol);
+		if (v == null) {
+			variables.put(symbol, new Variable(symbol, expression));
+			root.layout++;
+		} else if (!expression.equals(v.expression)) {
+			v.expression = expression;
+			v.compiled = null;
+			root.layout++;
+		}
+		root.version++;
+	}
+
+	Scope parent() {
+		return parent;
+	}
+
+	Collection<Variable> variables() {
+		return variables.values();
+	}
+
+	long layout() {
+		return root.layout;
+	}
+
+	/**
+	 * Invalidates the cached values of all variables of the interpreter.
+	 */
+	void invalidate() {
+		root.version++;
+	}
+
+	/**
+	 * Binds the variables of this scope to the given scope.
+	 */
+	void copyTo(Scope other) {
+		for (var v : variables.values()) {
+			var copy = v.expression != null
+					? other.new Variable(v.name, v.expression)
+					: other.new Variable(v.name, v.value);
+			other.variables.put(v.name, copy);
+		}
+		other.root.layout++;
+		other.root.version++;
+	}
+
+	void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns the source of random numbers of this scope (e.g. for the `rand`
+	 * function). If no source is set in this scope or one of its parents, the
+	 * random number generator of the current thread is returned.
+	 */
+	public Random getRandom() {
+		if (random != null)
+			return random;
+		return parent != null
+				? parent.getRandom()
+				: ThreadLocalRandom.current();
 	}
 
 	/**
@@ -50,39 +150,35 @@ public final class Scope {
 	 */
 	public void clear() {
 		variables.clear();
-		evaluationCalls.clear();
+		compiled.clear();
+		root.layout++;
+		root.version++;
 	}
 
 	/**
 	 * Evaluates the given expression in this scope.
 	 */
 	public double eval(String expression) throws InterpreterException {
-		// reset the evaluation calls and values for variables
-		evaluationCalls.clear();
-		for (Variable variable : variables.values()) {
-			if (variable.expression != null) {
-				variable.value = null;
-			}
-		}
 		try {
-			return tryEval(expression);
+			var e = compiled.get(expression);
+			if (e == null) {
+				e = parse(expression);
+				compiled.put(expression, e);
+			}
+			return e.evalDouble(this);
 		} catch (Throwable e) {
 			throw new InterpreterException("Evaluation of expression "
 					+ expression + " failed: " + e.getMessage(), e);
 		}
 	}
 
-	private double tryEval(String expression) throws Exception {
+	static Expression parse(String expression) throws Exception {
 		var reader = new StringReader(expression.toLowerCase());
 		var parser = new FormulaParser(reader);
 		parser.parse();
 		var e = parser.getExpression();
 		e.check();
-		var result = e.evaluate(this);
-		if (result instanceof Double)
-			return (Double) result;
-		throw new InterpreterException("The expression " + expression
-				+ " does not evaluate to a number.");
+		return e;
 	}
 
 	public Object resolveVariable(String name) throws InterpreterException {
@@ -90,40 +186,76 @@ public final class Scope {
 			return null;
 		var symbol = name.trim().toLowerCase();
 		var v = variables.get(symbol);
-		if (v != null) {
-			// variable is bound in this scope
-			return v.isEvaluated()
-					? v.value
-					: eval(v);
-		}
+		if (v != null)
+			return v.eval();
 		// search in parent scope or constants
 		return parent != null
 				? parent.resolveVariable(symbol)
 				: Constants.get(name);
 	}
 
-	private Object eval(Variable var) throws InterpreterException {
-		Integer call = evaluationCalls.get(var.name);
-		if (call != null && call > 0)
+	/**
+	 * Resolves the value of the given variable function in this scope. The
+	 * binding of the variable is cached in the function until the layout of
+	 * the interpreter changes.
+	 */
+	Object resolve(VariableFunction f) throws InterpreterException {
+		var binding = bindingOf(f);
+		return binding instanceof Variable
+				? ((Variable) binding).eval()
+				: binding;
+	}
+
+	/**
+	 * Same as `resolve` but returns the numeric value of the variable without
+	 * boxing it.
+	 */
+	double resolveDouble(VariableFunction f) throws InterpreterException {
+		var binding = bindingOf(f);
+		if (binding instanceof Variable)
+			return ((Variable) binding).eval();
+		if (binding instanceof Double)
+			return (Double) binding;
+		if (binding == null)
 			throw new InterpreterException(
-					"Second evaluation call on variable "
-							+ var.name + ". Cyclic dependencies?");
-		evaluationCalls.put(var.name, 1);
-		try {
-			var.value = tryEval(var.expression);
-			return var.value;
-		} catch (Throwable e) {
-			throw new InterpreterException("Evaluation of variable "
-					+ var.name + " failed: " + e.getMessage(), e);
+					"Unknown variable " + f.getVariableName());
+		throw new InterpreterException(
+				"Variable " + f.getVariableName() + " is not a number");
+	}
+
+	/**
+	 * Returns the variable or constant to which the given function is bound in
+	 * this scope, or `null` if there is no such binding.
+	 */
+	Object bindingOf(VariableFunction f) {
+		if (f.scope == this && f.layout == root.layout)
+			return f.binding;
+		var symbol = f.getVariableName().trim().toLowerCase();
+		Object binding = null;
+		for (var s = this; s != null; s = s.parent) {
+			binding = s.variables.get(symbol);
+			if (binding != null)
+				break;
+		}
+		if (binding == null) {
+			binding = Constants.get(symbol);
 		}
+		f.scope = this;
+		f.layout = root.layout;
+		f.binding = binding;
+		return binding;
 	}
 
-	private class Variable {
+	final class Variable {
 
 		final String name;
-		final String expression;
+		String expression;
+		Expression compiled;
+		double value;
 
-		private Double value;
+		/** The version in which the expression was evaluated. */
+		private long evaluatedAt = -1;
+		private boolean evaluating;
 
 		Variable(String name, String expression) {
 			this.name = name;
@@ -136,8 +268,39 @@ public final class Scope {
 			this.expression = null;
 		}
 
-		public boolean isEvaluated() {
-			return value != null;
+		Scope scope() {
+			return Scope.this;
+		}
+
+		boolean isEvaluated() {
+			return expression == null || evaluatedAt == root.version;
+		}
+
+		/**
+		 * Returns the value of the variable; evaluates the expression of the
+		 * variable if it was not evaluated in the current version.
+		 */
+		double eval() throws InterpreterException {
+			if (isEvaluated())
+				return value;
+			if (evaluating)
+				throw new InterpreterException(
+						"Second evaluation call on variable "
+								+ name + ". Cyclic dependencies?");
+			evaluating = true;
+			try {
+				if (compiled == null) {
+					compiled = parse(expression);
+				}
+				value = compiled.evalDouble(Scope.this);
+				evaluatedAt = root.version;
+				return value;
+			} catch (Throwable e) {
+				throw new InterpreterException("Evaluation of variable "
+						+ name + " failed: " + e.getMessage(), e);
+			} finally {
+				evaluating = false;
+			}
 		}
 	}
 }
@@ -7,6 +7,12 @@ public class VariableFunction implements Expression {
 	protected String position;
 	protected int line, column;
 
+	// the resolved binding of the variable in the scope and layout in which
+	// it was last evaluated; see Scope.bindingOf
+	Scope scope;
+	long layout = -1;
+	Object binding;
+
 	public VariableFunction(String variableName) {
 		this.variableName = variableName;
 	}
@@ -29,7 +35,7 @@ public class VariableFunction implements Expression {
 	public Object evaluate(Scope context) throws ExpressionException {
 		Object obj = null;
 		try {
-			obj = context.resolveVariable(variableName);
+			obj = context.resolve(this);
 		} catch (Exception e) {
 			throw new ExpressionException(e.getMessage(), getLine(),
 					getColumn());
@@ -40,6 +46,16 @@ public class VariableFunction implements Expression {
 		return obj;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		try {
+			return context.resolveDouble(this);
+		} catch (Exception e) {
+			throw new ExpressionException(e.getMessage(), getLine(),
+					getColumn());
+		}
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 	}
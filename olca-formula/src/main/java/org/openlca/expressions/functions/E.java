@@ -8,6 +8,11 @@ class E extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) {
 		return Math.E;
 	}
 
@@ -8,7 +8,12 @@ class False extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		return Boolean.FALSE;
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) {
+		return false;
 	}
 
 	@Override
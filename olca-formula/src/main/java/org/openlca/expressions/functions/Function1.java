@@ -10,8 +10,12 @@ abstract class Function1 extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		double arg = (Double) arguments.get(0).evaluate(context);
-		return eval(arg);
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return eval(arguments.get(0).evalDouble(context));
 	}
 
 	@Override
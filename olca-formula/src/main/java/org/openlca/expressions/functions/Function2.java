@@ -10,8 +10,13 @@ abstract class Function2 extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		double arg1 = (Double) arguments.get(0).evaluate(context);
-		double arg2 = (Double) arguments.get(1).evaluate(context);
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double arg1 = arguments.get(0).evalDouble(context);
+		double arg2 = arguments.get(1).evalDouble(context);
 		return eval(arg1, arg2);
 	}
 
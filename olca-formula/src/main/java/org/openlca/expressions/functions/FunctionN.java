@@ -15,12 +15,16 @@ abstract class FunctionN extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
 		if (arguments == null || arguments.size() == 0)
 			return getDefault();
 		double[] args = new double[arguments.size()];
 		for (int i = 0; i < args.length; i++) {
-			double arg = (Double) (arguments.get(i).evaluate(context));
-			args[i] = arg;
+			args[i] = arguments.get(i).evalDouble(context);
 		}
 		return eval(args);
 	}
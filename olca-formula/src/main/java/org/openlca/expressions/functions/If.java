@@ -8,11 +8,16 @@ public class If extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		boolean result = ((Boolean) arguments.get(0).evaluate(context))
-				.booleanValue();
-		if (result)
-			return arguments.get(1).evaluate(context);
-		return arguments.get(2).evaluate(context);
+		return arguments.get(0).evalBoolean(context)
+				? arguments.get(1).evaluate(context)
+				: arguments.get(2).evaluate(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return arguments.get(0).evalBoolean(context)
+				? arguments.get(1).evalDouble(context)
+				: arguments.get(2).evalDouble(context);
 	}
 
 	@Override
@@ -1,9 +1,6 @@
 package org.openlca.expressions.functions;
 
-import java.util.Iterator;
-
 import org.openlca.expressions.AbstractExpression;
-import org.openlca.expressions.Expression;
 import org.openlca.expressions.ExpressionException;
 import org.openlca.expressions.Scope;
 
@@ -11,13 +8,16 @@ public class Or extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		boolean result = false;
-		Iterator<Expression> it = arguments.iterator();
-		while (!result && it.hasNext()) {
-			Boolean next = (Boolean) it.next().evaluate(context);
-			result = result | next;
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		for (int i = 0; i < arguments.size(); i++) {
+			if (arguments.get(i).evalBoolean(context))
+				return true;
 		}
-		return result;
+		return false;
 	}
 
 	@Override
@@ -8,6 +8,11 @@ class Pi extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) {
 		return Math.PI;
 	}
 
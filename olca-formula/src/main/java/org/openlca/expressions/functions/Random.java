@@ -8,7 +8,12 @@ class Random extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		return Math.random();
+		return evalDouble(context);
+	}
+
+	@Override
+	public double evalDouble(Scope context) {
+		return context.getRandom().nextDouble();
 	}
 
 	@Override
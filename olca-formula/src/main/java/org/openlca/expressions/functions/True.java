@@ -8,7 +8,12 @@ class True extends AbstractExpression {
 
 	@Override
 	public Object evaluate(Scope context) throws ExpressionException {
-		return Boolean.TRUE;
+		return evalBoolean(context);
+	}
+
+	@Override
+	public boolean evalBoolean(Scope context) {
+		return true;
 	}
 
 	@Override
@@ -0,0 +1,63 @@
+package org.openlca.expressions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvaluationPlanTest {
+
+	@Test
+	public void testUpdateDependentVariables() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		interpreter.bind("b", "a * 3");
+		var local = interpreter.createScope(1);
+		local.bind("c", "b + 1");
+		Assert.assertEquals(14.0, local.eval("2 * c"), 1e-16);
+
+		// changing a global value invalidates the cached values of the
+		// dependent variables in all scopes
+		interpreter.bind("a", 3);
+		Assert.assertEquals(20.0, local.eval("2 * c"), 1e-16);
+
+		interpreter.bind("a", 4);
+		interpreter.evaluateVariables();
+		Assert.assertEquals(26.0, local.eval("2 * c"), 1e-16);
+		Assert.assertEquals(12.0, interpreter.eval("b"), 1e-16);
+	}
+
+	@Test
+	public void testShadowing() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		var local = interpreter.createScope(1);
+		local.bind("b", "a * 3");
+		Assert.assertEquals(6.0, local.eval("b"), 1e-16);
+
+		// a new local binding shadows the global one
+		local.bind("a", 5);
+		interpreter.evaluateVariables();
+		Assert.assertEquals(15.0, local.eval("b"), 1e-16);
+		Assert.assertEquals(2.0, interpreter.eval("a"), 1e-16);
+	}
+
+	@Test
+	public void testSkipInvalidVariables() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		interpreter.bind("b", "a * ");
+		interpreter.bind("c", "b + 1");
+		interpreter.bind("d", "e");
+		interpreter.bind("e", "d");
+		interpreter.bind("f", "a + 1");
+		interpreter.evaluateVariables();
+		Assert.assertEquals(3.0, interpreter.eval("f"), 1e-16);
+		for (var v : new String[] { "b", "c", "d", "e" }) {
+			try {
+				interpreter.eval(v);
+				Assert.fail("evaluation of " + v + " should fail");
+			} catch (InterpreterException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -46,4 +46,16 @@ public class OperatorTest {
 		assertEquals(10.0, interpreter.eval("2 * (7 div 2 + 2)"), 1e-20);
 	}
 
+	@Test
+	public void testComparisons() throws Exception {
+		interpreter.bind("a", 2);
+		interpreter.bind("b", "a + 1");
+		assertEquals(1.0, interpreter.eval("if(a < b; 1; 0)"), 1e-20);
+		assertEquals(0.0, interpreter.eval("if(a >= b; 1; 0)"), 1e-20);
+		assertEquals(1.0, interpreter.eval("if(b == 3; 1; 0)"), 1e-20);
+		assertEquals(1.0, interpreter.eval("if(a != 3; 1; 0)"), 1e-20);
+		assertEquals(1.0, interpreter.eval("if(a <= 2 && b > 2; 1; 0)"), 1e-20);
+		assertEquals(0.0, interpreter.eval("if(not(a == a); 1; 0)"), 1e-20);
+		assertEquals(1.0, interpreter.eval("if(true == true; 1; 0)"), 1e-20);
+	}
 }
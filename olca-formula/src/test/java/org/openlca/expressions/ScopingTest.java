@@ -46,4 +46,24 @@ public class ScopingTest {
 		Assert.assertEquals(18.0, scope.eval("c"), 1e-16);
 	}
 
+	@Test
+	public void testCopy() throws Exception {
+		var interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		interpreter.bind("b", "a * 3");
+		var parent = interpreter.createScope(1);
+		parent.bind("c", "b + 1");
+		var child = interpreter.createScope(2, parent);
+		child.bind("d", "c * 2");
+
+		// changes in the copy do not affect the original and vice versa
+		var copy = interpreter.copy();
+		copy.bind("a", 3);
+		Assert.assertEquals(20.0, copy.getScopeOrGlobal(2).eval("d"), 1e-16);
+		Assert.assertEquals(14.0, child.eval("d"), 1e-16);
+		parent.bind("c", 42);
+		Assert.assertEquals(84.0, child.eval("d"), 1e-16);
+		Assert.assertEquals(20.0, copy.getScopeOrGlobal(2).eval("d"), 1e-16);
+	}
+
 }
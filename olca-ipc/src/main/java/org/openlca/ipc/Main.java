@@ -5,8 +5,9 @@ import java.io.File;
 import org.openlca.core.DataDir;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.Derby;
+import org.openlca.core.matrix.solvers.FactorizationCache;
 import org.openlca.core.matrix.solvers.MatrixSolver;
-import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.matrix.solvers.SparseJavaSolver;
 import org.openlca.julia.Julia;
 import org.openlca.julia.JuliaSolver;
 import org.slf4j.Logger;
@@ -19,6 +20,8 @@ public class Main {
 	private String db;
 	private String port;
 	private String lib;
+	private String cache;
+	private String diskCache;
 
 	private static Main parseArgs(String[] args) {
 		var main = new Main();
@@ -36,6 +39,8 @@ public class Main {
 				case "-db" -> main.db = arg;
 				case "-port" -> main.port = arg;
 				case "-lib" -> main.lib = arg;
+				case "-cache" -> main.cache = arg;
+				case "-disk-cache" -> main.diskCache = arg;
 			}
 			flag = null;
 		}
@@ -49,6 +54,7 @@ public class Main {
 		int port = initPort();
 		try {
 			var solver = initSolver();
+			initCache();
 			var server = new Server(port)
 				.withDefaultHandlers(db, solver);
 			server.start();
@@ -112,12 +118,40 @@ public class Main {
 			}
 			log.warn("Could not load a native library; use plain Java solver" +
 				"; this can be very slow");
-			return new JavaSolver();
+			return new SparseJavaSolver();
 		} catch (Exception e) {
 			log.error("Initialization of matrix solver failed", e);
 			log.warn("Could not load a native library; use plain Java solver" +
 				"; this can be very slow");
-			return new JavaSolver();
+			return new SparseJavaSolver();
+		}
+	}
+
+	/**
+	 * Sets up a factorization cache with the given number of entries in
+	 * memory, if a size was given. With `-disk-cache`, the entries are also
+	 * stored in the data directory up to the given number of megabytes.
+	 */
+	private void initCache() {
+		if (this.cache == null)
+			return;
+		try {
+			int size = Integer.parseInt(this.cache);
+			if (size <= 0)
+				return;
+			var cache = FactorizationCache.create(size);
+			log.info("Cache up to {} factorizations in memory", size);
+			if (this.diskCache != null) {
+				long mb = Long.parseLong(this.diskCache);
+				if (mb > 0) {
+					cache.withDiskTier(mb * 1024 * 1024);
+					log.info("Cache up to {} MB of factorizations on disk", mb);
+				}
+			}
+			FactorizationCache.setDefault(cache);
+		} catch (Exception e) {
+			log.error("invalid cache size: " + this.cache
+				+ " / " + this.diskCache, e);
 		}
 	}
 
@@ -1,5 +1,6 @@
 package org.openlca.ipc.handlers;
 
+import org.openlca.core.math.Simulator;
 import org.openlca.ipc.Cache;
 import org.openlca.ipc.Responses;
 import org.openlca.ipc.Rpc;
@@ -28,8 +29,14 @@ public class CacheHandler {
 		String id = Json.getString(param, "@id");
 		if (id == null)
 			return Responses.error(400, "No '@id' provided", req);
-		boolean removed = cache.remove(id) != null;
-		if (removed) {
+		Object removed = cache.remove(id);
+		if (removed != null) {
+			if (removed instanceof CachedResult) {
+				var result = ((CachedResult<?>) removed).result;
+				if (result instanceof Simulator) {
+					((Simulator) result).getResult().close();
+				}
+			}
 			log.info("Removed {} from memory", id);
 			return Responses.ok(req);
 		}
@@ -1,9 +1,11 @@
 package org.openlca.ipc.handlers;
 
+import java.io.File;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Function;
 
+import org.openlca.core.DataDir;
 import org.openlca.core.database.EntityCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
@@ -42,7 +44,10 @@ public class Calculator {
 	}
 
 	/**
-	 * Creates a Monte-Carlo simulator for a calculation setup.
+	 * Creates a Monte-Carlo simulator for a calculation setup. The result
+	 * vectors of the simulation runs are stored in files in the `simulations`
+	 * folder of the data directory; these files are deleted when the
+	 * simulator is disposed.
 	 */
 	@Rpc("simulator")
 	public RpcResponse simulator(RpcRequest req) {
@@ -51,7 +56,8 @@ public class Calculator {
 			return p.second;
 		var setup = p.first;
 		log.info("Create simulator for system {}", setup.productSystem.refId);
-		Simulator simulator = Simulator.create(setup, db, context.solver);
+		Simulator simulator = Simulator.create(setup, db, context.solver)
+			.withStorageDir(new File(DataDir.root(), "simulations"));
 		String id = UUID.randomUUID().toString();
 		JsonObject obj = new JsonObject();
 		obj.addProperty("@id", id);
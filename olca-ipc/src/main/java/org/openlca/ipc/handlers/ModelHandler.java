@@ -5,6 +5,7 @@ import org.openlca.core.database.EntityCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ProcessDao;
 import org.openlca.core.database.ProductSystemDao;
+import org.openlca.core.database.search.SearchIndex;
 import org.openlca.core.matrix.ProductSystemBuilder;
 import org.openlca.core.matrix.cache.MatrixCache;
 import org.openlca.core.matrix.cache.ProcessTable;
@@ -115,6 +116,32 @@ public class ModelHandler {
 		return Responses.ok(json, req);
 	}
 
+	@Rpc("search")
+	public RpcResponse search(RpcRequest req) {
+		if (req.params == null || !req.params.isJsonObject())
+			return Responses.invalidParams("params must be an object with"
+					+ " a `query` attribute", req);
+		var obj = req.params.getAsJsonObject();
+		var query = Json.getString(obj, "query");
+		if (Strings.nullOrEmpty(query))
+			return Responses.invalidParams("params must be an object with"
+					+ " a `query` attribute", req);
+		// the type is optional; all types are searched if it is missing
+		var type = getType(obj);
+		if (type == null && Json.getString(obj, "@type") != null)
+			return Responses.invalidParams("params must be an object with"
+					+ " a valid @type attribute if it is present", req);
+		try {
+			var array = new JsonArray();
+			var cache = EntityCache.create(db);
+			SearchIndex.of(db).search(query, type)
+					.forEach(d -> array.add(Json.asRef(d, cache)));
+			return Responses.ok(array, req);
+		} catch (Exception e) {
+			return Responses.serverError(e, req);
+		}
+	}
+
 	@Rpc("insert/model")
 	public RpcResponse insert(RpcRequest req) {
 		return saveModel(req, UpdateMode.NEVER);
@@ -0,0 +1,119 @@
+package org.openlca.proto.server;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.openlca.core.database.BaseDao;
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.RootEntity;
+import org.openlca.proto.generated.data.StreamAllRequest;
+import org.openlca.proto.generated.data.StreamAllResponse;
+import org.slf4j.LoggerFactory;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Streams the data sets of a type ordered by their IDs. The data sets are
+ * loaded in batches with keyset queries (`id > cursor order by id`), so that
+ * each batch is loaded with a single query, independent of its position in
+ * the table. A data set is only sent when the client is ready to receive it;
+ * thus, at most one batch is held in memory.
+ */
+class AllStream implements Runnable {
+
+  private static final int BATCH_SIZE = 100;
+
+  private final IDatabase db;
+  private final BaseDao<? extends RootEntity> dao;
+  private final ServerCallStreamObserver<StreamAllResponse> resp;
+  private final Deque<RootEntity> batch = new ArrayDeque<>();
+
+  /** The ID of the last data set that was loaded. */
+  private long cursor;
+
+  /** The number of data sets that can be still sent; < 0 means no limit. */
+  private int remaining;
+
+  private boolean done;
+  private volatile boolean cancelled;
+
+  private AllStream(IDatabase db, ModelType type, StreamAllRequest req,
+    ServerCallStreamObserver<StreamAllResponse> resp) {
+    this.db = db;
+    this.dao = Daos.root(db, type);
+    this.resp = resp;
+    this.cursor = Math.max(0, req.getAfter());
+    this.remaining = req.getLimit() > 0
+      ? req.getLimit()
+      : -1;
+  }
+
+  /**
+   * Starts the stream of the given request. The data sets are sent from the
+   * handler that is called when the client is ready to receive messages.
+   */
+  static void start(IDatabase db, ModelType type, StreamAllRequest req,
+    StreamObserver<StreamAllResponse> resp) {
+    var observer = (ServerCallStreamObserver<StreamAllResponse>) resp;
+    var stream = new AllStream(db, type, req, observer);
+    observer.setOnCancelHandler(() -> stream.cancelled = true);
+    observer.setOnReadyHandler(stream);
+  }
+
+  @Override
+  public void run() {
+    if (done)
+      return;
+    try {
+      while (resp.isReady()) {
+        if (cancelled) {
+          done = true;
+          return;
+        }
+        if (remaining == 0) {
+          complete();
+          return;
+        }
+        if (batch.isEmpty()) {
+          loadNext();
+          if (batch.isEmpty()) {
+            complete();
+            return;
+          }
+        }
+        var model = batch.poll();
+        resp.onNext(StreamAllResponse.newBuilder()
+          .setDataSet(DataUtil.toDataSet(db, model))
+          .setCursor(model.id)
+          .build());
+        if (remaining > 0) {
+          remaining--;
+        }
+      }
+    } catch (Exception e) {
+      LoggerFactory.getLogger(getClass())
+        .error("failed to stream data sets", e);
+      done = true;
+      Response.serverError(resp, "Failed to stream data sets: "
+        + e.getMessage());
+    }
+  }
+
+  private void loadNext() {
+    int count = remaining > 0
+      ? Math.min(remaining, BATCH_SIZE)
+      : BATCH_SIZE;
+    for (var model : dao.getNext(cursor, count)) {
+      batch.add(model);
+      cursor = model.id;
+    }
+  }
+
+  private void complete() {
+    done = true;
+    resp.onCompleted();
+  }
+}
@@ -29,6 +29,8 @@ import org.openlca.proto.generated.data.GetCategoryTreeRequest;
 import org.openlca.proto.generated.data.GetDescriptorsRequest;
 import org.openlca.proto.generated.data.GetRequest;
 import org.openlca.proto.generated.data.SearchRequest;
+import org.openlca.proto.generated.data.StreamAllRequest;
+import org.openlca.proto.generated.data.StreamAllResponse;
 import org.openlca.proto.output.Refs;
 import org.openlca.util.Strings;
 
@@ -145,6 +147,16 @@ class DataFetchService extends
     resp.onCompleted();
   }
 
+  @Override
+  public void streamAll(
+    StreamAllRequest req, StreamObserver<StreamAllResponse> resp) {
+    var modelType = DataUtil.forceRootTypeOf(
+      req.getModelType(), resp);
+    if (modelType == null)
+      return;
+    AllStream.start(db, modelType, req, resp);
+  }
+
   @Override
   public void getDescriptors(
     GetDescriptorsRequest req, StreamObserver<Proto.Ref> resp) {
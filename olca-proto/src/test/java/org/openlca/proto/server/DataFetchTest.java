@@ -1,6 +1,8 @@
 package org.openlca.proto.server;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 
@@ -15,6 +17,8 @@ import org.openlca.proto.generated.data.DataFetchServiceGrpc;
 import org.openlca.proto.generated.data.GetAllRequest;
 import org.openlca.proto.generated.data.GetAllResponse;
 import org.openlca.proto.generated.data.GetDescriptorsRequest;
+import org.openlca.proto.generated.data.StreamAllRequest;
+import org.openlca.proto.generated.data.StreamAllResponse;
 
 public class DataFetchTest {
 
@@ -120,4 +124,53 @@ public class DataFetchTest {
 
     deleteAll.run();
   }
+
+  @Test
+  public void testStreamAll() {
+    Runnable deleteAll = () -> db.allDescriptorsOf(Actor.class)
+      .forEach(d -> db.delete(db.get(Actor.class, d.id)));
+    deleteAll.run();
+
+    // create 250 actors; more than a single batch of the stream
+    int count = 250;
+    var created = new HashMap<String, Actor>();
+    for (int i = 0; i < count; i++) {
+      var actor = db.insert(Actor.of("actor " + i));
+      created.put(actor.refId, actor);
+    }
+
+    ServiceTests.on(channel -> {
+      var stub = DataFetchServiceGrpc.newBlockingStub(channel);
+      var req = StreamAllRequest.newBuilder()
+        .setModelType(Proto.ModelType.ACTOR);
+
+      // stream all actors
+      var found = new HashSet<String>();
+      long cursor = 0;
+      var all = stub.streamAll(req.build());
+      while (all.hasNext()) {
+        var next = all.next();
+        assertTrue(next.getCursor() > cursor);
+        cursor = next.getCursor();
+        var actor = created.get(next.getDataSet().getActor().getId());
+        assertEquals(actor.id, cursor);
+        assertEquals(actor.name, next.getDataSet().getActor().getName());
+        found.add(actor.refId);
+      }
+      assertEquals(created.keySet(), found);
+
+      // continue a limited stream with the cursor
+      var first = new ArrayList<StreamAllResponse>();
+      stub.streamAll(req.setLimit(120).build()).forEachRemaining(first::add);
+      assertEquals(120, first.size());
+      var last = first.get(first.size() - 1).getCursor();
+      var rest = new ArrayList<StreamAllResponse>();
+      stub.streamAll(req.setAfter(last).setLimit(0).build())
+        .forEachRemaining(rest::add);
+      assertEquals(130, rest.size());
+      assertTrue(rest.get(0).getCursor() > last);
+    });
+
+    deleteAll.run();
+  }
 }